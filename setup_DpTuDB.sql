@@ -61,6 +61,7 @@ CREATE TABLE Course(
       'ERROR'
    ),
    Description VARCHAR(256),
+   ContentVersion INT NOT NULL DEFAULT 1,
 
    PRIMARY KEY (CourseId)
 );
@@ -152,7 +153,8 @@ CREATE TABLE Step (
       'GUI_ACTION',
       'COMPLETE_CELL',
       'COMPLETE_FIRST_ROW',
-      'COMPLETE_FIRST_COL'
+      'COMPLETE_FIRST_COL',
+      'COMPLETE_TABLE'
    ),
   SubTypeId int,
   TimeoutId int,
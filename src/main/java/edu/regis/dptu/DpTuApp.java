@@ -14,6 +14,8 @@
 package edu.regis.dptu;
 
 import edu.regis.dptu.svc.DpTuServer;
+import edu.regis.dptu.svc.DpTuTutor;
+import edu.regis.dptu.svc.ServiceFactory;
 import edu.regis.dptu.util.ResourceMgr;
 import edu.regis.dptu.view.MainFrame;
 import edu.regis.dptu.view.SplashFrame;
@@ -69,6 +71,9 @@ public class DpTuApp {
         System.out.println("Finished initializing");
         
         try {
+            LOGGER.info(" Loading course cache...");
+            ServiceFactory.findCourseCache().warm(DpTuTutor.DEFAULT_COURSE_ID);
+            
             LOGGER.info(" Starting DpTu Server (Tutoring Service)...");
             // ToDo: Separate the initialization of client and server
             // Start the socket server for the DpTu tutor.
@@ -18,7 +18,6 @@ import edu.regis.dptu.err.ObjNotFoundException;
 import edu.regis.dptu.model.Account;
 import edu.regis.dptu.svc.AccountSvc;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -51,7 +50,7 @@ public class AccountDAO extends MySqlDAO implements AccountSvc {
             String userId = acct.getUserId();
 
             try {
-                conn = DriverManager.getConnection(URL);
+                conn = getConnection();
 
                 if (exists(userId, conn)) {
                     throw new IllegalArgException("User exists " + userId);
@@ -92,7 +91,7 @@ public class AccountDAO extends MySqlDAO implements AccountSvc {
         PreparedStatement stmt = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
 
             stmt = conn.prepareStatement(sql);
 
@@ -115,7 +114,7 @@ public class AccountDAO extends MySqlDAO implements AccountSvc {
         Connection conn = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
             return exists(userId, conn);
 
         } catch (SQLException e) {
@@ -133,7 +132,7 @@ public class AccountDAO extends MySqlDAO implements AccountSvc {
         Connection conn = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
 
             return retrieve(userId, conn);
 
@@ -157,7 +156,7 @@ public class AccountDAO extends MySqlDAO implements AccountSvc {
         String userId = account.getUserId();
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
 
             Account dbAcct = retrieve(userId, conn);
 
@@ -0,0 +1,567 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.dao;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * A bounded pool of JDBC connections to the DpTu database.
+ *
+ * A borrowed connection is a proxy whose close() returns the underlying
+ * physical connection to this pool rather than closing it. As the physical
+ * connection isn't closed, neither are the statements created on it, so any
+ * statements the borrower left open are closed when it is returned. Idle
+ * connections are validated when borrowed, and connections that have been
+ * borrowed for longer than the leak threshold are logged along with the
+ * stack trace of the code that borrowed them.
+ *
+ * @author rickb
+ */
+public class ConnectionPool implements DataSource {
+    /**
+     * Handler for logging messages.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    /**
+     * The JDBC URL used to open physical connections.
+     */
+    private final String url;
+
+    /**
+     * The number of connections opened when this pool is created.
+     */
+    private final int minSize;
+
+    /**
+     * The maximum number of connections that may be borrowed at once.
+     */
+    private final int maxSize;
+
+    /**
+     * Milliseconds to wait for a connection when all are borrowed.
+     */
+    private final long borrowTimeout;
+
+    /**
+     * Seconds allowed for validating an idle connection when it is borrowed.
+     */
+    private final int validationTimeout;
+
+    /**
+     * Milliseconds a connection may be borrowed before it is reported as leaked.
+     */
+    private final long leakThreshold;
+
+    /**
+     * Physical connections that aren't currently borrowed (guarded by this).
+     */
+    private final ArrayDeque<Connection> idle;
+
+    /**
+     * The connections currently borrowed from this pool.
+     */
+    private final Set<Lease> leases;
+
+    /**
+     * One permit for each connection that may still be borrowed.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Periodically checks for leaked connections.
+     */
+    private final ScheduledExecutorService leakDetector;
+
+    /**
+     * Whether shutdown() has been called (guarded by this).
+     */
+    private boolean isShutdown;
+
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong unclosedStatements = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    /**
+     * Initialize this pool, opening minSize connections to the given URL.
+     *
+     * @param url the JDBC URL of the database
+     * @param minSize number of connections opened initially
+     * @param maxSize maximum number of connections borrowed at once
+     * @param borrowTimeout milliseconds to wait for a free connection
+     * @param validationTimeout seconds allowed to validate a connection
+     * @param leakThreshold milliseconds before a borrowed connection is
+     *                      reported as leaked, 0 disables leak detection
+     */
+    public ConnectionPool(String url, int minSize, int maxSize, long borrowTimeout,
+                          int validationTimeout, long leakThreshold) {
+        this.url = url;
+        this.minSize = Math.min(minSize, maxSize);
+        this.maxSize = maxSize;
+        this.borrowTimeout = borrowTimeout;
+        this.validationTimeout = validationTimeout;
+        this.leakThreshold = leakThreshold;
+
+        idle = new ArrayDeque<>();
+        leases = ConcurrentHashMap.newKeySet();
+        permits = new Semaphore(maxSize, true);
+
+        try {
+            for (int i = 0; i < this.minSize; i++) {
+                idle.push(open());
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "ConnectionPool-ERR-1: unable to open initial connections {0}", e.toString());
+        }
+
+        if (leakThreshold > 0) {
+            leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "DpTu-LeakDetector");
+                t.setDaemon(true);
+                return t;
+            });
+
+            long period = Math.max(leakThreshold / 2, 100);
+            leakDetector.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            leakDetector = null;
+        }
+    }
+
+    /**
+     * Borrow a connection from this pool, which is returned to the pool when
+     * it is closed.
+     *
+     * @return a pooled Connection
+     * @throws SQLException no connection became available within the borrow
+     *                      timeout or a new connection couldn't be opened.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+
+        try {
+            if (!permits.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("ConnectionPool-ERR-2: no connection available after " + borrowTimeout + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("ConnectionPool-ERR-3: interrupted awaiting a connection", e);
+        }
+
+        try {
+            Connection physical = validIdleConnection();
+
+            if (physical == null) {
+                physical = open();
+            }
+
+            Lease lease = new Lease(physical);
+            leases.add(lease);
+
+            borrowed.incrementAndGet();
+            waitNanos.addAndGet(System.nanoTime() - start);
+
+            return lease.proxy;
+
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Return the number of connections currently borrowed.
+     *
+     * @return int
+     */
+    public int getActiveCount() {
+        return leases.size();
+    }
+
+    /**
+     * Return the number of open connections that aren't borrowed.
+     *
+     * @return int
+     */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getBorrowedCount() {
+        return borrowed.get();
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    public long getInvalidatedCount() {
+        return invalidated.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    public long getLeakCount() {
+        return leaks.get();
+    }
+
+    /**
+     * Return the number of statements left open by borrowers, which were
+     * closed when their connections were returned.
+     *
+     * @return long
+     */
+    public long getUnclosedStatementCount() {
+        return unclosedStatements.get();
+    }
+
+    /**
+     * Return the average time spent in getConnection(), in microseconds.
+     *
+     * @return a double
+     */
+    public double getAverageWaitMicros() {
+        long n = borrowed.get();
+
+        return n == 0 ? 0 : waitNanos.get() / 1000.0 / n;
+    }
+
+    /**
+     * Close all idle connections and stop leak detection. Borrowed connections
+     * are closed when they are returned.
+     */
+    public synchronized void shutdown() {
+        isShutdown = true;
+
+        if (leakDetector != null) {
+            leakDetector.shutdownNow();
+        }
+
+        while (!idle.isEmpty()) {
+            closePhysical(idle.pop());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[active=%d, idle=%d, max=%d, borrowed=%d, created=%d, invalidated=%d, timeouts=%d, leaks=%d, avgWait=%.1fus]",
+                getActiveCount(), getIdleCount(), maxSize, getBorrowedCount(), getCreatedCount(),
+                getInvalidatedCount(), getTimeoutCount(), getLeakCount(), getAverageWaitMicros());
+    }
+
+    /**
+     * Return the most recently used idle connection that is still valid,
+     * closing any invalid connections encountered.
+     *
+     * @return a valid physical Connection or null if none are idle.
+     */
+    private Connection validIdleConnection() {
+        Connection conn;
+
+        while ((conn = pollIdle()) != null) {
+            try {
+                if (conn.isValid(validationTimeout)) {
+                    return conn;
+                }
+            } catch (SQLException e) {
+                LOGGER.log(Level.INFO, "ConnectionPool-ERR-4: isValid() {0}", e.toString());
+            }
+
+            invalidated.incrementAndGet();
+            closePhysical(conn);
+        }
+
+        return null;
+    }
+
+    private synchronized Connection pollIdle() {
+        return idle.poll();
+    }
+
+    /**
+     * Open a new physical connection to the database.
+     */
+    private Connection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+
+        created.incrementAndGet();
+
+        return conn;
+    }
+
+    /**
+     * Return the physical connection of the given lease to the idle connections,
+     * rolling back any uncommitted work and restoring auto-commit.
+     */
+    private void release(Lease lease) {
+        if (!leases.remove(lease)) {
+            return; // Already returned
+        }
+
+        Connection conn = lease.physical;
+        boolean reusable;
+
+        unclosedStatements.addAndGet(lease.closeStatements());
+
+        try {
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+
+            reusable = !conn.isClosed();
+
+        } catch (SQLException e) {
+            LOGGER.log(Level.INFO, "ConnectionPool-ERR-5: release {0}", e.toString());
+            reusable = false;
+        }
+
+        synchronized (this) {
+            if (reusable && !isShutdown) {
+                idle.push(conn);
+            } else {
+                closePhysical(conn);
+            }
+        }
+
+        permits.release();
+    }
+
+    private void closePhysical(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.INFO, "ConnectionPool-ERR-6: close() {0}", e.toString());
+        }
+    }
+
+    /**
+     * Return whether the given statement is closed, or unusable.
+     */
+    private static boolean isClosed(Statement stmt) {
+        try {
+            return stmt.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Log each connection that has been borrowed for longer than the leak
+     * threshold (once per borrow).
+     */
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+
+        for (Lease lease : leases) {
+            if (!lease.reported && now - lease.borrowedAt > leakThreshold) {
+                lease.reported = true;
+                leaks.incrementAndGet();
+
+                LOGGER.log(Level.WARNING, "ConnectionPool-ERR-7: connection borrowed for more than "
+                        + leakThreshold + " ms, possible leak", lease.borrower);
+            }
+        }
+    }
+
+    /**
+     * A borrowed connection, whose proxy returns the physical connection to
+     * the pool when it is closed.
+     */
+    private class Lease implements InvocationHandler {
+        private final Connection physical;
+        private final Connection proxy;
+        private final long borrowedAt;
+
+        /**
+         * Records where the connection was borrowed for leak reports.
+         */
+        private final Throwable borrower;
+
+        private volatile boolean reported;
+        private volatile boolean closed;
+
+        /**
+         * The statements created on the proxy, which may still be open
+         * (guarded by this lease).
+         */
+        private final ArrayList<Statement> statements = new ArrayList<>();
+
+        Lease(Connection physical) {
+            this.physical = physical;
+
+            borrowedAt = System.currentTimeMillis();
+            borrower = leakDetector == null ? null : new Throwable("Connection borrowed here");
+
+            proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(this);
+                    }
+                    return null;
+
+                case "isClosed":
+                    return closed || physical.isClosed();
+
+                case "equals":
+                    return p == args[0];
+
+                case "hashCode":
+                    return System.identityHashCode(p);
+
+                case "toString":
+                    return "Pooled" + physical;
+
+                default:
+                    if (closed) {
+                        throw new SQLException("ConnectionPool-ERR-8: connection returned to pool");
+                    }
+
+                    Object result;
+
+                    try {
+                        result = method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+
+                    if (result instanceof Statement) {
+                        track((Statement) result);
+                    }
+
+                    return result;
+            }
+        }
+
+        /**
+         * Remember the given statement, so it can be closed when this lease
+         * is returned, forgetting the statements already closed.
+         */
+        private synchronized void track(Statement stmt) {
+            if (statements.size() >= 64) {
+                statements.removeIf(ConnectionPool::isClosed);
+            }
+
+            statements.add(stmt);
+        }
+
+        /**
+         * Close the statements created on this lease that are still open.
+         *
+         * @return the number of statements closed
+         */
+        synchronized int closeStatements() {
+            int count = 0;
+
+            for (Statement stmt : statements) {
+                if (!isClosed(stmt)) {
+                    count++;
+
+                    try {
+                        stmt.close();
+                    } catch (SQLException e) {
+                        LOGGER.log(Level.INFO, "ConnectionPool-ERR-9: stmt.close() {0}", e.toString());
+                    }
+                }
+            }
+
+            statements.clear();
+
+            return count;
+        }
+    }
+
+    // Remaining DataSource behaviors, which DpTu doesn't use.
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the configured user");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return LOGGER;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+
+        throw new SQLException("Not a wrapper for " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
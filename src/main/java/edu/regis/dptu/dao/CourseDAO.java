@@ -34,11 +34,11 @@ import edu.regis.dptu.model.UnitDigest;
 import edu.regis.dptu.model.aol.OutcomeGranularity;
 import edu.regis.dptu.svc.CourseSvc;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * A MySql Data Access Object implementing CourseSvc behaviors.
@@ -58,13 +58,88 @@ public class CourseDAO extends MySqlDAO implements CourseSvc {
      */
     @Override
     public Course retrieve(int courseId) throws ObjNotFoundException, NonRecoverableException {
-        final String sql = "SELECT Title,PrimaryPedagogy,Description FROM Course WHERE CourseId = ?";
+        Connection conn = null;
+
+        try {
+            conn = getConnection();
+
+            return retrieve(courseId, conn);
+
+        } catch (SQLException e) {
+            throw new NonRecoverableException("CourseDAO-ERR-1" + e.toString(), e);
+        } finally {
+            close(conn);
+        }
+    }
+
+    /**
+     * Return the entire course with the given id using a fixed number of
+     * set-based queries keyed by CourseId, one each for the course, its
+     * exercising locations, units, tasks (with their LCS problems), steps
+     * (with their timeouts), hints, and knowledge components. The rows are
+     * assembled into the Course graph in memory, so unlike retrieveByRow()
+     * the number of queries doesn't grow with the size of the course.
+     *
+     * @param courseId the id of the course to retrieve
+     * @param conn an open connection to the DB, which isn't closed by this method.
+     * @return the Course with its Units, Tasks, Steps, and Hints
+     * @throws ObjNotFoundException no course has the given id
+     * @throws NonRecoverableException a nonrecoverable exception also see getCause()
+     */
+    public Course retrieve(int courseId, Connection conn)
+            throws ObjNotFoundException, NonRecoverableException {
+
+        Course course = retrieveCourse(courseId, conn);
+
+        course.setExercisingLocations(retrieveExercisingLocations(courseId, conn));
+
+        HashMap<Integer, Unit> units = loadUnits(course, conn);
+        HashMap<Integer, Task> tasks = loadTasks(courseId, units, conn);
+        HashMap<Integer, Step> steps = loadSteps(courseId, tasks, conn);
+
+        loadHints(courseId, steps, conn);
+
+        course.setOutcomes(retrieveKnowledgeComponents(course, conn));
+
+        return course;
+    }
+
+    /**
+     * Return the entire course with the given id by navigating the course
+     * one row at a time, which issues a query per unit, task, step, hint
+     * list, timeout, and LCS problem. Retained as the reference against which
+     * retrieve(courseId, conn) is verified and benchmarked.
+     *
+     * @param courseId the id of the course to retrieve
+     * @param conn an open connection to the DB, which isn't closed by this method.
+     * @return the Course with its Units, Tasks, Steps, and Hints
+     * @throws ObjNotFoundException no course has the given id
+     * @throws NonRecoverableException a nonrecoverable exception also see getCause()
+     */
+    public Course retrieveByRow(int courseId, Connection conn)
+            throws ObjNotFoundException, NonRecoverableException {
+
+        Course course = retrieveCourse(courseId, conn);
+
+        course.setExercisingLocations(retrieveExercisingLocations(courseId, conn));
+        course.setUnits(retrieveUnits(course, conn));
+        course.setOutcomes(retrieveKnowledgeComponents(course, conn));
+
+        return course;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int retrieveContentVersion(int courseId) throws ObjNotFoundException, NonRecoverableException {
+        final String sql = "SELECT ContentVersion FROM Course WHERE CourseId = ?";
 
         Connection conn = null;
         PreparedStatement stmt = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
             stmt = conn.prepareStatement(sql);
 
             stmt.setInt(1, courseId);
@@ -72,27 +147,18 @@ public class CourseDAO extends MySqlDAO implements CourseSvc {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                Course course = new Course(courseId);
-
-                course.setTitle(rs.getString(1));
-                course.setPrimaryPedagogy(TaskSelectionKind.valueOf(rs.getString(2)));
-                course.setDescription(rs.getString(3));
-                course.setExercisingLocations(retrieveExercisingLocations(courseId, conn));
-                course.setUnits(retrieveUnits(course, conn));
-                course.setOutcomes(retrieveKnowledgeComponents(course, conn));
-                
-                return course;
+                return rs.getInt(1);
 
             } else {
                 throw new ObjNotFoundException("Course Id:" + courseId);
             }
         } catch (SQLException e) {
-            throw new NonRecoverableException("CourseDAO-ERR-1" + e.toString(), e);
+            throw new NonRecoverableException("CourseDAO-ERR-18" + e.toString(), e);
         } finally {
             close(conn, stmt);
         }
     }
-    
+
     /**
      * {@inheritDoc}
      */
@@ -207,6 +273,263 @@ public class CourseDAO extends MySqlDAO implements CourseSvc {
         }
     }
 
+    /**
+     * Return the course with the given id, without its units or outcomes.
+     *
+     * @param courseId the id of the course to retrieve
+     * @param conn an open connection to the DB, which isn't closed by this method.
+     * @return a Course
+     * @throws ObjNotFoundException no course has the given id
+     * @throws NonRecoverableException a nonrecoverable exception also see getCause()
+     */
+    private Course retrieveCourse(int courseId, Connection conn)
+            throws ObjNotFoundException, NonRecoverableException {
+
+        final String sql = "SELECT Title,PrimaryPedagogy,Description FROM Course WHERE CourseId = ?";
+
+        PreparedStatement stmt = null;
+
+        try {
+            stmt = conn.prepareStatement(sql);
+
+            stmt.setInt(1, courseId);
+
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                Course course = new Course(courseId);
+
+                course.setTitle(rs.getString(1));
+                course.setPrimaryPedagogy(TaskSelectionKind.valueOf(rs.getString(2)));
+                course.setDescription(rs.getString(3));
+
+                return course;
+
+            } else {
+                throw new ObjNotFoundException("Course Id:" + courseId);
+            }
+        } catch (SQLException e) {
+            throw new NonRecoverableException("CourseDAO-ERR-13" + e.toString(), e);
+        } finally {
+            close(stmt); // Don't close the connection, the caller will
+        }
+    }
+
+    /**
+     * Add all units in the given course to it, each with an empty task list.
+     *
+     * @param course the course whose units are loaded
+     * @param conn an open connection to the DB, which isn't closed by this method.
+     * @return the loaded units indexed by UnitId
+     * @throws NonRecoverableException a nonrecoverable exception also see getCause()
+     */
+    private HashMap<Integer, Unit> loadUnits(Course course, Connection conn)
+            throws NonRecoverableException {
+
+        final String sql = "SELECT UnitId,Title,Description,SequenceIndex,Pedagogy FROM Unit WHERE CourseId = ?";
+
+        HashMap<Integer, Unit> units = new HashMap<>();
+
+        PreparedStatement stmt = null;
+
+        try {
+            stmt = conn.prepareStatement(sql);
+
+            stmt.setInt(1, course.getId());
+
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Unit unit = new Unit(rs.getInt(1));
+                unit.setTitle(rs.getString(2));
+                unit.setDescription(rs.getString(3));
+                unit.setSequenceId(rs.getInt(4));
+                unit.setPedagogy(TaskSelectionKind.findValue(rs.getString(5)));
+                unit.setTasks(new ArrayList<>());
+
+                course.addUnit(unit);
+                units.put(unit.getId(), unit);
+            }
+
+            return units;
+
+        } catch (SQLException e) {
+            throw new NonRecoverableException("CourseDAO-ERR-14" + e.toString(), e);
+        } finally {
+            close(stmt); // Don't close the connection, the caller will
+        }
+    }
+
+    /**
+     * Add all tasks in the given course, joined with their LCS problems, to
+     * their units.
+     *
+     * @param courseId the id of the course whose tasks are loaded
+     * @param units the course's units indexed by UnitId
+     * @param conn an open connection to the DB, which isn't closed by this method.
+     * @return the loaded tasks indexed by TaskId
+     * @throws NonRecoverableException a nonrecoverable exception also see getCause()
+     */
+    private HashMap<Integer, Task> loadTasks(int courseId, HashMap<Integer, Unit> units, Connection conn)
+            throws NonRecoverableException {
+
+        final String sql = "SELECT t.TaskId,t.UnitId,t.Title,t.Description,t.Kind,t.SequenceIndex,t.KindId,"
+                         + "p.Id,p.Title,p.Description,p.Sequence1,p.Sequence2 "
+                         + "FROM Task t LEFT JOIN LCSProblem p ON t.Kind = 'LCS_PROBLEM' AND p.Id = t.KindId "
+                         + "WHERE t.CourseId = ?";
+
+        HashMap<Integer, Task> tasks = new HashMap<>();
+
+        PreparedStatement stmt = null;
+
+        try {
+            stmt = conn.prepareStatement(sql);
+
+            stmt.setInt(1, courseId);
+
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Unit unit = units.get(rs.getInt(2));
+
+                if (unit == null) {
+                    continue; // Not in a unit, so unreachable from the course
+                }
+
+                Task task = new Task(rs.getInt(1));
+                task.setTitle(rs.getString(3));
+                task.setDescription(rs.getString(4));
+                task.setKind(TaskKind.valueOf(rs.getString(5)));
+                task.setSequenceIndex(rs.getInt(6));
+
+                if (task.getKind() == TaskKind.LCS_PROBLEM) {
+                    if (rs.getObject(8) == null) {
+                        String errMsg = "Inconsisted DB LCSProb: " + rs.getInt(7);
+                        throw new NonRecoverableException(errMsg, new InconsistentDBException(errMsg));
+                    }
+
+                    LCSProblem prob = new LCSProblem(rs.getString(11), rs.getString(12));
+                    prob.setId(rs.getInt(7));
+                    prob.setTitle(rs.getString(9));
+                    prob.setDescription(rs.getString(10));
+
+                    task.setProblem(prob);
+                }
+
+                unit.addTask(task);
+                tasks.put(task.getId(), task);
+            }
+
+            return tasks;
+
+        } catch (SQLException e) {
+            throw new NonRecoverableException("CourseDAO-ERR-15" + e.toString(), e);
+        } finally {
+            close(stmt); // Don't close the connection, the caller will
+        }
+    }
+
+    /**
+     * Add all steps in the given course, joined with their timeouts, to
+     * their tasks.
+     *
+     * @param courseId the id of the course whose steps are loaded
+     * @param tasks the course's tasks indexed by TaskId
+     * @param conn an open connection to the DB, which isn't closed by this method.
+     * @return the loaded steps indexed by Id
+     * @throws NonRecoverableException a nonrecoverable exception also see getCause()
+     */
+    private HashMap<Integer, Step> loadSteps(int courseId, HashMap<Integer, Task> tasks, Connection conn)
+            throws NonRecoverableException {
+
+        final String sql = "SELECT s.Id,s.TaskId,s.Title,s.Description,s.SequenceIndex,s.StepSubType,s.TimeoutId,"
+                         + "o.id,o.TimeoutType,o.Seconds,o.Event,o.Msg "
+                         + "FROM Step s LEFT JOIN Timeout o ON o.id = s.TimeoutId "
+                         + "WHERE s.CourseId = ?";
+
+        HashMap<Integer, Step> steps = new HashMap<>();
+
+        PreparedStatement stmt = null;
+
+        try {
+            stmt = conn.prepareStatement(sql);
+
+            stmt.setInt(1, courseId);
+
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Task task = tasks.get(rs.getInt(2));
+
+                if (task == null) {
+                    continue; // Not in a task, so unreachable from the course
+                }
+
+                if (rs.getObject(8) == null) {
+                    String errMsg = "Timeout not found, id: " + rs.getInt(7);
+                    throw new NonRecoverableException(errMsg, new InconsistentDBException(errMsg));
+                }
+
+                Step step = new Step(rs.getInt(1), rs.getInt(5), StepSubType.valueOf(rs.getString(6)));
+                step.setTitle(rs.getString(3));
+                step.setDescription(rs.getString(4));
+                step.setTimeout(new Timeout(rs.getString(9), rs.getInt(10), rs.getString(11), rs.getString(12)));
+
+                task.addStep(step);
+                steps.put(step.getId(), step);
+            }
+
+            return steps;
+
+        } catch (SQLException e) {
+            throw new NonRecoverableException("CourseDAO-ERR-16" + e.toString(), e);
+        } finally {
+            close(stmt); // Don't close the connection, the caller will
+        }
+    }
+
+    /**
+     * Add all hints for the steps in the given course to their steps.
+     *
+     * @param courseId the id of the course whose hints are loaded
+     * @param steps the course's steps indexed by Id
+     * @param conn an open connection to the DB, which isn't closed by this method.
+     * @throws NonRecoverableException a nonrecoverable exception also see getCause()
+     */
+    private void loadHints(int courseId, HashMap<Integer, Step> steps, Connection conn)
+            throws NonRecoverableException {
+
+        final String sql = "SELECT Id,StepId,Text,SequenceIndex FROM Hint "
+                         + "WHERE StepId IN (SELECT Id FROM Step WHERE CourseId = ?)";
+
+        PreparedStatement stmt = null;
+
+        try {
+            stmt = conn.prepareStatement(sql);
+
+            stmt.setInt(1, courseId);
+
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                Step step = steps.get(rs.getInt(2));
+
+                if (step != null) {
+                    Hint hint = new Hint(rs.getInt(1));
+                    hint.setText(rs.getString(3));
+                    hint.setSequenceIndex(rs.getInt(4));
+
+                    step.getHints().add(hint);
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new NonRecoverableException("CourseDAO-ERR-17" + e.toString(), e);
+        } finally {
+            close(stmt); // Don't close the connection, the caller will
+        }
+    }
+
     /**
      * Extract child &lt;Outcome> elements from given XML DOM parent element
      * adding each as a Outcome to the given Course.
@@ -380,8 +703,8 @@ public class CourseDAO extends MySqlDAO implements CourseSvc {
  
                 Step step = new Step(rs.getInt(1), rs.getInt(4), subType);
                 
-                step.setTitle(rs.getString(1));
-                step.setDescription(rs.getString(2));
+                step.setTitle(rs.getString(2));
+                step.setDescription(rs.getString(3));
                 step.setTimeout(retrieveTimeout(rs.getInt(7), conn));
    
                // extractStepSubTypeData(subType, rs.getInt(6),conn);
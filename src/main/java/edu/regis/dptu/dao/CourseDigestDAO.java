@@ -19,7 +19,6 @@ import edu.regis.dptu.model.CourseDigest;
 import edu.regis.dptu.model.TaskSelectionKind;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -51,7 +50,7 @@ public class CourseDigestDAO extends MySqlDAO {
         PreparedStatement stmt = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
 
             if (exists(course.getId(), conn)) {
                 throw new IllegalArgException("Course Digest already exists with id " + course.getId());
@@ -87,7 +86,7 @@ public class CourseDigestDAO extends MySqlDAO {
         PreparedStatement stmt = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
 
             stmt = conn.prepareStatement(sql);
             stmt.setInt(1, courseId);
@@ -109,7 +108,7 @@ public class CourseDigestDAO extends MySqlDAO {
         } catch (SQLException e) {
             throw new NonRecoverableException("Retrieve Course Error", e);
         } finally {
-            close(stmt);
+            close(conn, stmt);
         }
     }
 
@@ -0,0 +1,142 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.dao;
+
+import edu.regis.dptu.err.NonRecoverableException;
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.svc.LCSProblemSvc;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A Data Access Object implementing {@link LCSProblemSvc} behaviors.
+ *
+ * @author rickb
+ */
+public class LCSProblemDAO extends Transactionable implements LCSProblemSvc {
+    /**
+     * Maximum number of inserts sent to the database in one batch.
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Initialize this DAO via the parent constructor.
+     */
+    public LCSProblemDAO() {
+        super();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The LCSProblem ids aren't auto-incremented, so new ids follow the
+     * largest existing id, which is read under a lock.
+     */
+    @Override
+    public int createAll(List<LCSProblem> problems) throws NonRecoverableException {
+        final String sql = "INSERT INTO LCSProblem (Id, Title, Description, Sequence1, Sequence2) VALUES (?,?,?,?,?)";
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        ArrayList<LCSProblem> inserted = new ArrayList<>();
+        int firstId = 0;
+
+        try {
+            conn = getConnection();
+            startTransaction(conn);
+
+            HashSet<String> existing = new HashSet<>();
+            firstId = retrieveSequences(existing, conn) + 1;
+
+            stmt = conn.prepareStatement(sql);
+
+            for (LCSProblem problem : problems) {
+                if (existing.contains(key(problem.getY(), problem.getX()))
+                        || !existing.add(key(problem.getX(), problem.getY()))) {
+                    continue;
+                }
+
+                stmt.setInt(1, firstId + inserted.size());
+                stmt.setString(2, problem.getTitle());
+                stmt.setString(3, problem.getDescription());
+                stmt.setString(4, problem.getX());
+                stmt.setString(5, problem.getY());
+                stmt.addBatch();
+
+                inserted.add(problem);
+
+                if (inserted.size() % BATCH_SIZE == 0) {
+                    stmt.executeBatch();
+                }
+            }
+
+            stmt.executeBatch();
+
+            commit(conn);
+
+        } catch (SQLException e) {
+            if (conn != null) {
+                rollback(conn);
+            }
+
+            throw new NonRecoverableException("LCSProblemDAO-ERR-1 " + e.toString(), e);
+
+        } finally {
+            close(conn, stmt);
+        }
+
+        for (int i = 0; i < inserted.size(); i++) { // Only once committed
+            inserted.get(i).setId(firstId + i);
+        }
+
+        return inserted.size();
+    }
+
+    /**
+     * Add the key of each pair of sequences in the LCSProblem table to the
+     * given set, locking the table's rows until the transaction ends.
+     *
+     * @param keys the set to which the keys are added
+     * @param conn an open DB connection, which isn't closed by this method
+     * @return the largest id in the table, or -1 if the table is empty
+     * @throws SQLException the query failed
+     */
+    private int retrieveSequences(HashSet<String> keys, Connection conn) throws SQLException {
+        final String sql = "SELECT Id, Sequence1, Sequence2 FROM LCSProblem FOR UPDATE";
+
+        int maxId = -1;
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                maxId = Math.max(maxId, rs.getInt(1));
+
+                keys.add(key(rs.getString(2), rs.getString(3)));
+            }
+        }
+
+        return maxId;
+    }
+
+    /**
+     * Return the key used to detect duplicate sequence pairs.
+     */
+    private static String key(String x, String y) {
+        return x + '\n' + y;
+    }
+}
@@ -15,6 +15,7 @@ package edu.regis.dptu.dao;
 import edu.regis.dptu.err.MissingPropertyException;
 import edu.regis.dptu.util.ResourceMgr;
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -23,6 +24,10 @@ import java.util.logging.Logger;
  * A root Data Access Object that provides some utility operations and ensures
  * the MySQL JDBC driver is loaded.
  * 
+ * All subclasses borrow their connections from a single ConnectionPool via
+ * getConnection(), closing a connection returns it to the pool. Within a
+ * UnitOfWork, all subclasses share the unit of work's connection.
+ * 
  * @author Rickb
  */
 public abstract class MySqlDAO {
@@ -46,6 +51,31 @@ public abstract class MySqlDAO {
      */
     public static final String DB_PASS_PROP = "edu.regis.dptu.DB_PASS";
     
+    /**
+     * Number of connections opened when the pool is created.
+     */
+    public static final String POOL_MIN_PROP = "edu.regis.dptu.DB_POOL_MIN";
+    
+    /**
+     * Maximum number of connections borrowed from the pool at once.
+     */
+    public static final String POOL_MAX_PROP = "edu.regis.dptu.DB_POOL_MAX";
+    
+    /**
+     * Milliseconds to wait for a pooled connection when all are in use.
+     */
+    public static final String POOL_BORROW_TIMEOUT_PROP = "edu.regis.dptu.DB_POOL_BORROW_TIMEOUT";
+    
+    /**
+     * Seconds allowed to validate a pooled connection when it is borrowed.
+     */
+    public static final String POOL_VALIDATION_TIMEOUT_PROP = "edu.regis.dptu.DB_POOL_VALIDATION_TIMEOUT";
+    
+    /**
+     * Milliseconds a connection may be borrowed before it's logged as a leak.
+     */
+    public static final String POOL_LEAK_THRESHOLD_PROP = "edu.regis.dptu.DB_POOL_LEAK_THRESHOLD";
+    
     /**
      * Fully qualified name of the MySql JDBC driver class.
      */
@@ -63,11 +93,54 @@ public abstract class MySqlDAO {
      * order to overcome errors in certain JVMs).
      */
     public static boolean IS_LOADED = false;
+    
+    /**
+     * The pool from which all DAOs borrow their connections, which is created
+     * along with the URL when the driver is loaded.
+     */
+    private static ConnectionPool POOL;
 
     /**
      * If it hasn't already been loaded, explicitly load the MySql driver.
      */
     public MySqlDAO() {
+        load();
+    }
+    
+    /**
+     * Return the pool from which DAOs borrow connections (e.g. for metrics).
+     * 
+     * @return the ConnectionPool, or null if the driver couldn't be loaded
+     */
+    public static synchronized ConnectionPool pool() {
+        return POOL;
+    }
+    
+    /**
+     * Borrow a connection from the pool, which is returned by close(conn).
+     * 
+     * If a UnitOfWork is active on the current thread, its shared connection
+     * is returned instead, which close(conn) leaves open for the next DAO.
+     * 
+     * @return a pooled JDBC Connection
+     * @throws SQLException no connection is available (see ConnectionPool)
+     */
+    protected Connection getConnection() throws SQLException {
+        ConnectionPool pool = pool();
+        
+        if (pool == null) {
+            throw new SQLException("MySqlDao-ERR-8: the MySql driver isn't loaded");
+        }
+        
+        UnitOfWork work = UnitOfWork.current();
+        
+        return work == null ? pool.getConnection() : work.connection(pool);
+    }
+    
+    /**
+     * Load the MySql driver and create the connection pool, once.
+     */
+    private static synchronized void load() {
 	if (!IS_LOADED) {
 	    try {
                 ResourceMgr rscr = ResourceMgr.instance();
@@ -81,6 +154,13 @@ public abstract class MySqlDAO {
                         dbUser + "&password=" + dbPass;
 
 		Class.forName(DRIVER).newInstance(); // Old School
+                
+                POOL = new ConnectionPool(URL,
+                        intProp(rscr, POOL_MIN_PROP, 2),
+                        intProp(rscr, POOL_MAX_PROP, 10),
+                        intProp(rscr, POOL_BORROW_TIMEOUT_PROP, 5000),
+                        intProp(rscr, POOL_VALIDATION_TIMEOUT_PROP, 2),
+                        intProp(rscr, POOL_LEAK_THRESHOLD_PROP, 30000));
 
 		IS_LOADED = true;
 
@@ -96,6 +176,24 @@ public abstract class MySqlDAO {
 	}
     }
 
+    /**
+     * Return the integer value of the given pool property.
+     * 
+     * @param rscr the resource manager holding the DpTu.properties
+     * @param name the property name
+     * @param defaultValue returned if the property is missing or illegal
+     * @return an int
+     */
+    private static int intProp(ResourceMgr rscr, String name, int defaultValue) {
+        try {
+            return Integer.parseInt(rscr.getProp(name).trim());
+            
+        } catch (MissingPropertyException | NumberFormatException e) {
+            LOGGER.log(Level.INFO, "Using default {0}={1}", new Object[] {name, defaultValue});
+            return defaultValue;
+        }
+    }
+
     /**
      * If the given connection or statement is open, close it, but log any
      * errors that might be thrown during the closing operations.
@@ -15,16 +15,19 @@ package edu.regis.dptu.dao;
 import edu.regis.dptu.err.IllegalArgException;
 import edu.regis.dptu.err.NonRecoverableException;
 import edu.regis.dptu.err.ObjNotFoundException;
+import edu.regis.dptu.model.Account;
 import edu.regis.dptu.model.LCSProblem;
 import edu.regis.dptu.model.Problem;
+import edu.regis.dptu.model.ScaffoldLevel;
 import edu.regis.dptu.model.Student;
 import edu.regis.dptu.model.Task;
 import edu.regis.dptu.model.TaskKind;
 import static edu.regis.dptu.model.TaskKind.LCS_PROBLEM;
 import edu.regis.dptu.model.TutoringSession;
+import edu.regis.dptu.model.aol.Assessment;
+import edu.regis.dptu.model.aol.StudentModel;
 import edu.regis.dptu.svc.SessionSvc;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -60,7 +63,7 @@ public class SessionDAO extends MySqlDAO implements SessionSvc {
         int sessionId = session.getId();
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
 
             if (exists(sessionId, conn)) {
                 throw new IllegalArgException("Session already exists with id " + sessionId);
@@ -98,7 +101,7 @@ public class SessionDAO extends MySqlDAO implements SessionSvc {
         PreparedStatement stmt = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
             stmt = conn.prepareStatement(sql);
             
             String userId = student.getAccount().getUserId();
@@ -127,7 +130,90 @@ public class SessionDAO extends MySqlDAO implements SessionSvc {
         } catch (SQLException e) {
             throw new NonRecoverableException("Retrieve Session Error", e);
         } finally {
-            close(stmt);
+            close(conn, stmt);
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * The session, account, student model, and LCS problem are read with a
+     * single joined query, followed by one query for the assessments.
+     */
+    @Override
+    public TutoringSession retrieve(String userId) throws ObjNotFoundException, NonRecoverableException {
+        final String sql = "SELECT s.SessionId, s.SecurityToken, s.StartDate, s.IsActive, s.ProblemKind, s.ProblemId, "
+                + "a.Password, a.FirstName, a.LastName, a.Question, a.Answer, a.IsStudent, m.ScaffoldLevel, "
+                + "p.Title, p.Description, p.Sequence1, p.Sequence2 "
+                + "FROM TutoringSession s "
+                + "JOIN Account a ON a.UserId = s.UserId "
+                + "JOIN StudentModel m ON m.UserId = s.UserId "
+                + "LEFT JOIN LCSProblem p ON s.ProblemKind = 'LCS_PROBLEM' AND p.Id = s.ProblemId "
+                + "WHERE s.UserId = ?";
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = getConnection();
+            stmt = conn.prepareStatement(sql);
+            
+            stmt.setString(1, userId);
+
+            ResultSet rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                Account account = new Account(userId);
+                account.setPassword(rs.getString(7));
+                account.setFirstName(rs.getString(8));
+                account.setLastName(rs.getString(9));
+                account.setSecurityQuestion(rs.getInt(10));
+                account.setSecurityAnswer(rs.getString(11));
+                account.setIsStudent(rs.getBoolean(12));
+                
+                StudentModel studentModel = new StudentModel(userId);
+                studentModel.setScaffoldLevel(ScaffoldLevel.fromString(rs.getString(13)));
+                
+                Student student = new Student(account);
+                student.setStudentModel(studentModel);
+                
+                TutoringSession session = new TutoringSession(student);
+                GregorianCalendar date = new GregorianCalendar();
+
+                session.setId(rs.getInt(1));
+                session.setSecurityToken(rs.getString(2));
+                date.setTime(rs.getDate(3));
+                session.setStartDate(date);
+                session.setIsActive(rs.getBoolean(4));
+                
+                TaskKind kind = TaskKind.valueOf(rs.getString(5));
+                int kindId = rs.getInt(6);
+                
+                if (kind == LCS_PROBLEM) {
+                    if (rs.getString(16) == null) {
+                        throw new NonRecoverableException("Inconsisted DB LCSProb: " + kindId);
+                    }
+                    
+                    LCSProblem prob = new LCSProblem(rs.getString(16), rs.getString(17));
+                    prob.setId(kindId);
+                    prob.setTitle(rs.getString(14));
+                    prob.setDescription(rs.getString(15));
+                    
+                    session.setProblem(prob);
+                }
+                
+                for (Assessment assessment : new StudentModelDAO().retrieveAssessments(userId, conn)) {
+                    studentModel.addAssessment(assessment);
+                }
+
+                return session;
+            } else {
+                throw new ObjNotFoundException("User id:" + userId);
+            }
+        } catch (SQLException e) {
+            throw new NonRecoverableException("SessionDAO-ERR-6" + e.toString(), e);
+        } finally {
+            close(conn, stmt);
         }
     }
     
@@ -142,7 +228,7 @@ public class SessionDAO extends MySqlDAO implements SessionSvc {
         PreparedStatement stmt = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
             stmt = conn.prepareStatement(sql);
 
             stmt.setString(1, userId);
@@ -173,7 +259,7 @@ public class SessionDAO extends MySqlDAO implements SessionSvc {
         PreparedStatement stmt = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
             conn.setAutoCommit(false);
             stmt = conn.prepareStatement(sql);
 
@@ -209,7 +295,7 @@ public class SessionDAO extends MySqlDAO implements SessionSvc {
         PreparedStatement stmt = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
             conn.setAutoCommit(false);
             stmt = conn.prepareStatement(sql);
             stmt.setString(1, userId);
@@ -14,7 +14,6 @@ import edu.regis.dptu.svc.CourseSvc;
 import edu.regis.dptu.svc.ServiceFactory;
 import edu.regis.dptu.svc.StudentModelSvc;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -60,7 +59,7 @@ public class StudentModelDAO extends MySqlDAO implements StudentModelSvc {
         PreparedStatement stmt2 = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
             stmt1 = conn.prepareStatement(sql1);
             
             stmt1.setString(1, userId);
@@ -103,7 +102,7 @@ public class StudentModelDAO extends MySqlDAO implements StudentModelSvc {
         PreparedStatement stmt = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
             stmt = conn.prepareStatement(sql);
 
             stmt.setString(1, userId);
@@ -150,7 +149,7 @@ public class StudentModelDAO extends MySqlDAO implements StudentModelSvc {
         PreparedStatement stmt = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
 
             switch (field) {
                 case ASSESSMENT_LEVEL:
@@ -204,7 +203,7 @@ public class StudentModelDAO extends MySqlDAO implements StudentModelSvc {
         Connection conn = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
             return exists(userId, conn);
 
         } catch (SQLException e) {
@@ -280,7 +279,7 @@ public class StudentModelDAO extends MySqlDAO implements StudentModelSvc {
            WHERE a.UserId = ?
        """;
 
-       try (Connection conn = DriverManager.getConnection(URL);
+       try (Connection conn = getConnection();
             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
            stmt.setString(1, userId);
@@ -338,7 +337,9 @@ public class StudentModelDAO extends MySqlDAO implements StudentModelSvc {
 
 
     /**
-     * Retrive
+     * Retrieve the assessments in the student model of the given user using an
+     * established connection to the DB, which it does not close.
+     * 
      * @param userId
      * @param conn
      * @return
@@ -346,7 +347,7 @@ public class StudentModelDAO extends MySqlDAO implements StudentModelSvc {
      * @throws SQLException
      * @throws NonRecoverableException 
      */
-    private ArrayList<Assessment> retrieveAssessments(String userId, Connection conn)
+    ArrayList<Assessment> retrieveAssessments(String userId, Connection conn)
             throws ObjNotFoundException, SQLException, NonRecoverableException {
 
         final String sql = "SELECT Id,KnowledgeComponentId,AssessmentLevel,Exposures,Successes,Hints FROM Assessment WHERE UserId = ?";
@@ -356,28 +357,29 @@ public class StudentModelDAO extends MySqlDAO implements StudentModelSvc {
 
         ArrayList<Assessment> assessments = new ArrayList<>();
 
-        PreparedStatement stmt = conn.prepareStatement(sql);
-
-        stmt.setString(1, userId);
-
-        ResultSet rs = stmt.executeQuery();
+        // The connection isn't closed, so the statement must be (see ConnectionPool)
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, userId);
 
-        while (rs.next()) {
-            int assessmentId = rs.getInt(1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int assessmentId = rs.getInt(1);
 
-            int knowledgeComponentId = rs.getInt(2);
-            KnowledgeComponent outcome = course.findKnowledgeComponent(knowledgeComponentId);
+                    int knowledgeComponentId = rs.getInt(2);
+                    KnowledgeComponent outcome = course.findKnowledgeComponent(knowledgeComponentId);
 
-            AssessmentLevel level = AssessmentLevel.fromString(rs.getString(3));
+                    AssessmentLevel level = AssessmentLevel.fromString(rs.getString(3));
 
-            Assessment assessment = new Assessment(outcome, level);
+                    Assessment assessment = new Assessment(outcome, level);
 
-            assessment.setId(knowledgeComponentId);
-            assessment.setExposures(rs.getInt(4));
-            assessment.setSuccessess(rs.getInt(5));
-            assessment.setHints(rs.getInt(6));
+                    assessment.setId(knowledgeComponentId);
+                    assessment.setExposures(rs.getInt(4));
+                    assessment.setSuccessess(rs.getInt(5));
+                    assessment.setHints(rs.getInt(6));
 
-            assessments.add(assessment);
+                    assessments.add(assessment);
+                }
+            }
         }
 
         return assessments;
@@ -9,6 +9,12 @@ import java.sql.SQLException;
  * An Transaction Data Access Object to extend for when multiple
  * database operations should complete or fail as a logical unit
  * 
+ * When a UnitOfWork is active, the connection returned by getConnection()
+ * is shared by all DAOs in the unit of work, so a transaction started here
+ * spans every DAO used by the request: commit() is deferred until the unit
+ * of work completes, and rollback() causes the whole unit of work to be
+ * rolled back.
+ * 
  * @author benm
  */
 public abstract class Transactionable extends MySqlDAO {
@@ -18,7 +18,6 @@ import edu.regis.dptu.err.ObjNotFoundException;
 import edu.regis.dptu.model.TaskSelectionKind;
 import edu.regis.dptu.model.UnitDigest;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -50,7 +49,7 @@ public class UnitDigestDAO extends MySqlDAO {
         PreparedStatement stmt = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
 
             if (exists(unit.getId(), conn)) {
                 throw new IllegalArgException("Unit Digest already exists with id " + unit.getId());
@@ -88,7 +87,7 @@ public class UnitDigestDAO extends MySqlDAO {
         PreparedStatement stmt = null;
 
         try {
-            conn = DriverManager.getConnection(URL);
+            conn = getConnection();
 
             stmt = conn.prepareStatement(sql);
             stmt.setInt(1, unitId);
@@ -111,7 +110,7 @@ public class UnitDigestDAO extends MySqlDAO {
         } catch (SQLException e) {
             throw new NonRecoverableException("Retrieve Unit Error", e);
         } finally {
-            close(stmt);
+            close(conn, stmt);
         }
     }
 
@@ -0,0 +1,248 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.dao;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A request-scoped unit of work, which lets every DAO used while handling a
+ * single tutor request share one pooled connection and one transaction.
+ *
+ * A unit of work is bound to the thread that began it. While it is active,
+ * MySqlDAO.getConnection() returns its connection, which is only borrowed
+ * from the pool when first needed. The DAOs' own close(), commit(),
+ * rollback() and setAutoCommit(true) calls on this connection are deferred:
+ * the work is committed by close() if complete() was called and no DAO
+ * rolled back, otherwise it is rolled back.
+ *
+ * Typical use:
+ * <pre>
+ * try (UnitOfWork work = UnitOfWork.begin()) {
+ *     ... service calls ...
+ *     work.complete();
+ * }
+ * </pre>
+ *
+ * Nested calls to begin() participate in the outer unit of work.
+ *
+ * Actions that must follow the end of the transaction, such as invalidating
+ * a cache of the data it changed, can be registered with afterCompletion().
+ *
+ * @author rickb
+ */
+public class UnitOfWork implements AutoCloseable {
+    /**
+     * Handler for logging messages.
+     */
+    private static final Logger LOGGER = Logger.getLogger(UnitOfWork.class.getName());
+
+    /**
+     * The unit of work, if any, bound to the current thread.
+     */
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The connection borrowed from the pool, null until first requested.
+     */
+    private Connection physical;
+
+    /**
+     * The connection handed to DAOs, which defers close and commit.
+     */
+    private Connection shared;
+
+    /**
+     * Number of begin() calls not yet matched by close().
+     */
+    private int depth;
+
+    /**
+     * Whether the outermost caller declared the work complete.
+     */
+    private boolean isComplete;
+
+    /**
+     * Whether a DAO rolled back, so the work can't be committed.
+     */
+    private boolean isRollbackOnly;
+
+    /**
+     * Number of connections borrowed by this unit of work (0 or 1).
+     */
+    private int borrowCount;
+
+    /**
+     * Actions run when the outermost begin() is closed.
+     */
+    private final ArrayList<Runnable> completionActions = new ArrayList<>();
+
+    private UnitOfWork() {
+    }
+
+    /**
+     * Begin a unit of work on the current thread, or join the unit of work
+     * already active on this thread.
+     *
+     * @return the active UnitOfWork, which must be closed
+     */
+    public static UnitOfWork begin() {
+        UnitOfWork work = CURRENT.get();
+
+        if (work == null) {
+            work = new UnitOfWork();
+            CURRENT.set(work);
+        }
+
+        work.depth++;
+
+        return work;
+    }
+
+    /**
+     * Return the unit of work active on the current thread.
+     *
+     * @return a UnitOfWork or null if none is active
+     */
+    public static UnitOfWork current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Declare that the work succeeded, so that closing the outermost
+     * begin() commits it.
+     */
+    public void complete() {
+        if (depth == 1) {
+            isComplete = true;
+        }
+    }
+
+    /**
+     * Run the given action once this unit of work ends, after its transaction
+     * is committed or rolled back and its connection returned to the pool.
+     *
+     * @param action run on the thread that closes the outermost begin()
+     */
+    public void afterCompletion(Runnable action) {
+        completionActions.add(action);
+    }
+
+    /**
+     * Return the number of pooled connections borrowed by this unit of work.
+     *
+     * @return 0, if no DAO needed a connection, otherwise 1
+     */
+    public int getBorrowCount() {
+        return borrowCount;
+    }
+
+    /**
+     * Return the connection shared by all DAOs in this unit of work,
+     * borrowing it from the given pool on first use.
+     *
+     * @param pool the pool from which the connection is borrowed
+     * @return a Connection whose close() and commit() are deferred
+     * @throws SQLException unable to borrow a connection
+     */
+    Connection connection(ConnectionPool pool) throws SQLException {
+        if (shared == null) {
+            physical = pool.getConnection();
+            borrowCount++;
+
+            shared = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                            case "commit":
+                                return null; // Deferred to close() of this unit of work
+
+                            case "rollback":
+                                if (args == null) {
+                                    isRollbackOnly = true;
+                                    return null;
+                                }
+                                break; // Rolling back to a savepoint isn't deferred
+
+                            case "setAutoCommit":
+                                if ((Boolean) args[0]) {
+                                    return null; // Remains in the transaction until close()
+                                }
+                                break;
+
+                            case "equals":
+                                return proxy == args[0];
+
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+
+                            default:
+                        }
+
+                        try {
+                            return method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        return shared;
+    }
+
+    /**
+     * End this unit of work, if this closes the outermost begin(), committing
+     * or rolling back any transaction and returning the connection to the pool.
+     */
+    @Override
+    public void close() {
+        if (--depth > 0) {
+            return;
+        }
+
+        CURRENT.remove();
+
+        if (physical != null) {
+            try {
+                if (!physical.getAutoCommit()) {
+                    if (isComplete && !isRollbackOnly) {
+                        physical.commit();
+                    } else {
+                        physical.rollback();
+                    }
+                }
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "UnitOfWork-ERR-1: end transaction {0}", e.toString());
+            } finally {
+                try {
+                    physical.close();
+                } catch (SQLException e) {
+                    LOGGER.log(Level.INFO, "UnitOfWork-ERR-2: close() {0}", e.toString());
+                }
+            }
+        }
+
+        for (Runnable action : completionActions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "UnitOfWork-ERR-3: after completion {0}", e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.err;
+
+import java.io.IOException;
+
+/**
+ * A message read from a client or tutor connection exceeded the maximum
+ * message size, so it was abandoned before being completely read.
+ * 
+ * @author rickb
+ */
+public class FrameTooLargeException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Initialize this new instance with the given maximum size.
+     *
+     * @param maxSize the maximum number of characters in a message
+     */
+    public FrameTooLargeException(int maxSize) {
+        this(maxSize, "characters");
+    }
+
+    /**
+     * Initialize this new instance with the given maximum size.
+     *
+     * @param maxSize the maximum size of a message
+     * @param units the units of the size, such as "bytes"
+     */
+    public FrameTooLargeException(int maxSize, String units) {
+        super("Message exceeds the maximum size of " + maxSize + " " + units);
+    }
+}
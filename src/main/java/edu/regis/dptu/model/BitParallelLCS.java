@@ -0,0 +1,158 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Computes the rows of the subproblem table of an LCS problem, such as the
+ * LCS length, 64 cells at a time, for checking answers without stepping
+ * through an LCSProblem.
+ * 
+ * Each row of the table is represented by a bit vector V over the m
+ * characters of y, in which bit j-1 is 0 if L[i][j] > L[i][j-1], so
+ * L[i][j] is the number of 0's in the j low order bits. Row i is derived
+ * from row i-1 by the word-parallel additions (with carry between words)
+ * V = (V + (V & M)) | (V & ~M), where M is the vector of the positions in
+ * y of the character x[i-1] (Crochemore et al, 2001).
+ * 
+ * Rows and values are the Java indexes and values of LCSProblem.getValueAt()
+ * once the problem is solved, so row 0 is all 0's and row n ends with the
+ * LCS length. Computing a row takes O(i * m / 64) time and O(m / 64) space.
+ * 
+ * @author rickb
+ */
+public class BitParallelLCS {
+    /**
+     * Input sequence 1, the rows of the table.
+     */
+    private final String x;
+    
+    /**
+     * Input sequence 2, the columns of the table.
+     */
+    private final String y;
+    
+    /**
+     * The number of 64 bit words in a vector over y.
+     */
+    private final int words;
+    
+    /**
+     * The match vector of each character in y.
+     */
+    private final HashMap<Character, long[]> matches = new HashMap<>();
+    
+    /**
+     * Initialize the computation of the LCS of the given input sequences.
+     * 
+     * @param x the first input sequence, as a String
+     * @param y the second input sequence, as String
+     */
+    public BitParallelLCS(String x, String y) {
+        this.x = x;
+        this.y = y;
+        
+        words = (y.length() + 63) >>> 6;
+        
+        for (int j = 0; j < y.length(); j++) {
+            long[] match = matches.computeIfAbsent(y.charAt(j), k -> new long[words]);
+            
+            match[j >>> 6] |= 1L << j;
+        }
+    }
+    
+    /**
+     * Return the length of the longest common subsequence of x and y.
+     * 
+     * @return the value of cell [n][m]
+     */
+    public int length() {
+        return y.length() - ones(computeVector(x.length()), y.length());
+    }
+    
+    /**
+     * Return the given row of the table.
+     * 
+     * @param i the Java index of the row, from 0 to n
+     * @return the m + 1 values in the row
+     */
+    public int[] row(int i) {
+        if (i < 0 || i > x.length()) {
+            throw new IllegalArgumentException("Invalid row: " + i + ". Maximum row is: " + x.length() + ".");
+        }
+        
+        long[] v = computeVector(i);
+        int[] row = new int[y.length() + 1];
+        
+        for (int j = 1; j <= y.length(); j++) {
+            row[j] = row[j - 1] + (int) (~v[(j - 1) >>> 6] >>> (j - 1) & 1);
+        }
+        
+        return row;
+    }
+    
+    /**
+     * Return the bit vector of the given row.
+     */
+    private long[] computeVector(int i) {
+        long[] v = new long[words];
+        Arrays.fill(v, -1L);
+        
+        for (int p = 0; p < i; p++) {
+            long[] match = matches.get(x.charAt(p));
+            
+            if (match == null) { // No matches, so the row is unchanged
+                continue;
+            }
+            
+            long carry = 0;
+            
+            for (int k = 0; k < words; k++) {
+                long vk = v[k];
+                long u = vk & match[k];
+                long sum = vk + u;
+                long carryOut = Long.compareUnsigned(sum, vk) < 0 ? 1 : 0;
+                
+                sum += carry;
+                if (sum == 0 && carry != 0) {
+                    carryOut = 1;
+                }
+                
+                v[k] = sum | (vk & ~match[k]);
+                carry = carryOut;
+            }
+        }
+        
+        return v;
+    }
+    
+    /**
+     * Return the number of 1 bits in the low order bits of the given vector.
+     */
+    private static int ones(long[] v, int bits) {
+        int count = 0;
+        int k = 0;
+        
+        for (; bits >= 64; bits -= 64) {
+            count += Long.bitCount(v[k++]);
+        }
+        
+        if (bits > 0) {
+            count += Long.bitCount(v[k] & ((1L << bits) - 1));
+        }
+        
+        return count;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.model;
+
+/**
+ * The values a student entered in the Dynamic Programming table, which is
+ * the JSon encoded data of a COMPLETE_CELL, COMPLETE_FIRST_ROW, or
+ * COMPLETE_FIRST_COL StepCompletion.
+ * 
+ * The values are those of consecutive cells beginning at [row][column],
+ * across the row, or down the column for a COMPLETE_FIRST_COL step, so a
+ * COMPLETE_CELL step has one value. Indexes are Java array indexes (see
+ * LCSProblem).
+ * 
+ * @author rickb
+ */
+public class CellAnswer {
+    private int row;
+    
+    private int column;
+    
+    private int[] values;
+    
+    /**
+     * Initialize this answer with the values entered beginning at the given
+     * cell.
+     * 
+     * @param row the Java array row index
+     * @param column the Java array column index
+     * @param values the values entered
+     */
+    public CellAnswer(int row, int column, int... values) {
+        this.row = row;
+        this.column = column;
+        this.values = values;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public void setRow(int row) {
+        this.row = row;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public void setColumn(int column) {
+        this.column = column;
+    }
+
+    public int[] getValues() {
+        return values;
+    }
+
+    public void setValues(int[] values) {
+        this.values = values;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.model;
+
+/**
+ * A two dimensional table of non-negative int cell values, such as the
+ * subproblem values of a Dynamic Programming problem.
+ * 
+ * Rows and columns are Java indexes, beginning at 0.
+ * 
+ * @author rickb
+ */
+public interface CellTable {
+    /**
+     * Return the number of rows in this table.
+     * 
+     * @return int
+     */
+    int getRows();
+    
+    /**
+     * Return the number of columns in this table.
+     * 
+     * @return int
+     */
+    int getColumns();
+    
+    /**
+     * Return the value of the given cell.
+     * 
+     * @param row the row index
+     * @param column the column index
+     * @return int
+     */
+    int get(int row, int column);
+    
+    /**
+     * Set the value of the given cell.
+     * 
+     * @param row the row index
+     * @param column the column index
+     * @param value a value from 0 to the table's maximum value
+     */
+    void set(int row, int column, int value);
+}
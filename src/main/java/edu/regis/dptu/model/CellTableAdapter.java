@@ -0,0 +1,117 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Gson adapter reading and writing a CellTable as a JSon array of rows, each
+ * an array of cell values, which is how an int[][] is encoded. A table read
+ * is a FlatCellTable whose cells hold at least min(rows, columns) - 1, which
+ * for an LCS table of n + 1 rows and m + 1 columns is min(n, m), the largest
+ * value of any subproblem, so cells filled in after reading, such as those
+ * of a partially solved problem, always fit.
+ * 
+ * A cell of -1, one not yet filled in, is read as 0.
+ * 
+ * Use with @JsonAdapter(CellTableAdapter.class) on CellTable fields.
+ * 
+ * @author rickb
+ */
+public class CellTableAdapter extends TypeAdapter<CellTable> {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(JsonWriter out, CellTable table) throws IOException {
+        if (table == null) {
+            out.nullValue();
+            return;
+        }
+        
+        out.beginArray();
+        for (int row = 0; row < table.getRows(); row++) {
+            out.beginArray();
+            for (int column = 0; column < table.getColumns(); column++) {
+                out.value(table.get(row, column));
+            }
+            out.endArray();
+        }
+        out.endArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CellTable read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        
+        ArrayList<int[]> rows = new ArrayList<>();
+        int columns = 0;
+        int maxValue = 0;
+        
+        in.beginArray();
+        while (in.hasNext()) {
+            int[] row = new int[Math.max(columns, 16)];
+            int length = 0;
+            
+            in.beginArray();
+            while (in.hasNext()) {
+                if (length == row.length) {
+                    row = Arrays.copyOf(row, 2 * length);
+                }
+                
+                row[length] = in.nextInt();
+                
+                if (row[length] < -1) {
+                    throw new IOException("Negative cell value: " + row[length]);
+                } else if (row[length] == -1) {
+                    row[length] = 0; // Not yet filled in
+                }
+                
+                maxValue = Math.max(maxValue, row[length++]);
+            }
+            in.endArray();
+            
+            if (!rows.isEmpty() && length != columns) {
+                throw new IOException("Ragged cell table row: " + rows.size());
+            }
+            
+            columns = length;
+            rows.add(row);
+        }
+        in.endArray();
+        
+        int capacity = Math.max(maxValue, Math.min(rows.size(), columns) - 1);
+        
+        FlatCellTable table = FlatCellTable.create(rows.size(), columns, capacity);
+        
+        for (int row = 0; row < rows.size(); row++) {
+            for (int column = 0; column < columns; column++) {
+                table.set(row, column, rows.get(row)[column]);
+            }
+        }
+        
+        return table;
+    }
+}
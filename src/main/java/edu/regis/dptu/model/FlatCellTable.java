@@ -0,0 +1,211 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.model;
+
+/**
+ * A CellTable stored in a single row-major primitive array, whose cells are
+ * the narrowest of 1, 2, or 4 bytes able to hold the table's maximum value.
+ * 
+ * For example, an LCS table never holds a value greater than min(n, m), so
+ * the cells of a 1000 x 1000 problem are 2 bytes, rather than the 4 bytes of
+ * an int[][], which also has an array header per row.
+ * 
+ * @author rickb
+ */
+public abstract class FlatCellTable implements CellTable {
+    /**
+     * Number of bytes in the header of an array (assuming compressed class
+     * pointers), used to estimate footprints.
+     */
+    public static final int ARRAY_HEADER_BYTES = 16;
+    
+    protected final int rows;
+    
+    protected final int columns;
+    
+    /**
+     * Return a new table, of all 0's, with the narrowest cells able to hold
+     * the given maximum value.
+     * 
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @param maxValue the largest value that will be stored in a cell
+     * @return a FlatCellTable
+     */
+    public static FlatCellTable create(int rows, int columns, int maxValue) {
+        if (rows < 0 || columns < 0 || maxValue < 0) {
+            throw new IllegalArgumentException("Illegal table: " + rows + " x " + columns + ", max: " + maxValue);
+        }
+        
+        if (maxValue <= 0xff) {
+            return new ByteCells(rows, columns);
+        } else if (maxValue <= 0xffff) {
+            return new ShortCells(rows, columns);
+        } else {
+            return new IntCells(rows, columns);
+        }
+    }
+    
+    /**
+     * Initialize this table with the given dimensions.
+     */
+    protected FlatCellTable(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+    
+    /**
+     * Return the number of bytes in each cell.
+     * 
+     * @return 1, 2, or 4
+     */
+    public abstract int getCellBytes();
+    
+    /**
+     * Return the estimated number of bytes in the heap used by this table's
+     * cells.
+     * 
+     * @return long
+     */
+    public long getFootprint() {
+        return ARRAY_HEADER_BYTES + (long) rows * columns * getCellBytes();
+    }
+    
+    /**
+     * Return the index in the array of the given cell.
+     */
+    protected final int index(int row, int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("Cell [" + row + "][" + column
+                    + "] of " + rows + " x " + columns + " table");
+        }
+        
+        return row * columns + column;
+    }
+    
+    /**
+     * Throw an IllegalArgumentException unless the given value is from 0 to
+     * the given maximum, so a value too wide for the cells isn't truncated.
+     */
+    protected static void checkValue(int value, int maxValue) {
+        if (value < 0 || value > maxValue) {
+            throw new IllegalArgumentException("Cell value " + value + " not in 0.." + maxValue);
+        }
+    }
+    
+    /**
+     * Cells of values from 0 to 255.
+     */
+    private static final class ByteCells extends FlatCellTable {
+        private final byte[] cells;
+        
+        ByteCells(int rows, int columns) {
+            super(rows, columns);
+            
+            cells = new byte[Math.multiplyExact(rows, columns)];
+        }
+
+        @Override
+        public int get(int row, int column) {
+            return cells[index(row, column)] & 0xff;
+        }
+
+        @Override
+        public void set(int row, int column, int value) {
+            checkValue(value, 0xff);
+            
+            cells[index(row, column)] = (byte) value;
+        }
+
+        @Override
+        public int getCellBytes() {
+            return Byte.BYTES;
+        }
+    }
+    
+    /**
+     * Cells of values from 0 to 65535.
+     */
+    private static final class ShortCells extends FlatCellTable {
+        private final short[] cells;
+        
+        ShortCells(int rows, int columns) {
+            super(rows, columns);
+            
+            cells = new short[Math.multiplyExact(rows, columns)];
+        }
+
+        @Override
+        public int get(int row, int column) {
+            return cells[index(row, column)] & 0xffff;
+        }
+
+        @Override
+        public void set(int row, int column, int value) {
+            checkValue(value, 0xffff);
+            
+            cells[index(row, column)] = (short) value;
+        }
+
+        @Override
+        public int getCellBytes() {
+            return Short.BYTES;
+        }
+    }
+    
+    /**
+     * Cells of any non-negative int value.
+     */
+    private static final class IntCells extends FlatCellTable {
+        private final int[] cells;
+        
+        IntCells(int rows, int columns) {
+            super(rows, columns);
+            
+            cells = new int[Math.multiplyExact(rows, columns)];
+        }
+
+        @Override
+        public int get(int row, int column) {
+            return cells[index(row, column)];
+        }
+
+        @Override
+        public void set(int row, int column, int value) {
+            checkValue(value, Integer.MAX_VALUE);
+            
+            cells[index(row, column)] = value;
+        }
+
+        @Override
+        public int getCellBytes() {
+            return Integer.BYTES;
+        }
+    }
+}
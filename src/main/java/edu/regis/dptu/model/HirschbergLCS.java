@@ -0,0 +1,230 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.model;
+
+import java.util.Arrays;
+
+/**
+ * Finds a longest common subsequence of x and y, and its alignment, in
+ * O(n * m) time and O(n + m) space using Hirschberg's divide and conquer
+ * algorithm, so problems too large for the full table of an LCSProblem can
+ * still have an answer key.
+ * 
+ * The rows of x are split in half. The last row of the LCS table of the top
+ * half (computed forwards) and of the bottom half (computed backwards from
+ * the ends of x and y) give the column at which an LCS crosses between the
+ * halves, and each half is then solved recursively.
+ * 
+ * @author rickb
+ */
+public class HirschbergLCS {
+    /**
+     * Input sequence 1.
+     */
+    private final String x;
+    
+    /**
+     * Input sequence 2.
+     */
+    private final String y;
+    
+    /**
+     * Forward and backward rows of the LCS table, reused at every level.
+     */
+    private final int[] forward;
+    
+    private final int[] backward;
+    
+    /**
+     * The index in x of each character of the LCS (null until solved).
+     */
+    private int[] xIndexes;
+    
+    /**
+     * The index in y of each character of the LCS.
+     */
+    private int[] yIndexes;
+    
+    /**
+     * The number of characters of the LCS found so far while solving.
+     */
+    private int length;
+    
+    /**
+     * Initialize this algorithm with the given input sequences.
+     * 
+     * @param x the first input sequence, as a String
+     * @param y the second input sequence, as String
+     */
+    public HirschbergLCS(String x, String y) {
+        this.x = x;
+        this.y = y;
+        
+        forward = new int[y.length() + 1];
+        backward = new int[y.length() + 1];
+    }
+    
+    /**
+     * Return a longest common subsequence of x and y.
+     * 
+     * @return a String
+     */
+    public String getSubsequence() {
+        solve();
+        
+        char[] lcs = new char[length];
+        
+        for (int k = 0; k < length; k++) {
+            lcs[k] = x.charAt(xIndexes[k]);
+        }
+        
+        return new String(lcs);
+    }
+    
+    /**
+     * Return the indexes in x of the characters of the subsequence.
+     * 
+     * @return increasing indexes into x, one per character of the LCS
+     */
+    public int[] getXIndexes() {
+        solve();
+        
+        return xIndexes.clone();
+    }
+    
+    /**
+     * Return the indexes in y of the characters of the subsequence.
+     * 
+     * @return increasing indexes into y, one per character of the LCS
+     */
+    public int[] getYIndexes() {
+        solve();
+        
+        return yIndexes.clone();
+    }
+    
+    /**
+     * Find the subsequence, if it hasn't been found already.
+     */
+    private void solve() {
+        if (xIndexes != null) {
+            return;
+        }
+        
+        int max = Math.min(x.length(), y.length());
+        
+        xIndexes = new int[max];
+        yIndexes = new int[max];
+        length = 0;
+        
+        solve(0, x.length(), 0, y.length());
+        
+        xIndexes = Arrays.copyOf(xIndexes, length);
+        yIndexes = Arrays.copyOf(yIndexes, length);
+    }
+    
+    /**
+     * Add the alignment of an LCS of x[xLo, xHi) and y[yLo, yHi) to the
+     * indexes found so far.
+     */
+    private void solve(int xLo, int xHi, int yLo, int yHi) {
+        if (xLo == xHi || yLo == yHi) {
+            return;
+        }
+        
+        if (xHi - xLo == 1) { // A single row matches at most one character
+            int j = y.indexOf(x.charAt(xLo), yLo);
+            
+            if (j >= 0 && j < yHi) {
+                xIndexes[length] = xLo;
+                yIndexes[length++] = j;
+            }
+            
+            return;
+        }
+        
+        int xMid = (xLo + xHi) >>> 1;
+        int columns = yHi - yLo;
+        
+        forwardRow(xLo, xMid, yLo, yHi);
+        backwardRow(xMid, xHi, yLo, yHi);
+        
+        // The column at which the LCS crosses from the top half to the bottom
+        int split = 0;
+        int best = -1;
+        
+        for (int k = 0; k <= columns; k++) {
+            int total = forward[k] + backward[columns - k];
+            
+            if (total > best) {
+                best = total;
+                split = k;
+            }
+        }
+        
+        solve(xLo, xMid, yLo, yLo + split);
+        solve(xMid, xHi, yLo + split, yHi);
+    }
+    
+    /**
+     * Set forward[k] to the LCS length of x[xLo, xHi) and y[yLo, yLo + k).
+     */
+    private void forwardRow(int xLo, int xHi, int yLo, int yHi) {
+        int columns = yHi - yLo;
+        
+        Arrays.fill(forward, 0, columns + 1, 0);
+        
+        for (int i = xLo; i < xHi; i++) {
+            char c = x.charAt(i);
+            int diagonal = 0; // The previous row's value at k - 1
+            
+            for (int k = 1; k <= columns; k++) {
+                int above = forward[k];
+                
+                if (c == y.charAt(yLo + k - 1)) {
+                    forward[k] = diagonal + 1;
+                } else {
+                    forward[k] = Integer.max(above, forward[k - 1]);
+                }
+                
+                diagonal = above;
+            }
+        }
+    }
+    
+    /**
+     * Set backward[k] to the LCS length of x[xLo, xHi) and y[yHi - k, yHi).
+     */
+    private void backwardRow(int xLo, int xHi, int yLo, int yHi) {
+        int columns = yHi - yLo;
+        
+        Arrays.fill(backward, 0, columns + 1, 0);
+        
+        for (int i = xHi - 1; i >= xLo; i--) {
+            char c = x.charAt(i);
+            int diagonal = 0;
+            
+            for (int k = 1; k <= columns; k++) {
+                int below = backward[k];
+                
+                if (c == y.charAt(yHi - k)) {
+                    backward[k] = diagonal + 1;
+                } else {
+                    backward[k] = Integer.max(below, backward[k - 1]);
+                }
+                
+                diagonal = below;
+            }
+        }
+    }
+}
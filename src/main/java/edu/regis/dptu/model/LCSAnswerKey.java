@@ -0,0 +1,119 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.model;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The solved subproblem table of an LCS problem, used to grade the cell
+ * values entered by students.
+ * 
+ * The table is filled when this key is created and never changes, so a key
+ * may be shared by any number of threads.
+ * 
+ * @author rickb
+ */
+public class LCSAnswerKey {
+    /**
+     * The id of the LCSProblem solved by this key.
+     */
+    private final int problemId;
+    
+    private final String x;
+    
+    private final String y;
+    
+    /**
+     * The solved (n + 1) x (m + 1) table.
+     */
+    private final FlatCellTable table;
+    
+    /**
+     * Solve the given problem, without changing its state.
+     * 
+     * @param problem an LCSProblem
+     */
+    public LCSAnswerKey(LCSProblem problem) {
+        problemId = problem.getId();
+        x = problem.getX();
+        y = problem.getY();
+        
+        table = FlatCellTable.create(x.length() + 1, y.length() + 1, Math.min(x.length(), y.length()));
+        
+        new WavefrontLCS(x, y, table, WavefrontLCS.DEFAULT_TILE_SIZE).fill(ForkJoinPool.commonPool());
+    }
+    
+    public int getProblemId() {
+        return problemId;
+    }
+    
+    /**
+     * Return whether this key solves the given problem, whose sequences may
+     * have changed since this key was created.
+     * 
+     * @param problem an LCSProblem
+     * @return true if the problem has this key's id and sequences
+     */
+    public boolean solves(LCSProblem problem) {
+        return problem.getId() == problemId && x.equals(problem.getX()) && y.equals(problem.getY());
+    }
+    
+    /**
+     * Return the number of rows in the table, n + 1.
+     * 
+     * @return int
+     */
+    public int getRows() {
+        return table.getRows();
+    }
+    
+    /**
+     * Return the number of columns in the table, m + 1.
+     * 
+     * @return int
+     */
+    public int getColumns() {
+        return table.getColumns();
+    }
+    
+    /**
+     * Return whether the given cell is in the table.
+     * 
+     * @param row the Java array row index
+     * @param column the Java array column index
+     * @return boolean
+     */
+    public boolean contains(int row, int column) {
+        return row >= 0 && row <= x.length() && column >= 0 && column <= y.length();
+    }
+    
+    /**
+     * Return the correct value of the given cell.
+     * 
+     * @param row the Java array row index
+     * @param column the Java array column index
+     * @return int
+     */
+    public int getValue(int row, int column) {
+        return table.get(row, column);
+    }
+    
+    /**
+     * Return the estimated number of bytes in the heap used by this key.
+     * 
+     * @return long
+     */
+    public long getFootprint() {
+        return table.getFootprint() + 2L * (x.length() + y.length());
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.model;
+
+/**
+ * The difficulty targeted by generated LCS problems, as inclusive ranges of:
+ * <ul>
+ * <li>the length of each input sequence,</li>
+ * <li>the LCS ratio, the LCS length divided by the shorter sequence's length,</li>
+ * <li>the number of distinct LCSs, and</li>
+ * <li>the match density, the fraction of cells [i][j] where x[i] = y[j],</li>
+ * </ul>
+ * along with the size of the alphabet from which the sequences are drawn,
+ * the first alphabetSize lower case letters.
+ * 
+ * @author rickb
+ */
+public class LCSDifficulty {
+    /**
+     * The longest sequence that fits in the LCSProblem table.
+     */
+    public static final int MAX_LENGTH = 256;
+    
+    private int minLength = 8;
+    
+    private int maxLength = 12;
+    
+    private int alphabetSize = 4;
+    
+    private double minLcsRatio = 0.0;
+    
+    private double maxLcsRatio = 1.0;
+    
+    private int minSolutions = 1;
+    
+    private int maxSolutions = 100;
+    
+    private double minMatchDensity = 0.0;
+    
+    private double maxMatchDensity = 1.0;
+    
+    /**
+     * Initialize this difficulty with sequences of 8 to 12 characters from
+     * a 4 letter alphabet having at most 100 distinct LCSs.
+     */
+    public LCSDifficulty() {
+    }
+    
+    /**
+     * Return whether a problem with the given measures has this difficulty.
+     * 
+     * @param n the length of the first sequence
+     * @param m the length of the second sequence
+     * @param lcsRatio the LCS length divided by the shorter length
+     * @param solutions the number of distinct LCSs
+     * @param matchDensity the fraction of matching cells
+     * @return true, if every measure is in range
+     */
+    public boolean accepts(int n, int m, double lcsRatio, long solutions, double matchDensity) {
+        return n >= minLength && n <= maxLength && m >= minLength && m <= maxLength
+                && lcsRatio >= minLcsRatio && lcsRatio <= maxLcsRatio
+                && solutions >= minSolutions && solutions <= maxSolutions
+                && matchDensity >= minMatchDensity && matchDensity <= maxMatchDensity;
+    }
+    
+    /**
+     * Return whether the ranges of this difficulty are legal.
+     * 
+     * @return true, if each range is non-empty and within its bounds
+     */
+    public boolean isValid() {
+        return minLength >= 1 && minLength <= maxLength && maxLength <= MAX_LENGTH
+                && alphabetSize >= 1 && alphabetSize <= 26
+                && minLcsRatio <= maxLcsRatio && maxLcsRatio >= 0 && minLcsRatio <= 1
+                && minSolutions <= maxSolutions && maxSolutions >= 1
+                && minMatchDensity <= maxMatchDensity && maxMatchDensity >= 0 && minMatchDensity <= 1;
+    }
+
+    public int getMinLength() {
+        return minLength;
+    }
+
+    public void setMinLength(int minLength) {
+        this.minLength = minLength;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public void setMaxLength(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    public int getAlphabetSize() {
+        return alphabetSize;
+    }
+
+    public void setAlphabetSize(int alphabetSize) {
+        this.alphabetSize = alphabetSize;
+    }
+
+    public double getMinLcsRatio() {
+        return minLcsRatio;
+    }
+
+    public void setMinLcsRatio(double minLcsRatio) {
+        this.minLcsRatio = minLcsRatio;
+    }
+
+    public double getMaxLcsRatio() {
+        return maxLcsRatio;
+    }
+
+    public void setMaxLcsRatio(double maxLcsRatio) {
+        this.maxLcsRatio = maxLcsRatio;
+    }
+
+    public int getMinSolutions() {
+        return minSolutions;
+    }
+
+    public void setMinSolutions(int minSolutions) {
+        this.minSolutions = minSolutions;
+    }
+
+    public int getMaxSolutions() {
+        return maxSolutions;
+    }
+
+    public void setMaxSolutions(int maxSolutions) {
+        this.maxSolutions = maxSolutions;
+    }
+
+    public double getMinMatchDensity() {
+        return minMatchDensity;
+    }
+
+    public void setMinMatchDensity(double minMatchDensity) {
+        this.minMatchDensity = minMatchDensity;
+    }
+
+    public double getMaxMatchDensity() {
+        return maxMatchDensity;
+    }
+
+    public void setMaxMatchDensity(double maxMatchDensity) {
+        this.maxMatchDensity = maxMatchDensity;
+    }
+    
+    @Override
+    public String toString() {
+        return "LCSDifficulty[length=" + minLength + ".." + maxLength + ", alphabet=" + alphabetSize
+                + ", lcsRatio=" + minLcsRatio + ".." + maxLcsRatio
+                + ", solutions=" + minSolutions + ".." + maxSolutions
+                + ", matchDensity=" + minMatchDensity + ".." + maxMatchDensity + "]";
+    }
+}
@@ -12,6 +12,9 @@
  */
 package edu.regis.dptu.model;
 
+import com.google.gson.annotations.JsonAdapter;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Represents a Longest Common Subsequence Dynamic Programming problem with
  * inputs sequences represented as Java Strings x and y of length n and m,
@@ -28,10 +31,25 @@ package edu.regis.dptu.model;
  * from -1 to n and columns from -1 to m. The corresponding Java subproblemL
  * array indexes corresponding rows from 0 to n+1 and columns from 0 to m+1.
  * Hence, cell [-1][-1] in the Dynamic Programming problem is array [0][0]
- * in the Java subproblemL array.
+ * in the Java subproblemL table.
+ * 
+ * Every state of the algorithm is identified by its step index, the number
+ * of statements executed since the PRE state, so seek() can move directly
+ * to any state (see getStepCount()). Since each row of the table depends only
+ * on the previous row, the rows are computed once, as they are first reached,
+ * and kept as checkpoints. The state, and which cells are filled in, is then
+ * derived from the step index, so seek(), step(), and stepBack() never replay
+ * the algorithm.
+ * 
+ * Each seek() is recorded in a bounded journal, so a student who jumps
+ * around the table can undo() and redo() the jumps.
+ * 
+ * In JSon, the table holds only the cells filled in at the current step
+ * (see LCSProblemAdapterFactory).
  * 
  * @author rickb
  */
+@JsonAdapter(LCSProblemAdapterFactory.class)
 public class LCSProblem extends Problem {
     /**
      * Current state of execution capturing which of the loops are current.
@@ -89,13 +107,50 @@ public class LCSProblem extends Problem {
     private int j;
     
     /**
-     * The subproblem dynamic values.
+     * The subproblem dynamic values of the rows computed so far, regardless
+     * of whether the current step has filled them in (see getValueAt()).
      * 
      * Note all indexes are shifted by 1 since 
-     * subproblem[0][0] in the Java array corresponds to cell[-1][-1] in
+     * subproblem[0][0] in the Java table corresponds to cell[-1][-1] in
      * the Dynamic Programming problem.
+     * 
+     * As a value never exceeds min(n, m), the table is flat with cells no
+     * wider than needed. It's encoded in JSon as an int[][], with -1 in the
+     * cells not yet filled in.
+     */
+    @JsonAdapter(CellTableAdapter.class)
+    private final CellTable subproblemL;
+    
+    /**
+     * The number of rows, after row 0, whose values are in subproblemL.
+     * A problem read from JSon computes them again.
+     */
+    private transient int computedRows;
+    
+    /**
+     * The number of statements executed since the PRE state.
+     */
+    private long stepIndex;
+    
+    /**
+     * The maximum number of step indexes in the journal.
      */
-    private final int[][] subproblemL;
+    private static final int JOURNAL_CAPACITY = 64;
+    
+    /**
+     * A ring buffer of the step indexes moved between by seek(), oldest
+     * first, beginning at journalStart (null until the first seek()).
+     */
+    private transient long[] journal;
+    
+    private transient int journalStart;
+    
+    private transient int journalSize;
+    
+    /**
+     * The position in the journal of the current step index.
+     */
+    private transient int journalCursor;
     
     /**
      * The current state of the algorithm, before the loops, in a loop, and
@@ -121,7 +176,9 @@ public class LCSProblem extends Problem {
         i = -1;
         j = -1;
         
-        subproblemL = new int[n+1][m+1];
+        subproblemL = FlatCellTable.create(n+1, m+1, Math.min(n, m)); // The r and c loops fill in 0's
+        computedRows = 0;
+        stepIndex = 0;
         
         executionState = EXECUTION_STATE.PRE;
         
@@ -180,12 +237,65 @@ public class LCSProblem extends Problem {
         return j;
     }
     
+    /**
+     * Return the value of the current cell [i][j], or -1 if the current state
+     * isn't at a cell (e.g., after the j_loop exits).
+     * 
+     * @return int
+     */
     public int getCurrentValue() {
-        return subproblemL[i][j];
+        if (i < 0 || i > n || j < 0 || j > m) {
+            return -1;
+        }
+        
+        return getValueAt(i, j);
     }
     
+    /**
+     * Return the value of the given cell, if it has been filled in by the
+     * current step, otherwise -1.
+     * 
+     * @param row the Java array row index
+     * @param column the Java array column index
+     * @return int
+     */
     public int getValueAt(int row, int column) {
-        return subproblemL[row][column];
+        return stepIndex >= filledAt(row, column) ? subproblemL.get(row, column) : -1;
+    }
+    
+    /**
+     * Return the value the given cell has once the problem is solved,
+     * regardless of the current step, computing any rows needed.
+     * 
+     * @param row the Java array row index
+     * @param column the Java array column index
+     * @return int
+     */
+    int getSolvedValue(int row, int column) {
+        computeRows(row);
+        
+        return subproblemL.get(row, column);
+    }
+    
+    /**
+     * Return the number of statements executed since the PRE state.
+     * 
+     * @return a step index from 0 to getStepCount()
+     */
+    public long getStepIndex() {
+        return stepIndex;
+    }
+    
+    /**
+     * Return the number of statements executed from the PRE state to the
+     * POST state: one to enter the r_loop, n + 2 for the r_loop and m + 1 for
+     * the c_loop (including their exits), one to enter the i_loop, m + 2 for
+     * each of its n rows, and one to exit it.
+     * 
+     * @return the step index of the POST state
+     */
+    public long getStepCount() {
+        return iLoopStart() + (long) n * (m + 2) + 1;
     }
     
     public EXECUTION_STATE getExecutionState() {
@@ -202,73 +312,10 @@ public class LCSProblem extends Problem {
      * the associated loop.
      */
     public void step() {
-        switch (executionState) {
-            case PRE:
-                reset();
-                executionState = EXECUTION_STATE.R_LOOP;
-                break;
-                
-            case R_LOOP:
-                if (++r == n + 1) { // Got to n since we started at -1
-                    executionState = EXECUTION_STATE.C_LOOP;
-                } else {
-                    subproblemL[r][0] = 0;
-                }
-                break;
-                
-            case C_LOOP:
-                // If c == -1, the c_loop hasn't been entered. As this loop 
-                // index begins at dynamic programming cell value 0 and not
-                // cell value -1, the appropriate initial Java array index is 1.
-                if (c == -1) {
-                    c = 1;
-                } else {
-                    c++;
-                }
-                
-                if (c == m + 1) {
-                    i = -1; 
-                    executionState = EXECUTION_STATE.I_LOOP;
-                } else {
-                    subproblemL[0][c] = 0;
-                }
-                break;
-                
-            case I_LOOP:                
-                if (i == -1) { // uninitialized
-                    i = 1;     // begins at DP cell 0, Java index 1
-                    j = 0; 
-                    executionState = EXECUTION_STATE.J_LOOP;   
-                } else {
-                    i++;
-                    if (i == n + 1) { // end of i loop
-                        executionState = EXECUTION_STATE.POST;
-                    } else {
-                        j = 0;
-                        executionState = EXECUTION_STATE.J_LOOP;
-                    }
-                }
-                
-                break;
-                
-            case J_LOOP:
-                j++;
-                if (j == m + 1) { // end of j loop
-                    executionState = EXECUTION_STATE.I_LOOP;
-                } else {
-                    if (x.charAt(i-1) == y.charAt(j-1)) {
-                        subproblemL[i][j] = subproblemL[i-1][j-1] + 1;
-                    } else {
-                        subproblemL[i][j] = Integer.max(subproblemL[i-1][j],
-                                                        subproblemL[i][j-1]);
-                    }
-                }
-                
-                break;
-            case POST:
-                System.out.println("Shouldn't step() in POST state");
-            default: // Should never get here
-                System.out.println("Unknown execution state: " + executionState);
+        if (executionState == EXECUTION_STATE.POST) {
+            System.out.println("Shouldn't step() in POST state");
+        } else {
+            moveTo(stepIndex + 1);
         }
     }
     
@@ -282,69 +329,166 @@ public class LCSProblem extends Problem {
      * @author EverettCV
      */
     public void stepBack() {
+        if (executionState == EXECUTION_STATE.PRE) {
+            System.out.println("Shouldn't stepBack() in PRE state");
+        } else {
+            moveTo(stepIndex - 1);
+        }
+    }
     
-        switch (executionState) {
-            // POST case, stepBack sets executionState to J_LOOP and sets i and j = to their respective max.
-            case POST:
-                executionState = EXECUTION_STATE.J_LOOP;
-                i = n;
-                j = m;
-                break;
+    /**
+     * Compute all rows of the table not yet computed in parallel, so later
+     * steps never compute a row, without changing the current state.
+     * 
+     * @param pool the pool whose threads fill the table
+     * @param tileSize the number of rows and columns filled by one task
+     * @see WavefrontLCS
+     */
+    public void precompute(ForkJoinPool pool, int tileSize) {
+        if (computedRows < n) {
+            new WavefrontLCS(x, y, subproblemL, tileSize).fill(pool);
             
-            // J_LOOP case, stepBack goes backwards one cell inside the current I row, and resets value to -1 (value when unvisited). If it is at the beginning of the row, set I_LOOP state.
-            case J_LOOP:
-                if (j > 0) {
-                    subproblemL[i][j] = -1; // Resetting cell value to -1 (Starting value when unvisited)
-                    j--;
-                } else {
-                    executionState = EXECUTION_STATE.I_LOOP;
-                }
-                break;
-
-            // I_LOOP case, stepBack goes backwards (upwards technically) one cell. Decrements the i value and then sets the state to J_LOOP if there are more i rows left or C_LOOP if no more i rows left.
-            case I_LOOP:
-                if (i > 1) {
-                    i--;
-                    j = m;
-                    executionState = EXECUTION_STATE.J_LOOP;
-                } else {
-                    i = -1;
-                    j = -1;
-                    executionState = EXECUTION_STATE.C_LOOP;
-                }
-                break;
-
-            // C_LOOP case, stepBack goes backwards one cell at the top row (0 index). Resets value in specified cell to -1 (value when unvisited), sets state to R_LOOP once at the beginning of the c row.
-            case C_LOOP:
-                if (c == 1) {
-                    executionState = EXECUTION_STATE.R_LOOP;
-                    c = -1;
-                } else {
-                    c--;
-                    subproblemL[0][c] = -1;
-
-                }
-                break;
-
-            // R_LOOP case, stepBack goes backwards (technically upwards) one cell. Resets value in specified cell to -1 (value when unvisited), sets state to PRE once all cells have been reset.
-            case R_LOOP:
-                if (r == 0) {
-                    executionState = EXECUTION_STATE.PRE;
-                    r = -1;
-                } else {
-                    r--;
-                    subproblemL[r][0] = -1;
-                }
-                break;
-
-            // PRE case, Cannot steBack from PRE state, outputs a warning and ends stepBack.
-            case PRE:
-                System.out.println("Shouldn't stepBack() in PRE state");
-                break;
-
-            default: // Should never get here
-                System.out.println("Unknown execution state: " + executionState);
-                break;
+            computedRows = n;
+        }
+    }
+    
+    /**
+     * Compute all rows of the table in the common pool.
+     */
+    public void precompute() {
+        precompute(ForkJoinPool.commonPool(), WavefrontLCS.DEFAULT_TILE_SIZE);
+    }
+    
+    /**
+     * Move the algorithm to the state after the given number of statements
+     * have been executed from the PRE state.
+     * 
+     * This computes any rows of the table not yet computed up to the row of
+     * the new state, otherwise it takes constant time. The move is recorded
+     * in the journal, discarding any moves that could be redone.
+     * 
+     * @param stepIndex a step index from 0 to getStepCount()
+     * @throws IllegalArgumentException if stepIndex is out of range
+     */
+    public void seek(long stepIndex) {
+        long from = this.stepIndex;
+        
+        moveTo(stepIndex);
+        
+        if (journal == null) {
+            journal = new long[JOURNAL_CAPACITY];
+            journalSize = 1;
+            journalCursor = 0;
+        }
+        
+        journal[journalIndex(journalCursor)] = from;
+        journalSize = journalCursor + 1;
+        
+        if (journalSize == JOURNAL_CAPACITY) { // Forget the oldest move
+            journalStart = journalIndex(1);
+            journalSize--;
+        }
+        
+        journal[journalIndex(journalSize)] = stepIndex;
+        journalCursor = journalSize++;
+    }
+    
+    /**
+     * Return to the step index from which the last seek() (not already
+     * undone) moved. The current step index, including any steps since the
+     * seek(), is what redo() returns to.
+     * 
+     * @return true if there was a seek() to undo
+     */
+    public boolean undo() {
+        if (journal == null || journalCursor == 0) {
+            return false;
+        }
+        
+        journal[journalIndex(journalCursor)] = stepIndex;
+        
+        moveTo(journal[journalIndex(--journalCursor)]);
+        
+        return true;
+    }
+    
+    /**
+     * Repeat the last undone seek().
+     * 
+     * @return true if there was an undone seek() to redo
+     */
+    public boolean redo() {
+        if (journal == null || journalCursor == journalSize - 1) {
+            return false;
+        }
+        
+        journal[journalIndex(journalCursor)] = stepIndex;
+        
+        moveTo(journal[journalIndex(++journalCursor)]);
+        
+        return true;
+    }
+    
+    /**
+     * Move the algorithm to the given step index without recording it in
+     * the journal (see seek()).
+     */
+    private void moveTo(long stepIndex) {
+        long stepCount = getStepCount();
+        
+        if (stepIndex < 0 || stepIndex > stepCount) {
+            throw new IllegalArgumentException("Invalid step index of: " + stepIndex
+                    + ". Maximum step index is: " + stepCount + ".");
+        }
+        
+        this.stepIndex = stepIndex;
+        
+        r = -1; // The loop variables of loops not yet entered
+        c = -1;
+        i = -1;
+        j = -1;
+        
+        if (stepIndex == 0) {
+            executionState = EXECUTION_STATE.PRE;
+            
+        } else if (stepIndex < cLoopStart()) {
+            r = (int) stepIndex - 2; // -1 until the first iteration
+            executionState = EXECUTION_STATE.R_LOOP;
+            
+        } else if (stepIndex < iLoopStart()) {
+            r = n + 1;
+            
+            // The c_loop begins at DP cell 0, Java index 1
+            if (stepIndex > cLoopStart()) {
+                c = (int) (stepIndex - cLoopStart());
+            }
+            executionState = EXECUTION_STATE.C_LOOP;
+            
+        } else {
+            r = n + 1;
+            c = m + 1;
+            
+            if (stepIndex == iLoopStart()) {
+                executionState = EXECUTION_STATE.I_LOOP;
+                
+            } else if (stepIndex == stepCount) {
+                i = n + 1;
+                j = m + 1;
+                executionState = EXECUTION_STATE.POST;
+                
+                computeRows(n);
+                
+            } else {
+                long offset = stepIndex - iLoopStart() - 1;
+                
+                i = (int) (offset / (m + 2)) + 1;
+                j = (int) (offset % (m + 2));
+                
+                // After the last iteration, the j_loop exits to the i_loop
+                executionState = j <= m ? EXECUTION_STATE.J_LOOP : EXECUTION_STATE.I_LOOP;
+                
+                computeRows(i);
+            }
         }
     }
     
@@ -356,17 +500,10 @@ public class LCSProblem extends Problem {
      * @author EverettCV
      */
     public void stepRLoop(int step) {
-        reset();
-        executionState = EXECUTION_STATE.R_LOOP; // Set state to R_LOOP (First step from PRE)
-        // Determines if the step input is valid and worth continuing execution.
-        if (step > m + 1) {
-            System.out.println("Invalid step count of: " + step + ". Maximum step count is: " + (m + 1) + ".");
-        } else { // Sets r to 0 and begins to iterate through the r column until all values up until the specified step is filled with 0.
-            r = 0;
-            for (int i = 0; i < step; i++) {
-                subproblemL[r][0] = 0;
-                r++;
-            }
+        if (step < 0 || step > n + 1) {
+            System.out.println("Invalid step count of: " + step + ". Maximum step count is: " + (n + 1) + ".");
+        } else {
+            seek(1 + step);
         }
     }
     
@@ -378,30 +515,11 @@ public class LCSProblem extends Problem {
      * @author EverettCV
      */
     public void stepCLoop(int step) {
-        reset();
-        executionState = EXECUTION_STATE.R_LOOP; // Set state to R_LOOP (First step from PRE)
-        r = 0; // Sets r value to starting value for R_LOOP.
-        
-        // Iterates through the r column, filling all cells with 0.
-        while (executionState == EXECUTION_STATE.R_LOOP) {
-            subproblemL[r][0] = 0;
-            r++;
-            
-            if (r == m + 1) { // Once at the end of the R_LOOP, sets state to C_LOOP and initializes the starting value of the c row.
-                executionState = EXECUTION_STATE.C_LOOP;
-                c = 0;
-            }
-        }
-        // Determines if the step input for C_LOOP is valid and worth continuing execution.
-        if (step > n + 1) {
-            System.out.println("Invalid step count of: " + step + ". Maximum step count is: " + (n + 1) + ".");
-        } else { // Iterates through the c row, populating cells with a value of 0 until reaching the specified step input.
-            for (int i = 0; i < step; i++) {
-                subproblemL[0][c] = 0;
-                c++;
-            }
+        if (step < 0 || step > m) {
+            System.out.println("Invalid step count of: " + step + ". Maximum step count is: " + m + ".");
+        } else {
+            seek(cLoopStart() + step);
         }
-
     }
     
     /**
@@ -415,86 +533,15 @@ public class LCSProblem extends Problem {
      * @author EverettCV
      */
     public void stepIJLoop(int stepI, int stepJ) {
-        reset();
-        executionState = EXECUTION_STATE.R_LOOP; // Set state to R_LOOP (First step from PRE)
-        r = 0; // Sets r value to starting value for R_LOOP.
-
-        // Iterates through the r column, filling all cells with 0.
-        while(executionState == EXECUTION_STATE.R_LOOP) {
-            subproblemL[r][0] = 0;
-            r++;
-
-            if (r == m + 1) { // Once at the end of the R_LOOP, sets state to C_LOOP and initializes the starting value of the c row.
-                executionState = EXECUTION_STATE.C_LOOP;
-                c = 0;
-            }
+        if (stepI < 0 || stepI > n) {
+            System.out.println("Invalid step count for i of: " + stepI + ". Maximum step count for i is: " + n + ".");
+        } else if (stepJ < 0 || stepJ > m) {
+            System.out.println("Invalid step count for j of: " + stepJ + ". Maximum step count for j is: " + m + ".");
+        } else if (stepI == 0) {
+            seek(iLoopStart());
+        } else {
+            seek(iLoopStart() + (long) (stepI - 1) * (m + 2) + 1 + stepJ);
         }
-
-        // Iterates through the c row, filling all cells with 0.
-        while (executionState == EXECUTION_STATE.C_LOOP) {
-            subproblemL[0][c] = 0;
-            c++;
-
-            if (c == n + 1) { // Once at the end of the R_LOOP, sets state to C_LOOP.
-                executionState = EXECUTION_STATE.I_LOOP;
-            }
-        }
-
-        // Determines if stepI and stepJ inputs are valid and worth continuing execution. Only one needs to be invalid for both to be invalid.
-        if (stepI > m + 1 || stepJ > n + 1) {
-            if (stepI > m +1) {
-                System.out.println("Invalid step count for i of: " + stepI + ". Maximum step count for i is: " + (m + 1) + ".");
-            } else {
-                System.out.println("Invalid step count for j of: " + stepJ + ". Maximum step count for j is: " + (n + 1) + ".");
-            }
-        } else { // Begin execution of the I/J LOOPs.
-            for (int k = 0; k < stepI; k++) { // Executes until reaching specified i row.
-                if (executionState == EXECUTION_STATE.I_LOOP) { // If first i row, initialize correct values and set executionState to J_LOOP.
-                    if (i == -1) {
-                        i = 1;
-                        j = 0;
-                        executionState = EXECUTION_STATE.J_LOOP;
-                    } else { // Incrememnts i value and checks for if we have completed the entire problem or if we need to reset j value to 0 and set executionState to J_LOOP.
-                        i++;
-                        if (i == n + 1) {
-                            executionState = EXECUTION_STATE.POST;
-                        } else {
-                            j = 0;
-                            executionState = EXECUTION_STATE.J_LOOP;
-                        }
-                    }
-                }
-
-                if (executionState == EXECUTION_STATE.J_LOOP) { // J_LOOP logic
-                    if (i == stepI) { // If we reach the specified i row from stepI value, we update cell values in the row until the specified j column from the stepJ value.
-                        for (int l = 0; l < stepJ; l++) {
-                            j++;
-                            if (x.charAt(i-1) == y.charAt(j-1)) { // LCS match, populates cell with the above cell's value + 1.
-                                subproblemL[i][j] = subproblemL[i-1][j-1] + 1;
-                            } else { // No match, populates cell with the max of the previous row/column value or current row/previous column value.
-                                subproblemL[i][j] = Integer.max(subproblemL[i-1][j],
-                                                                subproblemL[i][j-1]);
-                            }
-                        }
-                    } else { // If we have not reached specified i row value from stepI value, we iterate through entire row and populate cells or set executionState to I_LOOP and begin the next row.
-                        while (executionState == EXECUTION_STATE.J_LOOP) {
-                            j++;
-                            if (j == m + 1) { // If we reach the end of the row, we set the executionState to I_LOOP to begin the next row.
-                                executionState = EXECUTION_STATE.I_LOOP;
-                            } else { // Still in current row
-                                if (x.charAt(i-1) == y.charAt(j-1)) { // LCS match, populates cell with the above cell's value + 1.
-                                    subproblemL[i][j] = subproblemL[i-1][j-1] + 1;
-                                } else { // No match, populates cell with the max of the previous row/column value or current row/previous column value.
-                                    subproblemL[i][j] = Integer.max(subproblemL[i-1][j],
-                                                                    subproblemL[i][j-1]);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-
     }
     
     /**
@@ -502,14 +549,7 @@ public class LCSProblem extends Problem {
      * execution of the first statement.
      */
     public void reset() {
-        r = -1;
-        c = -1;
-        i = -1;
-        j = -1;
-        
-        for (int p = 0; p <= n; p++)
-            for (int q = 0; q <= m; q++)
-                subproblemL[p][q] = -1;
+        seek(0);
     }
     
     /**
@@ -524,12 +564,86 @@ public class LCSProblem extends Problem {
             
         for (int p = 0; p <= n; p++) {
             for (int q = 0; q <= m; q++)
-                System.out.print(subproblemL[p][q] + " ");
+                System.out.print(getValueAt(p, q) + " ");
            
             System.out.println("");  
                
         }       
     }
     
+    /**
+     * Return the step index of the C_LOOP state entered from the r_loop.
+     */
+    private long cLoopStart() {
+        return n + 3L;
+    }
     
+    /**
+     * Return the step index of the I_LOOP state entered from the c_loop.
+     */
+    private long iLoopStart() {
+        return cLoopStart() + m + 1;
+    }
+    
+    /**
+     * Return the index in the journal array of the given journal position.
+     */
+    private int journalIndex(int position) {
+        return (journalStart + position) % JOURNAL_CAPACITY;
+    }
+    
+    /**
+     * Return the estimated number of bytes in the heap used by the
+     * subproblem table.
+     * 
+     * @return long
+     */
+    long getTableFootprint() {
+        if (subproblemL instanceof FlatCellTable) {
+            return ((FlatCellTable) subproblemL).getFootprint();
+        }
+        
+        return FlatCellTable.ARRAY_HEADER_BYTES + (long) (n + 1) * (m + 1) * Integer.BYTES;
+    }
+    
+    /**
+     * Return the step index at which the given cell is filled in, which
+     * orders the cells as the algorithm fills them.
+     * 
+     * @param row the Java array row index
+     * @param column the Java array column index
+     * @return long
+     */
+    long filledAt(int row, int column) {
+        if (column == 0) {
+            return 2L + row; // r_loop
+        }
+        
+        if (row == 0) {
+            return cLoopStart() + column; // c_loop
+        }
+        
+        return iLoopStart() + (long) (row - 1) * (m + 2) + 1 + column;
+    }
+    
+    /**
+     * Compute the values of the rows, up to the given row, that haven't
+     * already been computed, each from the row above it.
+     * 
+     * @param row the Java array row index of the last row to compute
+     */
+    private void computeRows(int row) {
+        for (; computedRows < row; computedRows++) {
+            int p = computedRows + 1;
+            
+            for (int q = 1; q <= m; q++) {
+                if (x.charAt(p-1) == y.charAt(q-1)) {
+                    subproblemL.set(p, q, subproblemL.get(p-1, q-1) + 1);
+                } else {
+                    subproblemL.set(p, q, Integer.max(subproblemL.get(p-1, q),
+                                                      subproblemL.get(p, q-1)));
+                }
+            }
+        }
+    }
 }
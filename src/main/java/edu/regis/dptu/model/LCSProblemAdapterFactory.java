@@ -0,0 +1,94 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Gson adapter factory writing an LCSProblem with its subproblem table as
+ * the student sees it at the current step, -1 in each cell not yet filled in
+ * (see LCSProblem.getValueAt()). The table holds the values of every row
+ * computed so far, including those precomputed or reached before stepping
+ * back, which would otherwise reveal cells the student hasn't solved.
+ * 
+ * A problem is read as written; the cells that aren't filled in are computed
+ * again as the problem is stepped through.
+ * 
+ * Use with @JsonAdapter(LCSProblemAdapterFactory.class) on LCSProblem.
+ * 
+ * @author rickb
+ */
+public class LCSProblemAdapterFactory implements TypeAdapterFactory {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (!LCSProblem.class.isAssignableFrom(type.getRawType())) {
+            return null;
+        }
+        
+        TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        TypeAdapter<JsonElement> elements = gson.getAdapter(JsonElement.class);
+        
+        return new TypeAdapter<T>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                if (value == null) {
+                    out.nullValue();
+                    return;
+                }
+                
+                JsonObject json = delegate.toJsonTree(value).getAsJsonObject();
+                
+                json.add("subproblemL", visibleCells((LCSProblem) value));
+                
+                elements.write(out, json);
+            }
+
+            @Override
+            public T read(JsonReader in) throws IOException {
+                return delegate.read(in);
+            }
+        };
+    }
+    
+    /**
+     * Return the cells of the given problem's table, as filled in at its
+     * current step, as a JSon array of rows.
+     */
+    private static JsonArray visibleCells(LCSProblem problem) {
+        JsonArray rows = new JsonArray(problem.getN() + 1);
+        
+        for (int row = 0; row <= problem.getN(); row++) {
+            JsonArray cells = new JsonArray(problem.getM() + 1);
+            
+            for (int column = 0; column <= problem.getM(); column++) {
+                cells.add(problem.getValueAt(row, column));
+            }
+            
+            rows.add(cells);
+        }
+        
+        return rows;
+    }
+}
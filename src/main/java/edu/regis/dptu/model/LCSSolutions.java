@@ -0,0 +1,320 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.model;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The distinct longest common subsequences of an LCSProblem, which are
+ * enumerated lazily, as their number may grow exponentially with n and m,
+ * along with a check of whether a given String is one of them.
+ * 
+ * The subsequences are enumerated from their last character back, as a
+ * depth first traversal of the DAG of cells [i][j] of the solved table.
+ * From cell [i][j], the LCS may end with character a if the last a in
+ * x[0, i) is at p, the last in y[0, j) is at q, and L[p][q] = L[i][j] - 1.
+ * Following only these rightmost occurrences gives each distinct LCS exactly
+ * once, without a set of those already returned, and every path reaches an
+ * LCS, so there are no dead ends. The transitions from each cell visited
+ * are memoized.
+ * 
+ * Like LCSProblem, this isn't thread-safe.
+ * 
+ * @author rickb
+ */
+public class LCSSolutions implements Iterable<String> {
+    /**
+     * The problem whose table is traversed.
+     */
+    private final LCSProblem problem;
+    
+    private final String x;
+    
+    private final String y;
+    
+    /**
+     * The characters in both x and y, in order.
+     */
+    private final char[] alphabet;
+    
+    /**
+     * The index in x of the last occurrence before i of each alphabet
+     * character, [a][i], or -1.
+     */
+    private final int[][] lastInX;
+    
+    /**
+     * The index in y of the last occurrence before j of each alphabet
+     * character, [a][j], or -1.
+     */
+    private final int[][] lastInY;
+    
+    /**
+     * The transitions (alphabet index, p, q) from each cell visited, indexed
+     * by i * (m + 1) + j.
+     */
+    private final HashMap<Long, int[]> transitions = new HashMap<>();
+    
+    /**
+     * Initialize the solutions of the given problem, which needn't be solved.
+     * 
+     * @param problem an LCSProblem
+     */
+    public LCSSolutions(LCSProblem problem) {
+        this.problem = problem;
+        
+        x = problem.getX();
+        y = problem.getY();
+        
+        TreeSet<Character> common = new TreeSet<>();
+        for (int i = 0; i < x.length(); i++) {
+            if (y.indexOf(x.charAt(i)) >= 0) {
+                common.add(x.charAt(i));
+            }
+        }
+        
+        alphabet = new char[common.size()];
+        int a = 0;
+        for (char c : common) {
+            alphabet[a++] = c;
+        }
+        
+        lastInX = lastOccurrences(x);
+        lastInY = lastOccurrences(y);
+    }
+    
+    /**
+     * Return the length of every LCS.
+     * 
+     * @return the value of cell [n][m]
+     */
+    public int getLength() {
+        return problem.getSolvedValue(x.length(), y.length());
+    }
+    
+    /**
+     * Return whether the given String is a longest common subsequence, in
+     * O(n + m) time, without enumerating the subsequences.
+     * 
+     * @param s a String, possibly null
+     * @return true if s is as long as an LCS, and a subsequence of x and y
+     */
+    public boolean isLCS(String s) {
+        return s != null && s.length() == getLength()
+                && isSubsequence(s, x) && isSubsequence(s, y);
+    }
+    
+    /**
+     * Return an iterator over the distinct longest common subsequences, which
+     * finds each as next() is called.
+     * 
+     * @return an Iterator
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new SolutionIterator();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Spliterator<String> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.ORDERED);
+    }
+    
+    /**
+     * Return a sequential Stream of the distinct longest common subsequences.
+     * 
+     * @return a Stream
+     */
+    public Stream<String> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+    
+    /**
+     * Return the transitions from cell [i][j], as consecutive (alphabet
+     * index, p, q) triples.
+     */
+    private int[] transitionsFrom(int i, int j) {
+        long key = (long) i * (y.length() + 1) + j;
+        
+        int[] from = transitions.get(key);
+        
+        if (from == null) {
+            int length = problem.getSolvedValue(i, j);
+            int[] triples = new int[3 * alphabet.length];
+            int count = 0;
+            
+            for (int a = 0; a < alphabet.length; a++) {
+                int p = lastInX[a][i];
+                int q = lastInY[a][j];
+                
+                if (p >= 0 && q >= 0 && problem.getSolvedValue(p, q) == length - 1) {
+                    triples[count++] = a;
+                    triples[count++] = p;
+                    triples[count++] = q;
+                }
+            }
+            
+            from = Arrays.copyOf(triples, count);
+            transitions.put(key, from);
+        }
+        
+        return from;
+    }
+    
+    /**
+     * Return the last occurrence tables of the alphabet in the given
+     * sequence.
+     */
+    private int[][] lastOccurrences(String s) {
+        int[][] last = new int[alphabet.length][s.length() + 1];
+        
+        for (int a = 0; a < alphabet.length; a++) {
+            last[a][0] = -1;
+            
+            for (int k = 1; k <= s.length(); k++) {
+                last[a][k] = s.charAt(k - 1) == alphabet[a] ? k - 1 : last[a][k - 1];
+            }
+        }
+        
+        return last;
+    }
+    
+    /**
+     * Return whether s is a subsequence of sequence.
+     */
+    private static boolean isSubsequence(String s, String sequence) {
+        int k = 0;
+        
+        for (int p = 0; p < sequence.length() && k < s.length(); p++) {
+            if (sequence.charAt(p) == s.charAt(k)) {
+                k++;
+            }
+        }
+        
+        return k == s.length();
+    }
+    
+    /**
+     * A depth first traversal from cell [n][m], in which the characters
+     * chosen so far fill the end of the current subsequence.
+     */
+    private class SolutionIterator implements Iterator<String> {
+        /**
+         * The characters of the current subsequence, from index length down.
+         */
+        private final char[] chars;
+        
+        /**
+         * The cells of the current path, the last being [n][m].
+         */
+        private final ArrayDeque<Cell> path = new ArrayDeque<>();
+        
+        /**
+         * The next subsequence to return, null if not yet found.
+         */
+        private String next;
+        
+        SolutionIterator() {
+            int length = getLength();
+            
+            chars = new char[length];
+            path.push(new Cell(x.length(), y.length(), length));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = find();
+            }
+            
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            
+            String s = next;
+            next = null;
+            
+            return s;
+        }
+        
+        /**
+         * Return the next subsequence on the path, or null if there are no
+         * more.
+         */
+        private String find() {
+            while (!path.isEmpty()) {
+                Cell cell = path.peek();
+                
+                if (cell.remaining == 0) { // Every character has been chosen
+                    path.pop();
+                    return new String(chars);
+                }
+                
+                if (cell.next == cell.transitions.length) {
+                    path.pop();
+                } else {
+                    int t = cell.next;
+                    cell.next += 3;
+                    
+                    chars[cell.remaining - 1] = alphabet[cell.transitions[t]];
+                    path.push(new Cell(cell.transitions[t + 1], cell.transitions[t + 2], cell.remaining - 1));
+                }
+            }
+            
+            return null;
+        }
+    }
+    
+    /**
+     * A cell on the current path and the transitions not yet followed from
+     * it.
+     */
+    private class Cell {
+        private final int[] transitions;
+        
+        /**
+         * The number of characters of the subsequence not yet chosen, which
+         * is L[i][j].
+         */
+        private final int remaining;
+        
+        /**
+         * The index of the next transition to follow.
+         */
+        private int next;
+        
+        Cell(int i, int j, int remaining) {
+            this.remaining = remaining;
+            
+            transitions = remaining == 0 ? new int[0] : transitionsFrom(i, j);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The subproblem table of an LCSProblem as filled in by a student, which
+ * tracks the incorrect cells as cells are changed, so the first incorrect
+ * cell, in the order the algorithm fills them, is known without re-solving
+ * the problem or comparing the whole table.
+ * 
+ * Each changed cell is checked against the student's values of the cells it
+ * depends on: cells in row or column 0 must be 0, otherwise [i][j] must be
+ * [i-1][j-1] + 1 if x[i-1] == y[j-1], and the max of [i-1][j] and [i][j-1]
+ * if not. Cells depending on it, [i][j+1], [i+1][j], and [i+1][j+1], are
+ * checked again, so a change costs O(log incorrect cells).
+ * 
+ * A cell is incorrect if it disagrees with the cells it depends on, and
+ * they are all filled in. As every cell before the first incorrect one is
+ * correct, if the cells before it are filled in, it's the first cell whose
+ * value differs from the solved table. A cell whose dependencies aren't all
+ * filled in isn't checked until they are.
+ * 
+ * A validator belongs to one student, and isn't thread-safe.
+ * 
+ * @author rickb
+ */
+public class LCSTableValidator {
+    /**
+     * The value of a cell the student hasn't filled in.
+     */
+    public static final int EMPTY = -1;
+    
+    /**
+     * The problem, which determines the fill order of the cells.
+     */
+    private final LCSProblem problem;
+    
+    private final String x;
+    
+    private final String y;
+    
+    private final int rows;
+    
+    private final int columns;
+    
+    /**
+     * The student's value of each cell, in row major order.
+     */
+    private final int[] values;
+    
+    /**
+     * The row major index of each incorrect cell, by fill order.
+     */
+    private final TreeMap<Long, Integer> incorrect = new TreeMap<>();
+    
+    /**
+     * The number of cells that aren't EMPTY.
+     */
+    private int filledCount;
+    
+    /**
+     * Initialize an empty table for the given problem.
+     * 
+     * @param problem an LCSProblem
+     */
+    public LCSTableValidator(LCSProblem problem) {
+        this.problem = problem;
+        
+        x = problem.getX();
+        y = problem.getY();
+        
+        rows = x.length() + 1;
+        columns = y.length() + 1;
+        
+        values = new int[rows * columns];
+        Arrays.fill(values, EMPTY);
+    }
+    
+    /**
+     * Return the estimated number of bytes in the heap used by this
+     * validator, including the table of the problem it retains (but not its
+     * incorrect cells, which are usually few).
+     * 
+     * @return long
+     */
+    public long getFootprint() {
+        return FlatCellTable.ARRAY_HEADER_BYTES + (long) values.length * Integer.BYTES
+                + problem.getTableFootprint() + 2L * (x.length() + y.length());
+    }
+    
+    /**
+     * Return whether this validates the table of the given problem, whose
+     * sequences may have changed since this validator was created.
+     * 
+     * @param problem an LCSProblem
+     * @return true if problem has the id and sequences of this validator's problem
+     */
+    public boolean validates(LCSProblem problem) {
+        return problem.getId() == this.problem.getId()
+                && x.equals(problem.getX()) && y.equals(problem.getY());
+    }
+    
+    /**
+     * Return the student's value of the given cell.
+     * 
+     * @param row the Java array row index
+     * @param column the Java array column index
+     * @return a value, or EMPTY
+     */
+    public int getValue(int row, int column) {
+        return values[index(row, column)];
+    }
+    
+    /**
+     * Change the student's value of the given cell.
+     * 
+     * @param row the Java array row index
+     * @param column the Java array column index
+     * @param value the value entered, or EMPTY if it was cleared
+     * @throws IndexOutOfBoundsException if the cell isn't in the table
+     */
+    public void set(int row, int column, int value) {
+        int index = index(row, column);
+        
+        if (value < 0) {
+            value = EMPTY;
+        }
+        
+        if (values[index] == EMPTY && value != EMPTY) {
+            filledCount++;
+        } else if (values[index] != EMPTY && value == EMPTY) {
+            filledCount--;
+        }
+        
+        values[index] = value;
+        
+        check(row, column);
+        
+        if (column + 1 < columns) {
+            check(row, column + 1);
+        }
+        
+        if (row + 1 < rows) {
+            check(row + 1, column);
+            
+            if (column + 1 < columns) {
+                check(row + 1, column + 1);
+            }
+        }
+    }
+    
+    /**
+     * Change the student's values of the cells in the given answer.
+     * 
+     * @param answer values beginning at a cell
+     * @param isColumn true if the values are down a column, otherwise across a row
+     * @throws IndexOutOfBoundsException if a cell isn't in the table
+     */
+    public void update(CellAnswer answer, boolean isColumn) {
+        int[] answerValues = answer.getValues();
+        
+        for (int k = 0; k < answerValues.length; k++) {
+            if (isColumn) {
+                set(answer.getRow() + k, answer.getColumn(), answerValues[k]);
+            } else {
+                set(answer.getRow(), answer.getColumn() + k, answerValues[k]);
+            }
+        }
+    }
+    
+    /**
+     * Return the first incorrect cell in the order the algorithm fills the
+     * cells.
+     * 
+     * @return {row, column} Java array indexes, or null if there are none
+     */
+    public int[] getFirstIncorrect() {
+        Map.Entry<Long, Integer> first = incorrect.firstEntry();
+        
+        if (first == null) {
+            return null;
+        }
+        
+        return new int[] {first.getValue() / columns, first.getValue() % columns};
+    }
+    
+    /**
+     * Return the number of incorrect cells.
+     * 
+     * @return int
+     */
+    public int getIncorrectCount() {
+        return incorrect.size();
+    }
+    
+    /**
+     * Return whether every cell is filled in and correct.
+     * 
+     * @return boolean
+     */
+    public boolean isSolved() {
+        return filledCount == values.length && incorrect.isEmpty();
+    }
+    
+    /**
+     * Record whether the given cell is incorrect.
+     */
+    private void check(int row, int column) {
+        int index = row * columns + column;
+        int value = values[index];
+        boolean isIncorrect;
+        
+        if (value == EMPTY) {
+            isIncorrect = false;
+            
+        } else if (row == 0 || column == 0) {
+            isIncorrect = value != 0;
+            
+        } else {
+            int diagonal = values[index - columns - 1];
+            int up = values[index - columns];
+            int left = values[index - 1];
+            
+            if (diagonal == EMPTY || up == EMPTY || left == EMPTY) {
+                isIncorrect = false; // Can't be checked yet
+            } else if (x.charAt(row - 1) == y.charAt(column - 1)) {
+                isIncorrect = value != diagonal + 1;
+            } else {
+                isIncorrect = value != Integer.max(up, left);
+            }
+        }
+        
+        if (isIncorrect) {
+            incorrect.put(problem.filledAt(row, column), index);
+        } else {
+            incorrect.remove(problem.filledAt(row, column));
+        }
+    }
+    
+    /**
+     * Return the row major index of the given cell.
+     */
+    private int index(int row, int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("Cell [" + row + "][" + column
+                    + "] of " + rows + " x " + columns + " table");
+        }
+        
+        return row * columns + column;
+    }
+}
@@ -12,6 +12,8 @@
  */
 package edu.regis.dptu.model;
 
+import com.google.gson.JsonElement;
+
 /**
  * Captures the tutor's reply to a previous step completed requests. 
  * 
@@ -26,7 +28,7 @@ public class StepCompletionReply {
     /**
      * The tutor is requesting the student to perform the same task again.
      * 
-     * If true, data contains a JSon encoded Step object.
+     * If true, data contains a JSon Step object.
      */
     private boolean isRepeatStep;
     
@@ -34,7 +36,7 @@ public class StepCompletionReply {
      * The tutor believes the student understands the previous step and
      * is requesting the student to complete a new Task.
      * 
-     * If true, data contains a JSon encoded Task object.
+     * If true, data contains a JSon Task object.
      */
     private boolean isNewTask;
     
@@ -42,7 +44,7 @@ public class StepCompletionReply {
      * The tutor is requesting the student to perform the following step,
      * which might be a new example.
      * 
-     * If true, data contains a JSon encoded Step object.
+     * If true, data contains a JSon Step object.
      */
     private boolean isNewStep;
     
@@ -50,14 +52,15 @@ public class StepCompletionReply {
      * Tutor is asking the student to perform the next step in the current
      * (previous) task.
      * 
-     * If true, data contains a Json encoded Step object.
+     * If true, data contains a JSon Step object.
      */
     private boolean isNextStep;
 
     /**
-     * A JSon encoded Task or Step object (see above flags for the type).
+     * A JSon Task or Step object (see above flags for the type), which is
+     * written inline in the enclosing TutorReply rather than as a String.
      */
-    private String data;
+    private JsonElement data;
     
     public StepCompletionReply() {
         
@@ -123,11 +126,11 @@ public class StepCompletionReply {
         this.isNextStep = isNextStep;
     }
 
-    public String getData() {
+    public JsonElement getData() {
         return data;
     }
 
-    public void setData(String data) {
+    public void setData(JsonElement data) {
         this.data = data;
     }  
 }
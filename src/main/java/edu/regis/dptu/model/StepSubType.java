@@ -50,6 +50,11 @@ public enum StepSubType {
      */
     COMPLETE_FIRST_COL("Complete First Col"),
     
+    /**
+     * Enter the values of any number of cells in the table, possibly all.
+     */
+    COMPLETE_TABLE("Complete Table"),
+    
     /**
      * A type of dynamic programming cell step in which the cell value defaults
      * to zero because of it's position in row or column index -1
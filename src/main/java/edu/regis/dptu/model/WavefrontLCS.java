@@ -0,0 +1,159 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.model;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fills the subproblem table of an LCS problem in parallel, for precomputing
+ * large tables, such as answer keys and demo problems.
+ * 
+ * Cell [i][j] depends only on cells [i-1][j-1], [i-1][j], and [i][j-1], so
+ * the table (less row and column 0) is divided into square tiles, and the
+ * tiles on each anti-diagonal, which don't depend on each other, are filled
+ * in parallel once the previous anti-diagonal is complete. Every cell is
+ * computed exactly as LCSProblem.step() does, so the table is identical.
+ * 
+ * @author rickb
+ */
+public class WavefrontLCS {
+    /**
+     * Tile size used if none is given.
+     */
+    public static final int DEFAULT_TILE_SIZE = 256;
+    
+    /**
+     * Input sequence 1, the rows of the table.
+     */
+    private final String x;
+    
+    /**
+     * Input sequence 2, the columns of the table.
+     */
+    private final String y;
+    
+    /**
+     * The (n + 1) x (m + 1) table being filled, whose row and column 0 are 0's.
+     */
+    private final CellTable table;
+    
+    /**
+     * The number of rows and columns in a tile.
+     */
+    private final int tileSize;
+    
+    /**
+     * Initialize the filling of the given table.
+     * 
+     * @param x the first input sequence, as a String
+     * @param y the second input sequence, as String
+     * @param table the (n + 1) x (m + 1) table to fill, with row and column 0 already 0
+     * @param tileSize the number of rows and columns in a tile
+     */
+    public WavefrontLCS(String x, String y, CellTable table, int tileSize) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("Invalid tile size: " + tileSize);
+        }
+        
+        if (table.getRows() != x.length() + 1 || table.getColumns() != y.length() + 1) {
+            throw new IllegalArgumentException("Table isn't " + (x.length() + 1) + " x " + (y.length() + 1));
+        }
+        
+        this.x = x;
+        this.y = y;
+        this.table = table;
+        this.tileSize = tileSize;
+    }
+    
+    /**
+     * Fill rows 1 to n of the table using the threads of the given pool.
+     * 
+     * @param pool the pool whose parallelism determines the threads used
+     */
+    public void fill(ForkJoinPool pool) {
+        int tileRows = (x.length() + tileSize - 1) / tileSize;
+        int tileColumns = (y.length() + tileSize - 1) / tileSize;
+        
+        for (int diagonal = 0; diagonal < tileRows + tileColumns - 1; diagonal++) {
+            ArrayList<Tile> tiles = new ArrayList<>();
+            
+            for (int tileRow = Math.max(0, diagonal - tileColumns + 1);
+                 tileRow <= Math.min(diagonal, tileRows - 1); tileRow++) {
+                tiles.add(new Tile(tileRow, diagonal - tileRow));
+            }
+            
+            if (tiles.size() == 1) {
+                tiles.get(0).compute();
+            } else {
+                pool.invoke(new Diagonal(tiles));
+            }
+        }
+    }
+    
+    /**
+     * The tiles of an anti-diagonal, which are filled in parallel.
+     */
+    private static class Diagonal extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final ArrayList<Tile> tiles;
+        
+        Diagonal(ArrayList<Tile> tiles) {
+            this.tiles = tiles;
+        }
+        
+        @Override
+        protected void compute() {
+            invokeAll(tiles);
+        }
+    }
+    
+    /**
+     * A tile of the table, whose top left cell is [1 + tileRow * tileSize]
+     * [1 + tileColumn * tileSize].
+     */
+    private class Tile extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final int tileRow;
+        
+        private final int tileColumn;
+        
+        Tile(int tileRow, int tileColumn) {
+            this.tileRow = tileRow;
+            this.tileColumn = tileColumn;
+        }
+        
+        @Override
+        protected void compute() {
+            int iHi = Math.min(x.length(), (tileRow + 1) * tileSize);
+            int jLo = 1 + tileColumn * tileSize;
+            int jHi = Math.min(y.length(), (tileColumn + 1) * tileSize);
+            
+            for (int i = 1 + tileRow * tileSize; i <= iHi; i++) {
+                char c = x.charAt(i-1);
+                
+                for (int j = jLo; j <= jHi; j++) {
+                    if (c == y.charAt(j-1)) {
+                        table.set(i, j, table.get(i-1, j-1) + 1);
+                    } else {
+                        table.set(i, j, Integer.max(table.get(i-1, j),
+                                                    table.get(i, j-1)));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import edu.regis.dptu.err.MissingPropertyException;
+import edu.regis.dptu.model.LCSAnswerKey;
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.util.ResourceMgr;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A process-wide cache of the answer keys of the LCS problems given to
+ * students, indexed by problem id, so grading a step is a table lookup
+ * rather than solving the problem on every request.
+ *
+ * The keys are held within a memory budget, when exceeded, the least
+ * recently used keys are evicted. A key larger than the budget is returned,
+ * but not cached.
+ *
+ * @author rickb
+ */
+public class AnswerKeyCache {
+    /**
+     * The memory budget, in bytes, of the cached keys (see DpTu.properties).
+     */
+    public static final String BUDGET_PROP = "edu.regis.dptu.ANSWER_KEY_CACHE_BYTES";
+
+    /**
+     * Memory budget used if the BUDGET_PROP is missing.
+     */
+    private static final long DEFAULT_BUDGET = 64L * 1024 * 1024;
+
+    /**
+     * The maximum bytes used by the cached keys.
+     */
+    private final long budget;
+
+    /**
+     * The cached keys indexed by problem id, in least recently used order.
+     */
+    private final LinkedHashMap<Integer, LCSAnswerKey> keys = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The bytes used by the cached keys.
+     */
+    private long footprint;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    /**
+     * Initialize this cache with the given memory budget.
+     *
+     * @param budget the maximum bytes used by the cached keys
+     */
+    public AnswerKeyCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Initialize this cache with the budget in the DpTu.properties file.
+     */
+    public AnswerKeyCache() {
+        this(budgetProp());
+    }
+
+    /**
+     * Return the answer key of the given problem, solving it if it isn't
+     * cached (outside of this cache's lock, so other problems can be graded
+     * meanwhile).
+     *
+     * @param problem the LCSProblem given to a student
+     * @return the LCSAnswerKey of problem
+     */
+    public LCSAnswerKey retrieve(LCSProblem problem) {
+        synchronized (this) {
+            LCSAnswerKey key = keys.get(problem.getId());
+
+            if (key != null && key.solves(problem)) {
+                hitCount++;
+                return key;
+            }
+
+            missCount++;
+        }
+
+        LCSAnswerKey key = new LCSAnswerKey(problem);
+
+        synchronized (this) {
+            if (key.getFootprint() <= budget) {
+                LCSAnswerKey old = keys.put(key.getProblemId(), key);
+
+                if (old != null) {
+                    footprint -= old.getFootprint();
+                }
+
+                footprint += key.getFootprint();
+
+                evict();
+            }
+        }
+
+        return key;
+    }
+
+    /**
+     * Remove the key of the given problem, e.g., after its sequences change.
+     *
+     * @param problemId the id of an LCSProblem
+     */
+    public synchronized void invalidate(int problemId) {
+        LCSAnswerKey old = keys.remove(problemId);
+
+        if (old != null) {
+            footprint -= old.getFootprint();
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long getFootprint() {
+        return footprint;
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AnswerKeyCache[size=" + keys.size() + ", bytes=" + footprint + ", hits=" + hitCount
+                + ", misses=" + missCount + ", evictions=" + evictionCount + "]";
+    }
+
+    /**
+     * Evict the least recently used keys until the budget is met.
+     */
+    private void evict() {
+        Iterator<LCSAnswerKey> it = keys.values().iterator();
+
+        while (footprint > budget && it.hasNext()) {
+            footprint -= it.next().getFootprint();
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Return the positive budget in the DpTu.properties file, if any,
+     * otherwise the default.
+     *
+     * @return a long
+     */
+    private static long budgetProp() {
+        try {
+            long value = Long.parseLong(ResourceMgr.instance().getProp(BUDGET_PROP).trim());
+
+            return value > 0 ? value : DEFAULT_BUDGET;
+
+        } catch (MissingPropertyException | NumberFormatException e) {
+            return DEFAULT_BUDGET;
+        }
+    }
+}
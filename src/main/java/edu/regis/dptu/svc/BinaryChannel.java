@@ -0,0 +1,263 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import edu.regis.dptu.err.FrameTooLargeException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A MessageChannel of messages encoded by a BinaryCodec, each preceded by
+ * its length in bytes, as a varint.
+ * 
+ * A client requests a binary channel by sending the BinaryCodec.PREFACE
+ * when it connects, which the server echoes if it accepts. A server that
+ * doesn't echo the preface only speaks JSon (see JsonChannel).
+ * 
+ * @author rickb
+ */
+public class BinaryChannel implements MessageChannel {
+    private final InputStream in;
+    
+    private final OutputStream out;
+    
+    private final int maxMessageSize;
+    
+    /**
+     * Encodes the messages written.
+     */
+    private final BinaryCodec encoder = new BinaryCodec();
+    
+    /**
+     * Decodes the messages read.
+     */
+    private final BinaryCodec decoder = new BinaryCodec();
+    
+    /**
+     * The current message.
+     */
+    private byte[] message = new byte[256];
+    
+    private int messageLength;
+    
+    /**
+     * Whether the current message exceeded the maximum size, so it was skipped.
+     */
+    private boolean isTooLarge;
+    
+    /**
+     * Initialize this channel on the given streams, once the preface has been
+     * exchanged.
+     */
+    private BinaryChannel(InputStream in, OutputStream out, int maxMessageSize) {
+        this.in = in;
+        this.out = out;
+        this.maxMessageSize = maxMessageSize;
+    }
+    
+    /**
+     * Return whether the next byte of the given stream begins the preface,
+     * without reading it.
+     * 
+     * @param in the stream from a newly connected client
+     * @return true, if the client is requesting a binary channel
+     * @throws IOException reading the stream failed
+     */
+    public static boolean isPreface(BufferedInputStream in) throws IOException {
+        in.mark(1);
+        
+        int b = in.read();
+        
+        in.reset();
+        
+        return b == (BinaryCodec.PREFACE[0] & 0xFF);
+    }
+    
+    /**
+     * Read the preface from a client, and echo it, accepting a binary channel.
+     * 
+     * @param in the stream from the client
+     * @param out the stream to the client
+     * @param maxMessageSize the maximum number of bytes in a message read
+     * @return the BinaryChannel
+     * @throws IOException the preface isn't of this version, or the stream failed
+     */
+    public static BinaryChannel accept(InputStream in, OutputStream out, int maxMessageSize) throws IOException {
+        BinaryChannel channel = new BinaryChannel(buffered(in), new BufferedOutputStream(out), maxMessageSize);
+        
+        if (!Arrays.equals(channel.readPreface(), BinaryCodec.PREFACE)) {
+            throw new IOException("Unsupported binary protocol preface");
+        }
+        
+        channel.out.write(BinaryCodec.PREFACE);
+        channel.out.flush();
+        
+        return channel;
+    }
+    
+    /**
+     * Send the preface to the tutor, returning a binary channel if it is
+     * echoed.
+     * 
+     * @param in the stream from the tutor
+     * @param out the stream to the tutor
+     * @param maxMessageSize the maximum number of bytes in a message read
+     * @return the BinaryChannel, or null if the tutor didn't accept it
+     * @throws IOException the stream failed
+     */
+    public static BinaryChannel connect(InputStream in, OutputStream out, int maxMessageSize) throws IOException {
+        BinaryChannel channel = new BinaryChannel(buffered(in), new BufferedOutputStream(out), maxMessageSize);
+        
+        channel.out.write(BinaryCodec.PREFACE);
+        channel.out.flush();
+        
+        try {
+            return Arrays.equals(channel.readPreface(), BinaryCodec.PREFACE) ? channel : null;
+            
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+    
+    @Override
+    public boolean next() throws IOException {
+        int first = in.read();
+        
+        if (first < 0) {
+            return false;
+        }
+        
+        long length = readVarLong(first);
+        
+        isTooLarge = length > maxMessageSize;
+        
+        if (isTooLarge) {
+            in.skipNBytes(length);
+            return true;
+        }
+        
+        if (length > message.length) {
+            message = new byte[(int) Math.max(length, message.length * 2L)];
+        }
+        
+        messageLength = (int) length;
+        
+        readFully(message, messageLength);
+        
+        return true;
+    }
+    
+    @Override
+    public ClientRequest readRequest() throws IOException {
+        if (isTooLarge) {
+            throw new FrameTooLargeException(maxMessageSize, "bytes");
+        }
+        
+        return decoder.decodeRequest(message, messageLength);
+    }
+    
+    @Override
+    public TutorReply readReply() throws IOException {
+        if (isTooLarge) {
+            throw new FrameTooLargeException(maxMessageSize, "bytes");
+        }
+        
+        return decoder.decodeReply(message, messageLength);
+    }
+    
+    @Override
+    public void write(ClientRequest request) throws IOException {
+        write(encoder.encode(request));
+    }
+    
+    @Override
+    public void write(TutorReply reply) throws IOException {
+        write(encoder.encode(reply));
+    }
+    
+    /**
+     * Close both streams.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * Write the given number of bytes from the encoder, preceded by their
+     * length.
+     */
+    private void write(int length) throws IOException {
+        int value = length;
+        
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        
+        out.write(value);
+        out.write(encoder.getBuffer(), 0, length);
+        out.flush();
+    }
+    
+    /**
+     * Read a message length, a varint whose first byte was already read.
+     */
+    private long readVarLong(int first) throws IOException {
+        long value = first & 0x7F;
+        int b = first;
+        
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            if (shift > 56) {
+                throw new IOException("Malformed binary message length");
+            }
+            
+            b = in.read();
+            
+            if (b < 0) {
+                throw new EOFException();
+            }
+            
+            value |= (long) (b & 0x7F) << shift;
+        }
+        
+        return value;
+    }
+    
+    private byte[] readPreface() throws IOException {
+        byte[] preface = new byte[BinaryCodec.PREFACE.length];
+        
+        readFully(preface, preface.length);
+        
+        return preface;
+    }
+    
+    private void readFully(byte[] bytes, int length) throws IOException {
+        if (in.readNBytes(bytes, 0, length) < length) {
+            throw new EOFException();
+        }
+    }
+    
+    private static InputStream buffered(InputStream in) {
+        return in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+    }
+}
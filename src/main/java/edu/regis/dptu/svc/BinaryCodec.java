@@ -0,0 +1,1288 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compact binary encoding of the ClientRequests and TutorReplies sent
+ * on a binary tutor connection (see BinaryChannel), which is an alternative
+ * to their JSon text.
+ *
+ * A request is encoded as the DICTIONARY index of its request type's name
+ * (0 for none), user id, security token, session id, correlation id and
+ * data. A reply is
+ * encoded as its status, correlation id and data. Data is encoded as a JSon
+ * tree of tagged values:
+ * <ul>
+ * <li>integers, and the lengths and counts, are (zig-zag) varints,</li>
+ * <li>arrays of integers, such as the rows of an LCS table, are packed
+ * varints, without a tag per element,</li>
+ * <li>strings in the DICTIONARY, which includes the names of the
+ * ServerRequestType, StepSubType, TaskKind and ScaffoldLevel constants,
+ * are encoded as their index,</li>
+ * <li>other strings are UTF-8, and each repetition within a message is
+ * encoded as the index of its first occurrence, and</li>
+ * <li>strings that are compact JSon encoded objects or arrays, as Gson
+ * writes them, such as the data of a request and the StepCompletion within
+ * it, are encoded as trees in a single pass over their text, provided
+ * they're exactly reproduced when decoded (see writeJson()).</li>
+ * </ul>
+ *
+ * Both ends of a connection must use the same VERSION, as the DICTIONARY
+ * can't change within a version.
+ *
+ * A codec reuses its buffers, so it isn't thread-safe, a connection uses one
+ * codec to encode and another to decode.
+ *
+ * @author rickb
+ */
+public class BinaryCodec {
+    /**
+     * The version of the encoding, and its DICTIONARY (version 1 encoded the
+     * request type as its ordinal).
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Sent by a client to request a binary connection, which the server
+     * echoes to accept it. The first byte can't begin JSon text.
+     */
+    public static final byte[] PREFACE = {(byte) 0xD7, 'D', 'T', VERSION};
+
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int INT = 3;
+    private static final int DOUBLE = 4;
+    private static final int NUMBER_TEXT = 5;
+    private static final int STRING = 6;
+    private static final int DICT = 7;
+    private static final int REF = 8;
+    private static final int JSON_STRING = 9;
+    private static final int ARRAY = 10;
+    private static final int INT_ARRAY = 11;
+    private static final int OBJECT = 12;
+
+    /**
+     * The maximum depth of nested arrays, objects and JSon strings decoded,
+     * so a malicious message can't overflow the stack.
+     */
+    private static final int MAX_DEPTH = 256;
+
+    /**
+     * Strings encoded as their index, which are frozen within a VERSION:
+     * never reorder or remove them, and only append to them in a new VERSION.
+     * It includes the names of the ServerRequestType, StepSubType, TaskKind
+     * and ScaffoldLevel constants as of VERSION 1, but isn't derived from
+     * them, so adding or reordering a constant can't silently change it.
+     */
+    private static final String[] DICTIONARY = {
+        "",
+        // ServerRequestType constants
+        "COMPLETED_STEP", "COMPLETED_TASK", "CREATE_ACCOUNT", "NEW_EXAMPLE", "SIGN_IN",
+        "REQUEST_HINT",
+        // StepSubType constants
+        "INFO_MESSAGE", "PROBLEM_REVIEW", "GUI_ACTION", "COMPLETE_CELL", "COMPLETE_FIRST_ROW",
+        "COMPLETE_FIRST_COL", "COMPLETE_TABLE", "DEFAULT_ZERO", "INCREASE_DIAGONAL", "USE_LEFT",
+        "USE_UPPER", "STEP_COMPLETION_REPLY", "REQUEST_HINT", "DEFAULT",
+        // TaskKind constants
+        "LCS_PROBLEM", "MATRIX_CHAIN", "KNAPSACK_0_1", "INITIALIZE_FIRST_ROW",
+        "INITIALIZE_FIRST_COL", "ASSIGN_CELL", "CREATE_TABLE", "SOLUTION_PATH", "SOLVE",
+        // ScaffoldLevel constants
+        "NONE", "LOW", "MEDIUM", "HIGH", "EXTREME",
+        // ServerRequestType request names
+        ":CompletedStep", ":CompletedTask", ":CreateAccount", ":NewExample", ":SignIn",
+        ":RequestHint",
+        // ClientRequest, TutorReply, and StepCompletion
+        "requestType", "userId", "securityToken", "sessionId", "correlationId",
+        "status", "data", "step", "date", "timeoutOccur", "hintsGiven",
+        // Step, and its Timeout and Hints
+        "id", "title", "description", "scaffolding", "subType", "sequenceIndex",
+        "hints", "currentHintIndex", "timeout", "notifyTutor", "isCompleted",
+        "exercisedComponentIds", "intSolution", "type", "seconds", "event", "text",
+        // CellAnswer and StepCompletionReply
+        "row", "column", "values", "isCorrect", "isRepeatStep", "isNewTask",
+        "isNewStep", "isNextStep",
+        // Reply statuses
+        "OK", "ERR", ":ERR", "Created", "IllegalUserId", "Authenticated",
+        "InvalidPassword", "UnknownUser", "AttemptsExceeded", "Hint", "NoHints",
+        "NoneLeft", ":StepCompletionReply"
+    };
+
+    private static final HashMap<String, Integer> DICTIONARY_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < DICTIONARY.length; i++) {
+            DICTIONARY_INDEX.putIfAbsent(DICTIONARY[i], i);
+        }
+    }
+
+    /**
+     * The escape sequence Gson writes for each ASCII character in a JSon
+     * string (null if it's written as is), including its HTML escapes.
+     */
+    private static final String[] ESCAPES = new String[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = String.format("\\u%04x", c);
+        }
+
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['\f'] = "\\f";
+        ESCAPES['<'] = "\\u003c";
+        ESCAPES['>'] = "\\u003e";
+        ESCAPES['&'] = "\\u0026";
+        ESCAPES['='] = "\\u003d";
+        ESCAPES['\''] = "\\u0027";
+    }
+
+    /**
+     * The message being encoded, or decoded.
+     */
+    private byte[] buffer = new byte[256];
+
+    /**
+     * The size of the encoded message, or the end of the decoded message.
+     */
+    private int size;
+
+    /**
+     * The position of the next byte decoded.
+     */
+    private int pos;
+
+    /**
+     * The index of each string encoded in the current message.
+     */
+    private final HashMap<String, Integer> encoded = new HashMap<>();
+
+    /**
+     * The strings encoded in the current message, in order, so those
+     * encoded by a JSon string that isn't exactly reproduced can be removed.
+     */
+    private final ArrayList<String> encodedOrder = new ArrayList<>();
+
+    /**
+     * The string read by readJsonString(), which is reused.
+     */
+    private final StringBuilder jsonString = new StringBuilder();
+
+    /**
+     * The strings decoded from the current message, in order.
+     */
+    private final ArrayList<String> decoded = new ArrayList<>();
+
+    /**
+     * Initialize a codec with an empty buffer.
+     */
+    public BinaryCodec() {
+    }
+
+    /**
+     * Encode the given request into this codec's buffer.
+     *
+     * @param request a ClientRequest
+     * @return the number of bytes encoded (see getBuffer())
+     */
+    public int encode(ClientRequest request) {
+        start();
+
+        ServerRequestType type = request.getRequestType();
+
+        writeVarLong(type == null ? 0 : requestTypeIndex(type));
+        writeString(request.getUserId(), false);
+        writeString(request.getSecurityToken(), false);
+        writeString(request.getSessionId(), false);
+        writeVarLong(request.getCorrelationId());
+        writeString(request.getData(), true);
+
+        return size;
+    }
+
+    /**
+     * Encode the given reply into this codec's buffer.
+     *
+     * @param reply a TutorReply
+     * @return the number of bytes encoded (see getBuffer())
+     */
+    public int encode(TutorReply reply) {
+        start();
+
+        writeString(reply.getStatus(), false);
+        writeVarLong(reply.getCorrelationId());
+        writeValue(reply.getData());
+
+        return size;
+    }
+
+    /**
+     * Return the strings encoded as their index in this VERSION.
+     *
+     * @return an unmodifiable list of the DICTIONARY
+     */
+    public static List<String> getDictionary() {
+        return Collections.unmodifiableList(Arrays.asList(DICTIONARY));
+    }
+
+    /**
+     * Return the buffer holding the last message encoded, which is reused.
+     *
+     * @return a byte array, whose length may exceed the message's
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Decode a request from the given bytes.
+     *
+     * @param bytes an encoded request
+     * @param length the number of bytes in the request
+     * @return a ClientRequest
+     * @throws JsonParseException the bytes aren't an encoded request
+     */
+    public ClientRequest decodeRequest(byte[] bytes, int length) {
+        start(bytes, length);
+
+        long type = readVarLong();
+
+        if (type < 0 || type >= DICTIONARY.length) {
+            throw malformed();
+        }
+
+        ClientRequest request;
+
+        try {
+            request = new ClientRequest(type == 0 ? null : ServerRequestType.valueOf(DICTIONARY[(int) type]));
+
+        } catch (IllegalArgumentException e) { // Not the name of a request type
+            throw malformed();
+        }
+
+        request.setUserId(readString(0));
+        request.setSecurityToken(readString(0));
+        request.setSessionId(readString(0));
+        request.setCorrelationId(readVarLong());
+        request.setData(readString(0));
+
+        finish();
+
+        return request;
+    }
+
+    /**
+     * Decode a reply from the given bytes.
+     *
+     * @param bytes an encoded reply
+     * @param length the number of bytes in the reply
+     * @return a TutorReply
+     * @throws JsonParseException the bytes aren't an encoded reply
+     */
+    public TutorReply decodeReply(byte[] bytes, int length) {
+        start(bytes, length);
+
+        TutorReply reply = new TutorReply(readString(0));
+        reply.setCorrelationId(readVarLong());
+        reply.setData(readValue(0));
+
+        finish();
+
+        if (reply.getData() == JsonNull.INSTANCE) {
+            reply.setData(null);
+        }
+
+        return reply;
+    }
+
+    /**
+     * Prepare to encode a message.
+     */
+    private void start() {
+        size = 0;
+        encoded.clear();
+        encodedOrder.clear();
+    }
+
+    /**
+     * Prepare to decode the given message.
+     */
+    private void start(byte[] bytes, int length) {
+        buffer = bytes;
+        size = length;
+        pos = 0;
+        decoded.clear();
+    }
+
+    /**
+     * Check that the entire message was decoded.
+     */
+    private void finish() {
+        if (pos != size) {
+            throw malformed();
+        }
+
+        buffer = new byte[0]; // Not retained
+        decoded.clear();
+    }
+
+    private void writeValue(JsonElement value) {
+        if (value == null || value.isJsonNull()) {
+            writeByte(NULL);
+
+        } else if (value.isJsonPrimitive()) {
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+
+            if (primitive.isBoolean()) {
+                writeByte(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else if (primitive.isNumber()) {
+                writeNumber(primitive.getAsNumber());
+            } else {
+                writeString(primitive.getAsString(), true);
+            }
+
+        } else if (value.isJsonArray()) {
+            JsonArray array = value.getAsJsonArray();
+
+            if (isIntArray(array)) {
+                writeByte(INT_ARRAY);
+                writeVarLong(array.size());
+
+                for (JsonElement element : array) {
+                    writeVarLong(zigZag(element.getAsLong()));
+                }
+            } else {
+                writeByte(ARRAY);
+                writeVarLong(array.size());
+
+                for (JsonElement element : array) {
+                    writeValue(element);
+                }
+            }
+
+        } else {
+            JsonObject obj = value.getAsJsonObject();
+
+            writeByte(OBJECT);
+            writeVarLong(obj.size());
+
+            for (Map.Entry<String, JsonElement> member : obj.entrySet()) {
+                writeString(member.getKey(), false);
+                writeValue(member.getValue());
+            }
+        }
+    }
+
+    /**
+     * Write the given number so that it is decoded with the same text.
+     */
+    private void writeNumber(Number number) {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            writeByte(INT);
+            writeVarLong(zigZag(number.longValue()));
+            return;
+        }
+
+        writeNumber(number.toString());
+    }
+
+    /**
+     * Write the number with the given text so that it is decoded with the
+     * same text (or, in a tree, the same value).
+     */
+    private void writeNumber(String text) {
+        if (isLongText(text)) {
+            writeByte(INT);
+            writeVarLong(zigZag(Long.parseLong(text)));
+            return;
+        }
+
+        try {
+            double d = Double.parseDouble(text);
+
+            if (Double.toString(d).equals(text)) {
+                writeByte(DOUBLE);
+                writeLong(Double.doubleToRawLongBits(d));
+                return;
+            }
+        } catch (NumberFormatException e) {
+            // Written as text
+        }
+
+        writeByte(NUMBER_TEXT);
+        writeUtf8(text);
+    }
+
+    /**
+     * Write the given string, as a tree if detectJson and it is an exactly
+     * reproducible JSon object or array.
+     */
+    private void writeString(String s, boolean detectJson) {
+        if (s == null) {
+            writeByte(NULL);
+            return;
+        }
+
+        Integer index = DICTIONARY_INDEX.get(s);
+
+        if (index != null) {
+            writeByte(DICT);
+            writeVarLong(index);
+            return;
+        }
+
+        index = encoded.get(s);
+
+        if (index != null) {
+            writeByte(REF);
+            writeVarLong(index);
+            return;
+        }
+
+        if (detectJson && s.length() > 1 && (s.charAt(0) == '{' || s.charAt(0) == '[')
+                && writeJsonString(s, 0)) {
+            return;
+        }
+
+        encoded.put(s, encoded.size());
+        encodedOrder.add(s);
+
+        writeByte(STRING);
+        writeUtf8(s);
+    }
+
+    /**
+     * Write the given string as a JSON_STRING, if it is exactly reproduced
+     * when decoded, otherwise write nothing.
+     *
+     * @return whether the string was written
+     */
+    private boolean writeJsonString(String s, int depth) {
+        int start = size;
+        int strings = encodedOrder.size();
+
+        writeByte(JSON_STRING);
+
+        if (writeJson(s, 0, depth) == s.length()) {
+            return true;
+        }
+
+        size = start;
+
+        while (encodedOrder.size() > strings) {
+            encoded.remove(encodedOrder.remove(encodedOrder.size() - 1));
+        }
+
+        return false;
+    }
+
+    /**
+     * Write the JSon value beginning at the given index of the given text,
+     * provided it's in the compact form Gson writes, which is how it is
+     * decoded (see readJson()): no whitespace, strings escaped as Gson
+     * escapes them, and numbers with the same text.
+     *
+     * @return the index following the value, or -1 if it isn't compact JSon
+     */
+    private int writeJson(String s, int i, int depth) {
+        if (i >= s.length() || depth > MAX_DEPTH) {
+            return -1;
+        }
+
+        switch (s.charAt(i)) {
+            case '{': {
+                writeByte(OBJECT);
+                int countAt = size;
+                writeByte(0);
+
+                int count = 0;
+                i++;
+
+                if (i < s.length() && s.charAt(i) == '}') {
+                    return i + 1;
+                }
+
+                while (true) {
+                    if (i >= s.length() || s.charAt(i) != '"') {
+                        return -1;
+                    }
+
+                    i = readJsonString(s, i);
+
+                    if (i < 0 || i >= s.length() || s.charAt(i) != ':') {
+                        return -1;
+                    }
+
+                    writeString(jsonString.toString(), false);
+
+                    i = writeJson(s, i + 1, depth + 1);
+                    count++;
+
+                    if (i < 0 || i >= s.length()) {
+                        return -1;
+                    } else if (s.charAt(i) == '}') {
+                        insertCount(countAt, count);
+                        return i + 1;
+                    } else if (s.charAt(i) != ',') {
+                        return -1;
+                    }
+
+                    i++;
+                }
+            }
+
+            case '[': {
+                int tagAt = size;
+                writeByte(ARRAY);
+                int countAt = size;
+                writeByte(0);
+
+                int count = 0;
+                boolean ints = true;
+                i++;
+
+                if (i < s.length() && s.charAt(i) == ']') {
+                    return i + 1;
+                }
+
+                while (true) {
+                    int valueAt = size;
+
+                    i = writeJson(s, i, depth + 1);
+                    count++;
+                    ints = ints && buffer[valueAt] == INT;
+
+                    if (i < 0 || i >= s.length()) {
+                        return -1;
+                    } else if (s.charAt(i) == ']') {
+                        if (ints) {
+                            packInts(countAt + 1, count);
+                            buffer[tagAt] = INT_ARRAY;
+                        }
+
+                        insertCount(countAt, count);
+                        return i + 1;
+                    } else if (s.charAt(i) != ',') {
+                        return -1;
+                    }
+
+                    i++;
+                }
+            }
+
+            case '"': {
+                i = readJsonString(s, i);
+
+                if (i >= 0) {
+                    String v = jsonString.toString();
+
+                    if (!(v.length() > 1 && (v.charAt(0) == '{' || v.charAt(0) == '[')
+                            && writeJsonString(v, depth + 1))) {
+                        writeString(v, false);
+                    }
+                }
+
+                return i;
+            }
+
+            case 't':
+                writeByte(TRUE);
+                return s.startsWith("true", i) ? i + 4 : -1;
+
+            case 'f':
+                writeByte(FALSE);
+                return s.startsWith("false", i) ? i + 5 : -1;
+
+            case 'n':
+                writeByte(NULL);
+                return s.startsWith("null", i) ? i + 4 : -1;
+
+            default: {
+                int end = scanNumber(s, i);
+
+                if (end >= 0) {
+                    writeNumber(s.substring(i, end));
+                }
+
+                return end;
+            }
+        }
+    }
+
+    /**
+     * Read the JSon string beginning at the given index of the given text
+     * into jsonString, provided each character is escaped as Gson escapes it.
+     *
+     * @return the index following the string, or -1 if it isn't compact JSon
+     */
+    private int readJsonString(String s, int i) {
+        StringBuilder value = jsonString;
+        value.setLength(0);
+        i++;
+
+        while (i < s.length()) {
+            char c = s.charAt(i);
+
+            if (c == '"') {
+                return i + 1;
+
+            } else if (c == '\\') {
+                if (i + 1 >= s.length()) {
+                    return -1;
+                }
+
+                char e = s.charAt(i + 1);
+                int length = e == 'u' ? 6 : 2;
+
+                if (i + length > s.length()) {
+                    return -1;
+                }
+
+                switch (e) {
+                    case 'u':
+                        try {
+                            c = (char) Integer.parseInt(s.substring(i + 2, i + 6), 16);
+                        } catch (NumberFormatException ex) {
+                            return -1;
+                        }
+                        break;
+                    case '"':
+                    case '\\':
+                        c = e;
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    default:
+                        return -1; // Gson doesn't write \/
+                }
+
+                String escape = escape(c);
+
+                if (escape == null || !s.startsWith(escape, i)) {
+                    return -1;
+                }
+
+                value.append(c);
+                i += length;
+
+            } else if (escape(c) != null) {
+                return -1;
+
+            } else {
+                value.append(c);
+                i++;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Scan the JSon number beginning at the given index of the given text.
+     *
+     * @return the index following the number, or -1 if it isn't a number
+     */
+    private static int scanNumber(String s, int i) {
+        if (i < s.length() && s.charAt(i) == '-') {
+            i++;
+        }
+
+        if (i < s.length() && s.charAt(i) == '0') {
+            i++;
+        } else if (i < s.length() && s.charAt(i) >= '1' && s.charAt(i) <= '9') {
+            i = scanDigits(s, i);
+        } else {
+            return -1;
+        }
+
+        if (i < s.length() && s.charAt(i) == '.') {
+            int start = ++i;
+
+            i = scanDigits(s, i);
+
+            if (i == start) {
+                return -1;
+            }
+        }
+
+        if (i < s.length() && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+
+            if (i < s.length() && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+                i++;
+            }
+
+            int start = i;
+
+            i = scanDigits(s, i);
+
+            if (i == start) {
+                return -1;
+            }
+        }
+
+        return i;
+    }
+
+    private static int scanDigits(String s, int i) {
+        while (i < s.length() && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+            i++;
+        }
+
+        return i;
+    }
+
+    /**
+     * Return the escape sequence Gson writes for the given character in a
+     * JSon string, or null if it's written as is.
+     */
+    private static String escape(char c) {
+        if (c < ESCAPES.length) {
+            return ESCAPES[c];
+        } else if (c == 0x2028 || c == 0x2029) {
+            return String.format("\\u%04x", (int) c);
+        }
+
+        return null;
+    }
+
+    /**
+     * Replace the count byte reserved at the given index with the given
+     * count, moving the following bytes if it needs more than one byte.
+     */
+    private void insertCount(int at, int count) {
+        if (count < 0x80) {
+            buffer[at] = (byte) count;
+            return;
+        }
+
+        int end = size;
+        int extra = (63 - Long.numberOfLeadingZeros(count)) / 7; // Bytes beyond the first
+
+        ensureCapacity(extra);
+        System.arraycopy(buffer, at + 1, buffer, at + 1 + extra, end - at - 1);
+
+        size = at;
+        writeVarLong(count);
+        size = end + extra;
+    }
+
+    /**
+     * Remove the INT tags of the given number of values beginning at the
+     * given index, packing them as the elements of an INT_ARRAY.
+     */
+    private void packInts(int at, int count) {
+        int to = at;
+        int from = at;
+
+        for (int k = 0; k < count; k++) {
+            from++; // INT
+
+            do {
+                buffer[to++] = buffer[from];
+            } while ((buffer[from++] & 0x80) != 0);
+        }
+
+        size = to;
+    }
+
+    private void writeUtf8(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+
+        writeVarLong(bytes.length);
+
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeLong(long value) {
+        ensureCapacity(8);
+
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+
+        buffer[size++] = (byte) b;
+    }
+
+    private void ensureCapacity(int count) {
+        if (size + count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + count));
+        }
+    }
+
+    private JsonElement readValue(int depth) {
+        if (depth > MAX_DEPTH) {
+            throw malformed();
+        }
+
+        int tag = readByte();
+
+        switch (tag) {
+            case NULL:
+                return JsonNull.INSTANCE;
+
+            case FALSE:
+                return new JsonPrimitive(false);
+
+            case TRUE:
+                return new JsonPrimitive(true);
+
+            case INT:
+                return new JsonPrimitive(unZigZag(readVarLong()));
+
+            case DOUBLE:
+                return new JsonPrimitive(readDouble());
+
+            case NUMBER_TEXT:
+                return new JsonPrimitive(readBigDecimal());
+
+            case ARRAY: {
+                int count = readCount();
+                JsonArray array = new JsonArray(count);
+
+                for (int i = 0; i < count; i++) {
+                    array.add(readValue(depth + 1));
+                }
+
+                return array;
+            }
+
+            case INT_ARRAY: {
+                int count = readCount();
+                JsonArray array = new JsonArray(count);
+
+                for (int i = 0; i < count; i++) {
+                    array.add(unZigZag(readVarLong()));
+                }
+
+                return array;
+            }
+
+            case OBJECT: {
+                int count = readCount();
+                JsonObject obj = new JsonObject();
+
+                for (int i = 0; i < count; i++) {
+                    String key = readString(depth + 1);
+
+                    if (key == null) {
+                        throw malformed();
+                    }
+
+                    obj.add(key, readValue(depth + 1));
+                }
+
+                return obj;
+            }
+
+            default:
+                pos--;
+                return new JsonPrimitive(readString(depth));
+        }
+    }
+
+    private String readString(int depth) {
+        int tag = readByte();
+
+        switch (tag) {
+            case NULL:
+                return null;
+
+            case DICT: {
+                long index = readVarLong();
+
+                if (index < 0 || index >= DICTIONARY.length) {
+                    throw malformed();
+                }
+
+                return DICTIONARY[(int) index];
+            }
+
+            case REF: {
+                long index = readVarLong();
+
+                if (index < 0 || index >= decoded.size()) {
+                    throw malformed();
+                }
+
+                return decoded.get((int) index);
+            }
+
+            case STRING: {
+                String s = readUtf8();
+
+                decoded.add(s);
+
+                return s;
+            }
+
+            case JSON_STRING: {
+                StringBuilder json = new StringBuilder();
+
+                readJson(json, depth + 1);
+
+                return json.toString();
+            }
+
+            default:
+                throw malformed();
+        }
+    }
+
+    /**
+     * Read a value into the given JSon text, as Gson would write it.
+     */
+    private void readJson(StringBuilder json, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw malformed();
+        }
+
+        int tag = readByte();
+
+        switch (tag) {
+            case NULL:
+                json.append("null");
+                break;
+
+            case FALSE:
+                json.append("false");
+                break;
+
+            case TRUE:
+                json.append("true");
+                break;
+
+            case INT:
+                json.append(unZigZag(readVarLong()));
+                break;
+
+            case DOUBLE:
+                json.append(readDouble());
+                break;
+
+            case NUMBER_TEXT:
+                json.append(readNumberText());
+                break;
+
+            case ARRAY: {
+                int count = readCount();
+
+                json.append('[');
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+
+                    readJson(json, depth + 1);
+                }
+                json.append(']');
+                break;
+            }
+
+            case INT_ARRAY: {
+                int count = readCount();
+
+                json.append('[');
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+
+                    json.append(unZigZag(readVarLong()));
+                }
+                json.append(']');
+                break;
+            }
+
+            case OBJECT: {
+                int count = readCount();
+
+                json.append('{');
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+
+                    String key = readString(depth + 1);
+
+                    if (key == null) {
+                        throw malformed();
+                    }
+
+                    appendJsonString(json, key);
+                    json.append(':');
+                    readJson(json, depth + 1);
+                }
+                json.append('}');
+                break;
+            }
+
+            default: {
+                pos--;
+
+                String s = readString(depth);
+
+                if (s == null) {
+                    throw malformed();
+                }
+
+                appendJsonString(json, s);
+            }
+        }
+    }
+
+    /**
+     * Append the given string to the given JSon text, escaped as Gson would.
+     */
+    private static void appendJsonString(StringBuilder json, String s) {
+        json.append('"');
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String escape = escape(c);
+
+            if (escape == null) {
+                json.append(c);
+            } else {
+                json.append(escape);
+            }
+        }
+
+        json.append('"');
+    }
+
+    /**
+     * Read a finite double, as JSon can't encode others.
+     */
+    private double readDouble() {
+        double d = Double.longBitsToDouble(readLong());
+
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            throw malformed();
+        }
+
+        return d;
+    }
+
+    /**
+     * Read number text as a BigDecimal, which exactly represents any JSon
+     * number whose exponent is an int.
+     */
+    private BigDecimal readBigDecimal() {
+        try {
+            return new BigDecimal(readNumberText());
+
+        } catch (NumberFormatException e) {
+            throw malformed();
+        }
+    }
+
+    private String readNumberText() {
+        String text = readUtf8();
+
+        if (scanNumber(text, 0) != text.length()) {
+            throw malformed();
+        }
+
+        return text;
+    }
+
+    private String readUtf8() {
+        int length = readCount();
+
+        String s = new String(buffer, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+
+        return s;
+    }
+
+    /**
+     * Read a length or count, which can't exceed the remaining bytes.
+     */
+    private int readCount() {
+        long count = readVarLong();
+
+        if (count < 0 || count > size - pos) {
+            throw malformed();
+        }
+
+        return (int) count;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw malformed();
+    }
+
+    private long readLong() {
+        long value = 0;
+
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | readByte();
+        }
+
+        return value;
+    }
+
+    private int readByte() {
+        if (pos >= size) {
+            throw malformed();
+        }
+
+        return buffer[pos++] & 0xFF;
+    }
+
+    /**
+     * Return whether every element of the given non-empty array is an
+     * integer that is decoded with the same text.
+     */
+    private static boolean isIntArray(JsonArray array) {
+        if (array.size() == 0) {
+            return false;
+        }
+
+        for (JsonElement element : array) {
+            if (!element.isJsonPrimitive() || !element.getAsJsonPrimitive().isNumber()) {
+                return false;
+            }
+
+            Number number = element.getAsNumber();
+
+            if (!(number instanceof Integer || number instanceof Long || number instanceof Short
+                    || number instanceof Byte || isLongText(number.toString()))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Return whether the given number text is a long in canonical form.
+     */
+    private static boolean isLongText(String text) {
+        int length = text.length();
+
+        if (length == 0 || length > 20) {
+            return false;
+        }
+
+        int start = text.charAt(0) == '-' ? 1 : 0;
+
+        if (start == length || (text.charAt(start) == '0' && length > start + 1) || text.equals("-0")) {
+            return false;
+        }
+
+        for (int i = start; i < length; i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+
+        try {
+            Long.parseLong(text);
+            return true;
+
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Return the DICTIONARY index of the name of the given request type.
+     *
+     * @throws IllegalArgumentException the type was added after this VERSION
+     */
+    private static int requestTypeIndex(ServerRequestType type) {
+        Integer index = DICTIONARY_INDEX.get(type.name());
+
+        if (index == null) {
+            throw new IllegalArgumentException("Request type not in BinaryCodec VERSION " + VERSION + ": " + type);
+        }
+
+        return index;
+    }
+
+    private static JsonSyntaxException malformed() {
+        return new JsonSyntaxException("Malformed binary message");
+    }
+}
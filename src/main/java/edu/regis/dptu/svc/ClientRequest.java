@@ -41,6 +41,13 @@ public class ClientRequest {
      */
     private String sessionId;
     
+    /**
+     * Identifies this request on a persistent connection, which the tutor
+     * echoes in its TutorReply so that pipelined replies can be matched to
+     * their requests.
+     */
+    private long correlationId;
+    
     /**
      * A JSon encoded object whose format depends on the associated request.
      * (See the requestType documentation.)
@@ -92,6 +99,14 @@ public class ClientRequest {
         this.sessionId = sessionId;
     }
 
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
+    public void setCorrelationId(long correlationId) {
+        this.correlationId = correlationId;
+    }
+
     /**
      * Return the data associated with this request.
      * 
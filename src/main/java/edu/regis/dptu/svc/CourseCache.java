@@ -0,0 +1,313 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import edu.regis.dptu.err.MissingPropertyException;
+import edu.regis.dptu.err.NonRecoverableException;
+import edu.regis.dptu.err.ObjNotFoundException;
+import edu.regis.dptu.model.Course;
+import edu.regis.dptu.model.CourseDigest;
+import edu.regis.dptu.model.Task;
+import edu.regis.dptu.model.UnitDigest;
+import edu.regis.dptu.util.ResourceMgr;
+import java.sql.Connection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A process-wide CourseSvc decorator caching a fully loaded snapshot of each
+ * retrieved course, so the course is read from the database once rather
+ * than on every account creation and session retrieval.
+ *
+ * A snapshot is shared by every thread, so the Course returned by retrieve()
+ * must be treated as read-only. Snapshots are published through a
+ * ConcurrentHashMap, so reads are lock free, while loads are serialized so
+ * that concurrent misses load the course once.
+ *
+ * A snapshot remembers the course's ContentVersion. Once it is older than the
+ * version check interval, the next retrieve() compares this version with the
+ * Course table and reloads the course if it has changed. Snapshots may also
+ * be dropped explicitly with invalidate(), and are loaded at server startup
+ * by warm().
+ *
+ * The digest and task retrievals, which use the caller's connection, are
+ * passed through to the decorated service.
+ *
+ * @author rickb
+ */
+public class CourseCache implements CourseSvc {
+    /**
+     * Milliseconds between content version checks of a cached course (see
+     * DpTu.properties).
+     */
+    public static final String VERSION_CHECK_INTERVAL_PROP = "edu.regis.dptu.COURSE_VERSION_CHECK_INTERVAL";
+
+    /**
+     * Version check interval used if the VERSION_CHECK_INTERVAL_PROP is missing.
+     */
+    private static final long DEFAULT_VERSION_CHECK_INTERVAL = 60000;
+
+    /**
+     * Handler for logging messages.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CourseCache.class.getName());
+
+    /**
+     * The service from which courses are loaded.
+     */
+    private final CourseSvc courseSvc;
+
+    /**
+     * Nanoseconds a snapshot is used before its version is checked again.
+     */
+    private final long checkInterval;
+
+    /**
+     * The current snapshot of each cached course indexed by course id.
+     */
+    private final ConcurrentHashMap<Integer, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Number of retrievals answered by a current snapshot.
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * Number of courses loaded from the decorated service.
+     */
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /**
+     * Number of content version checks made against the decorated service.
+     */
+    private final AtomicLong versionCheckCount = new AtomicLong();
+
+    /**
+     * Initialize this cache of the courses retrieved from the given service.
+     *
+     * @param courseSvc the service from which courses are loaded
+     * @param checkInterval milliseconds a snapshot is used before its content
+     *                      version is checked, 0 checks on every retrieval
+     */
+    public CourseCache(CourseSvc courseSvc, long checkInterval) {
+        this.courseSvc = courseSvc;
+        this.checkInterval = checkInterval * 1000000;
+    }
+
+    /**
+     * Return the version check interval in the DpTu.properties file.
+     *
+     * @return milliseconds, DEFAULT_VERSION_CHECK_INTERVAL if missing or illegal
+     */
+    public static long checkIntervalProp() {
+        try {
+            long interval = Long.parseLong(ResourceMgr.instance().getProp(VERSION_CHECK_INTERVAL_PROP).trim());
+
+            return interval >= 0 ? interval : DEFAULT_VERSION_CHECK_INTERVAL;
+
+        } catch (MissingPropertyException | NumberFormatException e) {
+            return DEFAULT_VERSION_CHECK_INTERVAL;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The returned Course is a shared snapshot, which must not be modified.
+     */
+    @Override
+    public Course retrieve(int courseId) throws ObjNotFoundException, NonRecoverableException {
+        Snapshot snapshot = snapshots.get(courseId);
+
+        if (snapshot != null && snapshot.isCurrent(System.nanoTime())) {
+            hitCount.incrementAndGet();
+
+            return snapshot.course;
+        }
+
+        return refresh(courseId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int retrieveContentVersion(int courseId) throws ObjNotFoundException, NonRecoverableException {
+        return courseSvc.retrieveContentVersion(courseId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CourseDigest retrieveDigest(int courseId, Connection conn)
+            throws ObjNotFoundException, NonRecoverableException {
+
+        return courseSvc.retrieveDigest(courseId, conn);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public UnitDigest retrieveUnitDigest(int courseId, int unitId, Connection conn)
+            throws ObjNotFoundException, NonRecoverableException {
+
+        return courseSvc.retrieveUnitDigest(courseId, unitId, conn);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Task retrieveTask(int courseId, int taskId, Connection conn)
+            throws ObjNotFoundException, NonRecoverableException {
+
+        return courseSvc.retrieveTask(courseId, taskId, conn);
+    }
+
+    /**
+     * Load the given courses into this cache, logging rather than throwing
+     * any failure, so the server can still start without them.
+     *
+     * @param courseIds the ids of the courses to load
+     */
+    public void warm(int... courseIds) {
+        for (int courseId : courseIds) {
+            try {
+                retrieve(courseId);
+
+                LOGGER.log(Level.INFO, "Cached course {0}", courseId);
+
+            } catch (ObjNotFoundException | NonRecoverableException e) {
+                LOGGER.log(Level.WARNING, "CourseCache-ERR-1: unable to warm course {0}: {1}",
+                        new Object[] {courseId, e.toString()});
+            }
+        }
+    }
+
+    /**
+     * Drop the snapshot of the given course, so it is reloaded when next
+     * retrieved. Synchronized so a load in progress can't restore it.
+     *
+     * @param courseId the id of the course whose content changed
+     */
+    public synchronized void invalidate(int courseId) {
+        snapshots.remove(courseId);
+    }
+
+    /**
+     * Drop the snapshots of all courses.
+     */
+    public synchronized void invalidateAll() {
+        snapshots.clear();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    public long getVersionCheckCount() {
+        return versionCheckCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CourseCache[courses=" + snapshots.size() + ", hits=" + hitCount
+                + ", loads=" + loadCount + ", versionChecks=" + versionCheckCount + "]";
+    }
+
+    /**
+     * Return the current snapshot of the given course, checking the version
+     * of an expired snapshot and loading the course if it is missing or has
+     * changed.
+     *
+     * Synchronized so that threads missing on the same course wait for a
+     * single load, rather than each reading the course from the database.
+     *
+     * @param courseId the id of the course to retrieve
+     * @return the Course in the current snapshot
+     * @throws ObjNotFoundException no course with the given id exists
+     * @throws NonRecoverableException also see getCause()
+     */
+    private synchronized Course refresh(int courseId) throws ObjNotFoundException, NonRecoverableException {
+        long now = System.nanoTime();
+
+        Snapshot snapshot = snapshots.get(courseId);
+
+        if (snapshot != null) {
+            if (snapshot.isCurrent(now)) {
+                return snapshot.course; // Refreshed by another thread
+            }
+
+            versionCheckCount.incrementAndGet();
+
+            if (courseSvc.retrieveContentVersion(courseId) == snapshot.version) {
+                snapshots.put(courseId, new Snapshot(snapshot.course, snapshot.version, now));
+
+                return snapshot.course;
+            }
+        }
+
+        // Read the version first, so a change made during the load is seen
+        // by the next version check.
+        int version = courseSvc.retrieveContentVersion(courseId);
+
+        Course course = courseSvc.retrieve(courseId);
+
+        loadCount.incrementAndGet();
+
+        snapshots.put(courseId, new Snapshot(course, version, now));
+
+        return course;
+    }
+
+    /**
+     * An immutable association of a loaded course with its content version.
+     */
+    private class Snapshot {
+        /**
+         * The fully loaded course, which is never modified.
+         */
+        private final Course course;
+
+        /**
+         * The content version of the course when it was loaded.
+         */
+        private final int version;
+
+        /**
+         * When (System.nanoTime()) the version was last checked.
+         */
+        private final long checkedAt;
+
+        Snapshot(Course course, int version, long checkedAt) {
+            this.course = course;
+            this.version = version;
+            this.checkedAt = checkedAt;
+        }
+
+        /**
+         * Return whether this snapshot can be used without checking its version.
+         */
+        boolean isCurrent(long now) {
+            return now - checkedAt < checkInterval;
+        }
+    }
+}
@@ -39,6 +39,17 @@ public interface CourseSvc {
      */
     Course retrieve(int courseId) throws ObjNotFoundException, NonRecoverableException;
     
+    /**
+     * Return the content version of the course with the given id, which is
+     * incremented whenever the content of the course is changed.
+     *
+     * @param courseId  integer key of the course.
+     * @return the course's current content version
+     * @exception ObjNotFoundException No course with the given id exists.
+     * @throws NonRecoverableException also see getCause().getErrorCode().
+     */
+    int retrieveContentVersion(int courseId) throws ObjNotFoundException, NonRecoverableException;
+    
     /**
      * Locate and return a digest of the course with the given id.
      * 
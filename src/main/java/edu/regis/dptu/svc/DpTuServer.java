@@ -13,12 +13,21 @@
 package edu.regis.dptu.svc;
 
 import com.google.gson.Gson;
-import java.io.BufferedReader;
+import com.google.gson.JsonParseException;
+import edu.regis.dptu.err.FrameTooLargeException;
+import edu.regis.dptu.err.MissingPropertyException;
+import edu.regis.dptu.util.ResourceMgr;
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,48 +39,371 @@ import java.util.logging.Logger;
  * :RequestHint | :CompletedStep | :CompletedTask <br>
  * The &lt;argData> for each command is documented in the TutorSvc interface.
  *
+ * A client connection is persistent: the client may send any number of
+ * newline framed requests, possibly pipelined, on a single socket. Replies
+ * are written in request order, each carrying the correlation id of the
+ * request it answers. Requests are parsed from, and replies encoded into,
+ * the buffered socket streams (see FrameReader and FrameWriter). A request
+ * longer than maxMessageSize characters is answered with an ":ERR" reply
+ * and discarded.
+ *
+ * A client that begins its connection with the BinaryCodec.PREFACE is
+ * instead sent binary encoded replies to its binary encoded requests (see
+ * BinaryChannel), and maxMessageSize is in bytes.
+ *
+ * Accepted connections are handled concurrently by an executor, which runs
+ * each connection on a virtual thread (the default) or on a fixed pool of
+ * platform threads (see /resources/DpTu.properties). At most maxConnections
+ * connections are in flight at once, when this limit is reached, a newly
+ * accepted connection is immediately sent an ":ERR" TutorReply and closed
+ * rather than being queued. Since a connection holds its thread until it is
+ * closed or idle, in PLATFORM mode the limit is also at most the pool size.
+ *
+ * In SELECTOR mode, a single I/O thread instead multiplexes the connections
+ * using non-blocking channels, and only their requests are run on the pool
+ * of platform threads, so many idle connections can be held open cheaply
+ * (see SelectorServer). It speaks the same newline framed JSon protocol, but
+ * not the binary protocol. Before Java 21, which has no virtual threads,
+ * VIRTUAL mode runs as SELECTOR mode, so idle clients don't hold threads.
+ *
  * @author Rickb
  */
 public class DpTuServer implements Runnable {
+    /**
+     * How accepted client connections are executed.
+     */
+    public enum ExecutionMode {VIRTUAL, PLATFORM, SELECTOR};
+
     /**
      * Port on which this server (DpTu tutor) is listening for client connections.
      */
     public static final int PORT = 53637;
 
+    /**
+     * The connection execution mode, VIRTUAL, PLATFORM, or SELECTOR (see
+     * DpTu.properties).
+     */
+    public static final String EXECUTION_MODE_PROP = "edu.regis.dptu.SERVER_EXECUTION_MODE";
+
+    /**
+     * The number of platform threads used in PLATFORM and SELECTOR modes (see
+     * DpTu.properties).
+     */
+    public static final String POOL_SIZE_PROP = "edu.regis.dptu.SERVER_POOL_SIZE";
+
+    /**
+     * The maximum number of in-flight connections (see DpTu.properties).
+     */
+    public static final String MAX_CONNECTIONS_PROP = "edu.regis.dptu.SERVER_MAX_CONNECTIONS";
+
+    /**
+     * Number of platform threads used if the POOL_SIZE_PROP is missing.
+     */
+    private static final int DEFAULT_POOL_SIZE = 16;
+
+    /**
+     * Maximum in-flight connections used if the MAX_CONNECTIONS_PROP is missing.
+     */
+    private static final int DEFAULT_MAX_CONNECTIONS = 64;
+
+    /**
+     * Milliseconds a persistent client connection may be idle before the
+     * server closes it, freeing its in-flight connection permit.
+     */
+    private static final int IDLE_TIMEOUT = 30 * 60 * 1000;
+
     /**
      * Handler for logging messages.
      */
     private static final Logger LOGGER
             = Logger.getLogger(DpTuServer.class.getName());
 
+    /**
+     * The port on which this server listens (0 selects an ephemeral port).
+     */
+    private final int port;
+
+    /**
+     * How accepted connections are executed.
+     */
+    private final ExecutionMode mode;
+
+    /**
+     * The number of platform threads used in PLATFORM mode.
+     */
+    private final int poolSize;
+
+    /**
+     * The maximum number of characters in a request.
+     */
+    private final int maxMessageSize;
+
+    /**
+     * Bounds the number of connections that are currently being handled.
+     */
+    private final Semaphore inFlight;
+
+    /**
+     * Supplies the tutor that handles the requests on an accepted connection
+     * (by default, the shared DpTuTutor singleton).
+     */
+    private final Supplier<TutorSvc> tutorFactory;
+
+    /**
+     * Runs the accepted connections (created when run() is invoked).
+     */
+    private volatile ExecutorService executor;
+
     /**
      * The socket listening for connections from the client
      */
-    private ServerSocket server;
+    private volatile ServerSocket server;
 
     /**
-     * A no-op
+     * The front end handling the connections in SELECTOR mode.
+     */
+    private volatile SelectorServer selectorServer;
+
+    /**
+     * Initialize this server on PORT using the execution mode, pool size, and
+     * connection limit found in the DpTu.properties file.
      */
     public DpTuServer() {
+        this(PORT, modeProp(), intProp(POOL_SIZE_PROP, DEFAULT_POOL_SIZE),
+             intProp(MAX_CONNECTIONS_PROP, DEFAULT_MAX_CONNECTIONS), DpTuTutor::instance);
+    }
+
+    /**
+     * Initialize this server with the given configuration and the maximum
+     * message size found in the DpTu.properties file.
+     *
+     * @param port the port to listen on, 0 selects an ephemeral port
+     * @param mode how accepted connections are executed (VIRTUAL is run as
+     *        SELECTOR if virtual threads are unavailable)
+     * @param poolSize number of platform threads used in PLATFORM and SELECTOR modes
+     * @param maxConnections maximum number of in-flight connections, at most
+     *        poolSize in PLATFORM mode
+     * @param tutorFactory supplies the tutor handling an accepted connection
+     */
+    public DpTuServer(int port, ExecutionMode mode, int poolSize, int maxConnections,
+                      Supplier<TutorSvc> tutorFactory) {
+        this(port, mode, poolSize, maxConnections, FrameReader.maxFrameSizeProp(), tutorFactory);
+    }
+
+    /**
+     * Initialize this server with the given configuration.
+     *
+     * @param port the port to listen on, 0 selects an ephemeral port
+     * @param mode how accepted connections are executed (VIRTUAL is run as
+     *        SELECTOR if virtual threads are unavailable)
+     * @param poolSize number of platform threads used in PLATFORM and SELECTOR modes
+     * @param maxConnections maximum number of in-flight connections, at most
+     *        poolSize in PLATFORM mode
+     * @param maxMessageSize maximum number of characters in a request
+     * @param tutorFactory supplies the tutor handling an accepted connection
+     */
+    public DpTuServer(int port, ExecutionMode mode, int poolSize, int maxConnections,
+                      int maxMessageSize, Supplier<TutorSvc> tutorFactory) {
+        if (mode == ExecutionMode.VIRTUAL && !hasVirtualThreads()) {
+            LOGGER.log(Level.WARNING, "Virtual threads unavailable, using SELECTOR mode");
+            mode = ExecutionMode.SELECTOR;
+        }
+
+        if (mode == ExecutionMode.PLATFORM) {
+            maxConnections = Math.min(maxConnections, poolSize); // Others would wait for a thread
+        }
+
+        this.port = port;
+        this.mode = mode;
+        this.poolSize = poolSize;
+        this.maxMessageSize = maxMessageSize;
+        this.tutorFactory = tutorFactory;
+
+        inFlight = new Semaphore(maxConnections);
     }
 
     /**
      * Create a server socket that waits for connection requests from a client,
-     * which are handled by spawning a new DpTuConnection, with an associated
-     * new DpTu tutor, that handles all subsequent communication between the 
-     * client and sever.
+     * which are handled by submitting a new DpTuConnection, with its
+     * DpTu tutor, to the executor. The connection handles all subsequent
+     * communication between the client and sever.
+     *
+     * In SELECTOR mode, the connections are instead handled by a
+     * SelectorServer on this thread.
      */
     @Override
     public void run() {
+        executor = createExecutor();
+
+        try {
+            if (mode == ExecutionMode.SELECTOR) {
+                selectorServer = new SelectorServer(port, executor, inFlight, maxMessageSize,
+                                                    IDLE_TIMEOUT, tutorFactory);
+                server = selectorServer.socket();
+
+                synchronized (this) {
+                    notifyAll(); // See awaitPort()
+                }
+
+                selectorServer.run();
+                return;
+            }
+
+            server = new ServerSocket(port);
+
+            synchronized (this) {
+                notifyAll(); // See awaitPort()
+            }
+
+            while (!server.isClosed()) {
+                Socket client = server.accept();
+
+                if (inFlight.tryAcquire()) {
+                    try {
+                        executor.execute(new DpTuConnection(client));
+                    } catch (RejectedExecutionException e) {
+                        inFlight.release();
+                        reject(client, "DpTu server is shutting down");
+                    }
+                } else {
+                    reject(client, "DpTu server is busy, please try again");
+                }
+            }
+
+        } catch (IOException e) {
+            if (server == null || !server.isClosed()) {
+                LOGGER.log(Level.SEVERE, "DpTuServer.run()", e);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Return the port this server is listening on, waiting for the server
+     * socket to be opened if run() has not yet opened it.
+     *
+     * @return the local port of the server socket
+     * @throws InterruptedException interrupted while waiting
+     */
+    public synchronized int awaitPort() throws InterruptedException {
+        while (server == null) {
+            wait();
+        }
+
+        return server.getLocalPort();
+    }
+
+    /**
+     * Stop accepting connections and wait briefly for in-flight connections
+     * to complete (in SELECTOR mode, connections are closed, and in-flight
+     * requests complete).
+     */
+    public void shutdown() {
         try {
-            server = new ServerSocket(PORT);
+            if (server != null) {
+                server.close();
+            }
 
-            while (true) {
-                new DpTuConnection(server.accept()).run();
+            if (selectorServer != null) {
+                selectorServer.close();
             }
 
+            if (executor != null) {
+                executor.shutdown();
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to close server socket", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Create the executor for the configured execution mode.
+     *
+     * Virtual threads are only available on Java 21 or later, so they are
+     * located reflectively (on earlier JVMs, VIRTUAL mode is run as SELECTOR
+     * mode, see hasVirtualThreads()).
+     *
+     * @return an ExecutorService running one task per connection
+     */
+    private ExecutorService createExecutor() {
+        if (mode == ExecutionMode.VIRTUAL) {
+            try {
+                return (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+
+            } catch (ReflectiveOperationException e) {
+                LOGGER.log(Level.WARNING, "Unable to create virtual threads, using a pool of {0} platform threads", poolSize);
+            }
+        }
+
+        return Executors.newFixedThreadPool(poolSize);
+    }
+
+    /**
+     * Return whether this JVM has virtual threads (Java 21 or later).
+     *
+     * @return true if createExecutor() can run connections on virtual threads
+     */
+    private static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reply to the given client with an ":ERR" TutorReply and close it.
+     *
+     * @param client a connection that won't be handled
+     * @param msg the displayable reason the connection was rejected
+     */
+    private void reject(Socket client, String msg) {
+        try (Socket s = client;
+             FrameWriter out = new FrameWriter(s.getOutputStream())) {
+
+            out.writeJson(new Gson(), new TutorReply(":ERR", msg), TutorReply.class);
+
         } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "EncryptionServer.run()", e);
+            LOGGER.log(Level.INFO, "Unable to reject client", e);
+        }
+    }
+
+    /**
+     * Return the execution mode from the DpTu.properties file.
+     *
+     * @return the configured ExecutionMode, otherwise VIRTUAL
+     */
+    private static ExecutionMode modeProp() {
+        try {
+            return ExecutionMode.valueOf(ResourceMgr.instance().getProp(EXECUTION_MODE_PROP).trim());
+
+        } catch (MissingPropertyException | IllegalArgumentException e) {
+            return ExecutionMode.VIRTUAL;
+        }
+    }
+
+    /**
+     * Return the positive integer value of the given DpTu.properties property.
+     *
+     * @param name the property name
+     * @param defaultValue returned if the property is missing or illegal
+     * @return an int
+     */
+    private static int intProp(String name, int defaultValue) {
+        try {
+            int value = Integer.parseInt(ResourceMgr.instance().getProp(name).trim());
+
+            return value > 0 ? value : defaultValue;
+
+        } catch (MissingPropertyException | NumberFormatException e) {
+            return defaultValue;
         }
     }
 
@@ -87,14 +419,9 @@ public class DpTuServer implements Runnable {
         private final Socket client;
 
         /**
-         * Stream from which messages from the client socket can be read
-         */
-        private BufferedReader in;
-
-        /**
-         * Stream from which messages to the client socket can be written
+         * The messages read from and written to the client socket.
          */
-        private PrintWriter out;
+        private MessageChannel channel;
 
         /**
          * The DpTu tutor associated with this connection.
@@ -102,7 +429,7 @@ public class DpTuServer implements Runnable {
         private final TutorSvc tutor;
 
         /**
-         * Initialize this connection by creating a new DpTu tutor that is
+         * Initialize this connection with the DpTu tutor that is
          * communicating with the client associated with the given socket.
          *
          * @param client an established socket connection to a client
@@ -110,60 +437,80 @@ public class DpTuServer implements Runnable {
         public DpTuConnection(Socket client) {
             this.client = client;
 
-            tutor = new DpTuTutor();
+            tutor = tutorFactory.get();
         }
 
         /**
-         * Read a JSon encoded request from the client to the DpTu tutor.
+         * Read newline framed, JSon encoded (or binary) requests from the
+         * client to the DpTu tutor, writing each reply, tagged with the
+         * correlation id of its request, until the client closes the
+         * connection or it has been idle for IDLE_TIMEOUT.
          */
         @Override
         public void run() {
-            Gson gson = new Gson();
             try {
-                in = new BufferedReader(
-                        new InputStreamReader(client.getInputStream()));
-                out = new PrintWriter(client.getOutputStream(), true);
+                client.setSoTimeout(IDLE_TIMEOUT);
+
+                BufferedInputStream in = new BufferedInputStream(client.getInputStream());
+
+                if (BinaryChannel.isPreface(in)) {
+                    channel = BinaryChannel.accept(in, client.getOutputStream(), maxMessageSize);
+                } else {
+                    channel = new JsonChannel(in, client.getOutputStream(), maxMessageSize);
+                }
+
+                while (channel.next()) {
+                    ClientRequest request = null;
+                    String error = "Malformed client request";
 
-                String msg = in.readLine();
-                
-                ClientRequest request = gson.fromJson(msg, ClientRequest.class);
-                
-                TutorReply reply = tutor.request(request);
-                
-                out.println(gson.toJson(reply));
+                    try {
+                        request = channel.readRequest();
+                    } catch (JsonParseException e) {
+                        LOGGER.log(Level.WARNING, "Malformed client request", e);
+                    } catch (FrameTooLargeException e) {
+                        LOGGER.log(Level.WARNING, "Discarding client request: {0}", e.getMessage());
+                        error = e.getMessage();
+                    }
 
-                out.flush();
+                    TutorReply reply;
 
+                    if (request == null || request.getRequestType() == null) {
+                        reply = new TutorReply(":ERR", error);
+                    } else {
+                        reply = tutor.request(request);
+                        reply.setCorrelationId(request.getCorrelationId());
+                    }
+
+                    channel.write(reply);
+                }
+
+            } catch (SocketTimeoutException e) {
+                LOGGER.log(Level.INFO, "Closing idle client connection");
             } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "EncryptionConnection.run()", e);
+                LOGGER.log(Level.SEVERE, "DpTuConnection.run()", e);
             } finally {
+                inFlight.release();
+
                 // About as ugly as it gets, but the following code ensures that
                 // we've at least tried to close an open socket and its associated
                 // input and output streams in every possible error scenario
                 // If we didn't, it's possible that we're leaking memory.
                 try {
-                    if (out != null) {
-                        out.close();
+                    if (channel != null) {
+                        channel.close();
                     }
+                } catch (IOException e) {
+                    LOGGER.log(Level.INFO, "Unable to close client socket streams", e);
                 } finally {
                     try {
-                        if (in != null) {
-                            in.close();
+                        if (client != null) {
+                            client.close();
                         }
                     } catch (IOException e) {
                         LOGGER.log(Level.SEVERE, "Unable to close client socket in", e);
-                    } finally {
-                        try {
-                            if (client != null) {
-                                client.close();
-                            }
-                        } catch (IOException e) {
-                            LOGGER.log(Level.SEVERE, "Unable to close client socket in", e);
-                        }
                     }
                 }
             }
         }
     }
 }
-
@@ -13,15 +13,20 @@
 package edu.regis.dptu.svc;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import edu.regis.dptu.dao.UnitOfWork;
 import edu.regis.dptu.err.IllegalArgException;
 import edu.regis.dptu.err.NonRecoverableException;
 import edu.regis.dptu.err.ObjNotFoundException;
 import edu.regis.dptu.model.Account;
+import edu.regis.dptu.model.CellAnswer;
 import edu.regis.dptu.model.Course;
 import edu.regis.dptu.model.KnowledgeComponent;
+import edu.regis.dptu.model.LCSAnswerKey;
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.model.LCSTableValidator;
 import edu.regis.dptu.model.PendingStep;
 import edu.regis.dptu.model.PendingTask;
+import edu.regis.dptu.model.Problem;
 import edu.regis.dptu.model.Step;
 import edu.regis.dptu.model.StepCompletion;
 import edu.regis.dptu.model.StepCompletionReply;
@@ -35,8 +40,9 @@ import edu.regis.dptu.model.aol.Assessment;
 import edu.regis.dptu.model.aol.AssessmentLevel;
 import edu.regis.dptu.model.aol.StudentModel;
 import edu.regis.dptu.util.SHA_256;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.EnumMap;
 import java.util.GregorianCalendar;
 import java.util.HashSet;
 import java.util.Random;
@@ -53,7 +59,7 @@ public class DpTuTutor implements TutorSvc {
     /**
      * The id of the default course taught by the this tutor (Dynamic Programming).
      */
-    private static final int DEFAULT_COURSE_ID = 1;
+    public static final int DEFAULT_COURSE_ID = 1;
     /**
      * The maximum number of characters allowed for encoding a example ASCII
      * encoding request from the student.
@@ -70,116 +76,118 @@ public class DpTuTutor implements TutorSvc {
             = Logger.getLogger(DpTuTutor.class.getName());
 
     /**
-     * The current tutoring session, which contains information on the current
-     * Student, StudentModel, Course, Task, Step, etc.
+     * The singleton tutor shared by every client connection.
      */
-    private TutoringSession session;
-    
+    private static final DpTuTutor SINGLETON = new DpTuTutor();
+
     /**
-     * Convenience reference to the student currently being tutored.
+     * Compact JSon encoder/decoder, which is thread-safe, so it is shared by
+     * all requests.
      */
-    private Student student;
-    
+    private static final Gson GSON = new Gson();
+
     /**
-     * Convenience reference to the student model of the student being tutored.
+     * The handler of each request type, which is built once, so dispatching
+     * a request is a table lookup rather than a reflective method call.
      */
-    private StudentModel studentModel;
+    private final EnumMap<ServerRequestType, RequestHandler> handlers;
 
     /**
-     * Convenience reference to the current gson object.
+     * Initialize the tutor singleton's request handlers.
      */
-    private Gson gson;
+    private DpTuTutor() {
+        handlers = new EnumMap<>(ServerRequestType.class);
+        handlers.put(ServerRequestType.COMPLETED_STEP, this::completedStep);
+        handlers.put(ServerRequestType.COMPLETED_TASK, this::completedTask);
+        handlers.put(ServerRequestType.CREATE_ACCOUNT, this::createAccount);
+        handlers.put(ServerRequestType.SIGN_IN, this::signIn);
+        handlers.put(ServerRequestType.REQUEST_HINT, this::requestHint);
+        // ToDo: NEW_EXAMPLE has no handler yet
+    }
 
     /**
-     * Initialize the tutor singleton (a NoOp).
+     * Return the singleton tutor.
+     * 
+     * The tutor holds no per-request state (see RequestContext), so it may
+     * handle requests from any number of connections concurrently.
+     * 
+     * @return the DpTuTutor singleton
      */
-    public DpTuTutor() {
-        gson = new GsonBuilder().setPrettyPrinting().create();
+    public static DpTuTutor instance() {
+        return SINGLETON;
     }
 
     /**
      * {@inheritDoc}
+     * 
+     * The request is handled within a UnitOfWork, so all of the services it
+     * uses share one database connection, which is committed unless the reply
+     * is an ":ERR".
      */
     @Override
     public TutorReply request(ClientRequest request) {
-        // Uses reflection to invoke a method derived from the request name in
-        // the client request (e.g., ":SignIn" invokes "signIn(...)").
-        Logger.getLogger(DpTuTutor.class.getName()).log(Level.INFO, request.getRequestType().getRequestName());
-
-        // Efficiently produce "signIn" from ":SignIn", for example.         
-        char c[] = request.getRequestType().getRequestName().toCharArray();
-        c[1] = Character.toLowerCase(c[1]);
-
-        char m[] = new char[c.length - 1];
-        for (int i = 1; i < c.length; i++) {
-            m[i - 1] = c[i];
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            TutorReply reply = dispatch(new RequestContext(request));
+            
+            if (!":ERR".equals(reply.getStatus())) {
+                work.complete();
+            }
+            
+            return reply;
         }
-
-        String methodName = new String(m);
-
-        // Most methods require verifying the given security token with the known one.
-        switch (methodName) {
-            case "completedStep":
-            case "completedTask":
-            case "newExample":
-            case "requestHint":
-                String userId = request.getUserId();
-                try {
-                    if (verifySession(userId, request.getSecurityToken())) {
-
-                        Account account = ServiceFactory.findAccountSvc().retrieve(userId);
-                        student = new Student(account);
-                        
-                        try {
-                            StudentModelSvc stuModSvc = ServiceFactory.findStudentModelSvc();
-                            studentModel = stuModSvc.retrieve(userId);
-                            student.setStudentModel(studentModel);
-                    
-                        } catch (ObjNotFoundException ex) {
-                            TutorReply reply = new TutorReply(":ERR");
-                            reply.setData("Student model not found for: " + userId );
-                            return reply;
-                        }
+    }
     
-                        
-                        session = ServiceFactory.findSessionSvc().retrieve(student);
+    /**
+     * Verify the security token, if required, and invoke the handler of the
+     * given request.
+     * 
+     * @param context the context of a ClientRequest encapsulating a request and data.
+     * @return a TutorReply encapsulating a status and, possibly, data.
+     */
+    private TutorReply dispatch(RequestContext context) {
+        ClientRequest request = context.getRequest();
+        ServerRequestType type = request.getRequestType();
         
-                    } else {
-                        TutorReply reply = new TutorReply(":ERR");
-                        reply.setData("Illegal Security Token");
-                        return reply;
-                    }
+        LOGGER.log(Level.INFO, type.getRequestName());
 
-                } catch (ObjNotFoundException ex) {
-                    return createError("No session exists for user: " + userId, ex);
-                } catch (NonRecoverableException ex) {
-                    return createError(ex.toString(), ex);
+        RequestHandler handler = handlers.get(type);
+        
+        if (handler == null) {
+            return createError("Tutor received an unknown request type: " + type.getRequestName(), null);
+        }
+
+        // Most requests require verifying the given security token with the known one.
+        if (type.isTokenRequired()) {
+            String userId = request.getUserId();
+            try {
+                if (verifySession(userId, request.getSecurityToken())) {
+                    // Loads the account and student model with the session.
+                    TutoringSession session = ServiceFactory.findSessionSvc().retrieve(userId);
+                    context.setSession(session);
+                    context.setStudent(session.getStudent());
+                    context.setStudentModel(session.getStudent().getStudentModel());
+
+                } else {
+                    return new TutorReply(":ERR", "Illegal Security Token");
                 }
 
-                String msg = "Session verified for " + request.getUserId();
-                Logger.getLogger(DpTuTutor.class.getName()).log(Level.INFO, msg);
-                break;
+            } catch (ObjNotFoundException ex) {
+                return createError("No session or student model exists for user: " + userId, ex);
+            } catch (NonRecoverableException ex) {
+                return createError(ex.toString(), ex);
+            }
 
-            default: // e.g., signIn itself, newAccount
-                Logger.getLogger(DpTuTutor.class.getName()).log(Level.INFO, "No token verification required");
+            LOGGER.log(Level.INFO, "Session verified for {0}", userId);
         }
 
         // Security token has been verified or not required (e.g., signIn, createAccount).
         try {
-            Method method = getClass().getMethod(methodName, String.class);
-
-            return (TutorReply) method.invoke(this, request.getData());
-
-        } catch (NoSuchMethodException ex) {
-            return createError("Tutor received an unknown request type: " + request.getRequestType().getRequestName(), ex);
-        } catch (SecurityException ex) {
-            return createError("DpTuTutor_ERR_2", ex);
-        } catch (IllegalAccessException ex) {
-            return createError("DpTuTutor_ERR_3", ex);
-        } catch (IllegalArgumentException ex) {
-            return createError("DpTuTutor_ERR_4", ex);
-        } catch (InvocationTargetException ex) {
+            return handler.handle(context);
+
+        } catch (NonRecoverableException ex) {
             return createError("DpTuTutor_ERR_5", ex);
+        } catch (RuntimeException ex) { // e.g., malformed JSon request data
+            return createError("DpTuTutor_ERR_6: " + ex.getMessage(), ex);
         }
     }
 
@@ -188,12 +196,12 @@ public class DpTuTutor implements TutorSvc {
      *
      * This method handles ":CreateAccount" requests from the GUI client.
      *
-     * @param jsonAcct a JSon encoded Account object
+     * @param context the request, whose data is a JSon encoded Account object
      * @return a TutorReply if successful the status is "Created", otherwise the
      * status is "ERR".
      */
-    public TutorReply createAccount(String jsonAcct) throws NonRecoverableException {
-        Account acct = gson.fromJson(jsonAcct, Account.class);
+    private TutorReply createAccount(RequestContext context) throws NonRecoverableException {
+        Account acct = GSON.fromJson(context.getData(), Account.class);
 
         int courseId = DEFAULT_COURSE_ID; // Currently only one course
 
@@ -203,9 +211,11 @@ public class DpTuTutor implements TutorSvc {
             try {
                 Course course = ServiceFactory.findCourseSvc().retrieve(courseId);
                 
-                student = createStudent(acct, course);
+                Student student = createStudent(acct, course);
 
-                createSession(student, course);
+                context.setStudent(student);
+                context.setStudentModel(student.getStudentModel());
+                context.setSession(createSession(student, course));
 
                 return new TutorReply("Created");
 
@@ -223,38 +233,39 @@ public class DpTuTutor implements TutorSvc {
      *
      * This method handles ":SignIn" requests from the GUI client.
      *
-     * @param jsonUser a JSon encoded User object
+     * @param context the request, whose data is a JSon encoded User object
      * @return a TutorReply, if successful, the status is "Authenticated" with
      * data being a JSon encoded TutoringSession object.
      */
-    public TutorReply signIn(String jsonUser) {
-         System.out.println("Received sign in: " + jsonUser);
-        Account requestAcct = gson.fromJson(jsonUser, Account.class);
+    private TutorReply signIn(RequestContext context) {
+        Account requestAcct = GSON.fromJson(context.getData(), Account.class);
 
         try {
             Account dbAcct = ServiceFactory.findAccountSvc().retrieve(requestAcct.getUserId());
 
             if (dbAcct.getPassword().equals(requestAcct.getPassword())) {
-                student = new Student(dbAcct);
+                Student student = new Student(dbAcct);
                 String userId = dbAcct.getUserId();
                 
                 try {
                     StudentModelSvc stuModSvc = ServiceFactory.findStudentModelSvc();
-                    studentModel = stuModSvc.retrieve(userId);
+                    StudentModel studentModel = stuModSvc.retrieve(userId);
                     student.setStudentModel(studentModel);
+
+                    context.setStudent(student);
+                    context.setStudentModel(studentModel);
                     
                 } catch (ObjNotFoundException ex) {
-                    TutorReply reply = new TutorReply(":ERR");
-                    reply.setData("Student model not found in sign in for: " + userId );
-                    return reply;
+                    return new TutorReply(":ERR", "Student model not found in sign in for: " + userId);
                 }
 
                 SessionSvc svc = ServiceFactory.findSessionSvc();
                 TutoringSession session = svc.retrieve(student);
+                context.setSession(session);
               
                 TutorReply reply = new TutorReply("Authenticated");
 
-                reply.setData(gson.toJson(session));
+                reply.setData(GSON.toJsonTree(session));
 
                 return reply;
 
@@ -276,14 +287,13 @@ public class DpTuTutor implements TutorSvc {
      *
      * This method handles ":RequestHint" requests from the GUI client.
      *
-     * @param sessionInfo a
+     * @param context the request, whose session has been verified
      * @return a TutorReply, if successful, the status is "Hint" with data being
      * a displayable hint text string.
      */
-    public TutorReply requestHint(String sessionInfo) {
+    private TutorReply requestHint(RequestContext context) {
         // ToDo: this is simply a hard coded test case
-        TutorReply reply = new TutorReply("Hint");
-        reply.setData("This is a hint from the tutor.");
+        TutorReply reply = new TutorReply("Hint", "This is a hint from the tutor.");
 
         return new TutorReply();
     }
@@ -291,11 +301,11 @@ public class DpTuTutor implements TutorSvc {
      /**
      * 
      * 
-     * @param jsonObj a JSon encoded StepCompletion object
+     * @param context the request, whose data is a JSon encoded StepCompletion object
      * @return 
      */
-    public TutorReply completedStep(String jsonObj) {
-        StepCompletion completion = gson.fromJson(jsonObj, StepCompletion.class);
+    private TutorReply completedStep(RequestContext context) {
+        StepCompletion completion = GSON.fromJson(context.getData(), StepCompletion.class);
         
         Step step = completion.getStep();
         
@@ -304,13 +314,16 @@ public class DpTuTutor implements TutorSvc {
                 return completeInfoMsgStep(completion);
                 
             case COMPLETE_CELL:
-                return completeCellStep(completion);
+                return completeCellStep(context, completion);
                 
             case COMPLETE_FIRST_ROW:
-                return completeFirstRowStep(completion);
+                return completeFirstRowStep(context, completion);
                 
             case COMPLETE_FIRST_COL:
-                return completeFirstColStep(completion);
+                return completeFirstColStep(context, completion);
+                
+            case COMPLETE_TABLE:
+                return completeTableStep(context, completion);
                 
             default:
                 return createError("Unknown step completion: " + step.getSubType(), null);         
@@ -323,25 +336,37 @@ public class DpTuTutor implements TutorSvc {
         return reply;
     }
     
-    // TO_DO: this is stubbed in
-    public TutorReply completeCellStep(StepCompletion completion) {
-         TutorReply reply = new TutorReply(":StepCompletionReply");
+    /**
+     * Grade the value the student entered in a cell of their LCS problem.
+     * 
+     * @param context the request, whose session has the student's problem
+     * @param completion the step completion, whose data is a JSon encoded
+     *                   CellAnswer with one value
+     * @return a ":StepCompletionReply" whose data is a StepCompletionReply
+     */
+    private TutorReply completeCellStep(RequestContext context, StepCompletion completion) {
+        CellAnswer answer = GSON.fromJson(completion.getData(), CellAnswer.class);
         
-        // As adding one bit doesn't require any additional information,
-        // the data is the string with one '1' bit added. 
-        String data = completion.getData();
+        if (answer == null || answer.getValues() == null || answer.getValues().length != 1) {
+            return createError("Illegal cell answer: " + completion.getData(), null);
+        }
+        
+        LCSAnswerKey key = findAnswerKey(context);
         
-        // TO_DO: look up the problem given to the student , then check if one bit
-        // added
+        if (key == null) {
+            return createError("No LCS problem in session for a cell step", null);
+        }
+        
+        TutorReply reply = new TutorReply(":StepCompletionReply");
         
         StepCompletionReply stepReply = new StepCompletionReply();
         
         // TO_DO: Use Student Model
-        // ultimately, we'll probably only practice adding '1' bit twice
-        // so this would correspond to the first replay
         
-        stepReply.setIsCorrect(true);
+        stepReply.setIsCorrect(isCorrect(key, answer, false));
         stepReply.setIsNewStep(true);
+        
+        recordAnswer(context, answer, false);
         stepReply.setIsNewTask(false);
         stepReply.setIsRepeatStep(false);
         
@@ -349,27 +374,202 @@ public class DpTuTutor implements TutorSvc {
         // this is really a new example at this point
         Step nextStep = new Step(10, 10, StepSubType.COMPLETE_CELL);
         
-        stepReply.setData(gson.toJson(nextStep));
+        stepReply.setData(GSON.toJsonTree(nextStep));
         
-        reply.setData(gson.toJson(stepReply));
+        reply.setData(GSON.toJsonTree(stepReply));
         
         return reply;
     }
     
-    public TutorReply completeFirstRowStep(StepCompletion completion) {
+    /**
+     * Grade the values the student entered in the first row of their LCS
+     * problem.
+     * 
+     * @param context the request, whose session has the student's problem
+     * @param completion the step completion, whose data is a JSon encoded
+     *                   CellAnswer of row 0
+     * @return a ":StepCompletionReply" whose data is a StepCompletionReply
+     */
+    private TutorReply completeFirstRowStep(RequestContext context, StepCompletion completion) {
+        return completeFirstLineStep(context, completion, false);
+    }
+        
+    /**
+     * Grade the values the student entered in the first column of their LCS
+     * problem.
+     * 
+     * @param context the request, whose session has the student's problem
+     * @param completion the step completion, whose data is a JSon encoded
+     *                   CellAnswer of column 0
+     * @return a ":StepCompletionReply" whose data is a StepCompletionReply
+     */
+    private TutorReply completeFirstColStep(RequestContext context, StepCompletion completion) {
+        return completeFirstLineStep(context, completion, true);
+    }
+    
+    /**
+     * Grade the values entered in the first row or column.
+     */
+    private TutorReply completeFirstLineStep(RequestContext context, StepCompletion completion, boolean isColumn) {
+        CellAnswer answer = GSON.fromJson(completion.getData(), CellAnswer.class);
+        
+        if (answer == null || answer.getValues() == null) {
+            return createError("Illegal first row/col answer: " + completion.getData(), null);
+        }
+        
+        LCSAnswerKey key = findAnswerKey(context);
+        
+        if (key == null) {
+            return createError("No LCS problem in session for a first row/col step", null);
+        }
+        
+        // The values must fill the entire row or column
+        int length = isColumn ? key.getRows() : key.getColumns();
+        
+        StepCompletionReply stepReply = new StepCompletionReply();
+        stepReply.setIsCorrect(answer.getRow() == 0 && answer.getColumn() == 0
+                && answer.getValues().length == length && isCorrect(key, answer, isColumn));
+        
+        recordAnswer(context, answer, isColumn);
+        
         TutorReply reply = new TutorReply(":StepCompletionReply");
+        reply.setData(GSON.toJsonTree(stepReply));
         
         return reply;
     }
+    
+    /**
+     * Check the cells the student changed in the table of their LCS problem,
+     * and reply with the first incorrect cell in the table, if any.
+     * 
+     * @param context the request, whose session has the student's problem
+     * @param completion the step completion, whose data is a JSon encoded
+     *                   array of CellAnswers (across rows) of the changed cells
+     * @return a ":StepCompletionReply" whose data is a StepCompletionReply,
+     *         which, if incorrect, has the JSon encoded CellAnswer of the
+     *         first incorrect cell and its value
+     */
+    private TutorReply completeTableStep(RequestContext context, StepCompletion completion) {
+        CellAnswer[] answers = GSON.fromJson(completion.getData(), CellAnswer[].class);
+        
+        if (answers == null) {
+            return createError("Illegal table answer: " + completion.getData(), null);
+        }
+        
+        LCSTableValidator validator = findTableValidator(context);
+        
+        if (validator == null) {
+            return createError("No LCS problem in session for a table step", null);
+        }
+        
+        StepCompletionReply stepReply = new StepCompletionReply();
+        
+        synchronized (validator) {
+            try {
+                for (CellAnswer answer : answers) {
+                    if (answer == null || answer.getValues() == null) {
+                        return createError("Illegal table answer: " + completion.getData(), null);
+                    }
+                    
+                    validator.update(answer, false);
+                }
+                
+            } catch (IndexOutOfBoundsException ex) {
+                return createError("Illegal table answer: " + ex.getMessage(), null);
+            }
+            
+            int[] first = validator.getFirstIncorrect();
+            
+            stepReply.setIsCorrect(first == null);
+            
+            if (first != null) {
+                stepReply.setData(GSON.toJsonTree(new CellAnswer(first[0], first[1], validator.getValue(first[0], first[1]))));
+            }
+        }
         
-    public TutorReply completeFirstColStep(StepCompletion completion) {
         TutorReply reply = new TutorReply(":StepCompletionReply");
+        reply.setData(GSON.toJsonTree(stepReply));
         
         return reply;
     }
     
+    /**
+     * Record the values of a graded cell or first row/column step in the
+     * table the student is filling in.
+     */
+    private void recordAnswer(RequestContext context, CellAnswer answer, boolean isColumn) {
+        LCSTableValidator validator = findTableValidator(context);
+        
+        if (validator != null) {
+            synchronized (validator) {
+                try {
+                    validator.update(answer, isColumn);
+                } catch (IndexOutOfBoundsException ex) {
+                    // The answer was graded as incorrect
+                }
+            }
+        }
+    }
+    
+    /**
+     * Return the table the student in the given request's session is filling
+     * in, from the shared table validator cache.
+     * 
+     * @param context a request whose session has been verified
+     * @return an LCSTableValidator, or null if the session has no LCS problem
+     */
+    private LCSTableValidator findTableValidator(RequestContext context) {
+        Problem problem = context.getSession() == null ? null : context.getSession().getProblem();
+        
+        if (problem instanceof LCSProblem) {
+            return ServiceFactory.findTableValidatorCache().retrieve(context.getRequest().getUserId(), (LCSProblem) problem);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Return the answer key of the LCS problem in the given request's
+     * session, from the shared answer key cache.
+     * 
+     * @param context a request whose session has been verified
+     * @return an LCSAnswerKey, or null if the session has no LCS problem
+     */
+    private LCSAnswerKey findAnswerKey(RequestContext context) {
+        Problem problem = context.getSession() == null ? null : context.getSession().getProblem();
+        
+        if (problem instanceof LCSProblem) {
+            return ServiceFactory.findAnswerKeyCache().retrieve((LCSProblem) problem);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Return whether each of the given answer's values is that of its cell.
+     * 
+     * @param key the solved problem
+     * @param answer the values beginning at a cell
+     * @param isColumn true if the values are down a column, otherwise across a row
+     * @return false if any value is wrong or outside of the table
+     */
+    private boolean isCorrect(LCSAnswerKey key, CellAnswer answer, boolean isColumn) {
+        int[] values = answer.getValues();
+        
+        for (int k = 0; k < values.length; k++) {
+            int row = isColumn ? answer.getRow() + k : answer.getRow();
+            int column = isColumn ? answer.getColumn() : answer.getColumn() + k;
+            
+            if (!key.contains(row, column) || key.getValue(row, column) != values[k]) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
 
-    public TutorReply completedTask(String taskInfo) {
+    private TutorReply completedTask(RequestContext context) {
         return new TutorReply();
     }
 
@@ -426,8 +626,8 @@ public class DpTuTutor implements TutorSvc {
     private Student createStudent(Account account, Course course)
             throws NonRecoverableException {
         
-        student = new Student(account);
-        studentModel = student.getStudentModel();
+        Student student = new Student(account);
+        StudentModel studentModel = student.getStudentModel();
 
         // ToDo: follow ShaTu to create these 
         //for (KnowledgeComponent outcome : course.getOutcomes()) {
@@ -457,10 +657,16 @@ public class DpTuTutor implements TutorSvc {
     private boolean verifySession(String userId, String sessionId) 
         throws ObjNotFoundException, NonRecoverableException {
 
+        if (sessionId == null) {
+            return false;
+        }
+
         SessionSvc svc = ServiceFactory.findSessionSvc();
         String dbToken = svc.retrieveSecurityToken(userId);
 
-        return dbToken.equals(sessionId);
+        // Constant-time, so the comparison doesn't reveal a matching prefix
+        return MessageDigest.isEqual(dbToken.getBytes(StandardCharsets.UTF_8),
+                                     sessionId.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
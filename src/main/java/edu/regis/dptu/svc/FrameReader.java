@@ -0,0 +1,289 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import edu.regis.dptu.err.FrameTooLargeException;
+import edu.regis.dptu.err.MissingPropertyException;
+import edu.regis.dptu.util.ResourceMgr;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the newline framed, UTF-8 JSon messages sent on a client or tutor
+ * connection, so each message can be parsed as it arrives, by a JsonReader,
+ * rather than first being read into a String.
+ * 
+ * As a Reader, this returns the characters of the current frame, reporting
+ * the end of the stream at the frame's newline. next() moves to the next
+ * frame, discarding whatever remains of the current frame. A frame of more
+ * than maxFrameSize characters is abandoned with a FrameTooLargeException,
+ * after which next() moves to the following frame.
+ * 
+ * Compact JSon never contains a raw newline, as newlines within Strings are
+ * escaped, so a newline always ends a message.
+ * 
+ * Like the underlying stream, this isn't thread-safe.
+ * 
+ * @author rickb
+ */
+public class FrameReader extends Reader {
+    /**
+     * The maximum number of characters in a message (see DpTu.properties).
+     */
+    public static final String MAX_FRAME_SIZE_PROP = "edu.regis.dptu.MAX_MESSAGE_SIZE";
+    
+    /**
+     * Maximum message size used if the MAX_FRAME_SIZE_PROP is missing.
+     */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 4 * 1024 * 1024;
+    
+    /**
+     * The decoded characters of the underlying stream.
+     */
+    private final Reader in;
+    
+    private final int maxFrameSize;
+    
+    /**
+     * Characters read from the underlying stream, but not yet returned.
+     */
+    private final char[] buffer = new char[8192];
+    
+    private int pos;
+    
+    private int limit;
+    
+    /**
+     * Number of characters of the current frame returned so far.
+     */
+    private int frameSize;
+    
+    /**
+     * Whether the newline ending the current frame has been read.
+     */
+    private boolean isFrameEnd;
+    
+    /**
+     * Whether the underlying stream has ended.
+     */
+    private boolean isStreamEnd;
+    
+    /**
+     * Initialize this reader of the frames in the given stream, positioned
+     * before the first frame.
+     * 
+     * @param in a socket or other stream of UTF-8 encoded frames
+     * @param maxFrameSize the maximum number of characters in a frame
+     */
+    public FrameReader(InputStream in, int maxFrameSize) {
+        this.in = new InputStreamReader(in, StandardCharsets.UTF_8);
+        this.maxFrameSize = maxFrameSize;
+        
+        isFrameEnd = true;
+    }
+    
+    /**
+     * Move to the next frame, discarding the remainder of the current frame.
+     * 
+     * @return true, if there is another frame, false at the end of the stream
+     * @throws IOException reading the stream failed
+     */
+    public boolean next() throws IOException {
+        while (!isFrameEnd) {
+            if (pos == limit && !fill()) {
+                break;
+            }
+            
+            int end = indexOfNewline();
+            
+            pos = end < limit ? end + 1 : limit;
+            isFrameEnd = end < limit;
+        }
+        
+        if (pos == limit && !fill()) {
+            return false;
+        }
+        
+        frameSize = 0;
+        isFrameEnd = false;
+        
+        return true;
+    }
+    
+    /**
+     * Parse the current frame, which must hold a single JSon value, as the
+     * given type.
+     * 
+     * @param <T> the type of the value
+     * @param gson the Gson used to decode the value
+     * @param type the class of the value
+     * @return the value, or null if the frame is blank
+     * @throws JsonParseException the frame isn't a JSon value of the type
+     * @throws FrameTooLargeException the frame exceeds the maximum size
+     * @throws IOException reading the stream failed
+     */
+    public <T> T readJson(Gson gson, Class<T> type) throws IOException {
+        return fromJson(gson, this, type);
+    }
+    
+    /**
+     * Parse the given message, which must hold a single JSon value, as the
+     * given type (see readJson()).
+     * 
+     * @param <T> the type of the value
+     * @param gson the Gson used to decode the value
+     * @param message the characters of one message
+     * @param type the class of the value
+     * @return the value, or null if the message is blank
+     * @throws JsonParseException the message isn't a JSon value of the type
+     * @throws IOException reading the message failed
+     */
+    static <T> T fromJson(Gson gson, Reader message, Class<T> type) throws IOException {
+        JsonReader json = new JsonReader(message);
+        
+        try {
+            T value = gson.fromJson(json, type);
+            
+            if (value != null && json.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("Message contains more than one value");
+            }
+            
+            return value;
+            
+        } catch (MalformedJsonException e) {
+            throw new JsonSyntaxException(e);
+            
+        } catch (JsonParseException e) {
+            // Gson reports every IOException as a syntax error
+            Throwable cause = e.getCause();
+            
+            if (cause instanceof IOException && !(cause instanceof MalformedJsonException)
+                    && !(cause instanceof EOFException)) {
+                throw (IOException) cause;
+            }
+            
+            throw e;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * Returns -1 at the end of the current frame.
+     * 
+     * @throws FrameTooLargeException the frame exceeds the maximum size
+     */
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        
+        if (isFrameEnd || (pos == limit && !fill())) {
+            isFrameEnd = true;
+            return -1;
+        }
+        
+        int end = indexOfNewline();
+        int count = Math.min(end - pos, len);
+        
+        if (frameSize + count > maxFrameSize) {
+            pos += count; // Left to be discarded by next()
+            throw new FrameTooLargeException(maxFrameSize);
+        }
+        
+        System.arraycopy(buffer, pos, cbuf, off, count);
+        
+        pos += count;
+        frameSize += count;
+        
+        if (pos == end && end < limit) {
+            pos++;
+            isFrameEnd = true;
+            
+            if (count == 0) {
+                return -1;
+            }
+        }
+        
+        return count;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+    
+    /**
+     * Return the maximum message size from the DpTu.properties file.
+     * 
+     * @return a positive number of characters
+     */
+    public static int maxFrameSizeProp() {
+        try {
+            int size = Integer.parseInt(ResourceMgr.instance().getProp(MAX_FRAME_SIZE_PROP).trim());
+            
+            return size > 0 ? size : DEFAULT_MAX_FRAME_SIZE;
+            
+        } catch (MissingPropertyException | NumberFormatException e) {
+            return DEFAULT_MAX_FRAME_SIZE;
+        }
+    }
+    
+    /**
+     * Return the index of the first newline in the buffered characters, or
+     * limit if there is none.
+     */
+    private int indexOfNewline() {
+        for (int i = pos; i < limit; i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        
+        return limit;
+    }
+    
+    /**
+     * Read more characters from the underlying stream into the empty buffer.
+     * 
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        if (isStreamEnd) {
+            return false;
+        }
+        
+        int count = in.read(buffer, 0, buffer.length);
+        
+        if (count < 0) {
+            isStreamEnd = true;
+            return false;
+        }
+        
+        pos = 0;
+        limit = count;
+        
+        return true;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes newline framed, UTF-8 JSon messages on a client or tutor
+ * connection (see FrameReader), encoding each message directly into the
+ * buffered stream by a JsonWriter rather than first into a String.
+ * 
+ * Like the underlying stream, this isn't thread-safe.
+ * 
+ * @author rickb
+ */
+public class FrameWriter implements Closeable {
+    private final BufferedWriter out;
+    
+    /**
+     * Initialize this writer of frames to the given stream.
+     * 
+     * @param out a socket or other stream
+     */
+    public FrameWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Write the given value as a single frame, and flush it to the stream.
+     * 
+     * @param gson the Gson used to encode the value
+     * @param value the message
+     * @param type the class of the value
+     * @throws IOException writing the stream failed
+     */
+    public void writeJson(Gson gson, Object value, Class<?> type) throws IOException {
+        JsonWriter json = new JsonWriter(out); // Compact, so no raw newlines
+        
+        try {
+            gson.toJson(value, type, json);
+            
+        } catch (JsonIOException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            
+            throw e;
+        }
+        
+        out.write('\n');
+        out.flush();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
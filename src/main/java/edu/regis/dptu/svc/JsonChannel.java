@@ -0,0 +1,85 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A MessageChannel of newline framed JSon text (see FrameReader and
+ * FrameWriter), which is the default tutor protocol.
+ * 
+ * @author rickb
+ */
+public class JsonChannel implements MessageChannel {
+    /**
+     * Compact JSon encoder/decoder, which is thread-safe, so it is shared by
+     * all channels.
+     */
+    private static final Gson GSON = new Gson();
+    
+    private final FrameReader in;
+    
+    private final FrameWriter out;
+    
+    /**
+     * Initialize this channel on the given streams.
+     * 
+     * @param in the stream from which messages are read
+     * @param out the stream to which messages are written
+     * @param maxMessageSize the maximum number of characters in a message read
+     */
+    public JsonChannel(InputStream in, OutputStream out, int maxMessageSize) {
+        this.in = new FrameReader(in, maxMessageSize);
+        this.out = new FrameWriter(out);
+    }
+    
+    @Override
+    public boolean next() throws IOException {
+        return in.next();
+    }
+    
+    @Override
+    public ClientRequest readRequest() throws IOException {
+        return in.readJson(GSON, ClientRequest.class);
+    }
+    
+    @Override
+    public TutorReply readReply() throws IOException {
+        return in.readJson(GSON, TutorReply.class);
+    }
+    
+    @Override
+    public void write(ClientRequest request) throws IOException {
+        out.writeJson(GSON, request, ClientRequest.class);
+    }
+    
+    @Override
+    public void write(TutorReply reply) throws IOException {
+        out.writeJson(GSON, reply, TutorReply.class);
+    }
+    
+    /**
+     * Close both streams.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import edu.regis.dptu.err.NonRecoverableException;
+import edu.regis.dptu.model.BitParallelLCS;
+import edu.regis.dptu.model.LCSDifficulty;
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.model.LCSSolutions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Generates LCS problems having a targeted LCSDifficulty, so new examples
+ * needn't be authored by hand.
+ * 
+ * Candidates are generated and solved in parallel, in rounds, and those
+ * having the difficulty are kept, unless their sequences, in either order,
+ * were already kept. To reach the targeted LCS ratio quickly, each candidate
+ * has a common subsequence of a length in the ratio's range planted in its
+ * sequences. The cheap measures are checked first: the match density from
+ * the character counts, then the LCS length using a BitParallelLCS, and
+ * only then the number of distinct LCSs, counting at most one more than the
+ * maximum, which also solves the problem's table.
+ * 
+ * Candidate k of a seed is always the same, so a seed generates the same
+ * problems regardless of the pool's parallelism.
+ * 
+ * @author rickb
+ */
+public class LCSProblemGenerator {
+    /**
+     * Handler for logging messages.
+     */
+    private static final Logger LOGGER = Logger.getLogger(LCSProblemGenerator.class.getName());
+    
+    /**
+     * Candidates generated per requested problem before giving up.
+     */
+    public static final int MAX_CANDIDATES_PER_PROBLEM = 1000;
+    
+    /**
+     * The title of each generated problem.
+     */
+    public static final String TITLE = "Generated Longest Common Subsequence Problem";
+    
+    /**
+     * The description of each generated problem.
+     */
+    public static final String DESCRIPTION = "Determine the longest common subsequence for the given sequences/strings.";
+    
+    /**
+     * The fewest candidates generated in a round.
+     */
+    private static final int MIN_ROUND_SIZE = 256;
+    
+    /**
+     * The most candidates generated in a round.
+     */
+    private static final int MAX_ROUND_SIZE = 65536;
+    
+    /**
+     * Spreads the seeds of successive candidates.
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    
+    private final LCSDifficulty difficulty;
+    
+    /**
+     * The pool in which candidates are generated.
+     */
+    private final ForkJoinPool pool;
+    
+    /**
+     * The characters from which sequences are drawn.
+     */
+    private final char[] alphabet;
+    
+    /**
+     * Number of candidates generated by the last call to generate().
+     */
+    private long candidateCount;
+    
+    /**
+     * Number of candidates with the difficulty discarded as duplicates by
+     * the last call to generate().
+     */
+    private long duplicateCount;
+    
+    /**
+     * Initialize this generator of problems with the given difficulty.
+     * 
+     * @param difficulty the difficulty of the generated problems
+     * @param pool the pool in which candidates are generated and solved
+     * @throws IllegalArgumentException if the difficulty isn't valid
+     */
+    public LCSProblemGenerator(LCSDifficulty difficulty, ForkJoinPool pool) {
+        if (!difficulty.isValid()) {
+            throw new IllegalArgumentException("Invalid difficulty: " + difficulty);
+        }
+        
+        this.difficulty = difficulty;
+        this.pool = pool;
+        
+        alphabet = new char[difficulty.getAlphabetSize()];
+        for (int a = 0; a < alphabet.length; a++) {
+            alphabet[a] = (char) ('a' + a);
+        }
+    }
+    
+    /**
+     * Initialize this generator of problems with the given difficulty, which
+     * uses the common pool.
+     * 
+     * @param difficulty the difficulty of the generated problems
+     */
+    public LCSProblemGenerator(LCSDifficulty difficulty) {
+        this(difficulty, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Return up to count distinct, solved problems having this generator's
+     * difficulty, fewer only if MAX_CANDIDATES_PER_PROBLEM * count candidates
+     * didn't yield enough.
+     * 
+     * @param count the number of problems to generate
+     * @param seed determines the problems generated
+     * @return a List of LCSProblems
+     */
+    public List<LCSProblem> generate(int count, long seed) {
+        ArrayList<LCSProblem> problems = new ArrayList<>(count);
+        HashSet<String> keys = new HashSet<>();
+        
+        long maxCandidates = (long) count * MAX_CANDIDATES_PER_PROBLEM;
+        long next = 0;
+        long accepted = 0;
+        
+        duplicateCount = 0;
+        
+        while (problems.size() < count && next < maxCandidates) {
+            // Size the round by the acceptance rate so far
+            long needed = count - problems.size();
+            long size = accepted == 0 ? needed * (next == 0 ? 2 : 16) : needed * next / accepted + needed / 4;
+            size = Math.min(Math.max(size, MIN_ROUND_SIZE), Math.min(MAX_ROUND_SIZE, maxCandidates - next));
+            
+            long first = next;
+            long last = next + size;
+            
+            List<LCSProblem> round = pool.submit(() -> LongStream.range(first, last).parallel()
+                    .mapToObj(k -> candidate(seed, k))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList())).join();
+            
+            next = last;
+            accepted += round.size();
+            
+            for (LCSProblem problem : round) {
+                if (problems.size() == count) {
+                    break;
+                }
+                
+                if (keys.contains(key(problem.getY(), problem.getX())) || !keys.add(key(problem.getX(), problem.getY()))) {
+                    duplicateCount++;
+                    continue;
+                }
+                
+                problems.add(problem);
+            }
+        }
+        
+        candidateCount = next;
+        
+        if (problems.size() < count) {
+            LOGGER.log(Level.WARNING, "Generated {0} of {1} problems from {2} candidates with {3}",
+                    new Object[] {problems.size(), count, next, difficulty});
+        }
+        
+        return problems;
+    }
+    
+    /**
+     * Generate count problems and insert those not already in the database.
+     * 
+     * @param count the number of problems to generate
+     * @param seed determines the problems generated
+     * @param problemSvc the service that inserts the problems
+     * @return the number of problems inserted
+     * @throws NonRecoverableException also see getCause().getErrorCode().
+     */
+    public int generate(int count, long seed, LCSProblemSvc problemSvc) throws NonRecoverableException {
+        return problemSvc.createAll(generate(count, seed));
+    }
+    
+    public LCSDifficulty getDifficulty() {
+        return difficulty;
+    }
+    
+    public long getCandidateCount() {
+        return candidateCount;
+    }
+    
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+    
+    /**
+     * Return the match density of the given sequences.
+     * 
+     * @param x the first sequence
+     * @param y the second sequence
+     * @return the fraction of cells [i][j] where x[i] = y[j]
+     */
+    public static double matchDensity(String x, String y) {
+        HashMap<Character, Integer> counts = new HashMap<>();
+        
+        for (int j = 0; j < y.length(); j++) {
+            counts.merge(y.charAt(j), 1, Integer::sum);
+        }
+        
+        long matches = 0;
+        for (int i = 0; i < x.length(); i++) {
+            matches += counts.getOrDefault(x.charAt(i), 0);
+        }
+        
+        return (double) matches / ((long) x.length() * y.length());
+    }
+    
+    /**
+     * Generate candidate k of the given seed.
+     * 
+     * @return the candidate, solved, if it has this generator's difficulty,
+     *         otherwise null
+     */
+    private LCSProblem candidate(long seed, long k) {
+        SplittableRandom random = new SplittableRandom(seed + k * GOLDEN_GAMMA);
+        
+        int n = random.nextInt(difficulty.getMinLength(), difficulty.getMaxLength() + 1);
+        int m = random.nextInt(difficulty.getMinLength(), difficulty.getMaxLength() + 1);
+        
+        char[] x = randomSequence(random, n);
+        char[] y = randomSequence(random, m);
+        
+        int shorter = Math.min(n, m);
+        
+        double minRatio = Math.max(0, difficulty.getMinLcsRatio());
+        double maxRatio = Math.min(1, difficulty.getMaxLcsRatio());
+        
+        plant(random, x, y, (int) Math.round((minRatio + random.nextDouble() * (maxRatio - minRatio)) * shorter));
+        
+        String xs = new String(x);
+        String ys = new String(y);
+        
+        double density = matchDensity(xs, ys);
+        if (density < difficulty.getMinMatchDensity() || density > difficulty.getMaxMatchDensity()) {
+            return null;
+        }
+        
+        double ratio = (double) new BitParallelLCS(xs, ys).length() / shorter;
+        if (ratio < difficulty.getMinLcsRatio() || ratio > difficulty.getMaxLcsRatio()) {
+            return null;
+        }
+        
+        LCSProblem problem = new LCSProblem(xs, ys);
+        
+        long solutions = new LCSSolutions(problem).stream().limit(difficulty.getMaxSolutions() + 1L).count();
+        
+        if (!difficulty.accepts(n, m, ratio, solutions, density)) {
+            return null;
+        }
+        
+        problem.setTitle(TITLE);
+        problem.setDescription(DESCRIPTION);
+        
+        return problem;
+    }
+    
+    /**
+     * Return a sequence of the given length drawn from this generator's alphabet.
+     */
+    private char[] randomSequence(SplittableRandom random, int length) {
+        char[] seq = new char[length];
+        
+        for (int i = 0; i < length; i++) {
+            seq[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        
+        return seq;
+    }
+    
+    /**
+     * Copy a random subsequence of x of the given length into random
+     * positions of y, in order, so the LCS is at least that long.
+     */
+    private static void plant(SplittableRandom random, char[] x, char[] y, int length) {
+        int[] from = choose(random, x.length, length);
+        int[] to = choose(random, y.length, length);
+        
+        for (int t = 0; t < length; t++) {
+            y[to[t]] = x[from[t]];
+        }
+    }
+    
+    /**
+     * Return k distinct indexes from [0, n), in increasing order, each set of
+     * k indexes being equally likely (selection sampling).
+     */
+    private static int[] choose(SplittableRandom random, int n, int k) {
+        int[] chosen = new int[k];
+        int count = 0;
+        
+        for (int i = 0; i < n && count < k; i++) {
+            if (random.nextInt(n - i) < k - count) {
+                chosen[count++] = i;
+            }
+        }
+        
+        return chosen;
+    }
+    
+    /**
+     * Return the key used to detect duplicate sequence pairs.
+     */
+    private static String key(String x, String y) {
+        return x + '\n' + y;
+    }
+}
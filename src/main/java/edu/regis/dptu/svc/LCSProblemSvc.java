@@ -0,0 +1,37 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import edu.regis.dptu.err.NonRecoverableException;
+import edu.regis.dptu.model.LCSProblem;
+import java.util.List;
+
+/**
+ * Specifies the API for LCSProblem persistence.
+ * 
+ * @author rickb
+ */
+public interface LCSProblemSvc {
+    /**
+     * Insert the given problems into the database, in a single transaction,
+     * assigning each inserted problem a new id.
+     * 
+     * A problem whose sequences, in either order, are already in the database
+     * isn't inserted and keeps its default id.
+     * 
+     * @param problems the LCSProblems to insert
+     * @return the number of problems inserted
+     * @throws NonRecoverableException also see getCause().getErrorCode().
+     */
+    int createAll(List<LCSProblem> problems) throws NonRecoverableException;
+}
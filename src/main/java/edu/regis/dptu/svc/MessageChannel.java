@@ -0,0 +1,75 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The encoding and framing of the messages sent on a connection between the
+ * client and the tutor, either JSon text (JsonChannel) or binary
+ * (BinaryChannel).
+ * 
+ * Messages are read by calling next(), then readRequest() or readReply().
+ * Reading and writing may occur on different threads, but each must be
+ * confined to one thread at a time.
+ * 
+ * @author rickb
+ */
+public interface MessageChannel extends Closeable {
+    /**
+     * Move to the next message, discarding the remainder of the current one.
+     * 
+     * @return true, if there is another message, false at the end of the stream
+     * @throws IOException reading the stream failed
+     */
+    boolean next() throws IOException;
+    
+    /**
+     * Decode the current message as a request.
+     * 
+     * @return a ClientRequest, or null if the message is empty
+     * @throws com.google.gson.JsonParseException the message is malformed
+     * @throws edu.regis.dptu.err.FrameTooLargeException the message exceeds
+     *         the maximum size
+     * @throws IOException reading the stream failed
+     */
+    ClientRequest readRequest() throws IOException;
+    
+    /**
+     * Decode the current message as a reply.
+     * 
+     * @return a TutorReply, or null if the message is empty
+     * @throws com.google.gson.JsonParseException the message is malformed
+     * @throws edu.regis.dptu.err.FrameTooLargeException the message exceeds
+     *         the maximum size
+     * @throws IOException reading the stream failed
+     */
+    TutorReply readReply() throws IOException;
+    
+    /**
+     * Write the given request as a message, and flush it to the stream.
+     * 
+     * @param request a ClientRequest
+     * @throws IOException writing the stream failed
+     */
+    void write(ClientRequest request) throws IOException;
+    
+    /**
+     * Write the given reply as a message, and flush it to the stream.
+     * 
+     * @param reply a TutorReply
+     * @throws IOException writing the stream failed
+     */
+    void write(TutorReply reply) throws IOException;
+}
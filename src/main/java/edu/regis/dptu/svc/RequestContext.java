@@ -0,0 +1,96 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import edu.regis.dptu.model.Student;
+import edu.regis.dptu.model.TutoringSession;
+import edu.regis.dptu.model.aol.StudentModel;
+
+/**
+ * The state of a single tutor request, which is passed to its RequestHandler,
+ * so the tutor itself holds no per-request state and can be shared by every
+ * connection.
+ *
+ * A context is confined to the thread handling its request.
+ *
+ * @author rickb
+ */
+public class RequestContext {
+    /**
+     * The request being handled.
+     */
+    private final ClientRequest request;
+
+    /**
+     * The student's tutoring session, which contains information on the
+     * current Student, StudentModel, Course, Task, Step, etc. (null until
+     * the security token is verified or the session is created).
+     */
+    private TutoringSession session;
+
+    /**
+     * Convenience reference to the student currently being tutored.
+     */
+    private Student student;
+
+    /**
+     * Convenience reference to the student model of the student being tutored.
+     */
+    private StudentModel studentModel;
+
+    /**
+     * Initialize the context of the given request.
+     *
+     * @param request the ClientRequest being handled
+     */
+    public RequestContext(ClientRequest request) {
+        this.request = request;
+    }
+
+    public ClientRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Return the JSon encoded data of the request.
+     *
+     * @return a String, which may be null
+     */
+    public String getData() {
+        return request.getData();
+    }
+
+    public TutoringSession getSession() {
+        return session;
+    }
+
+    public void setSession(TutoringSession session) {
+        this.session = session;
+    }
+
+    public Student getStudent() {
+        return student;
+    }
+
+    public void setStudent(Student student) {
+        this.student = student;
+    }
+
+    public StudentModel getStudentModel() {
+        return studentModel;
+    }
+
+    public void setStudentModel(StudentModel studentModel) {
+        this.studentModel = studentModel;
+    }
+}
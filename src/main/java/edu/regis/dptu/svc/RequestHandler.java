@@ -0,0 +1,32 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import edu.regis.dptu.err.NonRecoverableException;
+
+/**
+ * Handles one type of ServerRequestType on behalf of the tutor.
+ * 
+ * @author rickb
+ */
+@FunctionalInterface
+public interface RequestHandler {
+    /**
+     * Handle the request in the given context.
+     * 
+     * @param context the request and any state established while handling it
+     * @return a TutorReply encapsulating a status and, possibly, data.
+     * @throws NonRecoverableException also see getCause()
+     */
+    TutorReply handle(RequestContext context) throws NonRecoverableException;
+}
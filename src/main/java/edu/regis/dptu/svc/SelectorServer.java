@@ -0,0 +1,761 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import edu.regis.dptu.err.FrameTooLargeException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The SELECTOR mode front end of the DpTuServer, in which a single I/O
+ * thread multiplexes every client connection, so an idle connection holds
+ * a socket and a few small objects rather than a thread.
+ *
+ * The I/O thread reads each connection into a shared direct buffer, splits
+ * it into the same newline framed, UTF-8 JSon requests that FrameReader
+ * reads, and parses them. Parsed requests are run, one connection request
+ * at a time so replies are written in request order, on the worker pool.
+ * A worker encodes its reply and hands it back to the I/O thread, which
+ * writes the pending replies of a connection through a shared direct buffer.
+ *
+ * A request longer than maxMessageSize characters is answered with an
+ * ":ERR" reply and discarded. A connection pipelining more than
+ * MAX_QUEUED_REQUESTS requests, or not reading its replies, isn't read until
+ * it catches up. Binary connections (see BinaryChannel) aren't supported, a
+ * client sending the BinaryCodec.PREFACE is sent an ":ERR" reply, so it
+ * falls back to JSon.
+ *
+ * @author rickb
+ */
+class SelectorServer implements Runnable, Closeable {
+    /**
+     * Size of the shared direct read and write buffers.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Number of requests queued on a connection after which it isn't read.
+     */
+    private static final int MAX_QUEUED_REQUESTS = 64;
+
+    /**
+     * Number of reply bytes awaiting a write after which a connection isn't
+     * read.
+     */
+    private static final int MAX_QUEUED_BYTES = 1024 * 1024;
+
+    /**
+     * Milliseconds between checks for idle connections.
+     */
+    private static final long IDLE_CHECK_INTERVAL = 60 * 1000;
+
+    /**
+     * Handler for logging messages.
+     */
+    private static final Logger LOGGER
+            = Logger.getLogger(SelectorServer.class.getName());
+
+    private static final Gson GSON = new Gson();
+
+    private final Selector selector;
+
+    private final ServerSocketChannel server;
+
+    /**
+     * Runs the requests read from the connections.
+     */
+    private final ExecutorService workers;
+
+    /**
+     * Bounds the number of open connections.
+     */
+    private final Semaphore inFlight;
+
+    /**
+     * The maximum number of characters in a request.
+     */
+    private final int maxMessageSize;
+
+    /**
+     * Milliseconds a connection may be idle before it is closed.
+     */
+    private final long idleTimeout;
+
+    /**
+     * Supplies the tutor that handles the requests on an accepted connection.
+     */
+    private final Supplier<TutorSvc> tutorFactory;
+
+    /**
+     * The bytes read from a connection, shared by every connection.
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * The bytes written to a connection, shared by every connection.
+     */
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * The contents of the readBuffer, which are split into frames.
+     */
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+
+    /**
+     * The replies encoded by the workers, awaiting the I/O thread.
+     */
+    private final ConcurrentLinkedQueue<Reply> replies = new ConcurrentLinkedQueue<>();
+
+    private long lastIdleCheck;
+
+    /**
+     * Initialize this front end listening on the given port.
+     *
+     * @param port the port to listen on, 0 selects an ephemeral port
+     * @param workers runs the requests
+     * @param inFlight a permit is held by each open connection
+     * @param maxMessageSize maximum number of characters in a request
+     * @param idleTimeout milliseconds a connection may be idle
+     * @param tutorFactory supplies the tutor handling an accepted connection
+     * @throws IOException unable to listen on the port
+     */
+    SelectorServer(int port, ExecutorService workers, Semaphore inFlight, int maxMessageSize,
+                   long idleTimeout, Supplier<TutorSvc> tutorFactory) throws IOException {
+        this.workers = workers;
+        this.inFlight = inFlight;
+        this.maxMessageSize = maxMessageSize;
+        this.idleTimeout = idleTimeout;
+        this.tutorFactory = tutorFactory;
+
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+
+        try {
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Return the server socket on which connections are accepted.
+     *
+     * @return a ServerSocket, closing it stops this front end
+     */
+    ServerSocket socket() {
+        return server.socket();
+    }
+
+    /**
+     * Accept, read, and write connections until this front end is closed,
+     * then close every connection.
+     */
+    @Override
+    public void run() {
+        lastIdleCheck = System.currentTimeMillis();
+
+        try {
+            while (server.isOpen()) {
+                selector.select(IDLE_CHECK_INTERVAL);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        try {
+                            accept();
+                        } catch (IOException e) {
+                            LOGGER.log(Level.WARNING, "Unable to accept client", e);
+                        }
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+
+                        try {
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+
+                            connection.write();
+                            connection.update();
+
+                        } catch (IOException e) {
+                            LOGGER.log(Level.WARNING, "SelectorServer connection", e);
+                            connection.close();
+                        }
+                    }
+                }
+
+                completeReplies();
+                closeIdle();
+            }
+
+        } catch (IOException e) {
+            if (server.isOpen()) {
+                LOGGER.log(Level.SEVERE, "SelectorServer.run()", e);
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Unable to close selector", e);
+            }
+        }
+    }
+
+    /**
+     * Stop accepting connections, and close the open connections.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        selector.wakeup();
+    }
+
+    /**
+     * Accept a pending connection, unless maxConnections are open.
+     */
+    private void accept() throws IOException {
+        SocketChannel client = server.accept();
+
+        if (client == null) {
+            return;
+        }
+
+        if (!inFlight.tryAcquire()) {
+            reject(client, "DpTu server is busy, please try again");
+            return;
+        }
+
+        try {
+            client.configureBlocking(false);
+
+            SelectionKey key = client.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(client, key));
+
+        } catch (IOException e) {
+            inFlight.release();
+            client.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reply to the given client with an ":ERR" TutorReply and close it.
+     *
+     * @param client a connection that won't be handled
+     * @param msg the displayable reason the connection was rejected
+     */
+    private void reject(SocketChannel client, String msg) {
+        try (SocketChannel c = client) {
+            c.write(ByteBuffer.wrap(encode(new TutorReply(":ERR", msg))));
+
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Unable to reject client", e);
+        }
+    }
+
+    /**
+     * Queue the replies encoded by the workers on their connections, and run
+     * each connection's next request.
+     */
+    private void completeReplies() {
+        Reply reply;
+
+        while ((reply = replies.poll()) != null) {
+            Connection connection = reply.connection;
+
+            if (reply.bytes == null) {
+                connection.close();
+                continue;
+            }
+
+            connection.completed(reply.bytes);
+
+            try {
+                connection.write();
+                connection.update();
+
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "SelectorServer connection", e);
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Close the connections that have been idle for idleTimeout.
+     */
+    private void closeIdle() {
+        long now = System.currentTimeMillis();
+
+        if (now - lastIdleCheck < IDLE_CHECK_INTERVAL) {
+            return;
+        }
+
+        lastIdleCheck = now;
+
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                Connection connection = (Connection) key.attachment();
+
+                if (connection.isIdle(now)) {
+                    LOGGER.log(Level.INFO, "Closing idle client connection");
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the given reply as a newline framed, UTF-8 JSon message.
+     */
+    private static byte[] encode(TutorReply reply) {
+        return (GSON.toJson(reply, TutorReply.class) + '\n').getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A reply encoded by a worker, or null bytes if its request failed.
+     */
+    private static class Reply {
+        private final Connection connection;
+
+        private final byte[] bytes;
+
+        Reply(Connection connection, byte[] bytes) {
+            this.connection = connection;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * A client connection, which, except where noted, is only used by the
+     * I/O thread.
+     */
+    private class Connection {
+        private final SocketChannel channel;
+
+        private final SelectionKey key;
+
+        /**
+         * The DpTu tutor associated with this connection.
+         */
+        private final TutorSvc tutor;
+
+        /**
+         * The bytes of the current frame read so far, if it spans reads
+         * (null otherwise, so an idle connection holds no buffer).
+         */
+        private byte[] frame;
+
+        private int frameLength;
+
+        /**
+         * Number of characters in the current frame.
+         */
+        private int frameChars;
+
+        /**
+         * Whether the current frame is too large, and is being discarded.
+         */
+        private boolean isDiscarding;
+
+        /**
+         * Whether no bytes have been read.
+         */
+        private boolean isFirstRead = true;
+
+        /**
+         * The requests read, but not yet run, each of which returns its reply.
+         */
+        private final ArrayDeque<Supplier<TutorReply>> requests = new ArrayDeque<>();
+
+        /**
+         * Whether a worker is running a request.
+         */
+        private boolean isBusy;
+
+        /**
+         * The encoded replies not yet written.
+         */
+        private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+
+        private int outBytes;
+
+        /**
+         * Whether the client has closed its output.
+         */
+        private boolean isInputClosed;
+
+        private boolean isClosed;
+
+        private long lastActive;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+
+            tutor = tutorFactory.get();
+            lastActive = System.currentTimeMillis();
+        }
+
+        /**
+         * Read the available bytes, queueing each complete request.
+         */
+        void read() throws IOException {
+            readBuffer.clear();
+
+            int n = channel.read(readBuffer);
+
+            if (n < 0) {
+                isInputClosed = true;
+
+                if (frameLength > 0) { // Unterminated last frame
+                    request(frame, 0, frameLength);
+                    frame = null;
+                    frameLength = 0;
+                }
+
+                return;
+            }
+
+            lastActive = System.currentTimeMillis();
+
+            readBuffer.flip();
+            readBuffer.get(bytes, 0, n);
+
+            if (isFirstRead && n > 0) {
+                isFirstRead = false;
+
+                if (bytes[0] == BinaryCodec.PREFACE[0]) {
+                    declineBinary();
+                    return;
+                }
+            }
+
+            int start = 0;
+
+            for (int i = 0; i < n; i++) {
+                byte b = bytes[i];
+
+                if (b == '\n') {
+                    endFrame(start, i);
+                    start = i + 1;
+
+                } else if (!isDiscarding) {
+                    // Characters as decoded by a Reader: a UTF-8 sequence is
+                    // one char, a four byte sequence is a surrogate pair
+                    if ((b & 0xC0) != 0x80) {
+                        frameChars++;
+                    }
+
+                    if ((b & 0xF8) == 0xF0) {
+                        frameChars++;
+                    }
+
+                    if (frameChars > maxMessageSize) {
+                        tooLarge();
+                    }
+                }
+            }
+
+            if (start < n && !isDiscarding) {
+                append(start, n - start);
+            }
+        }
+
+        /**
+         * End the current frame, whose last bytes are bytes[start, end).
+         */
+        private void endFrame(int start, int end) {
+            if (isDiscarding) {
+                isDiscarding = false;
+
+            } else if (frameLength == 0) {
+                request(bytes, start, end - start);
+
+            } else {
+                append(start, end - start);
+                request(frame, 0, frameLength);
+            }
+
+            frame = null;
+            frameLength = 0;
+            frameChars = 0;
+        }
+
+        private void append(int start, int length) {
+            if (frame == null) {
+                frame = new byte[Math.max(length, 256)];
+            } else if (frameLength + length > frame.length) {
+                frame = Arrays.copyOf(frame, Math.max(frameLength + length, 2 * frame.length));
+            }
+
+            System.arraycopy(bytes, start, frame, frameLength, length);
+            frameLength += length;
+        }
+
+        /**
+         * Abandon the current frame, which exceeds maxMessageSize, replying
+         * with an ":ERR" reply.
+         */
+        private void tooLarge() {
+            String error = new FrameTooLargeException(maxMessageSize).getMessage();
+
+            LOGGER.log(Level.WARNING, "Discarding client request: {0}", error);
+
+            queue(() -> new TutorReply(":ERR", error));
+
+            isDiscarding = true;
+            frame = null;
+            frameLength = 0;
+        }
+
+        /**
+         * Parse the request in the given bytes, and queue it.
+         */
+        private void request(byte[] message, int offset, int length) {
+            String error = "Malformed client request";
+            ClientRequest parsed = null;
+
+            try {
+                parsed = FrameReader.fromJson(GSON,
+                        new StringReader(new String(message, offset, length, StandardCharsets.UTF_8)),
+                        ClientRequest.class);
+
+            } catch (JsonParseException | IOException e) {
+                LOGGER.log(Level.WARNING, "Malformed client request", e);
+            }
+
+            ClientRequest request = parsed;
+
+            queue(() -> {
+                if (request == null || request.getRequestType() == null) {
+                    return new TutorReply(":ERR", error);
+                }
+
+                TutorReply reply = tutor.request(request);
+                reply.setCorrelationId(request.getCorrelationId());
+
+                return reply;
+            });
+        }
+
+        /**
+         * Reply to a client requesting a binary connection, which isn't
+         * supported, with an ":ERR" reply, and close the connection.
+         */
+        private void declineBinary() {
+            LOGGER.log(Level.INFO, "Declining binary client connection");
+
+            isInputClosed = true;
+
+            byte[] reply = encode(new TutorReply(":ERR", "Binary connections aren't supported"));
+
+            out.add(ByteBuffer.wrap(reply));
+            outBytes += reply.length;
+        }
+
+        private void queue(Supplier<TutorReply> request) {
+            requests.add(request);
+
+            dispatch();
+        }
+
+        /**
+         * Run the next request on a worker, unless one is running.
+         */
+        private void dispatch() {
+            if (isBusy || requests.isEmpty() || isClosed) {
+                return;
+            }
+
+            Supplier<TutorReply> request = requests.poll();
+
+            isBusy = true;
+
+            try {
+                workers.execute(() -> { // On a worker thread
+                    byte[] reply = null;
+
+                    try {
+                        reply = encode(request.get());
+
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.SEVERE, "SelectorServer request", e);
+                    }
+
+                    replies.add(new Reply(this, reply));
+                    selector.wakeup();
+                });
+
+            } catch (RejectedExecutionException e) {
+                LOGGER.log(Level.INFO, "DpTu server is shutting down");
+                close();
+            }
+        }
+
+        /**
+         * Queue the encoded reply to the running request, and run the next.
+         */
+        void completed(byte[] reply) {
+            if (isClosed) {
+                return;
+            }
+
+            out.add(ByteBuffer.wrap(reply));
+            outBytes += reply.length;
+
+            isBusy = false;
+            lastActive = System.currentTimeMillis();
+
+            dispatch();
+        }
+
+        /**
+         * Write the queued replies, until the socket's buffer is full.
+         */
+        void write() throws IOException {
+            while (!out.isEmpty() && !isClosed) {
+                writeBuffer.clear();
+
+                for (ByteBuffer reply : out) {
+                    if (!writeBuffer.hasRemaining()) {
+                        break;
+                    }
+
+                    ByteBuffer part = reply.duplicate();
+
+                    if (part.remaining() > writeBuffer.remaining()) {
+                        part.limit(part.position() + writeBuffer.remaining());
+                    }
+
+                    writeBuffer.put(part);
+                }
+
+                writeBuffer.flip();
+
+                int n = channel.write(writeBuffer);
+
+                outBytes -= n;
+
+                while (n > 0) {
+                    ByteBuffer reply = out.peek();
+                    int count = Math.min(n, reply.remaining());
+
+                    reply.position(reply.position() + count);
+                    n -= count;
+
+                    if (!reply.hasRemaining()) {
+                        out.poll();
+                    }
+                }
+
+                if (writeBuffer.hasRemaining()) {
+                    break; // Until the socket is writable
+                }
+            }
+        }
+
+        /**
+         * Select the operations this connection awaits, closing it if the
+         * client has closed its output and every reply has been written.
+         */
+        void update() {
+            if (isClosed) {
+                return;
+            }
+
+            if (isInputClosed && requests.isEmpty() && !isBusy && out.isEmpty()) {
+                close();
+                return;
+            }
+
+            int ops = 0;
+
+            if (!isInputClosed && requests.size() < MAX_QUEUED_REQUESTS && outBytes < MAX_QUEUED_BYTES) {
+                ops |= SelectionKey.OP_READ;
+            }
+
+            if (!out.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+
+            key.interestOps(ops);
+        }
+
+        /**
+         * Return whether this connection has no work, and has been idle for
+         * idleTimeout.
+         */
+        boolean isIdle(long now) {
+            return !isBusy && requests.isEmpty() && out.isEmpty() && now - lastActive > idleTimeout;
+        }
+
+        void close() {
+            if (isClosed) {
+                return;
+            }
+
+            isClosed = true;
+            inFlight.release();
+
+            key.cancel();
+
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Unable to close client socket", e);
+            }
+        }
+    }
+}
@@ -15,18 +15,21 @@ package edu.regis.dptu.svc;
 /**
  * The legal requests that can be made to the server.
  * 
+ * Each request declares whether the client must send the security token of
+ * the student's session, which the tutor verifies before handling it.
+ * 
  * @author rickb
  */
 public enum ServerRequestType {
     /**
      * The student has completed the current step.
      */
-    COMPLETED_STEP(":CompletedStep"),
+    COMPLETED_STEP(":CompletedStep", true),
     
     /**
      * Completed an entire task containing one ore more steps.
      */
-    COMPLETED_TASK(":CompletedTask"),
+    COMPLETED_TASK(":CompletedTask", true),
     
     /**
      * A new user is requesting to create a new account
@@ -37,13 +40,13 @@ public enum ServerRequestType {
      *   "Created" with no data
      *   "ERR" 
      */
-    CREATE_ACCOUNT(":CreateAccount"),
+    CREATE_ACCOUNT(":CreateAccount", false),
     
     /**
      * The student or client requested another example
      * 
      */
-    NEW_EXAMPLE(":NewExample"),
+    NEW_EXAMPLE(":NewExample", true),
     
     /**
      * An existing student is attempting to sign in. 
@@ -58,7 +61,7 @@ public enum ServerRequestType {
      *  "AttemptsExceeded"
      *  "ERR"
      */
-    SIGN_IN(":SignIn"),
+    SIGN_IN(":SignIn", false),
     
     /**
      * The student is requesting a hint for the current step.
@@ -71,20 +74,27 @@ public enum ServerRequestType {
      * "NoneLeft"
      * "ERR" data is error message
      */
-    REQUEST_HINT(":RequestHint");
+    REQUEST_HINT(":RequestHint", true);
 
     /**
      * The name used by the server to identify this request.
      */
     private final String requestName;
     
+    /**
+     * Whether the request must carry a verified session security token.
+     */
+    private final boolean isTokenRequired;
+    
     /**
      * Initialize this enum object with the given title.
      * 
      * @param requestName 
+     * @param isTokenRequired whether a session security token is required
      */
-    ServerRequestType(String requestName) {
+    ServerRequestType(String requestName, boolean isTokenRequired) {
         this.requestName = requestName;
+        this.isTokenRequired = isTokenRequired;
     }
     
     /**
@@ -96,6 +106,16 @@ public enum ServerRequestType {
         return requestName;
     }
     
+    /**
+     * Return whether the tutor must verify the session security token sent
+     * with this request before handling it.
+     * 
+     * @return true, unless the request establishes the session (e.g. SignIn)
+     */
+    public boolean isTokenRequired() {
+        return isTokenRequired;
+    }
+    
     /**
      * Return the request name that is used by the server
      * 
@@ -14,6 +14,7 @@ package edu.regis.dptu.svc;
 
 import edu.regis.dptu.dao.AccountDAO;
 import edu.regis.dptu.dao.CourseDAO;
+import edu.regis.dptu.dao.LCSProblemDAO;
 import edu.regis.dptu.dao.SessionDAO;
 import edu.regis.dptu.dao.StudentModelDAO;
 
@@ -27,6 +28,26 @@ import edu.regis.dptu.dao.StudentModelDAO;
  * @author rickb
  */
 public class ServiceFactory {
+    /**
+     * The process-wide course cache, created on first use.
+     */
+    private static CourseCache courseCache;
+    
+    /**
+     * The process-wide session token cache, created on first use.
+     */
+    private static SessionTokenCache sessionTokenCache;
+    
+    /**
+     * The process-wide LCS answer key cache, created on first use.
+     */
+    private static AnswerKeyCache answerKeyCache;
+    
+    /**
+     * The process-wide cache of student-filled tables, created on first use.
+     */
+    private static TableValidatorCache tableValidatorCache;
+    
     /**
      * Return a reference to the user service.
      * 
@@ -37,21 +58,84 @@ public class ServiceFactory {
     }
     
     /**
-     * Return a reference to the course service.
+     * Return a reference to the course service, which is the shared course
+     * cache, so the Courses it retrieves must not be modified.
      * 
      * @return CourseSvc
      */
     public static CourseSvc findCourseSvc() {
-        return new CourseDAO();
+        return findCourseCache();
     }
     
     /**
-     * Return a reference to the session service.
+     * Return the process-wide cache of the courses in the database.
+     * 
+     * @return CourseCache
+     */
+    public static synchronized CourseCache findCourseCache() {
+        if (courseCache == null) {
+            courseCache = new CourseCache(new CourseDAO(), CourseCache.checkIntervalProp());
+        }
+        
+        return courseCache;
+    }
+    
+    /**
+     * Return a reference to the LCS problem service.
+     * 
+     * @return LCSProblemSvc
+     */
+    public static LCSProblemSvc findLCSProblemSvc() {
+        return new LCSProblemDAO();
+    }
+    
+    /**
+     * Return a reference to the session service, which is the shared session
+     * token cache.
      * 
      * @return SessionSvc
      */
     public static SessionSvc findSessionSvc() {
-        return new SessionDAO();
+        return findSessionTokenCache();
+    }
+    
+    /**
+     * Return the process-wide cache of session security tokens.
+     * 
+     * @return SessionTokenCache
+     */
+    public static synchronized SessionTokenCache findSessionTokenCache() {
+        if (sessionTokenCache == null) {
+            sessionTokenCache = new SessionTokenCache(new SessionDAO());
+        }
+        
+        return sessionTokenCache;
+    }
+    
+    /**
+     * Return the process-wide cache of LCS problem answer keys.
+     * 
+     * @return AnswerKeyCache
+     */
+    public static synchronized AnswerKeyCache findAnswerKeyCache() {
+        if (answerKeyCache == null) {
+            answerKeyCache = new AnswerKeyCache();
+        }
+        
+        return answerKeyCache;
+    }
+    
+    /**
+     * Return the process-wide cache of the tables students are filling in.
+     * 
+     * @return TableValidatorCache
+     */
+    public static synchronized TableValidatorCache findTableValidatorCache() {
+        if (tableValidatorCache == null) {
+            tableValidatorCache = new TableValidatorCache();
+        }
+        
+        return tableValidatorCache;
     }
     
     /**
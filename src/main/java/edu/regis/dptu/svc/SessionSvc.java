@@ -45,6 +45,19 @@ public interface SessionSvc {
      */
     TutoringSession retrieve(Student student) throws ObjNotFoundException, NonRecoverableException;
     
+    /**
+     * Return the session of the user with the given id along with its student
+     * (account and student model), which are loaded together rather than via
+     * the separate AccountSvc and StudentModelSvc retrievals.
+     * 
+     * @param userId the student's user id (email: user@university.edu)
+     * @return the TutoringSession, whose student is populated
+     * @throws ObjNotFoundException no session, account, or student model
+     *                              exists for the given user id
+     * @throws NonRecoverableException perhaps see getCause().getErrorCode().
+     */
+    TutoringSession retrieve(String userId) throws ObjNotFoundException, NonRecoverableException;
+    
     /**
      * Update the session in formation in the database using the given session.
      * 
@@ -0,0 +1,323 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import edu.regis.dptu.dao.UnitOfWork;
+import edu.regis.dptu.err.IllegalArgException;
+import edu.regis.dptu.err.MissingPropertyException;
+import edu.regis.dptu.err.NonRecoverableException;
+import edu.regis.dptu.err.ObjNotFoundException;
+import edu.regis.dptu.model.Student;
+import edu.regis.dptu.model.TutoringSession;
+import edu.regis.dptu.util.ResourceMgr;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A process-wide SessionSvc decorator caching the security token of each
+ * user's session, so verifying the token sent with a tutor request rarely
+ * requires a database round-trip.
+ *
+ * A cached token expires ttl ms after it was read from the database. At most
+ * maxSize tokens are cached, when full, the least recently used token is
+ * evicted. A user's token is invalidated whenever their session is created,
+ * updated, or deleted through this service. A token read from the database
+ * while an invalidation occurs isn't cached, so it can't outlive the change.
+ * If the change is made in a UnitOfWork, the token is invalidated again once
+ * the work ends, since a token read before the work is committed may be the
+ * old one.
+ *
+ * All other retrievals are passed through to the decorated service.
+ *
+ * @author rickb
+ */
+public class SessionTokenCache implements SessionSvc {
+    /**
+     * Milliseconds a cached token may be used (see DpTu.properties).
+     */
+    public static final String TTL_PROP = "edu.regis.dptu.SESSION_TOKEN_TTL";
+
+    /**
+     * The maximum number of cached tokens (see DpTu.properties).
+     */
+    public static final String MAX_SIZE_PROP = "edu.regis.dptu.SESSION_TOKEN_CACHE_SIZE";
+
+    /**
+     * Token TTL used if the TTL_PROP is missing.
+     */
+    private static final long DEFAULT_TTL = 300000;
+
+    /**
+     * Maximum cached tokens used if the MAX_SIZE_PROP is missing.
+     */
+    private static final int DEFAULT_MAX_SIZE = 1024;
+
+    /**
+     * The service from which tokens are retrieved.
+     */
+    private final SessionSvc sessionSvc;
+
+    /**
+     * Nanoseconds a cached token may be used.
+     */
+    private final long ttl;
+
+    /**
+     * The cached tokens indexed by user id, in least recently used order.
+     */
+    private final LinkedHashMap<String, Entry> tokens;
+
+    /**
+     * Incremented by every invalidation (guarded by this).
+     */
+    private long generation;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    /**
+     * Initialize this cache of the tokens retrieved from the given service.
+     *
+     * @param sessionSvc the service from which tokens are retrieved
+     * @param ttl milliseconds a cached token may be used
+     * @param maxSize the maximum number of cached tokens
+     */
+    public SessionTokenCache(SessionSvc sessionSvc, long ttl, int maxSize) {
+        this.sessionSvc = sessionSvc;
+        this.ttl = ttl * 1000000;
+
+        tokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictionCount++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Initialize this cache with the TTL and size in the DpTu.properties file.
+     *
+     * @param sessionSvc the service from which tokens are retrieved
+     */
+    public SessionTokenCache(SessionSvc sessionSvc) {
+        this(sessionSvc, longProp(TTL_PROP, DEFAULT_TTL), (int) longProp(MAX_SIZE_PROP, DEFAULT_MAX_SIZE));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void create(TutoringSession session) throws IllegalArgException, NonRecoverableException {
+        try {
+            sessionSvc.create(session);
+        } finally {
+            invalidateOnCompletion(() -> invalidate(session));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TutoringSession retrieve(Student student) throws ObjNotFoundException, NonRecoverableException {
+        return sessionSvc.retrieve(student);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TutoringSession retrieve(String userId) throws ObjNotFoundException, NonRecoverableException {
+        return sessionSvc.retrieve(userId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void update(TutoringSession session) throws ObjNotFoundException, NonRecoverableException {
+        try {
+            sessionSvc.update(session);
+        } finally {
+            invalidateOnCompletion(() -> invalidate(session));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(String userId) throws NonRecoverableException {
+        try {
+            sessionSvc.delete(userId);
+        } finally {
+            invalidateOnCompletion(() -> invalidate(userId));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The token is returned from this cache, if present and unexpired.
+     */
+    @Override
+    public String retrieveSecurityToken(String userId) throws ObjNotFoundException, NonRecoverableException {
+        long gen;
+
+        synchronized (this) {
+            Entry entry = tokens.get(userId);
+
+            if (entry != null) {
+                if (System.nanoTime() - entry.readAt < ttl) {
+                    hitCount++;
+                    return entry.token;
+                }
+
+                tokens.remove(userId);
+            }
+
+            missCount++;
+            gen = generation;
+        }
+
+        long readAt = System.nanoTime();
+
+        String token = sessionSvc.retrieveSecurityToken(userId);
+
+        synchronized (this) {
+            if (gen == generation) {
+                tokens.put(userId, new Entry(token, readAt));
+            }
+        }
+
+        return token;
+    }
+
+    /**
+     * Remove the given user's token from this cache.
+     *
+     * @param userId the user id of the student whose session changed
+     */
+    public synchronized void invalidate(String userId) {
+        generation++;
+
+        tokens.remove(userId);
+    }
+
+    /**
+     * Remove all tokens from this cache.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+
+        tokens.clear();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized int size() {
+        return tokens.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SessionTokenCache[size=" + tokens.size() + ", hits=" + hitCount
+                + ", misses=" + missCount + ", evictions=" + evictionCount + "]";
+    }
+
+    /**
+     * Run the given invalidation now, so later requests don't use the cached
+     * token, and if a UnitOfWork is active, again when it ends, so a token
+     * read before the change was committed isn't cached for the full TTL.
+     *
+     * @param invalidation invalidates the tokens of a changed session
+     */
+    private void invalidateOnCompletion(Runnable invalidation) {
+        invalidation.run();
+
+        UnitOfWork work = UnitOfWork.current();
+
+        if (work != null) {
+            work.afterCompletion(invalidation);
+        }
+    }
+
+    /**
+     * Invalidate the token of the given session's user, or if the session
+     * doesn't identify its user, all tokens.
+     *
+     * @param session a created, updated, or deleted session
+     */
+    private void invalidate(TutoringSession session) {
+        Student student = session.getStudent();
+
+        if (student != null && student.getAccount() != null) {
+            invalidate(student.getAccount().getUserId());
+        } else {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Return the positive value of the given DpTu.properties property.
+     *
+     * @param name the property name
+     * @param defaultValue returned if the property is missing or illegal
+     * @return a long
+     */
+    private static long longProp(String name, long defaultValue) {
+        try {
+            long value = Long.parseLong(ResourceMgr.instance().getProp(name).trim());
+
+            return value > 0 ? value : defaultValue;
+
+        } catch (MissingPropertyException | NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * A cached token and when it was read from the database.
+     */
+    private static class Entry {
+        private final String token;
+
+        /**
+         * System.nanoTime() before the token was read.
+         */
+        private final long readAt;
+
+        Entry(String token, long readAt) {
+            this.token = token;
+            this.readAt = readAt;
+        }
+    }
+}
@@ -12,15 +12,25 @@
  */
 package edu.regis.dptu.svc;
 
-import com.google.gson.Gson;
-import java.io.BufferedReader;
+import com.google.gson.JsonParseException;
+import edu.regis.dptu.err.MissingPropertyException;
+import edu.regis.dptu.util.ResourceMgr;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
 
 /**
  * A Facade that standardizes requests from the GUI Client to the DpTu tutor 
@@ -48,9 +58,48 @@ import java.util.logging.Logger;
  *  "data":  {"userId": "user email addr"}
  * }
  *
+ * All requests share one persistent socket connection to the tutor, which
+ * is opened on first use and reopened if it fails. Each request is tagged
+ * with a correlation id, so several threads may pipeline requests on the
+ * connection while a reader thread matches the replies to their requests.
+ * The tutor replies in request order, so a reply without a correlation id,
+ * such as the ":ERR" reply to a request too long for the tutor, answers the
+ * oldest request not yet replied to. Requests are encoded into, and
+ * replies parsed from, the buffered socket streams (see FrameWriter and
+ * FrameReader). A reply longer than the maximum message size fails the
+ * connection.
+ *
+ * If the BINARY wire protocol is configured, the connection instead uses
+ * binary encoded messages (see BinaryChannel), provided the tutor accepts
+ * them, otherwise it falls back to JSon.
+ *
+ * GUI actions should use tutorRequestAsync(), which connects and writes on
+ * a client I/O thread and delivers the reply on the Swing event dispatch
+ * thread, so the GUI remains responsive while the tutor is slow.
+ *
  * @author rickb
  */
 public class SvcFacade {
+    /**
+     * How requests and replies are encoded on the connection to the tutor.
+     */
+    public enum WireProtocol {JSON, BINARY}
+    
+    /**
+     * The wire protocol requested, JSON or BINARY (see DpTu.properties).
+     */
+    public static final String WIRE_PROTOCOL_PROP = "edu.regis.dptu.WIRE_PROTOCOL";
+    
+    /**
+     * Milliseconds an asynchronous request waits for its reply.
+     */
+    public static final String REQUEST_TIMEOUT_PROP = "edu.regis.dptu.REQUEST_TIMEOUT";
+    
+    /**
+     * Request timeout used if REQUEST_TIMEOUT_PROP is missing or invalid.
+     */
+    public static final long DEFAULT_REQUEST_TIMEOUT = 30000;
+    
     /**
      * The single instance of the tutor facade.
      */
@@ -92,86 +141,423 @@ public class SvcFacade {
      */
     private static final int PORT = 53637;
     
+    /**
+     * Milliseconds to wait for the tutor to accept a binary connection.
+     */
+    private static final int NEGOTIATION_TIMEOUT = 5000;
+    
+    /**
+     * The source of correlation ids for requests sent by this facade.
+     */
+    private final AtomicLong nextCorrelationId;
+    
+    /**
+     * The current persistent connection to the tutor, null if it hasn't been
+     * opened or has failed.
+     */
+    private TutorConnection connection;
+    
+    /**
+     * The maximum number of characters (or bytes) in a reply (see
+     * DpTu.properties).
+     */
+    private final int maxMessageSize;
+    
+    /**
+     * The wire protocol requested when connecting to the tutor.
+     */
+    private final WireProtocol protocol;
+    
+    /**
+     * Milliseconds a request waits for its reply (see DpTu.properties).
+     */
+    private final long requestTimeout;
+    
+    /**
+     * Connects to the tutor and writes asynchronous requests, so the GUI
+     * doesn't block while connecting or on a full socket.
+     */
+    private final ExecutorService clientIO;
     
-    private SvcFacade() {  
+    private SvcFacade() {
+        nextCorrelationId = new AtomicLong();
+        maxMessageSize = FrameReader.maxFrameSizeProp();
+        protocol = protocolProp();
+        requestTimeout = requestTimeoutProp();
+        
+        clientIO = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "DpTu-ClientIO");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
      * Encodes the given client request as a JSon object and sends it to the
-     * tutor returning the tutor's reply.
+     * tutor returning the tutor's reply, or an ":ERR" reply if the tutor
+     * doesn't reply within the configured request timeout.
      * 
      * @param request the ClientRequest being sent to the tutor.
      * @return the TutorReply from the tutor.
      */
     public TutorReply tutorRequest(ClientRequest request) {
-        Gson gson = new Gson();
-        // ToDo: remove debugging stmt.
-        String jsonRequest = gson.toJson(request);
-        System.out.println("*** jasonRequest *" + jsonRequest + "*");
-  
-        String jsonReply = send(jsonRequest);
+        CompletableFuture<TutorReply> reply = send(request);
         
-        System.out.println("*** jsonReply: " + jsonReply);
+        try {
+            return reply.get(requestTimeout, TimeUnit.MILLISECONDS);
+            
+        } catch (TimeoutException e) {
+            reply.cancel(false); // Its reply, if any, is discarded
+            LOGGER.log(Level.WARNING, "Tutor didn''t reply within {0} ms", requestTimeout);
+            
+            return timeoutReply(requestTimeout);
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.log(Level.SEVERE, "Interrupted awaiting tutor reply", e);
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.SEVERE, "Tutor request failed", e.getCause());
+        }
         
-        return gson.fromJson(jsonReply, TutorReply.class);
+        return errorReply();
     }
     
     /**
-     * Send the given request to the DpTu server and return the reply.
+     * Send the given request to the tutor without blocking the calling thread,
+     * waiting at most the configured request timeout for its reply.
      * 
-     * Communication with the SERVER occurs via the socket connection on port PORT.
+     * @param request the ClientRequest being sent to the tutor.
+     * @return a future completed on the Swing event dispatch thread (see
+     *         tutorRequestAsync(ClientRequest, long))
+     */
+    public CompletableFuture<TutorReply> tutorRequestAsync(ClientRequest request) {
+        return tutorRequestAsync(request, requestTimeout);
+    }
+    
+    /**
+     * Send the given request to the tutor without blocking the calling thread.
+     * 
+     * The returned future is completed on the Swing event dispatch thread with
+     * the tutor's reply, or an ":ERR" reply if the connection fails or no reply
+     * arrives within the given timeout. Cancelling the future abandons the
+     * request, whose reply, if any, is then discarded.
      * 
-     * @param request a JSon encoded ClientRequest object
-     * @return a JSon encoded TutorReply from the tutor
+     * @param request the ClientRequest being sent to the tutor.
+     * @param timeout milliseconds to wait for the reply
+     * @return a future TutorReply
      */
-    private String send(String request) {
-        Socket client = null;
-        BufferedReader in = null;
-        PrintWriter out = null;
+    public CompletableFuture<TutorReply> tutorRequestAsync(ClientRequest request, long timeout) {
+        CompletableFuture<TutorReply> reply = new CompletableFuture<>();
+        reply.completeOnTimeout(timeoutReply(timeout), timeout, TimeUnit.MILLISECONDS);
         
-        try {
-            client = new Socket(SERVER, PORT);
-            
-            in = new BufferedReader(new InputStreamReader(client.getInputStream()));
-            
-            out = new PrintWriter(client.getOutputStream());
-            out.println(request);
+        CompletableFuture<TutorReply> result = new CompletableFuture<>();
+        
+        reply.thenAccept(r -> SwingUtilities.invokeLater(() -> result.complete(r)));
+        result.whenComplete((r, e) -> reply.cancel(false));
+        
+        clientIO.execute(() -> {
+            if (reply.isDone()) {
+                return; // Cancelled, or timed out, before it was sent
+            }
             
-            out.flush();
+            CompletableFuture<TutorReply> sent = send(request);
             
-            return in.readLine();
+            sent.thenAccept(reply::complete);
+            reply.whenComplete((r, e) -> sent.cancel(false)); // Forgets it, if not replied
+        });
+        
+        return result;
+    }
+    
+    /**
+     * Send the given request to the DpTu server on the persistent connection,
+     * opening the connection if necessary, and return the pending reply.
+     * 
+     * Communication with the SERVER occurs via the socket connection on port PORT.
+     * 
+     * @param request the ClientRequest being sent to the tutor.
+     * @return a future completed with the TutorReply from the tutor, or an
+     *         ":ERR" reply if the connection fails.
+     */
+    private CompletableFuture<TutorReply> send(ClientRequest request) {
+        request.setCorrelationId(nextCorrelationId.incrementAndGet());
+        
+        try {
+            return connection().send(request);
             
         } catch (UnknownHostException e) {
             LOGGER.log(Level.SEVERE, "Unknown Host", e);
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "IOException client", e);
-        } finally {
-            // Kludgy, but tries to close an open socket and its associated
-            // input and output streams in every possible error scenario
-            // If we didn't, it's possible that we're leaking memory.
+        }
+        
+        return CompletableFuture.completedFuture(errorReply());
+    }
+    
+    /**
+     * Return the current connection to the tutor, opening a new one if there
+     * isn't a current connection.
+     * 
+     * @return the current TutorConnection
+     * @throws IOException unable to connect to the tutor
+     */
+    private synchronized TutorConnection connection() throws IOException {
+        if (connection == null) {
+            connection = open();
+        }
+        
+        return connection;
+    }
+    
+    /**
+     * Open a connection to the tutor using the configured wire protocol,
+     * falling back to JSon if the tutor doesn't accept a binary connection.
+     * 
+     * @return a new TutorConnection
+     * @throws IOException unable to connect to the tutor
+     */
+    private TutorConnection open() throws IOException {
+        if (protocol == WireProtocol.BINARY) {
+            Socket socket = new Socket(SERVER, PORT);
+            
             try {
-                if (out != null)
-                    out.close();
-            } finally {
+                socket.setSoTimeout(NEGOTIATION_TIMEOUT);
+                
+                BinaryChannel channel = BinaryChannel.connect(socket.getInputStream(), socket.getOutputStream(), maxMessageSize);
+                
+                if (channel != null) {
+                    socket.setSoTimeout(0);
+                    
+                    return new TutorConnection(socket, channel);
+                }
+            } catch (SocketTimeoutException e) {
+                // Falls back to JSon
+            }
+            
+            LOGGER.log(Level.INFO, "Tutor didn't accept a binary connection, using JSon");
+            
+            socket.close();
+        }
+        
+        Socket socket = new Socket(SERVER, PORT);
+        
+        return new TutorConnection(socket, new JsonChannel(socket.getInputStream(), socket.getOutputStream(), maxMessageSize));
+    }
+    
+    /**
+     * Return the request timeout from the DpTu.properties file.
+     * 
+     * @return a positive number of milliseconds
+     */
+    private static long requestTimeoutProp() {
+        try {
+            long timeout = Long.parseLong(ResourceMgr.instance().getProp(REQUEST_TIMEOUT_PROP).trim());
+            
+            return timeout > 0 ? timeout : DEFAULT_REQUEST_TIMEOUT;
+            
+        } catch (MissingPropertyException | NumberFormatException e) {
+            return DEFAULT_REQUEST_TIMEOUT;
+        }
+    }
+    
+    /**
+     * Return the wire protocol from the DpTu.properties file.
+     * 
+     * @return the configured WireProtocol, otherwise JSON
+     */
+    private static WireProtocol protocolProp() {
+        try {
+            return WireProtocol.valueOf(ResourceMgr.instance().getProp(WIRE_PROTOCOL_PROP).trim());
+            
+        } catch (MissingPropertyException | IllegalArgumentException e) {
+            return WireProtocol.JSON;
+        }
+    }
+    
+    /**
+     * Forget the given connection, if it is current, so that the next request
+     * opens a new connection.
+     * 
+     * @param failed a connection that has failed or been closed
+     */
+    private synchronized void disconnected(TutorConnection failed) {
+        if (connection == failed) {
+            connection = null;
+        }
+    }
+    
+    /**
+     * Return a TutorReply reporting a socket connection failure.
+     * 
+     * @return a TutorReply with an ":ERR" status
+     */
+    private static TutorReply errorReply() {
+        return new TutorReply(":ERR", "A non-recoverable error occurred in the socket connection (see logs)");
+    }
+    
+    /**
+     * Return a TutorReply reporting that the tutor didn't reply in time.
+     * 
+     * @param timeout the milliseconds waited
+     * @return a TutorReply with an ":ERR" status
+     */
+    private static TutorReply timeoutReply(long timeout) {
+        return new TutorReply(":ERR", "The tutor didn't reply within " + timeout + " ms");
+    }
+    
+    /**
+     * A persistent socket connection to the tutor on which framed requests
+     * are written and whose replies are read by a daemon thread.
+     */
+    private class TutorConnection implements Runnable {
+        /**
+         * The socket connection with the tutor.
+         */
+        private final Socket socket;
+        
+        /**
+         * The requests written to, and replies read from, the tutor.
+         */
+        private final MessageChannel channel;
+        
+        /**
+         * The requests sent on this connection that are awaiting a reply,
+         * keyed by correlation id.
+         */
+        private final ConcurrentHashMap<Long, CompletableFuture<TutorReply>> pending;
+        
+        /**
+         * The correlation ids of the requests written on this connection,
+         * in the order written, that the tutor hasn't yet replied to
+         * (including abandoned requests).
+         */
+        private final ConcurrentLinkedQueue<Long> unanswered;
+        
+        /**
+         * Whether this connection has failed or been closed.
+         */
+        private boolean closed;
+        
+        /**
+         * Initialize this connection on the given socket and start its reader.
+         * 
+         * @param socket an established socket connection to the tutor
+         * @param channel the messages sent on the socket
+         */
+        TutorConnection(Socket socket, MessageChannel channel) {
+            this.socket = socket;
+            this.channel = channel;
+            
+            pending = new ConcurrentHashMap<>();
+            unanswered = new ConcurrentLinkedQueue<>();
+            
+            Thread reader = new Thread(this, "DpTu-TutorConnection");
+            reader.setDaemon(true);
+            reader.start();
+        }
+        
+        /**
+         * Write the given request to the tutor.
+         * 
+         * @param request a ClientRequest with a unique correlation id
+         * @return a future completed when the reply is read
+         * @throws IOException the request couldn't be written
+         */
+        CompletableFuture<TutorReply> send(ClientRequest request) throws IOException {
+            CompletableFuture<TutorReply> reply = new CompletableFuture<>();
+            
+            synchronized (this) {
+                if (closed) {
+                    throw new IOException("Tutor connection closed");
+                }
+                
+                pending.put(request.getCorrelationId(), reply);
+                
+                // A request that is cancelled, or otherwise completed, no
+                // longer awaits its reply
+                reply.whenComplete((r, e) -> pending.remove(request.getCorrelationId(), reply));
+                
+                unanswered.add(request.getCorrelationId());
+                
                 try {
-                    if (in != null)
-                        in.close();
+                    channel.write(request);
+                    
                 } catch (IOException e) {
-                    LOGGER.log(Level.SEVERE, "Unable to close client socket in", e);
-                } finally {
-                    try {
-                        if (client != null)
-                            client.close();
-                    } catch (IOException e) {
-                        LOGGER.log(Level.SEVERE, "Unable to close client socket in", e);
+                    pending.remove(request.getCorrelationId());
+                    close();
+                    throw e;
+                }
+            }
+            
+            return reply;
+        }
+        
+        /**
+         * Read replies until the connection fails, completing the pending
+         * request with the same correlation id as each reply, or if the reply
+         * has no correlation id, the oldest request not yet replied to.
+         */
+        @Override
+        public void run() {
+            try {
+                while (channel.next()) {
+                    TutorReply reply = channel.readReply();
+                    
+                    if (reply == null) {
+                        continue;
+                    }
+                    
+                    long id = reply.getCorrelationId();
+                    Long answered;
+                    
+                    do { // Replies are in request order
+                        answered = unanswered.poll();
+                    } while (answered != null && id != 0 && answered != id);
+                    
+                    if (id == 0 && answered != null) {
+                        id = answered;
+                    }
+                    
+                    CompletableFuture<TutorReply> request = pending.remove(id);
+                    
+                    if (request != null) {
+                        request.complete(reply);
+                    } else {
+                        LOGGER.log(Level.FINE, "Discarding tutor reply to abandoned request: {0}", id);
                     }
                 }
+                
+            } catch (IOException | JsonParseException e) {
+                LOGGER.log(Level.SEVERE, "IOException client", e);
+            } finally {
+                synchronized (this) {
+                    close();
+                }
             }
         }
         
-        // Return this as a JSon encoded TutorReply object string.
-        return "{'status':':ERR','data':'A non-recoverable error occurred in the socket connection (see logs)'}";
+        /**
+         * Close this connection, failing any requests awaiting a reply with
+         * an ":ERR" reply (the caller must hold this connection's lock).
+         */
+        private void close() {
+            if (!closed) {
+                closed = true;
+                
+                disconnected(this);
+                
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, "Unable to close client socket in", e);
+                }
+                
+                for (CompletableFuture<TutorReply> reply : pending.values()) {
+                    reply.complete(errorReply());
+                }
+                
+                pending.clear();
+            }
+        }
     }
 }
-
-
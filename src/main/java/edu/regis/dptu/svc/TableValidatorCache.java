@@ -0,0 +1,155 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.svc;
+
+import edu.regis.dptu.err.MissingPropertyException;
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.model.LCSTableValidator;
+import edu.regis.dptu.util.ResourceMgr;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A process-wide cache of the table each student is filling in, as an
+ * LCSTableValidator, indexed by user id, so each step need only send the
+ * cells that changed.
+ *
+ * The tables are held within a memory budget, when exceeded, the least
+ * recently used tables are evicted, after which the student's next step
+ * begins a new table. A table larger than the budget is returned, but not
+ * cached.
+ *
+ * @author rickb
+ */
+public class TableValidatorCache {
+    /**
+     * The memory budget, in bytes, of the cached tables (see DpTu.properties).
+     */
+    public static final String BUDGET_PROP = "edu.regis.dptu.TABLE_VALIDATOR_CACHE_BYTES";
+
+    /**
+     * Memory budget used if the BUDGET_PROP is missing.
+     */
+    private static final long DEFAULT_BUDGET = 64L * 1024 * 1024;
+
+    /**
+     * The maximum bytes used by the cached tables.
+     */
+    private final long budget;
+
+    /**
+     * The cached tables indexed by user id, in least recently used order.
+     */
+    private final LinkedHashMap<String, LCSTableValidator> validators = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The bytes used by the cached tables.
+     */
+    private long footprint;
+
+    /**
+     * Initialize this cache with the given memory budget.
+     *
+     * @param budget the maximum bytes used by the cached tables
+     */
+    public TableValidatorCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Initialize this cache with the budget in the DpTu.properties file.
+     */
+    public TableValidatorCache() {
+        this(budgetProp());
+    }
+
+    /**
+     * Return the table the given student is filling in for the given problem,
+     * which is empty if they haven't begun it.
+     *
+     * Requests from the same student may be concurrent, so the validator
+     * should be synchronized on while it's used.
+     *
+     * @param userId the user id of the student
+     * @param problem the LCSProblem in the student's session
+     * @return an LCSTableValidator
+     */
+    public synchronized LCSTableValidator retrieve(String userId, LCSProblem problem) {
+        LCSTableValidator validator = validators.get(userId);
+
+        if (validator == null || !validator.validates(problem)) {
+            invalidate(userId);
+
+            validator = new LCSTableValidator(problem);
+
+            if (validator.getFootprint() <= budget) {
+                validators.put(userId, validator);
+                footprint += validator.getFootprint();
+
+                evict();
+            }
+        }
+
+        return validator;
+    }
+
+    /**
+     * Remove the given student's table, e.g., when they begin a new problem.
+     *
+     * @param userId the user id of the student
+     */
+    public synchronized void invalidate(String userId) {
+        LCSTableValidator old = validators.remove(userId);
+
+        if (old != null) {
+            footprint -= old.getFootprint();
+        }
+    }
+
+    public synchronized long getFootprint() {
+        return footprint;
+    }
+
+    public synchronized int size() {
+        return validators.size();
+    }
+
+    /**
+     * Evict the least recently used tables until the budget is met.
+     */
+    private void evict() {
+        Iterator<LCSTableValidator> it = validators.values().iterator();
+
+        while (footprint > budget && it.hasNext()) {
+            footprint -= it.next().getFootprint();
+            it.remove();
+        }
+    }
+
+    /**
+     * Return the positive budget in the DpTu.properties file, if any,
+     * otherwise the default.
+     *
+     * @return a long
+     */
+    private static long budgetProp() {
+        try {
+            long value = Long.parseLong(ResourceMgr.instance().getProp(BUDGET_PROP).trim());
+
+            return value > 0 ? value : DEFAULT_BUDGET;
+
+        } catch (MissingPropertyException | NumberFormatException e) {
+            return DEFAULT_BUDGET;
+        }
+    }
+}
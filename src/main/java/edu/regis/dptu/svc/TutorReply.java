@@ -12,12 +12,20 @@
  */
 package edu.regis.dptu.svc;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
 /**
  * A decorator that wraps a tutor reply to a user interface request.
  * 
  * The the initial request time specifies how to interpret the JSon encoded 
  * data.
  * 
+ * The data is a JSon tree rather than a JSon encoded String, so it is
+ * written inline when the reply is serialized, instead of being escaped
+ * as a String, and is parsed along with the reply.
+ * 
  * @author rickb
  */
 public class TutorReply {
@@ -27,10 +35,20 @@ public class TutorReply {
     private String status;
     
     /**
-     * A JSon encoded object whose format depends on the associated request to
-     * which this is a reply.
+     * Converts the data to and from objects, which is thread-safe.
+     */
+    private static final Gson GSON = new Gson();
+    
+    /**
+     * A JSon object whose format depends on the associated request to
+     * which this is a reply, a JSon String for messages, or null.
+     */
+    private JsonElement data;
+    
+    /**
+     * The correlation id of the ClientRequest to which this is a reply.
      */
-    private String data = "";
+    private long correlationId;
     
     /**
      * A reply from the tutor with an ERR status.
@@ -48,9 +66,16 @@ public class TutorReply {
         this.status = status;
     }
     
-    public TutorReply(String status, String data) {
+    /**
+     * A reply from the tutor with the given status and message data.
+     * 
+     * @param status the status of this reply
+     * @param message a displayable message, such as an error
+     */
+    public TutorReply(String status, String message) {
         this.status = status;
-        this.data = data;
+        
+        setMessage(message);
     }
 
     public String getStatus() {
@@ -61,11 +86,49 @@ public class TutorReply {
         this.status = status;
     }
 
-    public String getData() {
+    public JsonElement getData() {
         return data;
     }
 
-    public void setData(String data) {
+    public void setData(JsonElement data) {
         this.data = data;
     }
+    
+    /**
+     * Return the data converted to the given type.
+     * 
+     * @param <T> the type of the data
+     * @param type the class of the data, given the status of this reply
+     * @return the data, or null if this reply has none
+     * @throws com.google.gson.JsonSyntaxException the data isn't of the type
+     */
+    public <T> T getData(Class<T> type) {
+        return GSON.fromJson(data, type);
+    }
+    
+    /**
+     * Return the message data.
+     * 
+     * @return a String, or null if the data isn't a message
+     */
+    public String getMessage() {
+        return data != null && data.isJsonPrimitive() ? data.getAsString() : null;
+    }
+    
+    /**
+     * Set the data to the given message.
+     * 
+     * @param message a displayable message, such as an error
+     */
+    public final void setMessage(String message) {
+        data = message == null ? null : new JsonPrimitive(message);
+    }
+
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
+    public void setCorrelationId(long correlationId) {
+        this.correlationId = correlationId;
+    }
 }
@@ -2,7 +2,6 @@
  * DPTu: Dynamic Programming Tutor
  * 
  *  (C) Johanna & Richard Blumenthal, All rights reserved
- *  The SHA-256 algorithm is originall from the public domain, changes are ricks.
  * 
  *  Unauthorized use, duplication or distribution without the authors'
  *  permission is strictly prohibited.
@@ -13,9 +12,9 @@
  */
 package edu.regis.dptu.util;
 
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
 
 /**
  * An implementation of the SHA-256 algorithm.
@@ -24,6 +23,16 @@ import java.nio.charset.Charset;
  * For example sha256("Regis Computer Science Rocks!") returns
  *   fddfe0c1671993dbe8da88ccfbdf8aae3ae255d41b2808ff86041cca4cff65e5
  * 
+ * The singleton holds no state, so it may be used by any number of threads.
+ * Each hash is computed by its own Engine, which may also be used directly
+ * to hash a message incrementally:
+ * <pre>
+ * SHA_256.Engine engine = new SHA_256.Engine();
+ * engine.update(part1, 0, part1.length);
+ * engine.update(part2, 0, part2.length);
+ * byte[] digest = engine.digest();
+ * </pre>
+ * 
  *  This code was originally in the public domain and has been modified since.
  * 
  * @author rickb
@@ -75,9 +84,15 @@ public class SHA_256 {
     
     private static final int BLOCK_BYTES = BLOCK_BITS / 8;
 
-    private final int[] w = new int[64];
-    private final int[] h = new int[8];
-    private final int[] temp = new int[8];
+    /**
+     * Number of bytes in a digest.
+     */
+    public static final int DIGEST_BYTES = 32;
+
+    /**
+     * Lower case hex digits indexed by their value.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
     
     /**
      * Initialize this algorithm with an empty set of SHA-256 listeners.
@@ -89,17 +104,29 @@ public class SHA_256 {
      * Create a SHA-256 digest of the given message.
      * 
      * @param msg
+     * @return the digest as 64 lower case hex digits
      */
     public String sha256(String msg) {
-        Charset charset = Charset.forName("ASCII");
+        byte[] asciiEncodeMsg = msg.getBytes(StandardCharsets.US_ASCII);
+
+        return toHex(hash(asciiEncodeMsg));
+    }
 
-        byte[] asciiEncodeMsg = msg.getBytes(charset);
+    /**
+     * Return the given bytes as lower case hex digits, two per byte.
+     * 
+     * @param bytes the bytes to encode
+     * @return a String of 2 * bytes.length hex digits
+     */
+    public static String toHex(byte[] bytes) {
+        char[] hex = new char[2 * bytes.length];
 
-        byte[] digest = hash(asciiEncodeMsg);
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            hex[j++] = HEX_DIGITS[(bytes[i] >>> 4) & 0x0f];
+            hex[j++] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
 
-        String digestStr = bytesToHex(digest);
-        
-        return digestStr;
+        return new String(hex);
     }
 
     private static String hexToBin(String hexString) {
@@ -181,20 +208,6 @@ public class SHA_256 {
         return buffer.toString();
     }
 
-    private static String bytesToHex(byte[] hash) {
-        StringBuilder hexString = new StringBuilder(2 * hash.length);
-        for (int i = 0; i < hash.length; i++) {
-            String hex = Integer.toHexString(0xff & hash[i]);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
-        }
-        return hexString.toString();
-    }
-    
-
-    // NEXT class
     /**
      * Hashes the given message with SHA-256 and returns the hash.
      *
@@ -202,139 +215,212 @@ public class SHA_256 {
      * @return The hash's bytes.
      */
     public byte[] hash(byte[] message) {
-        // let H = H0
-        System.arraycopy(H0, 0, h, 0, H0.length);
-
-        // initialize all words
-        int[] words = pad(message);
-        
-        
-
-        // enumerate all blocks (each containing 16 words)
-        for (int i = 0, n = words.length / 16; i < n; ++i) {
-
-            // initialize w from the block's words
-            System.arraycopy(words, i * 16, w, 0, 16);
-            
-            
-            
-            // Modify the zero-ed indexes at the end of the array using the following algorithm:
-            //For i from w[16…63]:
-            //s0 = (w[i-15] rightrotate 7) xor (w[i-15] rightrotate 18) xor (w[i-15] rightshift 3)
-            //s1 = (w[i- 2] rightrotate 17) xor (w[i- 2] rightrotate 19) xor (w[i- 2] rightshift 10)
-            //w[i] = w[i-16] + s0 + w[i-7] + s1
-            for (int t = 16; t < w.length; ++t) {
-                w[t] = smallSig1(w[t - 2]) + w[t - 7] + smallSig0(w[t - 15]) + w[t - 16];
-            }
+        return new Engine().update(message, 0, message.length).digest();
+    }
 
+    /**
+     * An incremental SHA-256 computation, which is confined to the thread
+     * using it.
+     * 
+     * The message is hashed one 64 byte block at a time as it is given to
+     * update(), only a partial block is buffered, so the message is never
+     * copied or padded in its entirety.
+     */
+    public static class Engine {
+        /**
+         * The intermediate hash value.
+         */
+        private final int[] h = new int[8];
+
+        /**
+         * The message schedule of the current block.
+         */
+        private final int[] w = new int[64];
+
+        /**
+         * The bytes of a partial block not yet hashed.
+         */
+        private final byte[] buffer = new byte[BLOCK_BYTES];
+
+        /**
+         * The number of bytes in the buffer.
+         */
+        private int buffered;
+
+        /**
+         * The number of message bytes given to update() since the last reset.
+         */
+        private long length;
+
+        /**
+         * Initialize this engine to hash a new message.
+         */
+        public Engine() {
+            reset();
+        }
 
-            // let TEMP = H
-            System.arraycopy(h, 0, temp, 0, h.length);
+        /**
+         * Discard any message bytes given to this engine, so it can hash a
+         * new message.
+         */
+        public final void reset() {
+            System.arraycopy(H0, 0, h, 0, H0.length);
+            buffered = 0;
+            length = 0;
+        }
 
-            // operate on TEMP
-            for (int t = 0; t < w.length; ++t) {
-                //     =  H                 E              E         F        G
-                int t1 = temp[7] + bigSig1(temp[4]) + ch(temp[4], temp[5], temp[6]) + K[t] + w[t];
-                        
-                //                  A             A         B       C
-                int t2 = bigSig0(temp[0]) + maj(temp[0], temp[1], temp[2]);
-                
-                
-                System.arraycopy(temp, 0, temp, 1, temp.length - 1);
-                           
-                // E
-                temp[4] += t1;
-                temp[0] = t1 + t2;
+        /**
+         * Add the given bytes to the message being hashed.
+         * 
+         * @param input an array containing the bytes
+         * @param off the index of the first byte
+         * @param len the number of bytes
+         * @return this engine
+         * @throws IndexOutOfBoundsException the bytes aren't within input
+         */
+        public Engine update(byte[] input, int off, int len) {
+            Objects.checkFromIndexSize(off, len, input.length);
+
+            length += len;
+
+            // Complete a buffered partial block
+            if (buffered > 0) {
+                int n = Math.min(len, BLOCK_BYTES - buffered);
+
+                System.arraycopy(input, off, buffer, buffered, n);
+                buffered += n;
+                off += n;
+                len -= n;
+
+                if (buffered < BLOCK_BYTES) {
+                    return this;
+                }
+
+                compress(buffer, 0);
+                buffered = 0;
             }
 
-            // add values in TEMP to values in H
-            for (int t = 0; t < h.length; ++t) {
-                h[t] += temp[t];
+            // Hash whole blocks in place
+            while (len >= BLOCK_BYTES) {
+                compress(input, off);
+                off += BLOCK_BYTES;
+                len -= BLOCK_BYTES;
             }
+
+            System.arraycopy(input, off, buffer, 0, len);
+            buffered = len;
+
+            return this;
         }
 
-        return toByteArray(h);
-    }
+        /**
+         * Pad the message, with a 1-bit, k 0-bits, and the message length as
+         * a 64-bit integer, then return its hash and reset this engine.
+         * 
+         * @return the DIGEST_BYTES hash of the message
+         */
+        public byte[] digest() {
+            long bitLength = length * 8;
+
+            buffer[buffered++] = (byte) 0b10000000;
+
+            if (buffered > BLOCK_BYTES - 8) { // No room for the length
+                Arrays.fill(buffer, buffered, BLOCK_BYTES, (byte) 0);
+                compress(buffer, 0);
+                buffered = 0;
+            }
 
-    /**
-     * <b>Internal method, no need to call.</b> Pads the given message to have a length
-     * that is a multiple of 512 bits (64 bytes), including the addition of a
-     * 1-bit, k 0-bits, and the message length as a 64-bit integer.
-     * The result is a 32-bit integer array with big-endian byte representation.
-     *
-     * @param message The message to pad.
-     * @return A new array with the padded message bytes.
-     */
-    public  int[] pad(byte[] message) {
-        // new message length: original + 1-bit and padding + 8-byte length
-        // --> block count: whole blocks + (padding + length rounded up)
-        int finalBlockLength = message.length % BLOCK_BYTES;
-        int blockCount = message.length / BLOCK_BYTES + (finalBlockLength + 1 + 8 > BLOCK_BYTES ? 2 : 1);
-
-        final IntBuffer result = IntBuffer.allocate(blockCount * (BLOCK_BYTES / Integer.BYTES));
-
-        // copy as much of the message as possible
-        ByteBuffer buf = ByteBuffer.wrap(message);
-        for (int i = 0, n = message.length / Integer.BYTES; i < n; ++i) {
-            result.put(buf.getInt());
+            Arrays.fill(buffer, buffered, BLOCK_BYTES - 8, (byte) 0);
+            for (int i = 0; i < 8; i++) {
+                buffer[BLOCK_BYTES - 8 + i] = (byte) (bitLength >>> (56 - 8 * i));
+            }
+            compress(buffer, 0);
+
+            byte[] digest = new byte[DIGEST_BYTES];
+            for (int i = 0; i < h.length; i++) {
+                digest[4 * i] = (byte) (h[i] >>> 24);
+                digest[4 * i + 1] = (byte) (h[i] >>> 16);
+                digest[4 * i + 2] = (byte) (h[i] >>> 8);
+                digest[4 * i + 3] = (byte) h[i];
+            }
+
+            reset();
+
+            return digest;
         }
-        // copy the remaining bytes (less than 4) and append 1 bit (rest is zero)
-        ByteBuffer remainder = ByteBuffer.allocate(4);
-        remainder.put(buf).put((byte) 0b10000000).rewind();
-        result.put(remainder.getInt());
-
-        // ignore however many pad bytes (implicitly calculated in the beginning)
-        result.position(result.capacity() - 2);
-        // place original message length as 64-bit integer at the end
-        long msgLength = message.length * 8L;
-        result.put((int) (msgLength >>> 32));
-        result.put((int) msgLength);
-
-        return result.array();
-    }
 
-    /**
-     * Converts the given int array into a byte array via big-endian conversion
-     * (1 int becomes 4 bytes).
-     *
-     * @param ints The source array.
-     * @return The converted array.
-     */
-    private  byte[] toByteArray(int[] ints) {
-        ByteBuffer buf = ByteBuffer.allocate(ints.length * Integer.BYTES);
-        for (int i : ints) {
-            buf.putInt(i);
+        /**
+         * Hash the 64 byte block starting at the given offset into h.
+         */
+        private void compress(byte[] block, int off) {
+            // initialize w from the block's big-endian words
+            for (int t = 0; t < 16; t++, off += 4) {
+                w[t] = (block[off] << 24) | ((block[off + 1] & 0xff) << 16)
+                     | ((block[off + 2] & 0xff) << 8) | (block[off + 3] & 0xff);
+            }
+
+            //For i from w[16…63]:
+            //w[i] = w[i-16] + s0 + w[i-7] + s1
+            for (int t = 16; t < w.length; ++t) {
+                w[t] = smallSig1(w[t - 2]) + w[t - 7] + smallSig0(w[t - 15]) + w[t - 16];
+            }
+
+            int a = h[0], b = h[1], c = h[2], d = h[3];
+            int e = h[4], f = h[5], g = h[6], hh = h[7];
+
+            for (int t = 0; t < w.length; ++t) {
+                int t1 = hh + bigSig1(e) + ch(e, f, g) + K[t] + w[t];
+                int t2 = bigSig0(a) + maj(a, b, c);
+
+                hh = g;
+                g = f;
+                f = e;
+                e = d + t1;
+                d = c;
+                c = b;
+                b = a;
+                a = t1 + t2;
+            }
+
+            // add the working variables to H
+            h[0] += a;
+            h[1] += b;
+            h[2] += c;
+            h[3] += d;
+            h[4] += e;
+            h[5] += f;
+            h[6] += g;
+            h[7] += hh;
         }
-        return buf.array();
     }
 
-    private  int ch(int x, int y, int z) {
+    private static int ch(int x, int y, int z) {
         return (x & y) | ((~x) & z);
     }
 
-    private  int maj(int x, int y, int z) {
+    private static int maj(int x, int y, int z) {
         return (x & y) | (x & z) | (y & z);
     }
 
-    private  int bigSig0(int x) {
+    private static int bigSig0(int x) {
         return Integer.rotateRight(x, 2)
                 ^ Integer.rotateRight(x, 13)
                 ^ Integer.rotateRight(x, 22);
     }
 
-    private  int bigSig1(int x) {
+    private static int bigSig1(int x) {
         return Integer.rotateRight(x, 6)
                 ^ Integer.rotateRight(x, 11)
                 ^ Integer.rotateRight(x, 25);
     }
 
-    private  int smallSig0(int x) {
+    private static int smallSig0(int x) {
         return Integer.rotateRight(x, 7)
                 ^ Integer.rotateRight(x, 18)
                 ^ (x >>> 3);
     }
 
-    private  int smallSig1(int x) {
+    private static int smallSig1(int x) {
         return Integer.rotateRight(x, 17)
                 ^ Integer.rotateRight(x, 19)
                 ^ (x >>> 10);
@@ -88,6 +88,9 @@ public class CreateAcctAction extends DpTuGuiAction {
     /**
      * Handle the user's request to create a new student user account by
      * forwarding the account information in the NewAccountPanel to the tutor.
+     * 
+     * The request is sent asynchronously, so the GUI remains responsive, and
+     * this action is disabled until the tutor replies.
      *
      * @param evt ignored
      */
@@ -102,7 +105,26 @@ public class CreateAcctAction extends DpTuGuiAction {
         ClientRequest request = new ClientRequest(ServerRequestType.CREATE_ACCOUNT);
         request.setData(gson.toJson(account));
        
-        TutorReply reply = SvcFacade.instance().tutorRequest(request);
+        setEnabled(false);
+
+        SvcFacade.instance().tutorRequestAsync(request).whenComplete((reply, e) -> {
+            setEnabled(true);
+
+            if (reply != null) {
+                created(reply, account);
+            }
+        });
+    }
+
+    /**
+     * Inform the user of the tutor's reply to their create account request
+     * (on the event dispatch thread).
+     *
+     * @param reply the TutorReply to the create account request
+     * @param account the account requested
+     */
+    private void created(TutorReply reply, Account account) {
+        SplashFrame frame = SplashFrame.instance();
 
         String msg;
         switch (reply.getStatus()) {
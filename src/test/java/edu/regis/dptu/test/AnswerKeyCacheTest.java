@@ -0,0 +1,90 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.model.LCSAnswerKey;
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.svc.AnswerKeyCache;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the AnswerKeyCache and the LCSAnswerKeys it holds.
+ *
+ * @author rickb
+ */
+public class AnswerKeyCacheTest {
+    /**
+     * A key has the solved values of its problem, and is solved once.
+     */
+    @Test
+    public void testRetrieve() {
+        AnswerKeyCache cache = new AnswerKeyCache(1024 * 1024);
+        LCSProblem problem = problem(1, "skullandbones", "lullabybabies");
+
+        LCSAnswerKey key = cache.retrieve(problem);
+
+        assertSame(key, cache.retrieve(problem));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        problem.seek(problem.getStepCount());
+        for (int i = 0; i <= problem.getN(); i++) {
+            for (int j = 0; j <= problem.getM(); j++) {
+                assertEquals(problem.getValueAt(i, j), key.getValue(i, j));
+            }
+        }
+
+        assertFalse(key.contains(problem.getN() + 1, 0));
+
+        // A problem with the same id, but different sequences, is re-solved
+        LCSAnswerKey other = cache.retrieve(problem(1, "abc", "cab"));
+
+        assertNotSame(key, other);
+        assertEquals(2, other.getValue(3, 3));
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * The least recently used keys are evicted to meet the budget, and a key
+     * over the budget isn't cached.
+     */
+    @Test
+    public void testBudget() {
+        long keyBytes = new LCSAnswerKey(problem(1, "abcdefgh", "hgfedcba")).getFootprint();
+        AnswerKeyCache cache = new AnswerKeyCache(2 * keyBytes);
+
+        cache.retrieve(problem(1, "abcdefgh", "hgfedcba"));
+        cache.retrieve(problem(2, "abcdefgh", "hgfedcba"));
+        cache.retrieve(problem(1, "abcdefgh", "hgfedcba"));
+        cache.retrieve(problem(3, "abcdefgh", "hgfedcba")); // Evicts 2
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getFootprint() <= 2 * keyBytes);
+
+        long misses = cache.getMissCount();
+        cache.retrieve(problem(1, "abcdefgh", "hgfedcba"));
+        assertEquals(misses, cache.getMissCount());
+
+        cache.retrieve(problem(4, "abcdefghijklmnopqrstuvwxyz", "zyxwvutsrqponmlkjihgfedcba"));
+        assertEquals(2, cache.size());
+    }
+
+    private static LCSProblem problem(int id, String x, String y) {
+        LCSProblem problem = new LCSProblem(x, y);
+        problem.setId(id);
+
+        return problem;
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import edu.regis.dptu.model.CellAnswer;
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.model.Step;
+import edu.regis.dptu.model.StepCompletion;
+import edu.regis.dptu.model.StepCompletionReply;
+import edu.regis.dptu.model.StepSubType;
+import edu.regis.dptu.svc.BinaryCodec;
+import edu.regis.dptu.svc.ClientRequest;
+import edu.regis.dptu.svc.ServerRequestType;
+import edu.regis.dptu.svc.TutorReply;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round-trip tests of the BinaryCodec, and a benchmark of a typical
+ * ":CompletedStep" request compared with its JSon text, which runs only when
+ * the edu.regis.dptu.benchmarks system property is true.
+ *
+ * @author rickb
+ */
+public class BinaryCodecTest {
+    /**
+     * Number of requests encoded and decoded after warming up.
+     */
+    private static final int MESSAGES = 200000;
+
+    /**
+     * The hash of the DICTIONARY of each VERSION (indexed by VERSION), which
+     * both ends of a connection must agree on.
+     */
+    private static final int[] DICTIONARY_HASHES = {0, -1619749736, -1619749736};
+
+    private final Gson gson = new Gson();
+
+    private final BinaryCodec encoder = new BinaryCodec();
+
+    private final BinaryCodec decoder = new BinaryCodec();
+
+    /**
+     * Requests, including empty, missing, non-ASCII, and repeated fields,
+     * and data that is, or merely resembles, JSon, are decoded unchanged.
+     */
+    @Test
+    public void testRequestRoundTrip() {
+        String[] data = {
+            "", "request 1", "é中😀\n\"", "{", "[]", "{}", "{ \"a\": 1 }", "{\"a\":1}",
+            "[1,-2,3000000000,-9223372036854775808]", "[1.5,2,1e400,0.1,-0,3.0]",
+            "{\"a\":\"{\\\"b\\\":[1,2]}\",\"c\":null,\"d\":[true,false,\"x\",\"x\"]}",
+            "{\"step\":{\"subType\":\"COMPLETE_CELL\"},\"data\":\"request 1\"}",
+            completedStep(7).getData()
+        };
+
+        for (ServerRequestType type : ServerRequestType.values()) {
+            for (String d : data) {
+                ClientRequest request = new ClientRequest(type);
+                request.setUserId("test@regis.edu");
+                request.setSecurityToken(d.isEmpty() ? null : "token");
+                request.setSessionId("test@regis.edu");
+                request.setCorrelationId(d.length() * 1000000007L);
+                request.setData(d);
+
+                assertEquals(gson.toJson(request), gson.toJson(roundTrip(request)), d);
+            }
+        }
+
+        ClientRequest untyped = new ClientRequest(null);
+        untyped.setData(null);
+
+        assertEquals(gson.toJson(untyped), gson.toJson(roundTrip(untyped)));
+    }
+
+    /**
+     * Replies, including a solved LCS table, are decoded to equal JSon trees.
+     */
+    @Test
+    public void testReplyRoundTrip() {
+        LCSProblem problem = new LCSProblem("skullandbones", "lullabybabies");
+        problem.seek(problem.getStepCount());
+
+        StepCompletionReply stepReply = new StepCompletionReply();
+        stepReply.setIsCorrect(true);
+        stepReply.setData(gson.toJsonTree(new Step(1, 2, StepSubType.COMPLETE_TABLE)));
+
+        JsonObject mixed = new JsonObject();
+        mixed.addProperty("long", Long.MIN_VALUE);
+        mixed.addProperty("double", 0.1);
+        mixed.addProperty("string", "{\"not\":\"exact\" }");
+        mixed.add("empty", new JsonArray());
+        mixed.add("nested", JsonParser.parseString("[[1,2],[3,[4]],{\"x\":[\"y\",null]}]"));
+        mixed.add("numbers", JsonParser.parseString("[123456789012345678901234567890,0.1000000000000000000000000001]"));
+
+        Object[] datas = {problem, stepReply, mixed, null};
+
+        for (Object d : datas) {
+            TutorReply reply = new TutorReply(":StepCompletionReply");
+            reply.setCorrelationId(42);
+            reply.setData(d == null ? null : gson.toJsonTree(d));
+
+            TutorReply decoded = decode(reply);
+
+            assertEquals(reply.getStatus(), decoded.getStatus());
+            assertEquals(42, decoded.getCorrelationId());
+            assertEquals(reply.getData(), decoded.getData());
+            assertEquals(gson.toJson(reply), gson.toJson(decoded));
+        }
+
+        TutorReply message = new TutorReply(":ERR", "Unknown error: é");
+        assertEquals("Unknown error: é", decode(message).getMessage());
+
+        // The rows of the table are packed, a byte per (small) cell value
+        JsonArray rows = gson.toJsonTree(problem).getAsJsonObject().getAsJsonArray("subproblemL");
+        int cells = rows.size() * rows.get(0).getAsJsonArray().size();
+
+        TutorReply table = new TutorReply("OK");
+        table.setData(rows);
+
+        int size = encoder.encode(table) - encoder.encode(new TutorReply("OK", null));
+
+        assertTrue(size <= cells + 2 * (rows.size() + 1));
+    }
+
+    /**
+     * The DICTIONARY can't change without a new VERSION, and every request
+     * type can be encoded.
+     */
+    @Test
+    public void testDictionaryFrozen() {
+        List<String> dictionary = BinaryCodec.getDictionary();
+
+        assertTrue(BinaryCodec.VERSION < DICTIONARY_HASHES.length, "Record the hash of the new VERSION's DICTIONARY");
+        assertEquals(DICTIONARY_HASHES[BinaryCodec.VERSION], String.join("\n", dictionary).hashCode(),
+                     "The DICTIONARY changed without a new VERSION");
+
+        for (ServerRequestType type : ServerRequestType.values()) {
+            assertTrue(dictionary.contains(type.name()), "Add " + type + " in a new VERSION");
+        }
+    }
+
+    /**
+     * Truncated and corrupted messages are rejected rather than decoded.
+     */
+    @Test
+    public void testMalformed() {
+        ClientRequest request = completedStep(1);
+
+        int length = encoder.encode(request);
+        byte[] bytes = Arrays.copyOf(encoder.getBuffer(), length);
+
+        for (int i = 0; i < length; i++) {
+            int n = i;
+            assertThrows(JsonParseException.class, () -> decoder.decodeRequest(bytes, n));
+        }
+
+        byte[] extra = Arrays.copyOf(bytes, length + 1);
+        assertThrows(JsonParseException.class, () -> decoder.decodeRequest(extra, length + 1));
+
+        Random random = new Random(1);
+
+        for (int i = 0; i < 10000; i++) {
+            byte[] corrupt = bytes.clone();
+            corrupt[random.nextInt(length)] = (byte) random.nextInt(256);
+
+            try {
+                decoder.decodeRequest(corrupt, length);
+            } catch (JsonParseException e) {
+                // Expected, other exceptions aren't
+            }
+        }
+    }
+
+    /**
+     * A typical ":CompletedStep" request is less than half the size of its
+     * JSon text.
+     */
+    @Test
+    public void testCompletedStepSize() {
+        ClientRequest request = completedStep(42);
+
+        int jsonBytes = (gson.toJson(request) + "\n").getBytes(StandardCharsets.UTF_8).length;
+        int binaryBytes = encoder.encode(request) + 1; // + its length
+
+        assertTrue(binaryBytes < jsonBytes / 2);
+        assertEquals(gson.toJson(request), gson.toJson(roundTrip(request)));
+    }
+
+    /**
+     * A typical ":CompletedStep" request is faster to encode and decode than
+     * its JSon text.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "edu.regis.dptu.benchmarks", matches = "true")
+    public void testCompletedStepBenchmark() {
+        ClientRequest request = completedStep(42);
+
+        int jsonBytes = (gson.toJson(request) + "\n").getBytes(StandardCharsets.UTF_8).length;
+        int binaryBytes = encoder.encode(request) + 1; // + its length
+
+        for (int round = 0; round < 2; round++) { // Warm up, then time
+            long start = System.nanoTime();
+            long count = 0;
+            for (int i = 0; i < MESSAGES; i++) {
+                count += gson.toJson(request).getBytes(StandardCharsets.UTF_8).length;
+            }
+            double jsonEncodeNs = (System.nanoTime() - start) / (double) MESSAGES;
+
+            String json = gson.toJson(request);
+
+            start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++) {
+                count += gson.fromJson(json, ClientRequest.class).getCorrelationId();
+            }
+            double jsonDecodeNs = (System.nanoTime() - start) / (double) MESSAGES;
+
+            start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++) {
+                count += encoder.encode(request);
+            }
+            double binaryEncodeNs = (System.nanoTime() - start) / (double) MESSAGES;
+
+            int length = encoder.encode(request);
+            byte[] bytes = Arrays.copyOf(encoder.getBuffer(), length);
+
+            start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++) {
+                count += decoder.decodeRequest(bytes, length).getCorrelationId();
+            }
+            double binaryDecodeNs = (System.nanoTime() - start) / (double) MESSAGES;
+
+            if (round == 1) {
+                System.out.printf(":CompletedStep JSon: %d bytes, encode %.0f ns, decode %.0f ns%n",
+                        jsonBytes, jsonEncodeNs, jsonDecodeNs);
+                System.out.printf(":CompletedStep binary: %d bytes, encode %.0f ns, decode %.0f ns (%d)%n",
+                        binaryBytes, binaryEncodeNs, binaryDecodeNs, count % 10);
+
+                assertTrue(binaryEncodeNs + binaryDecodeNs < jsonEncodeNs + jsonDecodeNs);
+            }
+        }
+    }
+
+    /**
+     * Return a request completing a cell step, as the client sends it.
+     */
+    private ClientRequest completedStep(long correlationId) {
+        Step step = new Step(12, 3, StepSubType.COMPLETE_CELL);
+        step.setData(gson.toJson(new CellAnswer(3, 4)));
+
+        StepCompletion completion = new StepCompletion(step, gson.toJson(new CellAnswer(3, 4, 2)));
+        completion.setStep(step);
+
+        ClientRequest request = new ClientRequest(ServerRequestType.COMPLETED_STEP);
+        request.setUserId("test@regis.edu");
+        request.setSecurityToken("8c3f6d0e5b1a2f4c9d7e6b5a4c3d2e1f0a9b8c7d6e5f4a3b2c1d0e9f8a7b6c5d");
+        request.setSessionId("test@regis.edu");
+        request.setCorrelationId(correlationId);
+        request.setData(gson.toJson(completion));
+
+        return request;
+    }
+
+    private ClientRequest roundTrip(ClientRequest request) {
+        int length = encoder.encode(request);
+
+        return decoder.decodeRequest(Arrays.copyOf(encoder.getBuffer(), length), length);
+    }
+
+    private TutorReply decode(TutorReply reply) {
+        int length = encoder.encode(reply);
+
+        return decoder.decodeReply(Arrays.copyOf(encoder.getBuffer(), length), length);
+    }
+}
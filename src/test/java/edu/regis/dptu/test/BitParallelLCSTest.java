@@ -0,0 +1,130 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.model.BitParallelLCS;
+import edu.regis.dptu.model.LCSProblem;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the BitParallelLCS against solved LCSProblems, and a benchmark on
+ * long sequences.
+ *
+ * @author rickb
+ */
+public class BitParallelLCSTest {
+    /**
+     * Every row matches the solved LCSProblem, including sequences spanning
+     * several words and characters only in one sequence.
+     */
+    @Test
+    public void testRowsMatchLCSProblem() {
+        Random rand = new Random(21);
+
+        for (int trial = 0; trial < 40; trial++) {
+            String x = randomSequence(rand, rand.nextInt(150), 1 + rand.nextInt(6));
+            String y = randomSequence(rand, rand.nextInt(200), 1 + rand.nextInt(6));
+
+            LCSProblem problem = new LCSProblem(x, y);
+            problem.seek(problem.getStepCount());
+
+            BitParallelLCS lcs = new BitParallelLCS(x, y);
+
+            for (int i = 0; i <= x.length(); i++) {
+                int[] row = lcs.row(i);
+
+                for (int j = 0; j <= y.length(); j++) {
+                    assertEquals(problem.getValueAt(i, j), row[j], x + " " + y + " [" + i + "][" + j + "]");
+                }
+            }
+
+            assertEquals(problem.getValueAt(x.length(), y.length()), lcs.length());
+        }
+
+        assertEquals(7, new BitParallelLCS("skullandbones", "lullabybabies").length());
+        assertEquals(0, new BitParallelLCS("", "abc").length());
+        assertEquals(0, new BitParallelLCS("abc", "").length());
+    }
+
+    /**
+     * Compare the LCS length of 10k character sequences with the cell by
+     * cell computation, then time 100k character sequences (too slow to
+     * compute cell by cell in a test).
+     */
+    @Test
+    public void testBenchmark() {
+        Random rand = new Random(4);
+
+        String x = randomSequence(rand, 10000, 4);
+        String y = randomSequence(rand, 10000, 4);
+
+        long start = System.nanoTime();
+        int bitLength = new BitParallelLCS(x, y).length();
+        double bitMs = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        int cellLength = cellByCell(x, y);
+        double cellMs = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf("LCS of 10k chars: bit-parallel %.1f ms, cell by cell %.1f ms%n", bitMs, cellMs);
+
+        assertEquals(cellLength, bitLength);
+
+        x = randomSequence(rand, 100000, 4);
+        y = randomSequence(rand, 100000, 4);
+
+        start = System.nanoTime();
+        bitLength = new BitParallelLCS(x, y).length();
+        bitMs = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf("LCS of 100k chars: bit-parallel %.1f ms (length %d)%n", bitMs, bitLength);
+
+        assertTrue(bitLength > 0 && bitLength <= 100000);
+    }
+
+    /**
+     * Return the LCS length, computed as LCSProblem does, but in two rows.
+     */
+    private static int cellByCell(String x, String y) {
+        int[] prev = new int[y.length() + 1];
+        int[] cur = new int[y.length() + 1];
+
+        for (int i = 1; i <= x.length(); i++) {
+            for (int j = 1; j <= y.length(); j++) {
+                if (x.charAt(i - 1) == y.charAt(j - 1)) {
+                    cur[j] = prev[j - 1] + 1;
+                } else {
+                    cur[j] = Integer.max(prev[j], cur[j - 1]);
+                }
+            }
+
+            int[] t = prev;
+            prev = cur;
+            cur = t;
+        }
+
+        return prev[y.length()];
+    }
+
+    private static String randomSequence(Random rand, int length, int alphabet) {
+        StringBuilder s = new StringBuilder(length);
+
+        for (int k = 0; k < length; k++) {
+            s.append((char) ('a' + rand.nextInt(alphabet)));
+        }
+
+        return s.toString();
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import com.google.gson.Gson;
+import edu.regis.dptu.model.FlatCellTable;
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.model.TutoringSession;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the FlatCellTable used by LCSProblem, including a footprint
+ * comparison with the int[][] it replaced.
+ *
+ * @author rickb
+ */
+public class CellTableTest {
+    @Test
+    public void testCellWidths() {
+        FlatCellTable bytes = FlatCellTable.create(3, 4, 255);
+        FlatCellTable shorts = FlatCellTable.create(3, 4, 256);
+        FlatCellTable ints = FlatCellTable.create(3, 4, 65536);
+
+        assertEquals(1, bytes.getCellBytes());
+        assertEquals(2, shorts.getCellBytes());
+        assertEquals(4, ints.getCellBytes());
+
+        bytes.set(2, 3, 255);
+        shorts.set(2, 3, 65535);
+        ints.set(2, 3, 65536);
+
+        assertEquals(255, bytes.get(2, 3));
+        assertEquals(65535, shorts.get(2, 3));
+        assertEquals(65536, ints.get(2, 3));
+        assertEquals(0, bytes.get(0, 0));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> bytes.get(3, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> bytes.get(0, 4));
+
+        assertThrows(IllegalArgumentException.class, () -> bytes.set(0, 0, 256));
+        assertThrows(IllegalArgumentException.class, () -> shorts.set(0, 0, 65536));
+        assertThrows(IllegalArgumentException.class, () -> ints.set(0, 0, -1));
+        assertEquals(0, bytes.get(0, 0));
+        assertEquals(0, shorts.get(0, 0));
+    }
+
+    /**
+     * A problem, and its table, survive a JSon round trip.
+     */
+    @Test
+    public void testJson() {
+        Gson gson = new Gson();
+        LCSProblem problem = new LCSProblem("skullandbones", "lullabybabies");
+
+        problem.seek(problem.getStepCount() - 20);
+
+        String json = gson.toJson(problem);
+
+        assertTrue(json.contains("\"subproblemL\":[[0,0,0,0,0,0,0,0,0,0,0,0,0,0],"));
+
+        LCSProblem copy = gson.fromJson(json, LCSProblem.class);
+
+        assertEquals(problem.getStepIndex(), copy.getStepIndex());
+        assertEquals(problem.getExecutionState(), copy.getExecutionState());
+
+        for (int i = 0; i <= problem.getN(); i++) {
+            for (int j = 0; j <= problem.getM(); j++) {
+                assertEquals(problem.getValueAt(i, j), copy.getValueAt(i, j));
+            }
+        }
+
+        copy.seek(copy.getStepCount());
+        assertEquals(7, copy.getValueAt(copy.getN(), copy.getM()));
+    }
+
+    /**
+     * A precomputed problem, or one stepped back, writes only the cells
+     * filled in at its current step, also as a session's problem.
+     */
+    @Test
+    public void testJsonUnfilledCells() {
+        Gson gson = new Gson();
+        LCSProblem problem = new LCSProblem("skullandbones", "lullabybabies");
+
+        problem.precompute();
+        assertTrue(gson.toJson(problem).contains(
+                "\"subproblemL\":[[-1,-1,-1,-1,-1,-1,-1,-1,-1,-1,-1,-1,-1,-1],"));
+
+        problem.seek(problem.getStepCount());
+        problem.seek(problem.getStepCount() - 20);
+
+        TutoringSession session = new TutoringSession(null);
+        session.setProblem(problem);
+
+        String json = gson.toJson(session);
+        String last = "[0,-1,-1,-1,-1,-1,-1,-1,-1,-1,-1,-1,-1,-1]]";
+
+        assertTrue(json.contains(last), json);
+        assertFalse(json.contains("computedRows"));
+
+        LCSProblem copy = gson.fromJson(gson.toJson(problem), LCSProblem.class);
+
+        for (int i = 0; i <= problem.getN(); i++) {
+            for (int j = 0; j <= problem.getM(); j++) {
+                assertEquals(problem.getValueAt(i, j), copy.getValueAt(i, j));
+            }
+        }
+
+        copy.seek(copy.getStepCount());
+        assertEquals(7, copy.getValueAt(copy.getN(), copy.getM()));
+    }
+
+    /**
+     * A problem whose LCS is wider than a byte, read before its table is
+     * filled in, is solved with the same values as the original.
+     */
+    @Test
+    public void testJsonCellWidth() {
+        Gson gson = new Gson();
+        String x = "ab".repeat(150);
+        LCSProblem problem = new LCSProblem(x, x);
+
+        LCSProblem copy = gson.fromJson(gson.toJson(problem), LCSProblem.class);
+
+        problem.seek(problem.getStepCount());
+        copy.seek(copy.getStepCount());
+
+        assertEquals(300, problem.getValueAt(problem.getN(), problem.getM()));
+        assertEquals(300, copy.getValueAt(copy.getN(), copy.getM()));
+    }
+
+    /**
+     * Compare the footprint of the table of a solved 1000 x 1000 problem
+     * with that of an int[1001][1001].
+     */
+    @Test
+    public void testFootprint() {
+        int n = 1000;
+        Random rand = new Random(9);
+        StringBuilder x = new StringBuilder();
+        StringBuilder y = new StringBuilder();
+
+        for (int k = 0; k < n; k++) {
+            x.append((char) ('a' + rand.nextInt(26)));
+            y.append((char) ('a' + rand.nextInt(26)));
+        }
+
+        LCSProblem problem = new LCSProblem(x.toString(), y.toString());
+        problem.seek(problem.getStepCount());
+
+        FlatCellTable flat = FlatCellTable.create(n + 1, n + 1, n);
+
+        // An outer array of n + 1 (compressed) references to n + 1 int arrays
+        long jagged = FlatCellTable.ARRAY_HEADER_BYTES + 4L * (n + 1)
+                + (n + 1) * (FlatCellTable.ARRAY_HEADER_BYTES + 4L * (n + 1));
+
+        System.out.printf("1000 x 1000 LCS table: int[][] %d bytes, flat %d bytes (%d byte cells)%n",
+                jagged, flat.getFootprint(), flat.getCellBytes());
+
+        assertEquals(2, flat.getCellBytes());
+        assertTrue(2 * flat.getFootprint() < jagged);
+        assertTrue(problem.getValueAt(n, n) > 0);
+    }
+}
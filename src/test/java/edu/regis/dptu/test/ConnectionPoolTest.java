@@ -0,0 +1,280 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.dao.ConnectionPool;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests and a latency benchmark of the ConnectionPool using a stub JDBC
+ * driver whose connections take CONNECT_DELAY ms to open, simulating the
+ * TCP and authentication handshake with MySQL.
+ *
+ * @author rickb
+ */
+public class ConnectionPoolTest {
+    /**
+     * URL recognized by the stub driver.
+     */
+    private static final String URL = "jdbc:dptustub:test";
+
+    /**
+     * Simulated milliseconds to open a physical connection.
+     */
+    private static final int CONNECT_DELAY = 5;
+
+    /**
+     * Number of borrows timed in the benchmark.
+     */
+    private static final int REQUESTS = 100;
+
+    /**
+     * Whether newly opened stub connections report themselves as valid.
+     */
+    private static volatile boolean valid = true;
+
+    private ConnectionPool pool;
+
+    @BeforeAll
+    public static void setUpClass() throws SQLException {
+        DriverManager.registerDriver(new StubDriver());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        valid = true;
+
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Compare the per-request latency of opening a new connection (the DAOs'
+     * previous behavior) with borrowing one from the pool.
+     */
+    @Test
+    public void testLatencyBenchmark() throws SQLException {
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            try (Connection conn = DriverManager.getConnection(URL)) {
+                assertFalse(conn.isClosed());
+            }
+        }
+        double direct = (System.nanoTime() - start) / 1000.0 / REQUESTS;
+
+        pool = new ConnectionPool(URL, 2, 10, 1000, 1, 0);
+
+        start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            try (Connection conn = pool.getConnection()) {
+                assertFalse(conn.isClosed());
+            }
+        }
+        double pooled = (System.nanoTime() - start) / 1000.0 / REQUESTS;
+
+        System.out.printf("DriverManager: %.1f us/request, pooled: %.1f us/request%n", direct, pooled);
+        System.out.println(pool);
+
+        assertEquals(2, pool.getCreatedCount());
+        assertTrue(pooled < direct);
+    }
+
+    /**
+     * Closing a borrowed connection returns it to the pool, and borrowing
+     * blocks, then times out, once maxSize connections are borrowed.
+     */
+    @Test
+    public void testMaxSize() throws SQLException {
+        pool = new ConnectionPool(URL, 0, 2, 100, 1, 0);
+
+        Connection c1 = pool.getConnection();
+        Connection c2 = pool.getConnection();
+
+        assertEquals(2, pool.getActiveCount());
+        assertThrows(SQLException.class, () -> pool.getConnection());
+        assertEquals(1, pool.getTimeoutCount());
+
+        c1.close();
+        c1.close(); // Closing twice must not return the connection twice
+
+        assertEquals(1, pool.getIdleCount());
+        assertThrows(SQLException.class, () -> c1.createStatement());
+
+        Connection c3 = pool.getConnection();
+
+        assertEquals(2, pool.getCreatedCount());
+
+        c2.close();
+        c3.close();
+
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(2, pool.getIdleCount());
+    }
+
+    /**
+     * Idle connections that fail validation are discarded when borrowed.
+     */
+    @Test
+    public void testValidationOnBorrow() throws SQLException {
+        valid = false;
+        pool = new ConnectionPool(URL, 1, 2, 100, 1, 0);
+        valid = true;
+
+        try (Connection conn = pool.getConnection()) {
+            assertTrue(conn.isValid(1));
+        }
+
+        assertEquals(1, pool.getInvalidatedCount());
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    /**
+     * Statements left open by a borrower are closed when the connection is
+     * returned to the pool.
+     */
+    @Test
+    public void testStatementsClosedOnRelease() throws SQLException {
+        pool = new ConnectionPool(URL, 0, 1, 100, 1, 0);
+
+        Statement open;
+        Statement closed;
+
+        try (Connection conn = pool.getConnection()) {
+            open = conn.prepareStatement("SELECT 1");
+            closed = conn.createStatement();
+            closed.close();
+
+            assertFalse(open.isClosed());
+        }
+
+        assertTrue(open.isClosed());
+        assertEquals(1, pool.getUnclosedStatementCount());
+    }
+
+    /**
+     * A connection borrowed longer than the leak threshold is reported.
+     */
+    @Test
+    public void testLeakDetection() throws Exception {
+        pool = new ConnectionPool(URL, 0, 2, 100, 1, 100);
+
+        Connection leaked = pool.getConnection();
+
+        Thread.sleep(400);
+
+        assertEquals(1, pool.getLeakCount());
+
+        leaked.close();
+    }
+
+    /**
+     * A JDBC driver whose connections are proxies that only support the
+     * behaviors used by the pool.
+     */
+    private static class StubDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+
+            try {
+                Thread.sleep(CONNECT_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            boolean isValid = valid;
+            boolean[] closed = {false};
+            boolean[] autoCommit = {true};
+
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "isValid": return isValid && !closed[0];
+                    case "isClosed": return closed[0];
+                    case "close": closed[0] = true; return null;
+                    case "getAutoCommit": return autoCommit[0];
+                    case "setAutoCommit": autoCommit[0] = (Boolean) args[0]; return null;
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    case "createStatement":
+                    case "prepareStatement": return statement();
+                    default: return null;
+                }
+            });
+        }
+
+        /**
+         * Return a statement that only supports close() and isClosed().
+         */
+        private static Statement statement() {
+            boolean[] closed = {false};
+
+            return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "isClosed": return closed[0];
+                    case "close": closed[0] = true; return null;
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    default: return null;
+                }
+            });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:dptustub:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getLogger(StubDriver.class.getName());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.err.ObjNotFoundException;
+import edu.regis.dptu.model.Course;
+import edu.regis.dptu.model.CourseDigest;
+import edu.regis.dptu.model.Task;
+import edu.regis.dptu.model.UnitDigest;
+import edu.regis.dptu.svc.CourseCache;
+import edu.regis.dptu.svc.CourseSvc;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the CourseCache using a stub CourseSvc whose course loads take
+ * LOAD_DELAY ms.
+ *
+ * @author rickb
+ */
+public class CourseCacheTest {
+    /**
+     * Simulated milliseconds to load a course from the database.
+     */
+    private static final int LOAD_DELAY = 50;
+
+    private StubCourseSvc courseSvc;
+
+    @BeforeEach
+    public void setUp() {
+        courseSvc = new StubCourseSvc();
+    }
+
+    /**
+     * Concurrent retrievals of an uncached course load it once and share it.
+     */
+    @Test
+    public void testSharedSnapshot() throws Exception {
+        CourseCache cache = new CourseCache(courseSvc, 60000);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        ArrayList<Future<Course>> results = new ArrayList<>();
+
+        for (int i = 0; i < 32; i++) {
+            results.add(pool.submit(() -> cache.retrieve(1)));
+        }
+
+        Course course = results.get(0).get();
+        for (Future<Course> result : results) {
+            assertSame(course, result.get());
+        }
+
+        pool.shutdown();
+
+        assertEquals(1, courseSvc.loads.get());
+        assertEquals(1, cache.getLoadCount());
+        assertThrows(ObjNotFoundException.class, () -> cache.retrieve(2));
+    }
+
+    /**
+     * An invalidated course is reloaded on its next retrieval.
+     */
+    @Test
+    public void testInvalidate() throws Exception {
+        CourseCache cache = new CourseCache(courseSvc, 60000);
+
+        Course first = cache.retrieve(1);
+        cache.invalidate(1);
+        Course second = cache.retrieve(1);
+
+        assertNotSame(first, second);
+        assertEquals(2, courseSvc.loads.get());
+    }
+
+    /**
+     * Once the check interval has passed, a course is reloaded only if its
+     * content version changed.
+     */
+    @Test
+    public void testVersionCheck() throws Exception {
+        CourseCache cache = new CourseCache(courseSvc, 0);
+
+        Course first = cache.retrieve(1);
+
+        assertSame(first, cache.retrieve(1));
+        assertEquals(1, courseSvc.loads.get());
+        assertEquals(1, cache.getVersionCheckCount());
+
+        courseSvc.version.incrementAndGet();
+
+        assertNotSame(first, cache.retrieve(1));
+        assertEquals(2, courseSvc.loads.get());
+    }
+
+    /**
+     * A CourseSvc with a single course, id 1.
+     */
+    private static class StubCourseSvc implements CourseSvc {
+        private final AtomicInteger loads = new AtomicInteger();
+
+        private final AtomicInteger version = new AtomicInteger(1);
+
+        @Override
+        public Course retrieve(int courseId) throws ObjNotFoundException {
+            if (courseId != 1) {
+                throw new ObjNotFoundException("Course Id:" + courseId);
+            }
+
+            loads.incrementAndGet();
+
+            try {
+                Thread.sleep(LOAD_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return new Course(courseId);
+        }
+
+        @Override
+        public int retrieveContentVersion(int courseId) throws ObjNotFoundException {
+            if (courseId != 1) {
+                throw new ObjNotFoundException("Course Id:" + courseId);
+            }
+
+            return version.get();
+        }
+
+        @Override
+        public CourseDigest retrieveDigest(int courseId, Connection conn) {
+            return null;
+        }
+
+        @Override
+        public UnitDigest retrieveUnitDigest(int courseId, int unitId, Connection conn) {
+            return null;
+        }
+
+        @Override
+        public Task retrieveTask(int courseId, int taskId, Connection conn) {
+            return null;
+        }
+    }
+}
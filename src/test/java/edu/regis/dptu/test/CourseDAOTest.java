@@ -0,0 +1,277 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import com.google.gson.Gson;
+import edu.regis.dptu.dao.CourseDAO;
+import edu.regis.dptu.model.Course;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests and a benchmark of CourseDAO's set-based course loader against the
+ * row-at-a-time loader using a synthetic course of UNITS units, served by a
+ * stub connection that simulates a ROUND_TRIP to MySQL for each query.
+ *
+ * @author rickb
+ */
+public class CourseDAOTest {
+    /**
+     * Id of the synthetic course.
+     */
+    private static final int COURSE_ID = 1;
+
+    /**
+     * Size of the synthetic course.
+     */
+    private static final int UNITS = 50;
+    private static final int TASKS_PER_UNIT = 4;
+    private static final int STEPS_PER_TASK = 5;
+    private static final int HINTS_PER_STEP = 2;
+
+    /**
+     * Simulated microseconds of network and server time for each query.
+     */
+    private static final int ROUND_TRIP = 100;
+
+    private SyntheticCourseDB db;
+
+    private CourseDAO dao;
+
+    @BeforeEach
+    public void setUp() {
+        db = new SyntheticCourseDB();
+        dao = new CourseDAO();
+    }
+
+    /**
+     * Both loaders must build the same course graph.
+     */
+    @Test
+    public void testSetBasedMatchesByRow() throws Exception {
+        Gson gson = new Gson();
+
+        Course byRow = dao.retrieveByRow(COURSE_ID, db.connection());
+        Course setBased = dao.retrieve(COURSE_ID, db.connection());
+
+        assertEquals(UNITS, setBased.getUnits().size());
+        assertEquals(TASKS_PER_UNIT, setBased.getUnits().get(0).getTasks().size());
+        assertEquals(STEPS_PER_TASK, setBased.getUnits().get(0).getTasks().get(0).getSteps().size());
+        assertEquals(gson.toJson(byRow), gson.toJson(setBased));
+    }
+
+    /**
+     * Compare the queries issued, and time taken, by each loader.
+     */
+    @Test
+    public void testHydrationBenchmark() throws Exception {
+        dao.retrieveByRow(COURSE_ID, db.connection()); // Warm up
+        dao.retrieve(COURSE_ID, db.connection());
+
+        db.queries = 0;
+        long start = System.nanoTime();
+        dao.retrieveByRow(COURSE_ID, db.connection());
+        double byRowMs = (System.nanoTime() - start) / 1e6;
+        int byRowQueries = db.queries;
+
+        db.queries = 0;
+        start = System.nanoTime();
+        dao.retrieve(COURSE_ID, db.connection());
+        double setBasedMs = (System.nanoTime() - start) / 1e6;
+        int setBasedQueries = db.queries;
+
+        System.out.printf("By row:    %d queries, %.1f ms%n", byRowQueries, byRowMs);
+        System.out.printf("Set based: %d queries, %.1f ms%n", setBasedQueries, setBasedMs);
+
+        assertEquals(7, setBasedQueries);
+        assertTrue(byRowQueries > 100 * setBasedQueries);
+        assertTrue(setBasedMs < byRowMs);
+    }
+
+    /**
+     * Serves rows of a synthetic course for the queries issued by CourseDAO,
+     * in the order MySql would return them from a primary key scan.
+     */
+    private static class SyntheticCourseDB {
+        /**
+         * Number of queries executed.
+         */
+        private int queries;
+
+        /**
+         * Return a new stub connection to this database.
+         */
+        Connection connection() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "prepareStatement": return statement((String) args[0]);
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    default: return null;
+                }
+            });
+        }
+
+        private PreparedStatement statement(String sql) {
+            HashMap<Integer, Object> params = new HashMap<>();
+
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "setInt":
+                        params.put((Integer) args[0], args[1]);
+                        return null;
+
+                    case "executeQuery":
+                        queries++;
+                        LockSupport.parkNanos(ROUND_TRIP * 1000L);
+                        return resultSet(rows(sql, params));
+
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    default: return null;
+                }
+            });
+        }
+
+        private ResultSet resultSet(List<Object[]> rows) {
+            int[] row = {-1};
+            boolean[] wasNull = {false};
+
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                if (method.getName().startsWith("get") && args != null && args[0] instanceof Integer) {
+                    Object value = rows.get(row[0])[(Integer) args[0] - 1];
+                    wasNull[0] = value == null;
+
+                    switch (method.getName()) {
+                        case "getInt": return value == null ? 0 : (Integer) value;
+                        case "getString": return value == null ? null : value.toString();
+                        case "getObject": return value;
+                        default: throw new SQLException("Unsupported: " + method.getName());
+                    }
+                }
+
+                switch (method.getName()) {
+                    case "next": return ++row[0] < rows.size();
+                    case "wasNull": return wasNull[0];
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    default: return null;
+                }
+            });
+        }
+
+        /**
+         * Return the rows selected by the given query.
+         */
+        private List<Object[]> rows(String sql, HashMap<Integer, Object> params) throws SQLException {
+            ArrayList<Object[]> rows = new ArrayList<>();
+
+            if (sql.contains("FROM Course WHERE")) {
+                rows.add(new Object[] {"Synthetic", "FIXED_SEQUENCE", "A synthetic course"});
+
+            } else if (sql.contains("FROM ExercisingLocation") || sql.contains("FROM KnowledgeComponent")) {
+                // None
+
+            } else if (sql.contains("FROM Unit WHERE")) {
+                for (int u = 1; u <= UNITS; u++) {
+                    rows.add(new Object[] {u, "Unit " + u, "Unit", u, "FIXED_SEQUENCE"});
+                }
+
+            } else if (sql.contains("FROM Task t")) {
+                for (int u = 1; u <= UNITS; u++) {
+                    for (int t = 0; t < TASKS_PER_UNIT; t++) {
+                        int id = taskId(u, t);
+                        rows.add(new Object[] {id, u, "Task " + id, "Task", "LCS_PROBLEM", t, id,
+                                               id, "Problem " + id, "Problem", "ABCBDAB", "BDCABA"});
+                    }
+                }
+
+            } else if (sql.contains("FROM Task WHERE")) {
+                int u = (Integer) params.get(2);
+                for (int t = 0; t < TASKS_PER_UNIT; t++) {
+                    int id = taskId(u, t);
+                    rows.add(new Object[] {id, "Task " + id, "Task", "LCS_PROBLEM", t, id});
+                }
+
+            } else if (sql.contains("FROM LCSProblem WHERE")) {
+                int id = (Integer) params.get(1);
+                rows.add(new Object[] {"Problem " + id, "Problem", "ABCBDAB", "BDCABA"});
+
+            } else if (sql.contains("StepId IN")) {
+                for (int u = 1; u <= UNITS; u++) {
+                    for (int t = 0; t < TASKS_PER_UNIT; t++) {
+                        for (int s = 0; s < STEPS_PER_TASK; s++) {
+                            int stepId = stepId(taskId(u, t), s);
+                            for (int h = 0; h < HINTS_PER_STEP; h++) {
+                                rows.add(new Object[] {stepId * 10 + h, stepId, "Hint " + h, h});
+                            }
+                        }
+                    }
+                }
+
+            } else if (sql.contains("FROM Step s")) {
+                for (int u = 1; u <= UNITS; u++) {
+                    for (int t = 0; t < TASKS_PER_UNIT; t++) {
+                        for (int s = 0; s < STEPS_PER_TASK; s++) {
+                            int id = stepId(taskId(u, t), s);
+                            rows.add(new Object[] {id, taskId(u, t), "Step " + id, "Step", s, "INFO_MESSAGE", 1,
+                                                   1, "STEP", 30, "HINT", "Need help?"});
+                        }
+                    }
+                }
+
+            } else if (sql.contains("FROM Step WHERE")) {
+                int taskId = (Integer) params.get(2);
+                for (int s = 0; s < STEPS_PER_TASK; s++) {
+                    int id = stepId(taskId, s);
+                    rows.add(new Object[] {id, "Step " + id, "Step", s, "INFO_MESSAGE", 0, 1});
+                }
+
+            } else if (sql.contains("FROM Timeout WHERE")) {
+                rows.add(new Object[] {"STEP", 30, "HINT", "Need help?"});
+
+            } else if (sql.contains("FROM Hint WHERE")) {
+                int stepId = (Integer) params.get(1);
+                for (int h = 0; h < HINTS_PER_STEP; h++) {
+                    rows.add(new Object[] {stepId * 10 + h, "Hint " + h, h});
+                }
+
+            } else {
+                throw new SQLException("Unexpected query: " + sql);
+            }
+
+            return rows;
+        }
+
+        private static int taskId(int unit, int index) {
+            return unit * 100 + index;
+        }
+
+        private static int stepId(int taskId, int index) {
+            return taskId * 100 + index;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.svc.ClientRequest;
+import edu.regis.dptu.svc.RequestContext;
+import edu.regis.dptu.svc.RequestHandler;
+import edu.regis.dptu.svc.ServerRequestType;
+import edu.regis.dptu.svc.TutorReply;
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the tutor's request dispatch, comparing the previous
+ * reflective dispatch (derive "signIn" from ":SignIn", then getMethod() and
+ * invoke()) with the EnumMap handler table, using handlers that do no work.
+ *
+ * @author rickb
+ */
+public class DispatchBenchmarkTest {
+    /**
+     * Number of dispatches timed after warming up.
+     */
+    private static final int DISPATCHES = 1000000;
+
+    /**
+     * Requests dispatched in turn (excluding NEW_EXAMPLE, which has no handler).
+     */
+    private static final ServerRequestType[] TYPES = {
+        ServerRequestType.COMPLETED_STEP, ServerRequestType.COMPLETED_TASK,
+        ServerRequestType.CREATE_ACCOUNT, ServerRequestType.SIGN_IN,
+        ServerRequestType.REQUEST_HINT
+    };
+
+    private final TutorReply reply = new TutorReply("OK");
+
+    private final EnumMap<ServerRequestType, RequestHandler> handlers = new EnumMap<>(ServerRequestType.class);
+
+    private final ClientRequest[] requests = new ClientRequest[TYPES.length];
+
+    public DispatchBenchmarkTest() {
+        for (int i = 0; i < TYPES.length; i++) {
+            requests[i] = new ClientRequest(TYPES[i]);
+            requests[i].setData("data");
+        }
+
+        handlers.put(ServerRequestType.COMPLETED_STEP, context -> completedStep(context.getData()));
+        handlers.put(ServerRequestType.COMPLETED_TASK, context -> completedTask(context.getData()));
+        handlers.put(ServerRequestType.CREATE_ACCOUNT, context -> createAccount(context.getData()));
+        handlers.put(ServerRequestType.SIGN_IN, context -> signIn(context.getData()));
+        handlers.put(ServerRequestType.REQUEST_HINT, context -> requestHint(context.getData()));
+    }
+
+    @Test
+    public void testDispatchBenchmark() throws Exception {
+        reflective(DISPATCHES); // Warm up
+        table(DISPATCHES);
+
+        long start = System.nanoTime();
+        reflective(DISPATCHES);
+        double reflectiveNs = (System.nanoTime() - start) / (double) DISPATCHES;
+
+        start = System.nanoTime();
+        table(DISPATCHES);
+        double tableNs = (System.nanoTime() - start) / (double) DISPATCHES;
+
+        System.out.printf("Reflective: %.1f ns/request, table: %.1f ns/request%n", reflectiveNs, tableNs);
+
+        assertTrue(tableNs < reflectiveNs);
+    }
+
+    /**
+     * Dispatch the given number of requests as DpTuTutor previously did.
+     */
+    private int reflective(int n) throws Exception {
+        int count = 0;
+
+        for (int i = 0; i < n; i++) {
+            char c[] = TYPES[i % TYPES.length].getRequestName().toCharArray();
+            c[1] = Character.toLowerCase(c[1]);
+
+            char m[] = new char[c.length - 1];
+            for (int j = 1; j < c.length; j++) {
+                m[j - 1] = c[j];
+            }
+
+            String methodName = new String(m);
+
+            switch (methodName) {
+                case "completedStep":
+                case "completedTask":
+                case "newExample":
+                case "requestHint":
+                    count++;
+                    break;
+                default:
+            }
+
+            Method method = getClass().getMethod(methodName, String.class);
+
+            if (method.invoke(this, requests[i % TYPES.length].getData()) == reply) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Dispatch the given number of requests through the handler table.
+     */
+    private int table(int n) throws Exception {
+        int count = 0;
+
+        for (int i = 0; i < n; i++) {
+            ServerRequestType type = TYPES[i % TYPES.length];
+
+            if (type.isTokenRequired()) {
+                count++;
+            }
+
+            if (handlers.get(type).handle(new RequestContext(requests[i % TYPES.length])) == reply) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    public TutorReply completedStep(String data) {
+        return reply;
+    }
+
+    public TutorReply completedTask(String data) {
+        return reply;
+    }
+
+    public TutorReply createAccount(String data) {
+        return reply;
+    }
+
+    public TutorReply signIn(String data) {
+        return reply;
+    }
+
+    public TutorReply requestHint(String data) {
+        return reply;
+    }
+}
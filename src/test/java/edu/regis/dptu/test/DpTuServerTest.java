@@ -0,0 +1,561 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import com.google.gson.Gson;
+import edu.regis.dptu.svc.BinaryChannel;
+import edu.regis.dptu.svc.ClientRequest;
+import edu.regis.dptu.svc.DpTuServer;
+import edu.regis.dptu.svc.DpTuTutor;
+import edu.regis.dptu.svc.ServerRequestType;
+import edu.regis.dptu.svc.TutorReply;
+import edu.regis.dptu.svc.TutorSvc;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load and backpressure tests of the DpTuServer using a stub tutor that
+ * simulates a slow database round-trip. The load test of a thousand
+ * SELECTOR mode connections runs only when the edu.regis.dptu.benchmarks
+ * system property is true.
+ *
+ * @author rickb
+ */
+public class DpTuServerTest {
+    /**
+     * Simulated time (ms) the stub tutor spends on each request.
+     */
+    private static final int TUTOR_DELAY = 20;
+
+    /**
+     * Number of requests made by each client in the load test.
+     */
+    private static final int REQUESTS_PER_CLIENT = 25;
+
+    /**
+     * The server under test, if any.
+     */
+    private DpTuServer server;
+
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * Throughput with eight concurrent clients should be several times that
+     * of a single client since a slow request no longer blocks the others.
+     */
+    @Test
+    public void testThroughputScales() throws Exception {
+        int port = startServer(DpTuServer.ExecutionMode.PLATFORM, 16, 64, () -> request -> {
+            sleep(TUTOR_DELAY);
+            return new TutorReply("OK");
+        });
+
+        double single = throughput(port, 1);
+        double concurrent = throughput(port, 8);
+
+        System.out.println("1 client:  " + (int) single + " requests/sec");
+        System.out.println("8 clients: " + (int) concurrent + " requests/sec");
+
+        assertTrue(concurrent > 3 * single, "Throughput didn't scale with concurrent clients");
+    }
+
+    /**
+     * When the in-flight connection limit is reached, new connections receive
+     * an ":ERR" reply rather than waiting.
+     */
+    @Test
+    public void testBackpressure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        int port = startServer(DpTuServer.ExecutionMode.VIRTUAL, 2, 1, () -> request -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new TutorReply("OK");
+        });
+
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        Future<TutorReply> blocked = client.submit(() -> send(port));
+
+        started.await();
+
+        assertEquals(":ERR", send(port).getStatus());
+
+        release.countDown();
+
+        assertEquals("OK", blocked.get().getStatus());
+
+        client.shutdown();
+    }
+
+    /**
+     * When connections run on the platform pool, a connection that would
+     * wait for a pool thread receives an ":ERR" reply, even though fewer
+     * than maxConnections are in flight.
+     */
+    @Test
+    public void testPoolBackpressure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        int port = startServer(DpTuServer.ExecutionMode.PLATFORM, 1, 4, () -> request -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new TutorReply("OK");
+        });
+
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        Future<TutorReply> blocked = client.submit(() -> send(port));
+
+        started.await();
+
+        assertEquals(":ERR", send(port).getStatus());
+
+        release.countDown();
+
+        assertEquals("OK", blocked.get().getStatus());
+
+        client.shutdown();
+    }
+
+    /**
+     * With the shipped configuration, more clients than pool threads can each
+     * hold an idle persistent connection, and none of them is rejected.
+     */
+    @Test
+    public void testIdleClients() throws Exception {
+        int poolSize = 16;
+        int port = startServer(DpTuServer.ExecutionMode.VIRTUAL, poolSize, 64, () -> request -> {
+            return new TutorReply("OK", request.getData());
+        });
+
+        Gson gson = new Gson();
+        ArrayList<Socket> sockets = new ArrayList<>();
+
+        try {
+            for (int round = 0; round < 2; round++) {
+                for (int c = 0; c < poolSize + 4; c++) {
+                    if (round == 0) {
+                        sockets.add(new Socket("localhost", port));
+                    }
+
+                    Socket socket = sockets.get(c);
+
+                    ClientRequest request = new ClientRequest(ServerRequestType.SIGN_IN);
+                    request.setCorrelationId(c + 1);
+                    request.setData("client " + c);
+
+                    // Not closed, so the connection remains open and idle
+                    PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+
+                    out.println(gson.toJson(request));
+
+                    TutorReply reply = gson.fromJson(in.readLine(), TutorReply.class);
+
+                    assertEquals("OK", reply.getStatus(), "client " + c);
+                    assertEquals("client " + c, reply.getMessage());
+                }
+            }
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * Several requests pipelined on one persistent connection are each
+     * answered with the correlation id of their request.
+     */
+    @Test
+    public void testPipelinedRequests() throws Exception {
+        int port = startServer(DpTuServer.ExecutionMode.PLATFORM, 2, 2, () -> request -> {
+            return new TutorReply("OK", request.getData());
+        });
+
+        Gson gson = new Gson();
+
+        try (Socket socket = new Socket("localhost", port);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            for (long id = 1; id <= 3; id++) {
+                ClientRequest request = new ClientRequest(ServerRequestType.SIGN_IN);
+                request.setCorrelationId(id);
+                request.setData("request " + id);
+
+                out.println(gson.toJson(request));
+            }
+
+            for (long id = 1; id <= 3; id++) {
+                TutorReply reply = gson.fromJson(in.readLine(), TutorReply.class);
+
+                assertEquals(id, reply.getCorrelationId());
+                assertEquals("request " + id, reply.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A request whose data the tutor can't parse is answered with an ":ERR"
+     * reply, and the following request on the connection is handled.
+     */
+    @Test
+    public void testMalformedRequestData() throws Exception {
+        for (DpTuServer.ExecutionMode mode : DpTuServer.ExecutionMode.values()) {
+            int port = startServer(mode, 2, 2, DpTuTutor::instance);
+
+            Gson gson = new Gson();
+
+            try (Socket socket = new Socket("localhost", port);
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+                for (long id = 1; id <= 2; id++) {
+                    ClientRequest request = new ClientRequest(ServerRequestType.CREATE_ACCOUNT);
+                    request.setCorrelationId(id);
+                    request.setData("{not json");
+
+                    out.println(gson.toJson(request));
+
+                    TutorReply reply = gson.fromJson(in.readLine(), TutorReply.class);
+
+                    assertEquals(":ERR", reply.getStatus(), mode.toString());
+                    assertEquals(id, reply.getCorrelationId(), mode.toString());
+                }
+            }
+
+            server.shutdown();
+            server = null;
+        }
+    }
+
+    /**
+     * A request longer than the maximum message size is answered with an
+     * ":ERR" reply, and the following request on the connection is handled.
+     */
+    @Test
+    public void testMaxMessageSize() throws Exception {
+        server = new DpTuServer(0, DpTuServer.ExecutionMode.PLATFORM, 2, 2, 1000,
+                () -> request -> new TutorReply("OK", request.getData()));
+
+        new Thread(server).start();
+
+        Gson gson = new Gson();
+
+        try (Socket socket = new Socket("localhost", server.awaitPort());
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            ClientRequest large = new ClientRequest(ServerRequestType.SIGN_IN);
+            large.setData("x".repeat(100000));
+
+            ClientRequest small = new ClientRequest(ServerRequestType.SIGN_IN);
+            small.setCorrelationId(2);
+            small.setData("small");
+
+            out.println(gson.toJson(large));
+            out.println(gson.toJson(small));
+
+            TutorReply reply = gson.fromJson(in.readLine(), TutorReply.class);
+
+            assertEquals(":ERR", reply.getStatus());
+            assertTrue(reply.getMessage().contains("1000"));
+
+            reply = gson.fromJson(in.readLine(), TutorReply.class);
+
+            assertEquals(2, reply.getCorrelationId());
+            assertEquals("small", reply.getMessage());
+        }
+    }
+
+    /**
+     * A client requesting a binary connection is accepted, its pipelined
+     * requests are answered, and a request longer than the maximum message
+     * size is answered with an ":ERR" reply.
+     */
+    @Test
+    public void testBinaryConnection() throws Exception {
+        server = new DpTuServer(0, DpTuServer.ExecutionMode.PLATFORM, 2, 2, 1000,
+                () -> request -> new TutorReply("OK", request.getData()));
+
+        new Thread(server).start();
+
+        try (Socket socket = new Socket("localhost", server.awaitPort());
+             BinaryChannel channel = BinaryChannel.connect(socket.getInputStream(), socket.getOutputStream(), 1000)) {
+
+            assertNotNull(channel);
+
+            ClientRequest large = new ClientRequest(ServerRequestType.SIGN_IN);
+            large.setCorrelationId(1);
+            large.setData("x".repeat(100000));
+
+            channel.write(large);
+
+            for (long id = 2; id <= 4; id++) {
+                ClientRequest request = new ClientRequest(ServerRequestType.COMPLETED_STEP);
+                request.setCorrelationId(id);
+                request.setData("{\"request\":" + id + "}");
+
+                channel.write(request);
+            }
+
+            assertTrue(channel.next());
+
+            TutorReply reply = channel.readReply();
+
+            assertEquals(":ERR", reply.getStatus());
+            assertTrue(reply.getMessage().contains("1000"));
+
+            for (long id = 2; id <= 4; id++) {
+                assertTrue(channel.next());
+
+                reply = channel.readReply();
+
+                assertEquals(id, reply.getCorrelationId());
+                assertEquals("{\"request\":" + id + "}", reply.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The SELECTOR mode server replies to a script of pipelined requests,
+     * written in fragments, including oversized, malformed, blank, and
+     * unterminated requests, exactly as the PLATFORM mode server does.
+     */
+    @Test
+    public void testSelectorProtocol() throws Exception {
+        Gson gson = new Gson();
+        StringBuilder script = new StringBuilder();
+
+        for (long id = 1; id <= 40; id++) {
+            ClientRequest request = new ClientRequest(ServerRequestType.SIGN_IN);
+            request.setCorrelationId(id);
+            request.setData(id % 7 == 0 ? "x".repeat(1200) : "é中😀 " + "y".repeat((int) id * 13));
+
+            script.append(gson.toJson(request)).append(id % 5 == 0 ? "\r\n" : "\n");
+
+            if (id % 9 == 0) {
+                script.append("{\"requestType\":\"SIGN_IN\"\n\n  \n[]\n");
+            }
+        }
+
+        ClientRequest last = new ClientRequest(ServerRequestType.SIGN_IN);
+        last.setCorrelationId(41);
+        script.append(gson.toJson(last)); // Not terminated
+
+        byte[] bytes = script.toString().getBytes(StandardCharsets.UTF_8);
+
+        ArrayList<String> expected = replies(DpTuServer.ExecutionMode.PLATFORM, bytes);
+        ArrayList<String> replies = replies(DpTuServer.ExecutionMode.SELECTOR, bytes);
+
+        assertEquals(40 + 4 * 4 + 1, expected.size());
+        assertEquals(expected, replies);
+    }
+
+    /**
+     * The SELECTOR mode server holds many open connections with a few threads,
+     * and answers a client requesting a binary connection so it falls back
+     * to JSon.
+     */
+    @Test
+    public void testSelectorConnections() throws Exception {
+        int port = selectorConnections(50);
+
+        try (Socket socket = new Socket("localhost", port)) {
+            assertNull(BinaryChannel.connect(socket.getInputStream(), socket.getOutputStream(), 1000));
+        }
+    }
+
+    /**
+     * The SELECTOR mode server holds a thousand open connections with a few
+     * threads.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "edu.regis.dptu.benchmarks", matches = "true")
+    public void testSelectorConnectionsLoad() throws Exception {
+        selectorConnections(1000);
+    }
+
+    /**
+     * Open the given number of connections to a new SELECTOR mode server,
+     * then send a request on each and check its reply, returning the
+     * server's port.
+     */
+    private int selectorConnections(int connections) throws Exception {
+        int port = startServer(DpTuServer.ExecutionMode.SELECTOR, 2, 2000,
+                () -> request -> new TutorReply("OK", request.getData()));
+
+        Gson gson = new Gson();
+        int threads = Thread.activeCount();
+        ArrayList<Socket> sockets = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < connections; i++) {
+                sockets.add(new Socket("localhost", port));
+            }
+
+            for (int i = 0; i < sockets.size(); i++) {
+                ClientRequest request = new ClientRequest(ServerRequestType.SIGN_IN);
+                request.setData("client " + i);
+
+                PrintWriter out = new PrintWriter(sockets.get(i).getOutputStream(), true);
+                out.println(gson.toJson(request));
+            }
+
+            for (int i = 0; i < sockets.size(); i++) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(sockets.get(i).getInputStream()));
+
+                assertEquals("client " + i, gson.fromJson(in.readLine(), TutorReply.class).getMessage());
+            }
+
+            assertTrue(Thread.activeCount() - threads <= 4, "A thread per connection");
+
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+
+        return port;
+    }
+
+    /**
+     * Return the replies of a server in the given mode to the given bytes,
+     * which are written in fragments on one connection.
+     */
+    private ArrayList<String> replies(DpTuServer.ExecutionMode mode, byte[] bytes) throws Exception {
+        server = new DpTuServer(0, mode, 4, 4, 1000, () -> request -> new TutorReply("OK", request.getData()));
+
+        new Thread(server).start();
+
+        ArrayList<String> replies = new ArrayList<>();
+
+        try (Socket socket = new Socket("localhost", server.awaitPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                          StandardCharsets.UTF_8))) {
+            OutputStream out = socket.getOutputStream();
+
+            for (int i = 0, n = 1; i < bytes.length; i += n, n = n % 997 + 1) {
+                out.write(bytes, i, Math.min(n, bytes.length - i));
+                out.flush();
+            }
+
+            socket.shutdownOutput();
+
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                replies.add(line);
+            }
+        }
+
+        server.shutdown();
+        server = null;
+
+        return replies;
+    }
+
+    /**
+     * Start a server with the given configuration, returning its port.
+     */
+    private int startServer(DpTuServer.ExecutionMode mode, int poolSize, int maxConnections,
+                            Supplier<TutorSvc> tutors) throws InterruptedException {
+        server = new DpTuServer(0, mode, poolSize, maxConnections, tutors);
+
+        new Thread(server).start();
+
+        return server.awaitPort();
+    }
+
+    /**
+     * Return the number of requests per second completed by the given number
+     * of concurrent clients.
+     */
+    private double throughput(int port, int clients) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        ArrayList<Future<?>> results = new ArrayList<>();
+
+        long start = System.nanoTime();
+
+        for (int c = 0; c < clients; c++) {
+            results.add(pool.submit(() -> {
+                for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                    assertEquals("OK", send(port).getStatus());
+                }
+                return null;
+            }));
+        }
+
+        for (Future<?> result : results) {
+            result.get();
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        pool.shutdown();
+
+        return clients * REQUESTS_PER_CLIENT / (elapsed / 1e9);
+    }
+
+    /**
+     * Send a single request to the server on the given port.
+     */
+    private TutorReply send(int port) throws IOException {
+        Gson gson = new Gson();
+
+        try (Socket socket = new Socket("localhost", port);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            out.println(gson.toJson(new ClientRequest(ServerRequestType.SIGN_IN)));
+
+            return gson.fromJson(in.readLine(), TutorReply.class);
+        }
+    }
+
+    private static void sleep(int ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import edu.regis.dptu.err.FrameTooLargeException;
+import edu.regis.dptu.svc.ClientRequest;
+import edu.regis.dptu.svc.FrameReader;
+import edu.regis.dptu.svc.FrameWriter;
+import edu.regis.dptu.svc.ServerRequestType;
+import edu.regis.dptu.svc.TutorReply;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the newline framing of the messages sent between the client and
+ * the tutor.
+ *
+ * @author rickb
+ */
+public class FrameReaderTest {
+    private final Gson gson = new Gson();
+
+    /**
+     * Messages written by a FrameWriter, including ones spanning several
+     * buffers and containing newlines and non-ASCII characters, are read
+     * back by a FrameReader.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        String[] data = {"a", "line 1\nline 2", "é中😀", "x".repeat(50000), ""};
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrameWriter out = new FrameWriter(bytes);
+
+        for (int i = 0; i < data.length; i++) {
+            ClientRequest request = new ClientRequest(ServerRequestType.COMPLETED_STEP);
+            request.setCorrelationId(i);
+            request.setData(data[i]);
+
+            out.writeJson(gson, request, ClientRequest.class);
+        }
+
+        FrameReader in = new FrameReader(new ByteArrayInputStream(bytes.toByteArray()), 100000);
+
+        for (int i = 0; i < data.length; i++) {
+            assertTrue(in.next());
+
+            ClientRequest request = in.readJson(gson, ClientRequest.class);
+
+            assertEquals(i, request.getCorrelationId());
+            assertEquals(data[i], request.getData());
+            assertEquals(ServerRequestType.COMPLETED_STEP, request.getRequestType());
+        }
+
+        assertFalse(in.next());
+    }
+
+    /**
+     * Blank, malformed, and oversized frames are reported without losing
+     * the following frames.
+     */
+    @Test
+    public void testBadFrames() throws Exception {
+        String frames = "\n"
+                + "{\"status\":\"OK\"} {\"status\":\"OK\"}\n"
+                + "{\"status\":\n"
+                + "{\"status\":\"" + "x".repeat(20000) + "\"}\n"
+                + "{\"status\":\"Last\"}";
+
+        FrameReader in = new FrameReader(new ByteArrayInputStream(frames.getBytes(StandardCharsets.UTF_8)), 1000);
+
+        assertTrue(in.next());
+        assertNull(in.readJson(gson, TutorReply.class));
+
+        assertTrue(in.next());
+        assertThrows(JsonParseException.class, () -> in.readJson(gson, TutorReply.class));
+
+        assertTrue(in.next());
+        assertThrows(JsonParseException.class, () -> in.readJson(gson, TutorReply.class));
+
+        assertTrue(in.next());
+        assertThrows(FrameTooLargeException.class, () -> in.readJson(gson, TutorReply.class));
+
+        assertTrue(in.next());
+        assertEquals("Last", in.readJson(gson, TutorReply.class).getStatus());
+
+        assertFalse(in.next());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.model.BitParallelLCS;
+import edu.regis.dptu.model.HirschbergLCS;
+import edu.regis.dptu.model.LCSProblem;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Property tests of the HirschbergLCS against the full table of a solved
+ * LCSProblem: the subsequence is as long as the table's LCS length, and its
+ * alignment is increasing in both sequences and matches their characters.
+ *
+ * @author rickb
+ */
+public class HirschbergLCSTest {
+    @Test
+    public void testAgainstFullTable() {
+        Random rand = new Random(15);
+
+        for (int trial = 0; trial < 300; trial++) {
+            String x = randomSequence(rand, rand.nextInt(60), 1 + rand.nextInt(5));
+            String y = randomSequence(rand, rand.nextInt(60), 1 + rand.nextInt(5));
+
+            LCSProblem problem = new LCSProblem(x, y);
+            problem.seek(problem.getStepCount());
+
+            assertAlignment(x, y, new HirschbergLCS(x, y), problem.getValueAt(x.length(), y.length()));
+        }
+
+        assertEquals("ullabes", new HirschbergLCS("skullandbones", "lullabybabies").getSubsequence());
+    }
+
+    /**
+     * A pair of 10k character sequences, whose full table would need 400MB
+     * as an int[][].
+     */
+    @Test
+    public void testLongSequences() {
+        Random rand = new Random(8);
+        String x = randomSequence(rand, 10000, 4);
+        String y = randomSequence(rand, 10000, 4);
+
+        long start = System.nanoTime();
+        HirschbergLCS lcs = new HirschbergLCS(x, y);
+        String subsequence = lcs.getSubsequence();
+
+        System.out.printf("Hirschberg LCS of 10k chars: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        assertAlignment(x, y, lcs, new BitParallelLCS(x, y).length());
+        assertEquals(subsequence.length(), lcs.getXIndexes().length);
+    }
+
+    private static void assertAlignment(String x, String y, HirschbergLCS lcs, int expectedLength) {
+        String subsequence = lcs.getSubsequence();
+        int[] xIndexes = lcs.getXIndexes();
+        int[] yIndexes = lcs.getYIndexes();
+
+        assertEquals(expectedLength, subsequence.length(), x + " " + y);
+        assertEquals(expectedLength, xIndexes.length);
+        assertEquals(expectedLength, yIndexes.length);
+
+        for (int k = 0; k < expectedLength; k++) {
+            assertEquals(subsequence.charAt(k), x.charAt(xIndexes[k]));
+            assertEquals(subsequence.charAt(k), y.charAt(yIndexes[k]));
+
+            if (k > 0) {
+                assertTrue(xIndexes[k - 1] < xIndexes[k]);
+                assertTrue(yIndexes[k - 1] < yIndexes[k]);
+            }
+        }
+    }
+
+    private static String randomSequence(Random rand, int length, int alphabet) {
+        StringBuilder s = new StringBuilder(length);
+
+        for (int k = 0; k < length; k++) {
+            s.append((char) ('a' + rand.nextInt(alphabet)));
+        }
+
+        return s.toString();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.model.LCSDifficulty;
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.model.LCSSolutions;
+import edu.regis.dptu.svc.LCSProblemGenerator;
+import edu.regis.dptu.svc.LCSProblemSvc;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the LCSProblemGenerator, checking each generated problem's
+ * measures by brute force.
+ *
+ * @author rickb
+ */
+public class LCSProblemGeneratorTest {
+    /**
+     * Every generated problem has the targeted difficulty, and no two have
+     * the same sequences, in either order.
+     */
+    @Test
+    public void testTargeting() {
+        LCSDifficulty difficulty = new LCSDifficulty();
+        difficulty.setMinLength(10);
+        difficulty.setMaxLength(14);
+        difficulty.setAlphabetSize(4);
+        difficulty.setMinLcsRatio(0.6);
+        difficulty.setMaxLcsRatio(0.8);
+        difficulty.setMinSolutions(2);
+        difficulty.setMaxSolutions(6);
+        difficulty.setMinMatchDensity(0.2);
+        difficulty.setMaxMatchDensity(0.3);
+
+        LCSProblemGenerator generator = new LCSProblemGenerator(difficulty);
+
+        long start = System.nanoTime();
+        List<LCSProblem> problems = generator.generate(2000, 42);
+        System.out.printf("Generated %d problems from %d candidates (%d duplicates) in %.1f ms%n",
+                problems.size(), generator.getCandidateCount(), generator.getDuplicateCount(),
+                (System.nanoTime() - start) / 1e6);
+
+        assertEquals(2000, problems.size());
+
+        HashSet<String> keys = new HashSet<>();
+
+        for (LCSProblem problem : problems) {
+            String x = problem.getX();
+            String y = problem.getY();
+
+            assertTrue(keys.add(x + "/" + y));
+            assertFalse(keys.contains(y + "/" + x) && !x.equals(y));
+
+            assertTrue(x.length() >= 10 && x.length() <= 14);
+            assertTrue(y.length() >= 10 && y.length() <= 14);
+            assertTrue((x + y).chars().allMatch(c -> c >= 'a' && c < 'e'));
+
+            LCSSolutions solutions = new LCSSolutions(problem);
+            double ratio = (double) solutions.getLength() / Math.min(x.length(), y.length());
+            long count = solutions.stream().count();
+
+            assertTrue(ratio >= 0.6 && ratio <= 0.8, "ratio " + ratio);
+            assertTrue(count >= 2 && count <= 6, "solutions " + count);
+
+            int matches = 0;
+            for (char c : x.toCharArray()) {
+                for (char d : y.toCharArray()) {
+                    matches += c == d ? 1 : 0;
+                }
+            }
+
+            double density = (double) matches / (x.length() * y.length());
+            assertEquals(density, LCSProblemGenerator.matchDensity(x, y), 1e-12);
+            assertTrue(density >= 0.2 && density <= 0.3, "density " + density);
+        }
+    }
+
+    /**
+     * A seed generates the same problems regardless of the pool's parallelism,
+     * and an unreachable difficulty yields fewer problems instead of failing.
+     */
+    @Test
+    public void testDeterminism() {
+        LCSDifficulty difficulty = new LCSDifficulty();
+
+        ForkJoinPool single = new ForkJoinPool(1);
+
+        List<LCSProblem> first = new LCSProblemGenerator(difficulty, single).generate(300, 7);
+        List<LCSProblem> second = new LCSProblemGenerator(difficulty).generate(300, 7);
+
+        single.shutdown();
+
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getX(), second.get(i).getX());
+            assertEquals(first.get(i).getY(), second.get(i).getY());
+        }
+
+        difficulty.setMinLength(2);
+        difficulty.setMaxLength(2);
+        difficulty.setAlphabetSize(1);
+
+        assertEquals(1, new LCSProblemGenerator(difficulty).generate(5, 7).size());
+
+        difficulty.setMaxLength(1);
+        assertThrows(IllegalArgumentException.class, () -> new LCSProblemGenerator(difficulty));
+    }
+
+    /**
+     * The generated problems are passed to the service in one batch.
+     */
+    @Test
+    public void testCreateAll() throws Exception {
+        StubProblemSvc problemSvc = new StubProblemSvc();
+
+        assertEquals(50, new LCSProblemGenerator(new LCSDifficulty()).generate(50, 1, problemSvc));
+        assertEquals(1, problemSvc.batches);
+    }
+
+    /**
+     * An LCSProblemSvc that counts its batches.
+     */
+    private static class StubProblemSvc implements LCSProblemSvc {
+        private int batches;
+
+        @Override
+        public int createAll(List<LCSProblem> problems) {
+            batches++;
+
+            return problems.size();
+        }
+    }
+}
@@ -427,4 +427,126 @@ public class LCSProblemTest {
         problem.prettyPrint();
     }
 
+    /**
+     * Seeking to any step gives the same state and table as stepping to it,
+     * and the completed table is the LCS table.
+     */
+    @Test
+    public void testSeek() {
+        String x = "skullandbones";
+        String y = "lullabybabies";
+
+        LCSProblem stepped = new LCSProblem(x, y);
+        LCSProblem sought = new LCSProblem(x, y);
+
+        Random rand = new Random(11);
+
+        for (long s = 0; s < stepped.getStepCount(); s++) {
+            stepped.step();
+
+            // Jump from a random step
+            sought.seek(rand.nextInt((int) stepped.getStepCount() + 1));
+            sought.seek(stepped.getStepIndex());
+
+            assertEquals(stepped.getExecutionState(), sought.getExecutionState());
+            assertEquals(stepped.getI(), sought.getI());
+            assertEquals(stepped.getJ(), sought.getJ());
+
+            for (int i = 0; i <= x.length(); i++) {
+                for (int j = 0; j <= y.length(); j++) {
+                    assertEquals(stepped.getValueAt(i, j), sought.getValueAt(i, j));
+                }
+            }
+        }
+
+        assertEquals(LCSProblem.EXECUTION_STATE.POST, stepped.getExecutionState());
+        assertEquals(7, stepped.getValueAt(x.length(), y.length())); // "ullabes"
+
+        stepped.stepBack();
+        assertEquals(LCSProblem.EXECUTION_STATE.I_LOOP, stepped.getExecutionState());
+        stepped.stepBack();
+        assertEquals(LCSProblem.EXECUTION_STATE.J_LOOP, stepped.getExecutionState());
+        assertEquals(y.length(), stepped.getJ());
+
+        stepped.stepBack();
+        assertEquals(-1, stepped.getValueAt(x.length(), y.length()));
+
+        assertThrows(IllegalArgumentException.class, () -> sought.seek(-1));
+        assertThrows(IllegalArgumentException.class, () -> sought.seek(sought.getStepCount() + 1));
+    }
+
+    /**
+     * Scrubbing back and forth through a 200x200 table.
+     */
+    @Test
+    public void testSeekBenchmark() {
+        Random rand = new Random(5);
+        StringBuilder x = new StringBuilder();
+        StringBuilder y = new StringBuilder();
+
+        for (int k = 0; k < 200; k++) {
+            x.append((char) ('a' + rand.nextInt(4)));
+            y.append((char) ('a' + rand.nextInt(4)));
+        }
+
+        LCSProblem problem = new LCSProblem(x.toString(), y.toString());
+
+        long start = System.nanoTime();
+        int sum = 0;
+
+        for (int k = 0; k < 100000; k++) {
+            problem.seek((long) (rand.nextDouble() * problem.getStepCount()));
+            sum += problem.getCurrentValue();
+        }
+
+        double ns = (System.nanoTime() - start) / 100000.0;
+        System.out.printf("LCSProblem.seek(): %.1f ns/seek (%d)%n", ns, sum);
+    }
+
+    /**
+     * Seeks are undone and redone in order, and the oldest are forgotten
+     * once the journal is full.
+     */
+    @Test
+    public void testUndoRedo() {
+        LCSProblem problem = new LCSProblem("skullandbones", "lullabybabies");
+
+        assertFalse(problem.undo());
+
+        problem.seek(40);
+        problem.step();
+        problem.seek(100);
+        problem.seek(7);
+
+        assertTrue(problem.undo());
+        assertEquals(100, problem.getStepIndex());
+        assertTrue(problem.undo());
+        assertEquals(41, problem.getStepIndex());
+        assertTrue(problem.undo());
+        assertEquals(0, problem.getStepIndex());
+        assertFalse(problem.undo());
+
+        assertTrue(problem.redo());
+        assertEquals(41, problem.getStepIndex());
+        problem.stepBack();
+        assertTrue(problem.redo());
+        assertEquals(100, problem.getStepIndex());
+        assertTrue(problem.undo());
+        assertEquals(40, problem.getStepIndex());
+
+        problem.seek(50); // Discards the moves to 100 and 7
+        assertFalse(problem.redo());
+
+        for (int k = 1; k <= 100; k++) {
+            problem.seek(k);
+        }
+
+        int undone = 0;
+        while (problem.undo()) {
+            undone++;
+        }
+
+        assertEquals(63, undone);
+        assertEquals(37, problem.getStepIndex());
+    }
 }
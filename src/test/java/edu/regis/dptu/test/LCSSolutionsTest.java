@@ -0,0 +1,152 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.model.LCSSolutions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the LCSSolutions enumeration against a brute force set of the
+ * longest common subsequences.
+ *
+ * @author rickb
+ */
+public class LCSSolutionsTest {
+    /**
+     * The enumeration returns each LCS exactly once, and isLCS() agrees.
+     */
+    @Test
+    public void testAgainstBruteForce() {
+        Random rand = new Random(17);
+
+        for (int trial = 0; trial < 200; trial++) {
+            String x = randomSequence(rand, rand.nextInt(12), 1 + rand.nextInt(4));
+            String y = randomSequence(rand, rand.nextInt(12), 1 + rand.nextInt(4));
+
+            Set<String> expected = bruteForce(x, y, new HashMap<>());
+            LCSSolutions solutions = new LCSSolutions(new LCSProblem(x, y));
+
+            ArrayList<String> found = new ArrayList<>();
+            solutions.forEach(found::add);
+
+            assertEquals(expected, new HashSet<>(found), x + " " + y);
+            assertEquals(expected.size(), found.size(), "duplicates for " + x + " " + y);
+
+            for (String s : expected) {
+                assertTrue(solutions.isLCS(s));
+            }
+        }
+
+        LCSSolutions solutions = new LCSSolutions(new LCSProblem("skullandbones", "lullabybabies"));
+
+        assertEquals(bruteForce("skullandbones", "lullabybabies", new HashMap<>()),
+                solutions.stream().collect(Collectors.toSet()));
+        assertTrue(solutions.isLCS("ullabes"));
+        assertFalse(solutions.isLCS("ullabs")); // Common, but not longest
+        assertFalse(solutions.isLCS("ullabez"));
+        assertFalse(solutions.isLCS(null));
+    }
+
+    /**
+     * The first solutions of a problem with a huge number of them are found
+     * without enumerating the rest.
+     */
+    @Test
+    public void testLazy() {
+        StringBuilder x = new StringBuilder();
+        StringBuilder y = new StringBuilder();
+
+        for (int k = 0; k < 100; k++) {
+            x.append("abc");
+            y.append("cba");
+        }
+
+        LCSSolutions solutions = new LCSSolutions(new LCSProblem(x.toString(), y.toString()));
+        Iterator<String> it = solutions.iterator();
+        HashSet<String> first = new HashSet<>();
+
+        for (int k = 0; k < 1000; k++) {
+            String s = it.next();
+
+            assertTrue(solutions.isLCS(s));
+            assertTrue(first.add(s));
+        }
+
+        assertTrue(it.hasNext());
+    }
+
+    /**
+     * Return all distinct LCSs of x and y.
+     */
+    private static Set<String> bruteForce(String x, String y, HashMap<String, Set<String>> memo) {
+        String key = x.length() + "," + y.length();
+        Set<String> result = memo.get(key);
+
+        if (result != null) {
+            return result;
+        }
+
+        result = new HashSet<>();
+
+        if (x.isEmpty() || y.isEmpty()) {
+            result.add("");
+        } else {
+            char a = x.charAt(x.length() - 1);
+            char b = y.charAt(y.length() - 1);
+            String xs = x.substring(0, x.length() - 1);
+            String ys = y.substring(0, y.length() - 1);
+
+            if (a == b) {
+                for (String s : bruteForce(xs, ys, memo)) {
+                    result.add(s + a);
+                }
+            } else {
+                Set<String> left = bruteForce(xs, y, memo);
+                Set<String> right = bruteForce(x, ys, memo);
+                int length = Math.max(left.iterator().next().length(), right.iterator().next().length());
+
+                for (Set<String> side : List.of(left, right)) {
+                    for (String s : side) {
+                        if (s.length() == length) {
+                            result.add(s);
+                        }
+                    }
+                }
+            }
+        }
+
+        memo.put(key, result);
+
+        return result;
+    }
+
+    private static String randomSequence(Random rand, int length, int alphabet) {
+        StringBuilder s = new StringBuilder(length);
+
+        for (int k = 0; k < length; k++) {
+            s.append((char) ('a' + rand.nextInt(alphabet)));
+        }
+
+        return s.toString();
+    }
+}
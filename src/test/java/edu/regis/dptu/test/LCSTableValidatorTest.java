@@ -0,0 +1,146 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.model.CellAnswer;
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.model.LCSTableValidator;
+import edu.regis.dptu.svc.TableValidatorCache;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the LCSTableValidator against a solved LCSProblem, and of the
+ * TableValidatorCache holding them.
+ *
+ * @author rickb
+ */
+public class LCSTableValidatorTest {
+    private static final String X = "skullandbones";
+
+    private static final String Y = "lullabybabies";
+
+    /**
+     * A table filled in, in any order, with the solution is solved.
+     */
+    @Test
+    public void testSolved() {
+        LCSProblem solved = solved();
+        LCSTableValidator validator = new LCSTableValidator(new LCSProblem(X, Y));
+
+        ArrayList<int[]> cells = new ArrayList<>();
+        for (int i = 0; i <= X.length(); i++) {
+            for (int j = 0; j <= Y.length(); j++) {
+                cells.add(new int[] {i, j});
+            }
+        }
+        Collections.shuffle(cells, new Random(3));
+
+        for (int[] cell : cells) {
+            assertFalse(validator.isSolved());
+
+            validator.set(cell[0], cell[1], solved.getValueAt(cell[0], cell[1]));
+
+            assertNull(validator.getFirstIncorrect());
+        }
+
+        assertTrue(validator.isSolved());
+    }
+
+    /**
+     * The first incorrect cell is that of the earliest error in fill order,
+     * and moves on as errors are fixed.
+     */
+    @Test
+    public void testFirstIncorrect() {
+        LCSProblem solved = solved();
+        LCSTableValidator validator = new LCSTableValidator(new LCSProblem(X, Y));
+
+        for (int i = 0; i <= X.length(); i++) {
+            validator.update(new CellAnswer(i, 0, solvedRow(solved, i)), false);
+        }
+
+        validator.set(9, 4, solved.getValueAt(9, 4) + 1);
+        validator.set(3, 7, solved.getValueAt(3, 7) + 2);
+        validator.set(5, 0, 1); // Column 0 is filled before row 1
+
+        assertArrayEquals(new int[] {5, 0}, validator.getFirstIncorrect());
+
+        validator.set(5, 0, 0);
+        assertArrayEquals(new int[] {3, 7}, validator.getFirstIncorrect());
+
+        validator.set(3, 7, solved.getValueAt(3, 7));
+        assertArrayEquals(new int[] {9, 4}, validator.getFirstIncorrect());
+
+        // Clearing the cell leaves its dependents unchecked
+        validator.set(9, 4, LCSTableValidator.EMPTY);
+        assertNull(validator.getFirstIncorrect());
+        assertFalse(validator.isSolved());
+
+        validator.set(9, 4, solved.getValueAt(9, 4));
+        assertTrue(validator.isSolved());
+
+        assertThrows(IndexOutOfBoundsException.class, () -> validator.set(X.length() + 1, 0, 0));
+    }
+
+    /**
+     * A student's table is kept while they fill it in, and the least recently
+     * used tables are evicted to meet the cache's budget.
+     */
+    @Test
+    public void testCacheBudget() {
+        LCSProblem problem = new LCSProblem(X, Y);
+        long tableBytes = new LCSTableValidator(problem).getFootprint();
+        TableValidatorCache cache = new TableValidatorCache(2 * tableBytes);
+
+        LCSTableValidator a = cache.retrieve("a@regis.edu", problem);
+        cache.retrieve("b@regis.edu", problem);
+
+        assertSame(a, cache.retrieve("a@regis.edu", problem));
+
+        cache.retrieve("c@regis.edu", problem); // Evicts b
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.getFootprint() <= 2 * tableBytes);
+        assertSame(a, cache.retrieve("a@regis.edu", problem));
+
+        // A table over the budget is returned, but not cached
+        LCSProblem large = new LCSProblem(X.repeat(2), Y.repeat(2));
+
+        assertNotSame(cache.retrieve("d@regis.edu", large), cache.retrieve("d@regis.edu", large));
+        assertEquals(2, cache.size());
+
+        cache.invalidate("a@regis.edu");
+        assertEquals(tableBytes, cache.getFootprint());
+    }
+
+    private static LCSProblem solved() {
+        LCSProblem problem = new LCSProblem(X, Y);
+        problem.seek(problem.getStepCount());
+
+        return problem;
+    }
+
+    private static int[] solvedRow(LCSProblem solved, int i) {
+        int[] row = new int[Y.length() + 1];
+
+        for (int j = 0; j <= Y.length(); j++) {
+            row[j] = solved.getValueAt(i, j);
+        }
+
+        return row;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.util.SHA_256;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the SHA_256 algorithm against java.security.MessageDigest, along
+ * with a throughput benchmark of the two.
+ *
+ * @author rickb
+ */
+public class SHA256Test {
+    /**
+     * Bytes hashed by each timed benchmark run.
+     */
+    private static final int BENCHMARK_BYTES = 64 * 1024 * 1024;
+
+    @Test
+    public void testKnownDigests() {
+        SHA_256 sha = SHA_256.instance();
+
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", sha.sha256(""));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", sha.sha256("abc"));
+        assertEquals("fddfe0c1671993dbe8da88ccfbdf8aae3ae255d41b2808ff86041cca4cff65e5",
+                sha.sha256("Regis Computer Science Rocks!"));
+    }
+
+    /**
+     * Messages of every length around the padding boundaries, given to the
+     * engine in pieces of varying size, hash as MessageDigest does.
+     */
+    @Test
+    public void testIncrementalUpdates() throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        SHA_256.Engine engine = new SHA_256.Engine();
+        Random random = new Random(17);
+
+        for (int len = 0; len < 300; len++) {
+            byte[] msg = new byte[len];
+            random.nextBytes(msg);
+
+            byte[] expected = md.digest(msg);
+
+            assertArrayEquals(expected, SHA_256.instance().hash(msg), "length " + len);
+
+            for (int off = 0; off < len; ) {
+                int n = Math.min(len - off, 1 + random.nextInt(100));
+
+                engine.update(msg, off, n);
+                off += n;
+            }
+
+            assertArrayEquals(expected, engine.digest(), "incremental length " + len);
+        }
+
+        assertThrows(IndexOutOfBoundsException.class, () -> engine.update(new byte[4], 2, 3));
+    }
+
+    /**
+     * The singleton may be used by any number of threads at once.
+     */
+    @Test
+    public void testConcurrentHashing() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        ArrayList<Future<Boolean>> results = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            final int seed = i;
+
+            results.add(pool.submit(() -> {
+                MessageDigest md = MessageDigest.getInstance("SHA-256");
+                Random random = new Random(seed);
+
+                for (int j = 0; j < 2000; j++) {
+                    byte[] msg = new byte[random.nextInt(200)];
+                    random.nextBytes(msg);
+
+                    if (!MessageDigest.isEqual(md.digest(msg), SHA_256.instance().hash(msg))) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }));
+        }
+
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+
+        pool.shutdown();
+    }
+
+    @Test
+    public void testToHex() {
+        assertEquals("", SHA_256.toHex(new byte[0]));
+        assertEquals("00017f80ff", SHA_256.toHex(new byte[] {0, 1, 127, -128, -1}));
+    }
+
+    /**
+     * Compare the hash throughput of the engine and MessageDigest on 4KB
+     * messages. The timings are reported, not asserted, since MessageDigest
+     * may use CPU SHA extensions.
+     */
+    @Test
+    public void testBenchmark() throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        SHA_256.Engine engine = new SHA_256.Engine();
+        byte[] msg = new byte[4096];
+        new Random(3).nextBytes(msg);
+
+        for (int i = 0; i < 3; i++) { // Warm up
+            runEngine(engine, msg);
+            runMessageDigest(md, msg);
+        }
+
+        long start = System.nanoTime();
+        runEngine(engine, msg);
+        double engineMBs = BENCHMARK_BYTES / 1048576.0 / ((System.nanoTime() - start) / 1e9);
+
+        start = System.nanoTime();
+        runMessageDigest(md, msg);
+        double mdMBs = BENCHMARK_BYTES / 1048576.0 / ((System.nanoTime() - start) / 1e9);
+
+        System.out.printf("SHA_256: %.1f MB/s, MessageDigest: %.1f MB/s%n", engineMBs, mdMBs);
+    }
+
+    private static int runEngine(SHA_256.Engine engine, byte[] msg) {
+        int sum = 0;
+
+        for (int n = 0; n < BENCHMARK_BYTES; n += msg.length) {
+            sum += engine.update(msg, 0, msg.length).digest()[0];
+        }
+
+        return sum;
+    }
+
+    private static int runMessageDigest(MessageDigest md, byte[] msg) {
+        int sum = 0;
+
+        for (int n = 0; n < BENCHMARK_BYTES; n += msg.length) {
+            md.update(msg, 0, msg.length);
+            sum += md.digest()[0];
+        }
+
+        return sum;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.dao.UnitOfWork;
+import edu.regis.dptu.err.ObjNotFoundException;
+import edu.regis.dptu.model.Student;
+import edu.regis.dptu.model.TutoringSession;
+import edu.regis.dptu.svc.SessionSvc;
+import edu.regis.dptu.svc.SessionTokenCache;
+import java.util.HashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the SessionTokenCache using a stub SessionSvc that counts its
+ * token retrievals (i.e., database round-trips).
+ *
+ * @author rickb
+ */
+public class SessionTokenCacheTest {
+    private StubSessionSvc sessionSvc;
+
+    @BeforeEach
+    public void setUp() {
+        sessionSvc = new StubSessionSvc();
+        sessionSvc.tokens.put("a@regis.edu", "tokenA");
+        sessionSvc.tokens.put("b@regis.edu", "tokenB");
+        sessionSvc.tokens.put("c@regis.edu", "tokenC");
+    }
+
+    /**
+     * Repeated verifications of the same user read the token once.
+     */
+    @Test
+    public void testHits() throws Exception {
+        SessionTokenCache cache = new SessionTokenCache(sessionSvc, 60000, 10);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("tokenA", cache.retrieveSecurityToken("a@regis.edu"));
+        }
+
+        assertEquals(1, sessionSvc.retrievals);
+        assertEquals(99, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertThrows(ObjNotFoundException.class, () -> cache.retrieveSecurityToken("x@regis.edu"));
+    }
+
+    /**
+     * Deleting a session invalidates its cached token, and expired tokens
+     * are re-read.
+     */
+    @Test
+    public void testInvalidationAndTtl() throws Exception {
+        SessionTokenCache cache = new SessionTokenCache(sessionSvc, 60000, 10);
+
+        cache.retrieveSecurityToken("a@regis.edu");
+        cache.delete("a@regis.edu");
+
+        assertThrows(ObjNotFoundException.class, () -> cache.retrieveSecurityToken("a@regis.edu"));
+
+        SessionTokenCache expiring = new SessionTokenCache(sessionSvc, 1, 10);
+
+        expiring.retrieveSecurityToken("b@regis.edu");
+        Thread.sleep(5);
+        expiring.retrieveSecurityToken("b@regis.edu");
+
+        assertEquals(0, expiring.getHitCount());
+    }
+
+    /**
+     * A token read while a deletion in a unit of work is uncommitted isn't
+     * used once the work ends.
+     */
+    @Test
+    public void testInvalidationAfterCommit() throws Exception {
+        SessionTokenCache cache = new SessionTokenCache(sessionSvc, 60000, 10);
+
+        sessionSvc.isDeferred = true;
+
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            cache.delete("a@regis.edu");
+
+            // A concurrent request still reads, and caches, the old token
+            assertEquals("tokenA", cache.retrieveSecurityToken("a@regis.edu"));
+
+            sessionSvc.tokens.remove("a@regis.edu"); // The commit
+            work.complete();
+        }
+
+        assertThrows(ObjNotFoundException.class, () -> cache.retrieveSecurityToken("a@regis.edu"));
+    }
+
+    /**
+     * The least recently used token is evicted once the cache is full.
+     */
+    @Test
+    public void testEviction() throws Exception {
+        SessionTokenCache cache = new SessionTokenCache(sessionSvc, 60000, 2);
+
+        cache.retrieveSecurityToken("a@regis.edu");
+        cache.retrieveSecurityToken("b@regis.edu");
+        cache.retrieveSecurityToken("a@regis.edu");
+        cache.retrieveSecurityToken("c@regis.edu"); // Evicts b
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        int retrievals = sessionSvc.retrievals;
+
+        cache.retrieveSecurityToken("a@regis.edu");
+        assertEquals(retrievals, sessionSvc.retrievals);
+
+        cache.retrieveSecurityToken("b@regis.edu");
+        assertEquals(retrievals + 1, sessionSvc.retrievals);
+    }
+
+    /**
+     * A SessionSvc holding only security tokens.
+     */
+    private static class StubSessionSvc implements SessionSvc {
+        private final HashMap<String, String> tokens = new HashMap<>();
+
+        private int retrievals;
+
+        /**
+         * Whether deletions are left to the test, as if uncommitted.
+         */
+        private boolean isDeferred;
+
+        @Override
+        public void create(TutoringSession session) {
+        }
+
+        @Override
+        public TutoringSession retrieve(Student student) {
+            return null;
+        }
+
+        @Override
+        public TutoringSession retrieve(String userId) {
+            return null;
+        }
+
+        @Override
+        public void update(TutoringSession session) {
+        }
+
+        @Override
+        public void delete(String userId) {
+            if (!isDeferred) {
+                tokens.remove(userId);
+            }
+        }
+
+        @Override
+        public String retrieveSecurityToken(String userId) throws ObjNotFoundException {
+            retrievals++;
+
+            String token = tokens.get(userId);
+
+            if (token == null) {
+                throw new ObjNotFoundException(userId);
+            }
+
+            return token;
+        }
+    }
+}
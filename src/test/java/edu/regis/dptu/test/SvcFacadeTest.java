@@ -0,0 +1,157 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.svc.ClientRequest;
+import edu.regis.dptu.svc.DpTuServer;
+import edu.regis.dptu.svc.FrameReader;
+import edu.regis.dptu.svc.ServerRequestType;
+import edu.regis.dptu.svc.SvcFacade;
+import edu.regis.dptu.svc.TutorReply;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the SvcFacade's asynchronous requests, using a stub tutor that
+ * replies with the request's data after sleeping the number of milliseconds
+ * in its data.
+ *
+ * @author rickb
+ */
+public class SvcFacadeTest {
+    /**
+     * The port to which the SvcFacade connects.
+     */
+    private static final int PORT = 53637;
+
+    /**
+     * The server to which the facade connects.
+     */
+    private static DpTuServer server;
+
+    @BeforeAll
+    public static void startServer() throws InterruptedException {
+        server = new DpTuServer(PORT, DpTuServer.ExecutionMode.VIRTUAL, 4, 4, () -> request -> {
+            sleep(Integer.parseInt(request.getData()));
+
+            return new TutorReply("OK", request.getData());
+        });
+
+        new Thread(server).start();
+
+        server.awaitPort();
+
+        SvcFacade.instance(); // So its initialization isn't timed
+    }
+
+    @AfterAll
+    public static void stopServer() {
+        server.shutdown();
+    }
+
+    /**
+     * An asynchronous request returns without waiting for the tutor, and
+     * its reply is delivered on the event dispatch thread.
+     */
+    @Test
+    public void testAsyncReply() throws Exception {
+        long start = System.nanoTime();
+
+        CompletableFuture<TutorReply> result = SvcFacade.instance().tutorRequestAsync(request(500));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(250));
+        assertFalse(result.isDone());
+
+        CompletableFuture<Boolean> onEdt = result.thenApply(reply -> SwingUtilities.isEventDispatchThread());
+
+        // Waiting on the result itself may run its dependents on this thread
+        assertTrue(onEdt.get(5, TimeUnit.SECONDS));
+        assertEquals("500", result.get(5, TimeUnit.SECONDS).getMessage());
+    }
+
+    /**
+     * A request the tutor doesn't reply to in time is answered with an
+     * ":ERR" reply, and its late reply is discarded.
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        TutorReply reply = SvcFacade.instance().tutorRequestAsync(request(1000), 100).get(5, TimeUnit.SECONDS);
+
+        assertEquals(":ERR", reply.getStatus());
+        assertTrue(reply.getMessage().contains("100 ms"));
+
+        reply = SvcFacade.instance().tutorRequestAsync(request(1500)).get(5, TimeUnit.SECONDS);
+
+        assertEquals("OK", reply.getStatus());
+        assertEquals("1500", reply.getMessage());
+    }
+
+    /**
+     * A cancelled request isn't completed, and doesn't affect later requests.
+     */
+    @Test
+    public void testCancel() throws Exception {
+        CompletableFuture<TutorReply> result = SvcFacade.instance().tutorRequestAsync(request(500));
+
+        assertTrue(result.cancel(true));
+
+        TutorReply reply = SvcFacade.instance().tutorRequestAsync(request(10)).get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isCancelled());
+        assertEquals("10", reply.getMessage());
+    }
+
+    /**
+     * A request too long for the tutor is answered with the tutor's ":ERR"
+     * reply, which has no correlation id, rather than waiting indefinitely,
+     * and the following request is answered.
+     */
+    @Test
+    public void testOversizedRequest() {
+        ClientRequest large = request(0);
+        large.setData("x".repeat(FrameReader.maxFrameSizeProp() + 1));
+
+        TutorReply reply = SvcFacade.instance().tutorRequest(large);
+
+        assertEquals(":ERR", reply.getStatus());
+        assertTrue(reply.getMessage().contains(Integer.toString(FrameReader.maxFrameSizeProp())));
+
+        reply = SvcFacade.instance().tutorRequest(request(10));
+
+        assertEquals("OK", reply.getStatus());
+        assertEquals("10", reply.getMessage());
+    }
+
+    /**
+     * Return a request that the stub tutor replies to after the given delay.
+     */
+    private static ClientRequest request(int delay) {
+        ClientRequest request = new ClientRequest(ServerRequestType.SIGN_IN);
+        request.setData(Integer.toString(delay));
+
+        return request;
+    }
+
+    private static void sleep(int ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
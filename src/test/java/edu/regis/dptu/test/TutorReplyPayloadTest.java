@@ -0,0 +1,247 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import edu.regis.dptu.model.Account;
+import edu.regis.dptu.model.CourseDigest;
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.model.PendingTask;
+import edu.regis.dptu.model.Step;
+import edu.regis.dptu.model.StepCompletionReply;
+import edu.regis.dptu.model.StepSubType;
+import edu.regis.dptu.model.Student;
+import edu.regis.dptu.model.Task;
+import edu.regis.dptu.model.TutoringSession;
+import edu.regis.dptu.model.UnitDigest;
+import edu.regis.dptu.model.aol.StudentModel;
+import edu.regis.dptu.svc.TutorReply;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the size of sign-in and step completion replies whose data is a
+ * JSon tree with the previous replies, whose data was a JSon encoded String
+ * (within a JSon encoded StepCompletionReply).
+ *
+ * Their client parse times are compared only when the
+ * edu.regis.dptu.benchmarks system property is true.
+ *
+ * @author rickb
+ */
+public class TutorReplyPayloadTest {
+    /**
+     * Number of replies parsed after warming up.
+     */
+    private static final int PARSES = 20000;
+
+    private final Gson gson = new Gson();
+
+    /**
+     * A sign-in reply carries the session inline, so it is smaller and
+     * parsed once.
+     */
+    @Test
+    public void testSignInReply() {
+        String json = signInReply();
+        String encoded = encodedSignInReply();
+
+        TutorReply parsed = gson.fromJson(json, TutorReply.class);
+        assertEquals(JsonParser.parseString(gson.fromJson(encoded, EncodedReply.class).data), parsed.getData());
+        assertEquals("test@regis.edu", parsed.getData().getAsJsonObject().getAsJsonObject("student")
+                .getAsJsonObject("account").get("userId").getAsString());
+
+        assertTrue(size(json) < size(encoded));
+    }
+
+    /**
+     * A step completion reply carries its Step within its StepCompletionReply
+     * inline, rather than escaped twice.
+     */
+    @Test
+    public void testStepCompletionReply() {
+        String json = stepCompletionReply();
+        String encoded = encodedStepCompletionReply();
+
+        StepCompletionReply parsed = gson.fromJson(json, TutorReply.class).getData(StepCompletionReply.class);
+        assertTrue(parsed.isCorrect());
+        assertEquals(StepSubType.COMPLETE_CELL, gson.fromJson(parsed.getData(), Step.class).getSubType());
+
+        assertTrue(size(json) < size(encoded));
+    }
+
+    /**
+     * Compare the parse times of the tree and encoded replies.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "edu.regis.dptu.benchmarks", matches = "true")
+    public void testParseBenchmark() {
+        compare("Sign-in", signInReply(), encodedSignInReply(), false);
+        compare("Step completion", stepCompletionReply(), encodedStepCompletionReply(), true);
+    }
+
+    private String signInReply() {
+        TutorReply reply = new TutorReply("Authenticated");
+        reply.setData(gson.toJsonTree(signInSession()));
+
+        return gson.toJson(reply);
+    }
+
+    private String encodedSignInReply() {
+        return gson.toJson(new EncodedReply("Authenticated", gson.toJson(signInSession())));
+    }
+
+    private String stepCompletionReply() {
+        StepCompletionReply stepReply = new StepCompletionReply();
+        stepReply.setIsCorrect(true);
+        stepReply.setIsNextStep(true);
+        stepReply.setData(gson.toJsonTree(completedStep()));
+
+        TutorReply reply = new TutorReply(":StepCompletionReply");
+        reply.setData(gson.toJsonTree(stepReply));
+
+        return gson.toJson(reply);
+    }
+
+    private String encodedStepCompletionReply() {
+        EncodedStepCompletionReply encodedStepReply = new EncodedStepCompletionReply();
+        encodedStepReply.data = gson.toJson(completedStep());
+
+        return gson.toJson(new EncodedReply(":StepCompletionReply", gson.toJson(encodedStepReply)));
+    }
+
+    private static Step completedStep() {
+        Step step = new Step(3, 2, StepSubType.COMPLETE_CELL);
+        step.setData("{\"row\":1,\"column\":1}");
+
+        return step;
+    }
+
+    private static int size(String json) {
+        return json.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Print and compare the size and parse time of the tree and encoded
+     * reply as the client would parse them.
+     */
+    private void compare(String name, String json, String encoded, boolean isNested) {
+        parseTree(json, PARSES); // Warm up
+        parseEncoded(encoded, isNested, PARSES);
+
+        long start = System.nanoTime();
+        parseEncoded(encoded, isNested, PARSES);
+        double encodedNs = (System.nanoTime() - start) / (double) PARSES;
+
+        start = System.nanoTime();
+        parseTree(json, PARSES);
+        double treeNs = (System.nanoTime() - start) / (double) PARSES;
+
+        System.out.printf("%s reply: %d bytes, %.1f us to parse (was %d bytes, %.1f us)%n",
+                name, size(json), treeNs / 1000, size(encoded), encodedNs / 1000);
+
+        if (isNested) { // Otherwise, the difference is within the timing noise
+            assertTrue(treeNs < encodedNs);
+        }
+    }
+
+    private int parseTree(String json, int n) {
+        int count = 0;
+
+        for (int i = 0; i < n; i++) {
+            count += gson.fromJson(json, TutorReply.class).getData().isJsonObject() ? 1 : 0;
+        }
+
+        return count;
+    }
+
+    private int parseEncoded(String encoded, boolean isNested, int n) {
+        int count = 0;
+
+        for (int i = 0; i < n; i++) {
+            String data = gson.fromJson(encoded, EncodedReply.class).data;
+
+            if (isNested) {
+                data = gson.fromJson(data, EncodedStepCompletionReply.class).data;
+            }
+
+            JsonElement tree = JsonParser.parseString(data);
+
+            count += tree.isJsonObject() ? 1 : 0;
+        }
+
+        return count;
+    }
+
+    /**
+     * Return a session like those returned by a sign-in, with a solved
+     * problem.
+     */
+    private static TutoringSession signInSession() {
+        Account account = new Account("test@regis.edu");
+        account.setFirstName("Test");
+        account.setLastName("User");
+
+        Student student = new Student(account);
+        student.setStudentModel(new StudentModel("test@regis.edu"));
+
+        TutoringSession session = new TutoringSession(student);
+        session.setCourse(new CourseDigest(1, "Dynamic Programming"));
+        session.setUnit(new UnitDigest(1));
+
+        LCSProblem problem = new LCSProblem("skullandbones", "lullabybabies");
+        problem.seek(problem.getStepCount());
+        session.setProblem(problem);
+
+        Task task = new Task(1);
+        for (int i = 0; i < 10; i++) {
+            task.addStep(new Step(i, i, StepSubType.COMPLETE_CELL));
+        }
+        task.setProblem(problem);
+
+        session.addTask(new PendingTask(task));
+
+        return session;
+    }
+
+    /**
+     * A TutorReply, as it was, with JSon encoded data.
+     */
+    private static class EncodedReply {
+        private String status;
+
+        private String data;
+
+        private long correlationId;
+
+        EncodedReply(String status, String data) {
+            this.status = status;
+            this.data = data;
+        }
+    }
+
+    /**
+     * A StepCompletionReply, as it was, with JSon encoded data.
+     */
+    private static class EncodedStepCompletionReply {
+        private boolean isCorrect = true;
+
+        private boolean isNextStep = true;
+
+        private String data;
+    }
+}
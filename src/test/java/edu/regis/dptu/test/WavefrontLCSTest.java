@@ -0,0 +1,113 @@
+/*
+ * DPTu: Dynamic Programming Tutor
+ * 
+ *  (C) Johanna & Richard Blumenthal, All rights reserved
+ * 
+ *  Unauthorized use, duplication or distribution without the authors'
+ *  permission is strictly prohibited.
+ * 
+ *  Unless required by applicable law or agreed to in writing, this
+ *  software is distributed on an "AS IS" basis without warranties
+ *  or conditions of any kind, either expressed or implied.
+ */
+package edu.regis.dptu.test;
+
+import edu.regis.dptu.model.FlatCellTable;
+import edu.regis.dptu.model.LCSProblem;
+import edu.regis.dptu.model.WavefrontLCS;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the WavefrontLCS fill against step()-driven filling, and its
+ * scaling from 1 to the available number of cores.
+ *
+ * @author rickb
+ */
+public class WavefrontLCSTest {
+    /**
+     * Precomputed tables, with tiles that do and don't divide the table,
+     * are identical to those filled by stepping.
+     */
+    @Test
+    public void testMatchesStepping() {
+        Random rand = new Random(16);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        for (int tileSize : new int[] {1, 3, 7, 64}) {
+            for (int trial = 0; trial < 10; trial++) {
+                String x = randomSequence(rand, rand.nextInt(120), 4);
+                String y = randomSequence(rand, rand.nextInt(120), 4);
+
+                LCSProblem stepped = new LCSProblem(x, y);
+                while (stepped.getExecutionState() != LCSProblem.EXECUTION_STATE.POST) {
+                    stepped.step();
+                }
+
+                LCSProblem precomputed = new LCSProblem(x, y);
+                precomputed.precompute(pool, tileSize);
+
+                assertEquals(LCSProblem.EXECUTION_STATE.PRE, precomputed.getExecutionState());
+
+                precomputed.seek(precomputed.getStepCount());
+
+                for (int i = 0; i <= x.length(); i++) {
+                    for (int j = 0; j <= y.length(); j++) {
+                        assertEquals(stepped.getValueAt(i, j), precomputed.getValueAt(i, j));
+                    }
+                }
+            }
+        }
+
+        pool.shutdown();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new WavefrontLCS("ab", "cd", FlatCellTable.create(3, 3, 2), 0));
+    }
+
+    /**
+     * Time filling a 4000 x 4000 table with 1 to N threads.
+     */
+    @Test
+    public void testScaling() {
+        Random rand = new Random(2);
+        String x = randomSequence(rand, 4000, 4);
+        String y = randomSequence(rand, 4000, 4);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        FlatCellTable expected = null;
+
+        // 1, 2, 4, ... threads, ending with the number of cores
+        for (int threads = 1; threads <= cores; threads = threads == cores ? cores + 1 : Math.min(2 * threads, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            FlatCellTable table = FlatCellTable.create(x.length() + 1, y.length() + 1, x.length());
+            WavefrontLCS wavefront = new WavefrontLCS(x, y, table, WavefrontLCS.DEFAULT_TILE_SIZE);
+
+            long start = System.nanoTime();
+            wavefront.fill(pool);
+            double ms = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf("Wavefront fill of 4000 x 4000, %d thread(s): %.1f ms%n", threads, ms);
+
+            pool.shutdown();
+
+            if (expected == null) {
+                expected = table;
+            } else {
+                assertEquals(expected.get(x.length(), y.length()), table.get(x.length(), y.length()));
+            }
+        }
+    }
+
+    private static String randomSequence(Random rand, int length, int alphabet) {
+        StringBuilder s = new StringBuilder(length);
+
+        for (int k = 0; k < length; k++) {
+            s.append((char) ('a' + rand.nextInt(alphabet)));
+        }
+
+        return s.toString();
+    }
+}